@@ -5,13 +5,16 @@ import com.chibao.dbbackup_cli.domain.model.CompressionType;
 import com.chibao.dbbackup_cli.domain.port.in.BackupUseCase;
 import com.chibao.dbbackup_cli.domain.port.in.RestoreUseCase;
 import com.chibao.dbbackup_cli.domain.port.in.TestConnectionUseCase;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
 import lombok.RequiredArgsConstructor;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * CLI Adapter - INBOUND ADAPTER
@@ -50,12 +53,18 @@ public class BackupCliAdapter {
             @ShellOption(help = "Database name") String database,
             @ShellOption(help = "Username") String username,
             @ShellOption(help = "Password") String password,
-            @ShellOption(help = "Compression type (NONE, GZIP, ZIP)", defaultValue = "GZIP") String compression,
+            @ShellOption(help = "Compression type (NONE, GZIP, ZIP, ZSTD, LZ4, AUTO)", defaultValue = "GZIP") String compression,
+            @ShellOption(help = "Compression level (GZIP/ZIP 1-9, ZSTD 1-19, LZ4 1-17)", defaultValue = ShellOption.NULL) Integer compressionLevel,
             @ShellOption(help = "Enable encryption", defaultValue = "false") boolean encrypt,
             @ShellOption(help = "Storage provider (local, s3, minio)", defaultValue = "local") String storage,
-            @ShellOption(help = "Tables to backup (comma-separated)", defaultValue = ShellOption.NULL) String tables) {
+            @ShellOption(help = "Tables to backup (comma-separated)", defaultValue = ShellOption.NULL) String tables,
+            @ShellOption(help = "Dump format (custom, directory, native = parallel export, physical = pg_basebackup of the whole cluster); default custom; MySQL: native only", defaultValue = ShellOption.NULL) String format,
+            @ShellOption(help = "Parallel dump workers (directory and native formats)", defaultValue = "1") int jobs) {
 
         try {
+            CompressionType compressionType = CompressionType.valueOf(compression.toUpperCase());
+            compressionType.validateLevel(compressionLevel);
+
             consoleService.animateProgress("Starting backup...");
 
             // Convert CLI args → Domain command
@@ -67,10 +76,15 @@ public class BackupCliAdapter {
                     .database(database)
                     .username(username)
                     .password(password)
-                    .compression(CompressionType.valueOf(compression.toUpperCase()))
+                    .compression(compressionType)
+                    .compressionLevel(compressionLevel)
                     .encrypt(encrypt)
                     .storageProvider(storage.toLowerCase())
                     .tables(parseTables(tables))
+                    .additionalOptions(format == null
+                            ? Map.of(DatabaseDumpPort.OPTION_JOBS, String.valueOf(jobs))
+                            : Map.of(DatabaseDumpPort.OPTION_FORMAT, format.toLowerCase(),
+                                    DatabaseDumpPort.OPTION_JOBS, String.valueOf(jobs)))
                     .build();
 
             // Execute use case
@@ -93,6 +107,10 @@ public class BackupCliAdapter {
      * Example:
      * restore --backup-id abc123 --host localhost --port 5432 --database mydb
      * --username postgres --password secret
+     * <p>
+     * MySQL native exports can be rolled forward from the archived binlog:
+     * restore --backup-id def456 --host localhost --port 3306 --database shop
+     * --username root --password secret --target-time 2026-10-17T08:30:00Z
      */
     @ShellMethod(value = "Restore a database from backup", key = "restore")
     public void restore(@ShellOption(help = "Backup ID to restore") String backupId,
@@ -102,7 +120,11 @@ public class BackupCliAdapter {
             @ShellOption(help = "Username") String username,
             @ShellOption(help = "Password") String password,
             @ShellOption(help = "Skip if database exists", defaultValue = "false") boolean skipIfExists,
-            @ShellOption(help = "Tables to restore (comma-separated)", defaultValue = ShellOption.NULL) String tables) {
+            @ShellOption(help = "Tables to restore (comma-separated)", defaultValue = ShellOption.NULL) String tables,
+            @ShellOption(help = "Parallel pg_restore workers (default: backup's dump jobs / restore.jobs)", defaultValue = ShellOption.NULL) Integer jobs,
+            @ShellOption(help = "Empty data directory to lay a physical backup out in", defaultValue = ShellOption.NULL) String dataDirectory,
+            @ShellOption(help = "MySQL: replay archived binlog up to this time (ISO-8601)", defaultValue = ShellOption.NULL) String targetTime,
+            @ShellOption(help = "MySQL: replay archived binlog up to this GTID (uuid:N) or GTID set", defaultValue = ShellOption.NULL) String targetGtid) {
 
         try {
             consoleService.animateProgress("Starting restore...");
@@ -110,7 +132,9 @@ public class BackupCliAdapter {
             // Convert CLI args → Domain command
             RestoreUseCase.RestoreCommand command = RestoreUseCase.RestoreCommand.builder().backupId(backupId)
                     .targetHost(host).targetPort(port).targetDatabase(database).username(username).password(password)
-                    .skipIfExists(skipIfExists).tables(parseTables(tables)).build();
+                    .skipIfExists(skipIfExists).tables(parseTables(tables)).jobs(jobs).dataDirectory(dataDirectory)
+                    .recoveryTargetTime(targetTime != null ? Instant.parse(targetTime) : null)
+                    .recoveryTargetGtid(targetGtid).build();
 
             // Execute use case
             RestoreUseCase.RestoreResult result = restoreUseCase.execute(command);
@@ -121,6 +145,8 @@ public class BackupCliAdapter {
                 System.out.println(consoleService.formatKey("Backup ID: ") + result.getBackupId());
                 System.out.println(consoleService.formatKey("Duration: ") + result.getDurationMs() + " ms");
                 System.out.println(consoleService.formatKey("Message: ") + result.getMessage());
+                printPhases(result.getPhaseTimings());
+                printSlowestTables(result.getTableTimings());
             } else {
                 consoleService.printError("Restore failed!");
                 System.out.println(consoleService.formatKey("Backup ID: ") + result.getBackupId());
@@ -132,6 +158,44 @@ public class BackupCliAdapter {
         }
     }
 
+    /**
+     * Point-in-time recovery command
+     * <p>
+     * Example (lays out physical backup abc123 first; without --backup-id the
+     * base backup must already be in the data directory):
+     * recover --backup-id abc123 --data-directory /var/lib/postgresql/16/main --target-time 2026-10-17T08:30:00Z
+     */
+    @ShellMethod(value = "Prepare point-in-time recovery of a base backup from archived WAL", key = "recover")
+    public void recover(@ShellOption(help = "Data directory holding (or receiving) the base backup") String dataDirectory,
+            @ShellOption(help = "Physical backup to lay out first", defaultValue = ShellOption.NULL) String backupId,
+            @ShellOption(help = "Recover up to this time (ISO-8601, e.g. 2026-10-17T08:30:00Z)", defaultValue = ShellOption.NULL) String targetTime,
+            @ShellOption(help = "Recover up to this LSN (e.g. 0/3000060)", defaultValue = ShellOption.NULL) String targetLsn) {
+
+        try {
+            consoleService.animateProgress("Fetching archived WAL...");
+
+            RestoreUseCase.RestoreCommand command = RestoreUseCase.RestoreCommand.builder()
+                    .backupId(backupId)
+                    .dataDirectory(dataDirectory)
+                    .recoveryTargetTime(targetTime != null ? Instant.parse(targetTime) : null)
+                    .recoveryTargetLsn(targetLsn)
+                    .build();
+
+            RestoreUseCase.RestoreResult result = restoreUseCase.execute(command);
+
+            if (result.isSuccess()) {
+                consoleService.printSuccess("Recovery prepared!");
+                System.out.println(consoleService.formatKey("Duration: ") + result.getDurationMs() + " ms");
+                System.out.println(consoleService.formatKey("Message: ") + result.getMessage());
+            } else {
+                consoleService.printError("Recovery preparation failed!");
+                System.out.println(consoleService.formatKey("Error: ") + result.getMessage());
+            }
+
+        } catch (Exception e) {
+            consoleService.printError("Error: " + e.getMessage());
+        }
+    }
     /**
      * Test database connection
      * <p>
@@ -210,6 +274,24 @@ public class BackupCliAdapter {
         consoleService.printWarning("Please check logs for details.");
     }
 
+    private void printPhases(Map<String, Long> phases) {
+        if (phases == null || phases.isEmpty()) {
+            return;
+        }
+        System.out.println(consoleService.formatKey("Phases: "));
+        phases.forEach((phase, durationMs) -> System.out.println("  " + phase + ": " + durationMs + " ms"));
+    }
+
+    private void printSlowestTables(List<RestoreUseCase.TableTiming> timings) {
+        if (timings == null || timings.isEmpty()) {
+            return;
+        }
+        System.out.println(consoleService.formatKey("Slowest tables: "));
+        timings.stream().limit(10).forEach(timing -> System.out.println("  " + timing.getTable() + ": "
+                + timing.getDurationMs() + " ms"
+                + (timing.getSizeBytes() >= 0 ? " (" + formatBytes(timing.getSizeBytes()) + ")" : "")));
+    }
+
     private String formatBytes(long bytes) {
         if (bytes < 1024) {
             return bytes + " B";
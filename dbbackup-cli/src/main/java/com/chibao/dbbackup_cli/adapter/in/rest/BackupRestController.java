@@ -46,6 +46,9 @@ public class BackupRestController {
         log.info("REST API: Create backup request received for database: {}", request.getDatabase());
 
         try {
+            CompressionType compression = CompressionType.valueOf(request.getCompression().toUpperCase());
+            compression.validateLevel(request.getCompressionLevel());
+
             BackupUseCase.BackupCommand command = BackupUseCase.BackupCommand.builder()
                     .databaseType(request.getDatabaseType())
                     .host(request.getHost())
@@ -53,7 +56,8 @@ public class BackupRestController {
                     .database(request.getDatabase())
                     .username(request.getUsername())
                     .password(request.getPassword())
-                    .compression(CompressionType.valueOf(request.getCompression().toUpperCase()))
+                    .compression(compression)
+                    .compressionLevel(request.getCompressionLevel())
                     .encrypt(request.isEncrypt())
                     .storageProvider(request.getStorageProvider())
                     .tables(request.getTables())
@@ -11,6 +11,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Restore REST Controller
  * INBOUND ADAPTER - REST API for restore operations
@@ -34,7 +36,8 @@ class RestoreRestController {
      *   "targetDatabase": "mydb_restored",
      *   "username": "postgres",
      *   "password": "secret",
-     *   "skipIfExists": false
+     *   "skipIfExists": false,
+     *   "jobs": 8
      * }
      */
     @PostMapping
@@ -55,6 +58,7 @@ class RestoreRestController {
                     .password(request.getPassword())
                     .skipIfExists(request.isSkipIfExists())
                     .tables(request.getTables())
+                    .jobs(request.getJobs())
                     .build();
 
             // Execute use case
@@ -66,6 +70,14 @@ class RestoreRestController {
                     .success(result.isSuccess())
                     .message(result.getMessage())
                     .durationMs(result.getDurationMs())
+                    .tableTimings(result.getTableTimings() == null ? List.of() : result.getTableTimings().stream()
+                            .map(timing -> RestoreResponseDto.TableTimingDto.builder()
+                                    .table(timing.getTable())
+                                    .sizeBytes(timing.getSizeBytes())
+                                    .durationMs(timing.getDurationMs())
+                                    .build())
+                            .toList())
+                    .phaseTimings(result.getPhaseTimings())
                     .build();
 
             HttpStatus status = result.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
@@ -39,9 +39,11 @@ public class BackupRequestDto {
     private String password;
 
     @Builder.Default
-    @Pattern(regexp = "NONE|GZIP|ZIP", message = "Compression must be: NONE, GZIP, or ZIP")
+    @Pattern(regexp = "NONE|GZIP|ZIP|ZSTD|LZ4|AUTO", message = "Compression must be: NONE, GZIP, ZIP, ZSTD, LZ4, or AUTO")
     private String compression = "GZIP";
 
+    private Integer compressionLevel;  // Optional: codec default when absent
+
     @Builder.Default
     private boolean encrypt = false;
 
@@ -39,4 +39,8 @@ public class RestoreRequestDto {
     private boolean skipIfExists = false;
 
     private List<String> tables;  // Optional: selective restore
+
+    @Min(value = 1)
+    @Max(value = 64)
+    private Integer jobs;         // Optional: parallel pg_restore workers
 }
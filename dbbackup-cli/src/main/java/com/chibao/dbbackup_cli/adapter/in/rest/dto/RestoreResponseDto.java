@@ -5,6 +5,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -15,6 +18,18 @@ public class RestoreResponseDto {
     private boolean success;
     private String message;
     private Long durationMs;
+    private List<TableTimingDto> tableTimings;  // slowest first
+    private Map<String, Long> phaseTimings;     // ms per restore phase, in execution order
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TableTimingDto {
+        private String table;
+        private long sizeBytes;
+        private long durationMs;
+    }
 
     public static RestoreResponseDto error(String backupId, String message) {
         return RestoreResponseDto.builder()
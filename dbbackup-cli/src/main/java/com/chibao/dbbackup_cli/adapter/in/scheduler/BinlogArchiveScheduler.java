@@ -0,0 +1,40 @@
+package com.chibao.dbbackup_cli.adapter.in.scheduler;
+
+import com.chibao.dbbackup_cli.domain.port.in.BinlogArchiveUseCase;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binlog Archive Scheduler
+ * Keeps the binlog follower running and uploads rotated files every poll
+ * interval, so at most the open file (bounded by the rotate interval) plus
+ * one interval of binlog is not yet in the archive.
+ */
+@Component
+@ConditionalOnProperty(name = "backup.binlog-archive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+class BinlogArchiveScheduler {
+
+    private final BinlogArchiveUseCase binlogArchiveUseCase;
+
+    @Scheduled(fixedDelayString = "${backup.binlog-archive.poll-interval:PT10S}")
+    public void archive() {
+        try {
+            binlogArchiveUseCase.superviseFollower();
+            binlogArchiveUseCase.archiveCompletedFiles();
+        } catch (Exception e) {
+            // Files stay in the spool directory and are retried on the next run
+            log.error("Binlog archiving failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        binlogArchiveUseCase.stopFollower();
+    }
+}
@@ -1,5 +1,6 @@
 package com.chibao.dbbackup_cli.adapter.in.scheduler;
 
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -51,7 +52,7 @@ class CleanupScheduler {
             try (java.util.stream.Stream<java.nio.file.Path> paths = java.nio.file.Files.walk(backupDir)) {
                 deletedCount = (int) paths
                         .filter(java.nio.file.Files::isRegularFile)
-                        .filter(path -> path.toString().endsWith(".tar.gz") ||
+                        .filter(path -> isArchive(path.toString()) ||
                                 path.toString().endsWith(".meta.json"))
                         .filter(path -> {
                             try {
@@ -135,4 +136,14 @@ class CleanupScheduler {
             log.error("Failed to cleanup temp files", e);
         }
     }
+
+    // Backup artifacts: .tar plus any codec's extension
+    private static boolean isArchive(String path) {
+        for (CompressionType type : CompressionType.values()) {
+            if (path.endsWith(".tar" + type.getExtension())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -41,10 +41,14 @@ public class ScheduledBackupAdapter {
     @Value("${backup.scheduler.compression:GZIP}")
     private String compression;
 
+    @Value("${backup.scheduler.compression-level:#{null}}")
+    private Integer compressionLevel;
+
     @Value("${backup.scheduler.encrypt:false}")
     private boolean encrypt;
 
     private List<DatabaseScheduleConfig> scheduleConfigs;
+    private CompressionType compressionType;
 
     @PostConstruct
     public void init() {
@@ -52,6 +56,10 @@ public class ScheduledBackupAdapter {
         log.info("Configured databases: {}", configuredDatabases);
         log.info("Storage provider: {}", storageProvider);
 
+        // Fail at startup, not at 2 AM: the CLI and REST adapters check the same range per request
+        compressionType = CompressionType.valueOf(compression.toUpperCase());
+        compressionType.validateLevel(compressionLevel);
+
         // Parse configured databases
         scheduleConfigs = parseDatabaseConfigs(configuredDatabases);
 
@@ -123,7 +131,8 @@ public class ScheduledBackupAdapter {
                 .database(config.getDatabase())
                 .username(config.getUsername())
                 .password(config.getPassword())
-                .compression(CompressionType.valueOf(compression.toUpperCase()))
+                .compression(compressionType)
+                .compressionLevel(compressionLevel)
                 .encrypt(encrypt)
                 .storageProvider(storageProvider)
                 .build();
@@ -0,0 +1,58 @@
+package com.chibao.dbbackup_cli.adapter.in.scheduler;
+
+import com.chibao.dbbackup_cli.domain.port.in.UploadRecoveryUseCase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Upload Recovery Scheduler
+ * - On startup: resumes uploads of backups interrupted by a crash
+ *   (background thread, so the shell is usable meanwhile)
+ * - Periodically: aborts multipart uploads abandoned for longer than
+ *   the threshold, which would otherwise be billed forever
+ */
+@Component
+@ConditionalOnProperty(name = "backup.upload-recovery.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+class UploadRecoveryScheduler {
+
+    private final UploadRecoveryUseCase uploadRecoveryUseCase;
+
+    @Value("${backup.upload-recovery.abandon-after:PT24H}")
+    private Duration abandonAfter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        Thread recovery = new Thread(() -> {
+            try {
+                uploadRecoveryUseCase.resumeInterruptedUploads();
+            } catch (Exception e) {
+                log.error("Resuming interrupted uploads failed", e);
+            }
+        }, "upload-recovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    /**
+     * Abort abandoned multipart uploads
+     * Runs every hour at minute 30
+     */
+    @Scheduled(cron = "${backup.upload-recovery.sweep-cron:0 30 * * * ?}")
+    public void sweepAbandonedUploads() {
+        try {
+            uploadRecoveryUseCase.abortAbandonedUploads(abandonAfter);
+        } catch (Exception e) {
+            log.error("Abandoned upload sweep failed", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.chibao.dbbackup_cli.adapter.in.scheduler;
+
+import com.chibao.dbbackup_cli.domain.port.in.WalArchiveUseCase;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * WAL Archive Scheduler
+ * Keeps the WAL receiver running and uploads completed segments every
+ * poll interval, so at most one segment (plus one interval) of WAL is
+ * not yet in the archive.
+ */
+@Component
+@ConditionalOnProperty(name = "backup.wal-archive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+class WalArchiveScheduler {
+
+    private final WalArchiveUseCase walArchiveUseCase;
+
+    @Scheduled(fixedDelayString = "${backup.wal-archive.poll-interval:PT10S}")
+    public void archive() {
+        try {
+            walArchiveUseCase.superviseReceiver();
+            walArchiveUseCase.archiveCompletedSegments();
+        } catch (Exception e) {
+            // Segments stay in the spool directory and are retried on the next run
+            log.error("WAL archiving failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        walArchiveUseCase.stopReceiver();
+    }
+}
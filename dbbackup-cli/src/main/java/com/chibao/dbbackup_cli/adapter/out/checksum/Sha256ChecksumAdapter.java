@@ -10,12 +10,14 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 
 /**
  * SHA-256 Checksum Adapter
  * OUTBOUND ADAPTER - implements ChecksumPort
- * Calculates SHA-256 checksums for file integrity verification.
+ * Calculates SHA-256 checksums for file integrity verification,
+ * either over a whole file or inline on a stream (newStreamingChecksum).
  */
 @Component
 @Slf4j
@@ -86,4 +88,13 @@ public class Sha256ChecksumAdapter implements ChecksumPort {
     public String getAlgorithm() {
         return ALGORITHM;
     }
+
+    @Override
+    public StreamingChecksum newStreamingChecksum() {
+        try {
+            return new StreamingSha256Checksum(MessageDigest.getInstance(ALGORITHM));
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException("Checksum algorithm not available: " + ALGORITHM, e);
+        }
+    }
 }
\ No newline at end of file
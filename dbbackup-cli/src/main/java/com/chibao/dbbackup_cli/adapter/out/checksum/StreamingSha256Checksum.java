@@ -0,0 +1,105 @@
+package com.chibao.dbbackup_cli.adapter.out.checksum;
+
+import com.chibao.dbbackup_cli.domain.port.out.ChecksumPort;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Streaming checksum backed by a MessageDigest
+ * The wrapping streams update the digest on the bulk read/write paths, so
+ * the checksum costs no extra pass over the data.
+ */
+class StreamingSha256Checksum implements ChecksumPort.StreamingChecksum {
+
+    private final MessageDigest digest;
+    private long byteCount;
+    private String checksum;
+
+    StreamingSha256Checksum(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    @Override
+    public OutputStream wrap(OutputStream target) {
+        return new FilterOutputStream(target) {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                update(b, off, len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public InputStream wrap(InputStream source) {
+        return new FilterInputStream(source) {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                int n = read(one, 0, 1);
+                return n == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    update(b, off, n);
+                }
+                return n;
+            }
+
+            // Skipped bytes are read through the digest, otherwise they would be missing from it
+            @Override
+            public long skip(long n) throws IOException {
+                byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+                long skipped = 0;
+                while (skipped < n) {
+                    int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                    if (read == -1) {
+                        break;
+                    }
+                    skipped += read;
+                }
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public String finish() {
+        if (checksum == null) {
+            checksum = HexFormat.of().formatHex(digest.digest());
+        }
+        return checksum;
+    }
+
+    private void update(byte[] b, int off, int len) {
+        if (checksum != null) {
+            throw new IllegalStateException("Checksum already finished");
+        }
+        digest.update(b, off, len);
+        byteCount += len;
+    }
+}
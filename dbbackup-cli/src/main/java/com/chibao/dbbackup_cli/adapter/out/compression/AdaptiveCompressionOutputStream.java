@@ -0,0 +1,106 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort.CompressionDecision;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Adaptive Compression Output Stream
+ * Holds back the first sampleSize bytes, asks the chooser for a codec based
+ * on that sample, then opens the chosen codec on the target and replays the
+ * sample through it. Everything after the sample is passed straight through.
+ * Streams shorter than the sample are decided on close.
+ */
+class AdaptiveCompressionOutputStream extends OutputStream {
+
+    private final OutputStream target;
+    private final Function<byte[], CompressionDecision> chooser;
+    private final BiFunction<OutputStream, CompressionDecision, OutputStream> opener;
+    private final Consumer<CompressionDecision> onDecision;
+
+    private byte[] sample;
+    private int sampleLength;
+    private OutputStream delegate;
+    private boolean closed;
+
+    AdaptiveCompressionOutputStream(OutputStream target,
+                                    int sampleSize,
+                                    Function<byte[], CompressionDecision> chooser,
+                                    BiFunction<OutputStream, CompressionDecision, OutputStream> opener,
+                                    Consumer<CompressionDecision> onDecision) {
+        this.target = target;
+        this.sample = new byte[sampleSize];
+        this.chooser = chooser;
+        this.opener = opener;
+        this.onDecision = onDecision;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (delegate == null) {
+            int n = Math.min(len, sample.length - sampleLength);
+            System.arraycopy(b, off, sample, sampleLength, n);
+            sampleLength += n;
+            off += n;
+            len -= n;
+            if (sampleLength < sample.length) {
+                return;
+            }
+            decide();
+        }
+        if (len > 0) {
+            delegate.write(b, off, len);
+        }
+    }
+
+    /**
+     * Nothing is forwarded until the codec is chosen
+     */
+    @Override
+    public void flush() throws IOException {
+        if (delegate != null) {
+            delegate.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (delegate == null) {
+                decide();
+            }
+        } catch (IOException | RuntimeException e) {
+            target.close();
+            throw e;
+        } finally {
+            closed = true;
+        }
+        delegate.close();
+    }
+
+    private void decide() throws IOException {
+        byte[] data = sampleLength == sample.length ? sample : Arrays.copyOf(sample, sampleLength);
+        CompressionDecision decision = chooser.apply(data);
+        onDecision.accept(decision);
+
+        delegate = opener.apply(target, decision);
+        delegate.write(sample, 0, sampleLength);
+        sample = null; // release the sample buffer for the rest of the stream
+    }
+}
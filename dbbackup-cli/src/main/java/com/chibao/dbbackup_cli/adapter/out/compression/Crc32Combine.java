@@ -0,0 +1,75 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+/**
+ * CRC-32 combination (port of zlib's crc32_combine)
+ * Given crc(A), crc(B) and len(B), returns crc(A + B) without touching the data.
+ * This lets every parallel block compute its own CRC independently.
+ */
+final class Crc32Combine {
+
+    private static final int GF2_DIM = 32;
+    private static final long CRC32_POLY = 0xedb88320L; // reversed polynomial
+
+    private Crc32Combine() {
+    }
+
+    static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[GF2_DIM]; // even-power-of-two zeros operator
+        long[] odd = new long[GF2_DIM];  // odd-power-of-two zeros operator
+
+        // Operator for one zero bit in odd
+        odd[0] = CRC32_POLY;
+        long row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // Operator for two zero bits in even, then four zero bits in odd
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply len2 zeros to crc1 (first square puts the operator for one zero byte in even)
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+
+        return (crc1 ^ crc2) & 0xffffffffL;
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
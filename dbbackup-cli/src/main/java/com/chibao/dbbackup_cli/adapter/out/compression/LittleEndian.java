@@ -0,0 +1,28 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Little-endian field writers for gzip/zip headers
+ */
+final class LittleEndian {
+
+    private LittleEndian() {
+    }
+
+    static void writeShort(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+    }
+
+    static void writeInt(OutputStream out, long value) throws IOException {
+        writeShort(out, (int) (value & 0xffff));
+        writeShort(out, (int) ((value >>> 16) & 0xffff));
+    }
+
+    static void writeLong(OutputStream out, long value) throws IOException {
+        writeInt(out, value & 0xffffffffL);
+        writeInt(out, value >>> 32);
+    }
+}
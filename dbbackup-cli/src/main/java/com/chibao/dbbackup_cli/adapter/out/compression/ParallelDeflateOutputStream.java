@@ -0,0 +1,227 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel Deflate Output Stream (pigz-style)
+ * Splits input into fixed-size blocks and deflates them concurrently on a
+ * shared worker pool, producing ONE standard raw deflate stream:
+ * - each block is primed with the last 32KB of the previous block as
+ *   dictionary, so ratio stays close to single-threaded deflate
+ * - non-final blocks end with SYNC_FLUSH (byte aligned, not final),
+ *   the last block ends with FINISH
+ * - blocks are written strictly in order; at most maxInFlight blocks are
+ *   queued, which bounds memory and applies backpressure to the writer
+ * - per-block CRC-32s are merged with crc32_combine
+ * Subclasses add the container framing (gzip, zip) around the deflate data.
+ */
+abstract class ParallelDeflateOutputStream extends OutputStream {
+
+    private static final int DICTIONARY_SIZE = 32 * 1024; // deflate window
+
+    protected final OutputStream out;
+
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxInFlight;
+    private final Deque<Future<CompressedBlock>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+    private int blockLength;
+    private byte[] dictionary;
+
+    private long crc;
+    private long uncompressedBytes;
+    private long compressedBytes;
+    private boolean headerWritten;
+    private boolean closed;
+
+    protected ParallelDeflateOutputStream(OutputStream out, ExecutorService executor,
+                                          int blockSize, int level, int maxInFlight) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE + " bytes");
+        }
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.block = new byte[blockSize];
+    }
+
+    // ===== FRAMING HOOKS =====
+
+    protected abstract void writeHeader() throws IOException;
+
+    protected abstract void writeTrailer(long crc32, long uncompressedSize, long compressedSize) throws IOException;
+
+    // ===== OUTPUT STREAM =====
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == block.length) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Writes out blocks that are already compressed. Data still being
+     * collected into the current block is not forced out, because that
+     * would end the block early and hurt the ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain(false);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock(true);
+            drain(true);
+            writeTrailer(crc, uncompressedBytes, compressedBytes);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            throw e;
+        } finally {
+            out.close();
+        }
+    }
+
+    // ===== INTERNALS =====
+
+    private void submitBlock(boolean last) throws IOException {
+        if (!headerWritten) {
+            writeHeader();
+            headerWritten = true;
+        }
+
+        byte[] data = block;
+        int length = blockLength;
+        byte[] dict = dictionary;
+
+        // Keep the tail of this block as dictionary for the next one
+        if (length >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+        } else if (length > 0) {
+            dictionary = Arrays.copyOfRange(data, 0, length);
+        }
+
+        pending.addLast(executor.submit(() -> deflateBlock(data, length, dict, last)));
+
+        block = last ? block : new byte[block.length];
+        blockLength = 0;
+
+        // Backpressure: never hold more than maxInFlight blocks in memory
+        while (pending.size() > maxInFlight) {
+            writeNext();
+        }
+        drain(false);
+    }
+
+    /**
+     * Write completed blocks in order
+     * @param all wait for every pending block, not just the ones already done
+     */
+    private void drain(boolean all) throws IOException {
+        while (!pending.isEmpty() && (all || pending.peekFirst().isDone())) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        CompressedBlock compressed;
+        try {
+            compressed = pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for compression worker");
+        } catch (ExecutionException e) {
+            throw new IOException("Parallel compression failed", e.getCause());
+        }
+
+        out.write(compressed.data, 0, compressed.length);
+        crc = Crc32Combine.combine(crc, compressed.crc, compressed.uncompressedLength);
+        uncompressedBytes += compressed.uncompressedLength;
+        compressedBytes += compressed.length;
+    }
+
+    private CompressedBlock deflateBlock(byte[] data, int length, byte[] dict, boolean last) {
+        CRC32 blockCrc = new CRC32();
+        blockCrc.update(data, 0, length);
+
+        Deflater deflater = new Deflater(level, true); // raw deflate, framing is ours
+        try {
+            if (dict != null) {
+                deflater.setDictionary(dict);
+            }
+            deflater.setInput(data, 0, length);
+
+            byte[] output = new byte[length + (length >> 3) + 64];
+            int written = 0;
+
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (written == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    written += deflater.deflate(output, written, output.length - written);
+                }
+            } else {
+                // SYNC_FLUSH must be repeated while it fills the whole output buffer
+                while (true) {
+                    int space = output.length - written;
+                    int n = deflater.deflate(output, written, space, Deflater.SYNC_FLUSH);
+                    written += n;
+                    if (n < space) {
+                        break;
+                    }
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+            }
+            return new CompressedBlock(output, written, blockCrc.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private record CompressedBlock(byte[] data, int length, long crc, int uncompressedLength) {
+    }
+}
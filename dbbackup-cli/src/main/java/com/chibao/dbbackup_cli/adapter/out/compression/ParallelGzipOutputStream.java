@@ -0,0 +1,41 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parallel GZIP Output Stream
+ * Standard single-member gzip file (RFC 1952) whose deflate body is
+ * produced by ParallelDeflateOutputStream. Readable by gunzip,
+ * GZIPInputStream and anything else that reads .gz.
+ */
+class ParallelGzipOutputStream extends ParallelDeflateOutputStream {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int CM_DEFLATE = 8;
+    private static final int OS_UNKNOWN = 255;
+
+    ParallelGzipOutputStream(OutputStream out, ExecutorService executor,
+                             int blockSize, int level, int maxInFlight) {
+        super(out, executor, blockSize, level, maxInFlight);
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+        out.write(new byte[]{
+                (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8),
+                CM_DEFLATE,
+                0,          // FLG
+                0, 0, 0, 0, // MTIME (not set)
+                0,          // XFL
+                (byte) OS_UNKNOWN
+        });
+    }
+
+    @Override
+    protected void writeTrailer(long crc32, long uncompressedSize, long compressedSize) throws IOException {
+        LittleEndian.writeInt(out, crc32);
+        LittleEndian.writeInt(out, uncompressedSize); // ISIZE is the size modulo 2^32
+    }
+}
@@ -0,0 +1,146 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parallel ZIP Output Stream
+ * Single-entry ZIP archive whose deflate body is produced by
+ * ParallelDeflateOutputStream. Sizes and CRC are unknown while streaming,
+ * so the entry uses a data descriptor. The central directory always carries
+ * ZIP64 fields; the data descriptor switches to its 8-byte form only past 4GB,
+ * which is what streaming readers such as ZipInputStream expect.
+ * Readable by unzip, ZipFile and ZipInputStream.
+ */
+class ParallelZipOutputStream extends ParallelDeflateOutputStream {
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int END_SIG = 0x06054b50;
+
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP64_MAGIC = 0xffffffffL;
+
+    private static final int LOCAL_HEADER_FIXED_SIZE = 30;
+    private static final int ZIP64_EXTRA_SIZE = 20;       // id + size + 2 x 8 byte sizes
+    private static final int DATA_DESCRIPTOR_SIZE = 16;        // sig + crc + 2 x 4 byte sizes
+    private static final int ZIP64_DATA_DESCRIPTOR_SIZE = 24;  // sig + crc + 2 x 8 byte sizes
+    private static final int CENTRAL_HEADER_FIXED_SIZE = 46;
+
+    private final byte[] entryName;
+    private final int dosTime;
+    private final int dosDate;
+
+    ParallelZipOutputStream(OutputStream out, ExecutorService executor, String entryName,
+                            int blockSize, int level, int maxInFlight) {
+        super(out, executor, blockSize, level, maxInFlight);
+        this.entryName = entryName.getBytes(StandardCharsets.UTF_8);
+
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = (now.getHour() << 11) | (now.getMinute() << 5) | (now.getSecond() >> 1);
+        this.dosDate = ((now.getYear() - 1980) << 9) | (now.getMonthValue() << 5) | now.getDayOfMonth();
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+        LittleEndian.writeInt(out, LOCAL_HEADER_SIG);
+        LittleEndian.writeShort(out, VERSION_ZIP64);
+        LittleEndian.writeShort(out, FLAG_DATA_DESCRIPTOR | FLAG_UTF8);
+        LittleEndian.writeShort(out, METHOD_DEFLATED);
+        LittleEndian.writeShort(out, dosTime);
+        LittleEndian.writeShort(out, dosDate);
+        LittleEndian.writeInt(out, 0);    // CRC and sizes follow in the data descriptor
+        LittleEndian.writeInt(out, 0);
+        LittleEndian.writeInt(out, 0);
+        LittleEndian.writeShort(out, entryName.length);
+        LittleEndian.writeShort(out, 0);  // no extra field
+        out.write(entryName);
+    }
+
+    @Override
+    protected void writeTrailer(long crc32, long uncompressedSize, long compressedSize) throws IOException {
+        // Data descriptor
+        boolean zip64Descriptor = compressedSize >= ZIP64_MAGIC || uncompressedSize >= ZIP64_MAGIC;
+        LittleEndian.writeInt(out, DATA_DESCRIPTOR_SIG);
+        LittleEndian.writeInt(out, crc32);
+        if (zip64Descriptor) {
+            LittleEndian.writeLong(out, compressedSize);
+            LittleEndian.writeLong(out, uncompressedSize);
+        } else {
+            LittleEndian.writeInt(out, compressedSize);
+            LittleEndian.writeInt(out, uncompressedSize);
+        }
+
+        long centralDirOffset = LOCAL_HEADER_FIXED_SIZE + entryName.length + compressedSize
+                + (zip64Descriptor ? ZIP64_DATA_DESCRIPTOR_SIZE : DATA_DESCRIPTOR_SIZE);
+        long centralDirSize = CENTRAL_HEADER_FIXED_SIZE + entryName.length + ZIP64_EXTRA_SIZE;
+
+        // Central directory (one entry, local header at offset 0)
+        LittleEndian.writeInt(out, CENTRAL_HEADER_SIG);
+        LittleEndian.writeShort(out, VERSION_ZIP64);  // version made by
+        LittleEndian.writeShort(out, VERSION_ZIP64);  // version needed
+        LittleEndian.writeShort(out, FLAG_DATA_DESCRIPTOR | FLAG_UTF8);
+        LittleEndian.writeShort(out, METHOD_DEFLATED);
+        LittleEndian.writeShort(out, dosTime);
+        LittleEndian.writeShort(out, dosDate);
+        LittleEndian.writeInt(out, crc32);
+        LittleEndian.writeInt(out, ZIP64_MAGIC);
+        LittleEndian.writeInt(out, ZIP64_MAGIC);
+        LittleEndian.writeShort(out, entryName.length);
+        LittleEndian.writeShort(out, ZIP64_EXTRA_SIZE);
+        LittleEndian.writeShort(out, 0);  // comment length
+        LittleEndian.writeShort(out, 0);  // disk number start
+        LittleEndian.writeShort(out, 0);  // internal attributes
+        LittleEndian.writeInt(out, 0);    // external attributes
+        LittleEndian.writeInt(out, 0);    // local header offset
+        out.write(entryName);
+        writeZip64Extra(uncompressedSize, compressedSize);
+
+        long zip64EndOffset = centralDirOffset + centralDirSize;
+
+        // ZIP64 end of central directory record
+        LittleEndian.writeInt(out, ZIP64_END_SIG);
+        LittleEndian.writeLong(out, 44);  // size of remaining record
+        LittleEndian.writeShort(out, VERSION_ZIP64);
+        LittleEndian.writeShort(out, VERSION_ZIP64);
+        LittleEndian.writeInt(out, 0);    // this disk
+        LittleEndian.writeInt(out, 0);    // disk with central directory
+        LittleEndian.writeLong(out, 1);   // entries on this disk
+        LittleEndian.writeLong(out, 1);   // total entries
+        LittleEndian.writeLong(out, centralDirSize);
+        LittleEndian.writeLong(out, centralDirOffset);
+
+        // ZIP64 end of central directory locator
+        LittleEndian.writeInt(out, ZIP64_LOCATOR_SIG);
+        LittleEndian.writeInt(out, 0);
+        LittleEndian.writeLong(out, zip64EndOffset);
+        LittleEndian.writeInt(out, 1);    // total disks
+
+        // End of central directory record (values deferred to ZIP64 record)
+        LittleEndian.writeInt(out, END_SIG);
+        LittleEndian.writeShort(out, 0);
+        LittleEndian.writeShort(out, 0);
+        LittleEndian.writeShort(out, 1);
+        LittleEndian.writeShort(out, 1);
+        LittleEndian.writeInt(out, ZIP64_MAGIC);
+        LittleEndian.writeInt(out, ZIP64_MAGIC);
+        LittleEndian.writeShort(out, 0);  // comment length
+    }
+
+    private void writeZip64Extra(long uncompressedSize, long compressedSize) throws IOException {
+        LittleEndian.writeShort(out, ZIP64_EXTRA_ID);
+        LittleEndian.writeShort(out, 16);
+        LittleEndian.writeLong(out, uncompressedSize);
+        LittleEndian.writeLong(out, compressedSize);
+    }
+}
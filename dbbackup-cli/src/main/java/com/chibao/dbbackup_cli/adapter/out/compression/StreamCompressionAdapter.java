@@ -0,0 +1,360 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.pipeline.CountingOutputStream;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Stream Compression Adapter
+ * OUTBOUND ADAPTER - implements CompressionPort
+ * - GZIP and ZIP are compressed block-parallel on a shared worker pool
+ *   (see ParallelDeflateOutputStream); output stays readable by gunzip/unzip.
+ *   With threads=1 the plain single-threaded JDK streams are used.
+ * - ZSTD uses zstd-jni: levels 1-19, optional long-distance window and
+ *   multi-threaded frame compression inside libzstd.
+ * - LZ4 uses the LZ4 frame format: level 1 is the fast compressor
+ *   (local staging), 2-17 the high compression one.
+ * - AUTO samples the start of the stream and picks NONE, a fast or a
+ *   strong codec (see chooseCodec).
+ */
+@Component
+@Slf4j
+class StreamCompressionAdapter implements CompressionPort {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024; // 64KB
+    private static final int DECOMPRESS_BUFFER_SIZE = 256 * 1024; // 256KB
+    private static final String ZIP_ENTRY_NAME = "backup.dump";
+    private static final int ZSTD_MAX_WINDOW_LOG = 31;
+    private static final int MIN_SAMPLE_SIZE = 64 * 1024; // below this timings are noise
+
+    @Value("${backup.compression.threads:0}")
+    private int threads;
+
+    @Value("${backup.compression.block-size:131072}")
+    private int blockSize;
+
+    @Value("${backup.compression.level:6}")
+    private int level;
+
+    @Value("${backup.compression.zstd.level:3}")
+    private int zstdLevel;
+
+    @Value("${backup.compression.zstd.long-window-log:0}")
+    private int zstdLongWindowLog;
+
+    @Value("${backup.compression.zstd.workers:-1}")
+    private int zstdWorkers;
+
+    @Value("${backup.compression.auto.sample-size:4194304}")
+    private int autoSampleSize;
+
+    @Value("${backup.compression.auto.strong-level:9}")
+    private int autoStrongLevel;
+
+    @Value("${backup.compression.auto.min-ratio:1.1}")
+    private double autoMinRatio;
+
+    @Value("${backup.compression.auto.min-gain:0.03}")
+    private double autoMinGain;
+
+    @Value("${backup.compression.auto.target-mbps:100}")
+    private double autoTargetMbps;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    void init() {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (zstdWorkers < 0) {
+            zstdWorkers = threads > 1 ? threads : 0;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "compress-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Compression engine initialized: threads={}, blockSize={} bytes, level={}, "
+                        + "zstdLevel={}, zstdLongWindowLog={}, zstdWorkers={}",
+                threads, blockSize, level, zstdLevel, zstdLongWindowLog, zstdWorkers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public OutputStream compress(OutputStream target, CompressionType type, Integer requestedLevel) {
+        type.validateLevel(requestedLevel);
+
+        try {
+            boolean parallel = threads > 1;
+            // Two blocks per worker keeps every core busy while the writer waits on the oldest block
+            int maxInFlight = threads * 2;
+            int deflateLevel = requestedLevel != null ? requestedLevel : level;
+
+            return switch (type) {
+                case AUTO -> throw new IllegalArgumentException("AUTO compression must go through compressAdaptive");
+                case NONE -> target;
+                case GZIP -> parallel
+                        ? new ParallelGzipOutputStream(target, workers, blockSize, deflateLevel, maxInFlight)
+                        : new LeveledGzipOutputStream(target, deflateLevel);
+                case ZIP -> parallel
+                        ? new ParallelZipOutputStream(target, workers, ZIP_ENTRY_NAME, blockSize, deflateLevel, maxInFlight)
+                        : new SingleEntryZipOutputStream(target, ZIP_ENTRY_NAME, deflateLevel);
+                case ZSTD -> zstdOutput(target, requestedLevel != null ? requestedLevel : zstdLevel);
+                case LZ4 -> lz4Output(target, requestedLevel != null ? requestedLevel : 1);
+            };
+        } catch (IOException e) {
+            log.error("Failed to open {} compression stream", type, e);
+            throw new BackupFailedException("Failed to open compression stream", e);
+        }
+    }
+
+    @Override
+    public InputStream decompress(InputStream source, CompressionType type) {
+        try {
+            return switch (type) {
+                case AUTO -> throw new IllegalArgumentException("AUTO is resolved at backup time, not a stored format");
+                case NONE -> source;
+                case GZIP -> new GZIPInputStream(source, DECOMPRESS_BUFFER_SIZE);
+                case ZIP -> new SingleEntryZipInputStream(source);
+                case ZSTD -> new ZstdInputStreamNoFinalizer(source).setLongMax(ZSTD_MAX_WINDOW_LOG);
+                case LZ4 -> new LZ4FrameInputStream(source);
+            };
+        } catch (IOException e) {
+            log.error("Failed to open {} decompression stream", type, e);
+            throw new BackupFailedException("Failed to open decompression stream", e);
+        }
+    }
+
+    @Override
+    public OutputStream compressAdaptive(OutputStream target, Consumer<CompressionDecision> onDecision) {
+        return new AdaptiveCompressionOutputStream(
+                target,
+                autoSampleSize,
+                this::chooseCodec,
+                (out, decision) -> compress(out, decision.getType(), decision.getLevel()),
+                onDecision);
+    }
+
+    // ===== ADAPTIVE SELECTION =====
+
+    /**
+     * Trial-compress the sample with LZ4, fast ZSTD and strong ZSTD.
+     * - best ratio below min-ratio: data is already compressed -> NONE
+     * - otherwise the strongest codec that still compresses at target-mbps
+     *   (the rate the upload can absorb), moving to a slower codec only if
+     *   it gains more than min-gain in ratio
+     * - if no codec reaches the target, the fastest one
+     */
+    CompressionDecision chooseCodec(byte[] sample) {
+        if (sample.length < MIN_SAMPLE_SIZE) {
+            // Whole stream is tiny: codec choice does not matter, skip the trials
+            return CompressionDecision.builder()
+                    .type(CompressionType.ZSTD)
+                    .level(zstdLevel)
+                    .sampleBytes(sample.length)
+                    .sampleRatio(0)
+                    .sampleThroughputMbps(0)
+                    .reason("stream shorter than " + MIN_SAMPLE_SIZE + " bytes, using default ZSTD")
+                    .candidates(Map.of())
+                    .build();
+        }
+
+        // Warm up native libraries and JIT so the first timed codec is not penalised
+        byte[] warmup = Arrays.copyOf(sample, MIN_SAMPLE_SIZE);
+        trial(warmup, CompressionType.LZ4, 1);
+        trial(warmup, CompressionType.ZSTD, zstdLevel);
+
+        List<Trial> trials = List.of(
+                trial(sample, CompressionType.LZ4, 1),
+                trial(sample, CompressionType.ZSTD, zstdLevel),
+                trial(sample, CompressionType.ZSTD, autoStrongLevel));
+
+        Map<String, String> candidates = new LinkedHashMap<>();
+        trials.forEach(t -> candidates.put(t.type() + ":" + t.level(),
+                String.format(Locale.ROOT, "ratio=%.3f mbps=%.1f", t.ratio(), t.mbps())));
+
+        Trial best = trials.stream().max(Comparator.comparingDouble(Trial::ratio)).orElseThrow();
+        Trial fastest = trials.stream().max(Comparator.comparingDouble(Trial::mbps)).orElseThrow();
+
+        CompressionDecision.CompressionDecisionBuilder decision = CompressionDecision.builder()
+                .sampleBytes(sample.length)
+                .candidates(candidates);
+
+        if (best.ratio() < autoMinRatio) {
+            return decision
+                    .type(CompressionType.NONE)
+                    .sampleRatio(1.0)
+                    .sampleThroughputMbps(0)
+                    .reason(String.format(Locale.ROOT, "incompressible: best ratio %.3f < %.2f",
+                            best.ratio(), autoMinRatio))
+                    .build();
+        }
+
+        List<Trial> eligible = trials.stream()
+                .filter(t -> t.mbps() >= autoTargetMbps)
+                .sorted(Comparator.comparingDouble(Trial::mbps).reversed())
+                .toList();
+
+        Trial chosen;
+        String reason;
+        if (eligible.isEmpty()) {
+            chosen = fastest;
+            reason = String.format(Locale.ROOT, "no codec reaches %.0f MB/s, using fastest", autoTargetMbps);
+        } else {
+            chosen = eligible.get(0);
+            for (Trial slower : eligible.subList(1, eligible.size())) {
+                if (slower.ratio() > chosen.ratio() * (1 + autoMinGain)) {
+                    chosen = slower;
+                }
+            }
+            reason = String.format(Locale.ROOT, "best ratio at >= %.0f MB/s", autoTargetMbps);
+        }
+
+        log.info("Adaptive compression chose {}:{} ({}), candidates={}",
+                chosen.type(), chosen.level(), reason, candidates);
+        return decision
+                .type(chosen.type())
+                .level(chosen.level())
+                .sampleRatio(chosen.ratio())
+                .sampleThroughputMbps(chosen.mbps())
+                .reason(reason)
+                .build();
+    }
+
+    private Trial trial(byte[] sample, CompressionType type, int trialLevel) {
+        CountingOutputStream counter = new CountingOutputStream(OutputStream.nullOutputStream());
+        long start = System.nanoTime();
+        try (OutputStream out = compress(counter, type, trialLevel)) {
+            out.write(sample);
+        } catch (IOException e) {
+            throw new BackupFailedException("Compression sampling failed", e);
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        double ratio = counter.getCount() > 0 ? (double) sample.length / counter.getCount() : 1.0;
+        double mbps = sample.length / (1024.0 * 1024.0) / seconds;
+        return new Trial(type, trialLevel, ratio, mbps);
+    }
+
+    private record Trial(CompressionType type, int level, double ratio, double mbps) {
+    }
+
+    // ===== CODEC FACTORIES =====
+
+    private OutputStream zstdOutput(OutputStream target, int zstdCompressionLevel) throws IOException {
+        ZstdOutputStreamNoFinalizer zstd = new ZstdOutputStreamNoFinalizer(target, zstdCompressionLevel);
+        zstd.setChecksum(true);
+        if (zstdLongWindowLog > 0) {
+            // Long distance matching: finds repeats far apart in large dumps
+            zstd.setLong(zstdLongWindowLog);
+        }
+        if (zstdWorkers > 0) {
+            // libzstd compresses frame jobs on its own threads
+            zstd.setWorkers(zstdWorkers);
+        }
+        return zstd;
+    }
+
+    private OutputStream lz4Output(OutputStream target, int lz4Level) throws IOException {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        LZ4Compressor compressor = lz4Level <= 1 ? factory.fastCompressor() : factory.highCompressor(lz4Level);
+        return new LZ4FrameOutputStream(
+                target,
+                LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB,
+                -1L,
+                compressor,
+                XXHashFactory.fastestInstance().hash32(),
+                LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE,
+                LZ4FrameOutputStream.FLG.Bits.CONTENT_CHECKSUM);
+    }
+
+    /**
+     * GZIPOutputStream that honours the configured level
+     */
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(OutputStream target, int level) throws IOException {
+            super(target, GZIP_BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+
+    /**
+     * ZIP archive with exactly one entry, opened on construction and
+     * closed together with the archive.
+     */
+    private static class SingleEntryZipOutputStream extends FilterOutputStream {
+
+        private final ZipOutputStream zipOut;
+
+        SingleEntryZipOutputStream(OutputStream target, String entryName, int level) throws IOException {
+            super(new ZipOutputStream(target));
+            this.zipOut = (ZipOutputStream) out;
+            zipOut.setLevel(level);
+            zipOut.putNextEntry(new ZipEntry(entryName));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            zipOut.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            zipOut.closeEntry();
+            zipOut.close();
+        }
+    }
+
+    /**
+     * Reads the single entry written by the ZIP compressors
+     */
+    private static class SingleEntryZipInputStream extends FilterInputStream {
+
+        SingleEntryZipInputStream(InputStream source) throws IOException {
+            super(new ZipInputStream(source));
+            if (((ZipInputStream) in).getNextEntry() == null) {
+                throw new IOException("ZIP archive contains no entries");
+            }
+        }
+    }
+}
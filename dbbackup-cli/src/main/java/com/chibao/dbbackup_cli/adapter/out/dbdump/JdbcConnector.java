@@ -0,0 +1,19 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Opens connections for the native export / restore workers
+ * (a DriverManager URL in production, stub connections in tests)
+ */
+@FunctionalInterface
+interface JdbcConnector {
+
+    Connection connect() throws SQLException;
+
+    static JdbcConnector driverManager(String url, String username, String password) {
+        return () -> DriverManager.getConnection(url, username, password);
+    }
+}
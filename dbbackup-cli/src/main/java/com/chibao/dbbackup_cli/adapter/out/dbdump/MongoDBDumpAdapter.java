@@ -17,7 +17,7 @@ class MongoDBDumpAdapter implements DatabaseDumpPort {
     }
 
     @Override
-    public void performRestore(RestoreInput input) {
+    public RestoreOutput performRestore(RestoreInput input) {
         // mongorestore --host host --port port --db database --archive=dump.archive
         throw new UnsupportedOperationException("MongoDB restore not yet implemented");
     }
@@ -0,0 +1,229 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.exception.RestoreFailedException;
+import com.chibao.dbbackup_cli.domain.port.out.BinlogStreamPort;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mysqlbinlog Binlog Stream Adapter
+ * OUTBOUND ADAPTER - implements BinlogStreamPort
+ * Follows the source with mysqlbinlog --read-from-remote-server --raw
+ * --stop-never: it registers as a replica (its own server id) and copies
+ * each binlog file verbatim as the server writes it. Restarted on the
+ * newest spooled file, it fetches that file again from its start, so a
+ * lost connection leaves no gap as long as the server still has the file.
+ * Replay decodes archived files with mysqlbinlog and pipes the SQL into
+ * the mysql client.
+ */
+@Component
+@Slf4j
+public class MySQLBinlogAdapter implements BinlogStreamPort {
+
+    @Value("${mysql.mysqlbinlog-path:mysqlbinlog}")
+    private String mysqlbinlogPath;
+
+    @Value("${mysql.mysql-path:mysql}")
+    private String mysqlPath;
+
+    private static final int REPLAY_TIMEOUT_HOURS = 12;
+    // mysqlbinlog reads --stop-datetime in its own time zone; it runs with TZ=UTC
+    private static final DateTimeFormatter STOP_DATETIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    @Override
+    public BinlogFollower start(BinlogStreamConfig config) {
+        String startFile = config.getStartFile();
+        try (Connection connection = connect(config);
+             Statement statement = connection.createStatement()) {
+            checkBinlogFormat(statement);
+            if (startFile == null) {
+                startFile = currentFile(statement);
+            }
+        } catch (SQLException e) {
+            throw new BackupFailedException("Failed to read binlog status from " + config.getHost(), e);
+        }
+
+        List<String> command = new ArrayList<>(List.of(mysqlbinlogPath.split("\\s+")));
+        command.add("--read-from-remote-server");
+        command.add("--host=" + config.getHost());
+        command.add("--port=" + config.getPort());
+        command.add("--user=" + config.getUsername());
+        command.add("--connection-server-id=" + config.getServerId());
+        command.add("--raw");           // copy files verbatim instead of decoding them
+        command.add("--stop-never");    // keep following across rotations until stopped
+        command.add("--verify-binlog-checksum");
+        command.add("--result-file=" + config.getDirectory() + "/"); // with --raw: prefix of each file name
+        command.add(startFile);
+
+        log.info("Starting mysqlbinlog: host={}, serverId={}, from={}, directory={}",
+                config.getHost(), config.getServerId(), startFile, config.getDirectory());
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(command).redirectErrorStream(true);
+            processBuilder.environment().put("MYSQL_PWD", config.getPassword());
+            return new SupervisedProcess(processBuilder.start(), "mysqlbinlog");
+        } catch (IOException e) {
+            throw new BackupFailedException("Failed to start mysqlbinlog", e);
+        }
+    }
+
+    @Override
+    public void rotate(BinlogStreamConfig config) {
+        try (Connection connection = connect(config);
+             Statement statement = connection.createStatement()) {
+            statement.execute("FLUSH BINARY LOGS");
+            log.debug("Rotated binlog on {}", config.getHost());
+        } catch (SQLException e) {
+            throw new BackupFailedException("Failed to rotate binlog on " + config.getHost(), e);
+        }
+    }
+
+    @Override
+    public void replay(BinlogReplayConfig config) {
+        List<String> decoder = new ArrayList<>(List.of(mysqlbinlogPath.split("\\s+")));
+        decoder.add("--start-position=" + config.getStartPosition()); // applies to the first file only
+        if (config.getStopTime() != null) {
+            // Event timestamps have one-second resolution: keep everything up to the end of the target second
+            decoder.add("--stop-datetime=" + STOP_DATETIME.format(
+                    config.getStopTime().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1)));
+        }
+        if (config.getIncludeGtids() != null) {
+            decoder.add("--include-gtids=" + config.getIncludeGtids());
+        }
+        // The restored database starts its own GTID history; replayed transactions get new GTIDs
+        decoder.add("--skip-gtids");
+        if (!config.getSourceDatabase().equals(config.getTargetDatabase())) {
+            // Rewriting happens before filtering, so --database names the target
+            decoder.add("--rewrite-db=" + config.getSourceDatabase() + "->" + config.getTargetDatabase());
+        }
+        decoder.add("--database=" + config.getTargetDatabase());
+        config.getFiles().forEach(file -> decoder.add(file.toString()));
+
+        List<String> client = new ArrayList<>(List.of(mysqlPath.split("\\s+")));
+        client.add("--host=" + config.getTargetHost());
+        client.add("--port=" + config.getTargetPort());
+        client.add("--user=" + config.getUsername());
+        client.add("--database=" + config.getTargetDatabase());
+        client.add("--binary-mode");    // row events are base64 BINLOG statements with arbitrary bytes
+
+        log.info("Replaying {} binlog files into {} (from position {}, stop time {}, gtids {})",
+                config.getFiles().size(), config.getTargetDatabase(), config.getStartPosition(),
+                config.getStopTime(), config.getIncludeGtids());
+        Path decoderErrors = null;
+        Process decoding = null;
+        Process applying = null;
+        try {
+            decoderErrors = Files.createTempFile("mysqlbinlog_", ".err");
+            ProcessBuilder decoderBuilder = new ProcessBuilder(decoder).redirectError(decoderErrors.toFile());
+            decoderBuilder.environment().put("TZ", "UTC");
+            ProcessBuilder clientBuilder = new ProcessBuilder(client).redirectErrorStream(true);
+            clientBuilder.environment().put("MYSQL_PWD", config.getPassword());
+            decoding = decoderBuilder.start();
+            applying = clientBuilder.start();
+
+            Thread pump = pipe(decoding, applying);
+            String clientOutput;
+            try (InputStream stdout = applying.getInputStream()) {
+                clientOutput = new String(stdout.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (!applying.waitFor(REPLAY_TIMEOUT_HOURS, TimeUnit.HOURS)
+                    || !decoding.waitFor(1, TimeUnit.MINUTES)) {
+                throw new RestoreFailedException("Binlog replay timed out after " + REPLAY_TIMEOUT_HOURS + " hours");
+            }
+            pump.join();
+            // A client that fails stops the decoder too: its error is the one to report
+            if (applying.exitValue() != 0) {
+                throw new RestoreFailedException("mysql failed while replaying binlog with exit code "
+                        + applying.exitValue() + ": " + clientOutput.trim());
+            }
+            if (decoding.exitValue() != 0) {
+                throw new RestoreFailedException("mysqlbinlog failed with exit code " + decoding.exitValue() + ": "
+                        + Files.readString(decoderErrors).trim());
+            }
+        } catch (IOException e) {
+            throw new RestoreFailedException("Failed to replay binlog", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestoreFailedException("Interrupted while replaying binlog", e);
+        } finally {
+            destroy(decoding);
+            destroy(applying);
+            if (decoderErrors != null) {
+                try {
+                    Files.deleteIfExists(decoderErrors);
+                } catch (IOException e) {
+                    log.debug("Failed to delete {}", decoderErrors, e);
+                }
+            }
+        }
+    }
+
+    // ===== PRIVATE HELPER METHODS =====
+
+    /**
+     * Copy mysqlbinlog's output into the mysql client; closing its stdin ends the client
+     */
+    private Thread pipe(Process decoding, Process applying) {
+        Thread pump = new Thread(() -> {
+            try (InputStream in = decoding.getInputStream(); OutputStream out = applying.getOutputStream()) {
+                in.transferTo(out);
+            } catch (IOException e) {
+                // The client exited early; its exit code and output carry the reason
+                log.debug("Binlog replay pipe closed: {}", e.getMessage());
+                decoding.destroy();
+            }
+        }, "binlog-replay-pipe");
+        pump.setDaemon(true);
+        pump.start();
+        return pump;
+    }
+
+    private void checkBinlogFormat(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT @@GLOBAL.binlog_format")) {
+            if (rs.next() && !"ROW".equalsIgnoreCase(rs.getString(1))) {
+                log.warn("binlog_format is {}, not ROW: statement-based events may replay differently "
+                        + "than they ran on the source", rs.getString(1));
+            }
+        }
+    }
+
+    private String currentFile(Statement statement) throws SQLException {
+        try (ResultSet rs = MySQLParallelExporter.binlogStatus(statement)) {
+            if (!rs.next()) {
+                throw new BackupFailedException("Binary logging is disabled on the source, there is no binlog to follow");
+            }
+            return rs.getString(1);
+        }
+    }
+
+    private Connection connect(BinlogStreamConfig config) throws SQLException {
+        String url = String.format("jdbc:mysql://%s:%d/", config.getHost(), config.getPort());
+        return DriverManager.getConnection(url, config.getUsername(), config.getPassword());
+    }
+
+    private void destroy(Process process) {
+        if (process != null && process.isAlive()) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -1,34 +1,113 @@
 package com.chibao.dbbackup_cli.adapter.out.dbdump;
 
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
 import com.chibao.dbbackup_cli.domain.model.DatabaseConfig;
 import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Component("mysqlDump")
 @Slf4j
 class MySQLDumpAdapter implements DatabaseDumpPort {
 
+    @Value("${mysql.mysqldump-path:mysqldump}")
+    private String mysqldumpPath;
+
+    @Value("${mysql.mysql-path:mysql}")
+    private String mysqlPath;
+
+    // Native export: tables whose data is at least this big are exported as several primary key ranges
+    @Value("${backup.native-export.split-threshold-bytes:1073741824}")
+    private long splitThresholdBytes;
+
+    // Native export: target size of one range
+    @Value("${backup.native-export.chunk-bytes:268435456}")
+    private long splitChunkBytes;
+
+    // Native export: longest wait for FLUSH TABLES WITH READ LOCK (writers queue behind it meanwhile)
+    @Value("${mysql.export.lock-wait-timeout-seconds:60}")
+    private int lockWaitTimeoutSeconds;
+
+    private static final int TIMEOUT_SECONDS = 3600; // 1 hour default
+
+    /**
+     * MySQL has no single-file archive format of its own; backups are native exports
+     */
     @Override
     public DumpOutput performDump(DumpConfig config) {
-        // Similar to PostgreSQL but using mysqldump
-        log.info("Starting MySQL dump: database={}", config.getDatabase());
+        throw new UnsupportedOperationException(
+                "MySQL backups are native exports only (--format native), not single-file dumps");
+    }
 
-        // mysqldump -h host -P port -u user -p password database > dump.sql
-        // Use --single-transaction for InnoDB consistency
-        // Use --routines --events to include stored procedures and events
+    @Override
+    public String getDefaultFormat() {
+        return "native";
+    }
 
-        throw new UnsupportedOperationException("MySQL dump not yet implemented");
+    @Override
+    public boolean supportsSingleFileDump() {
+        return false;
     }
 
+    /**
+     * Parallel export under one consistent snapshot, see MySQLParallelExporter
+     */
     @Override
-    public void performRestore(RestoreInput input) {
-        // mysql -h host -P port -u user -p password database < dump.sql
-        throw new UnsupportedOperationException("MySQL restore not yet implemented");
+    public DumpOutput performExport(DumpConfig config, DumpStreamSink sink) {
+        log.info("Starting native MySQL export: database={}, host={}, jobs={}",
+                config.getDatabase(), config.getHost(), config.getJobs());
+        try {
+            DumpOutput output = new MySQLParallelExporter(config, sink,
+                    (file, target) -> dumpSchema(config, file, target),
+                    new RangeSplitter(splitThresholdBytes, splitChunkBytes), lockWaitTimeoutSeconds).export();
+            log.info("Native MySQL export completed: database={}, tables={}, size={} bytes",
+                    config.getDatabase(), output.getTableSizes().size(), output.getSizeBytes());
+            return output;
+        } catch (BackupFailedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Native MySQL export failed: database={}", config.getDatabase(), e);
+            throw new BackupFailedException("MySQL native export failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsNativeExport() {
+        return true;
+    }
+
+    /**
+     * Restore of a native export directory, see MySQLLoader
+     */
+    @Override
+    public RestoreOutput performRestore(RestoreInput input) {
+        if (!MySQLExportManifest.isNativeExport(input.getDumpFilePath())) {
+            throw new UnsupportedOperationException("MySQL restores need a native export directory");
+        }
+        log.info("Starting native MySQL restore: database={}, host={}, jobs={}",
+                input.getTargetDatabase(), input.getTargetHost(), Math.max(1, input.getJobs()));
+        try {
+            RestoreOutput output = new MySQLLoader(input, script -> runScript(input, script)).restore();
+            log.info("Native MySQL restore completed: database={}, tables={}, phases={}",
+                    input.getTargetDatabase(), output.getTableTimings().size(), output.getPhaseTimings());
+            return output;
+        } catch (Exception e) {
+            log.error("Native MySQL restore failed: database={}", input.getTargetDatabase(), e);
+            throw new BackupFailedException("MySQL restore failed: " + e.getMessage(), e);
+        }
     }
 
     @Override
@@ -56,4 +135,94 @@ class MySQLDumpAdapter implements DatabaseDumpPort {
     public String getSupportedDatabaseType() {
         return "mysql";
     }
+
+    // ===== PRIVATE HELPER METHODS =====
+
+    /**
+     * Feed an SQL script to the mysql client (mysqldump output uses DELIMITER for routines and triggers)
+     */
+    private void runScript(RestoreInput input, Path script) throws Exception {
+        List<String> command = new ArrayList<>(List.of(mysqlPath.split("\\s+")));
+        command.add("--host=" + input.getTargetHost());
+        command.add("--port=" + input.getTargetPort());
+        command.add("--user=" + input.getUsername());
+        command.add("--database=" + input.getTargetDatabase());
+        log.debug("Executing command: {} < {}", String.join(" ", command), script.getFileName());
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.environment().put("MYSQL_PWD", input.getPassword());
+        processBuilder.redirectInput(script.toFile());
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+        try {
+            String output;
+            try (InputStream stdout = process.getInputStream()) {
+                output = new String(stdout.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BackupFailedException("mysql timeout after " + TIMEOUT_SECONDS + " seconds");
+            }
+            if (process.exitValue() != 0) {
+                throw new BackupFailedException("mysql failed on " + script.getFileName() + " with exit code "
+                        + process.exitValue() + ": " + output.trim());
+            }
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Schema part of a native export, written to target
+     * schema.sql: tables, views, routines and events; triggers.sql: triggers
+     * only, applied after the data so they do not fire on the load
+     */
+    private void dumpSchema(DumpConfig config, String file, OutputStream target) throws Exception {
+        List<String> command = new ArrayList<>(List.of(mysqldumpPath.split("\\s+")));
+        command.add("--host=" + config.getHost());
+        command.add("--port=" + config.getPort());
+        command.add("--user=" + config.getUsername());
+        command.add("--no-data");
+        command.add("--single-transaction");
+        command.add("--skip-lock-tables");
+        command.add("--set-gtid-purged=OFF"); // the data parts carry the position, not the schema
+        if (MySQLExportManifest.TRIGGERS_FILE.equals(file)) {
+            command.add("--no-create-info");
+            command.add("--triggers");
+        } else {
+            command.add("--skip-triggers");
+            command.add("--routines");
+            command.add("--events");
+        }
+        command.add(config.getDatabase());
+        log.debug("Executing command: {}", String.join(" ", command));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.environment().put("MYSQL_PWD", config.getPassword());
+        Process process = processBuilder.start();
+        try {
+            CompletableFuture<String> errors = CompletableFuture.supplyAsync(() -> {
+                try (InputStream stderr = process.getErrorStream()) {
+                    return new String(stderr.readAllBytes(), StandardCharsets.UTF_8);
+                } catch (Exception e) {
+                    return e.getMessage();
+                }
+            });
+            try (InputStream stdout = process.getInputStream()) {
+                stdout.transferTo(target);
+            }
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BackupFailedException("mysqldump --no-data timeout after " + TIMEOUT_SECONDS + " seconds");
+            }
+            if (process.exitValue() != 0) {
+                throw new BackupFailedException("mysqldump --no-data failed with exit code " + process.exitValue()
+                        + ": " + errors.get(5, TimeUnit.SECONDS).trim());
+            }
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
 }
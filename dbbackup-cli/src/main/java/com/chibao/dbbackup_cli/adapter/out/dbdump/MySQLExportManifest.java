@@ -0,0 +1,123 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MySQL native export manifest (manifest.tsv)
+ * Written last, so a backup whose manifest is stored is complete. One
+ * tab-separated line per part:
+ *   binlog  file  position  executed GTID set   (position of the snapshot)
+ *   table   file  schema.table  column list  hex columns  size at export  range
+ * The column list holds backtick-quoted identifiers; hex columns are the
+ * 0-based positions of binary columns, written as hex text. Table files use
+ * the LOAD DATA defaults (tab-separated, backslash escapes, \N for NULL).
+ * A table split into ranges has one line (and file) per range; range is its
+ * WHERE predicate, empty for a whole table.
+ */
+class MySQLExportManifest {
+
+    static final String FILE_NAME = "manifest.tsv";
+    static final String SCHEMA_FILE = "schema.sql";
+    static final String TRIGGERS_FILE = "triggers.sql";
+    private static final String HEADER = "# dbbackup mysql export v1";
+    private static final Pattern QUOTED_IDENTIFIER = Pattern.compile("`(?:``|[^`])*`");
+
+    private final List<TableData> tables = new ArrayList<>();
+    private BinlogPosition binlogPosition;
+
+    record TableData(String file, String name, String columns, String hexColumns, long sizeBytes, String range) {
+
+        boolean isRange() {
+            return !range.isEmpty();
+        }
+
+        /**
+         * The quoted column identifiers, in file order
+         */
+        List<String> columnList() {
+            List<String> list = new ArrayList<>();
+            Matcher matcher = QUOTED_IDENTIFIER.matcher(columns);
+            while (matcher.find()) {
+                list.add(matcher.group());
+            }
+            return list;
+        }
+
+        boolean isHex(int column) {
+            if (hexColumns.isEmpty()) {
+                return false;
+            }
+            for (String position : hexColumns.split(",")) {
+                if (Integer.parseInt(position) == column) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    record BinlogPosition(String file, long position, String gtidSet) {
+    }
+
+    synchronized void addTable(TableData table) {
+        tables.add(table);
+    }
+
+    synchronized void setBinlogPosition(BinlogPosition binlogPosition) {
+        this.binlogPosition = binlogPosition;
+    }
+
+    List<TableData> getTables() {
+        return tables;
+    }
+
+    BinlogPosition getBinlogPosition() {
+        return binlogPosition;
+    }
+
+    synchronized byte[] toBytes() {
+        StringBuilder text = new StringBuilder(HEADER).append('\n');
+        if (binlogPosition != null) {
+            text.append(String.join("\t", "binlog", binlogPosition.file(), String.valueOf(binlogPosition.position()),
+                    binlogPosition.gtidSet())).append('\n');
+        }
+        for (TableData table : tables) {
+            text.append(String.join("\t", "table", table.file(), table.name(), table.columns(), table.hexColumns(),
+                    String.valueOf(table.sizeBytes()), table.range())).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static MySQLExportManifest read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException("Not a MySQL export manifest: " + file);
+        }
+        MySQLExportManifest manifest = new MySQLExportManifest();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            switch (fields[0]) {
+                case "binlog" -> manifest.setBinlogPosition(
+                        new BinlogPosition(fields[1], Long.parseLong(fields[2]), fields[3]));
+                case "table" -> manifest.addTable(
+                        new TableData(fields[1], fields[2], fields[3], fields[4], Long.parseLong(fields[5]), fields[6]));
+                default -> throw new IOException("Unknown manifest line: " + line);
+            }
+        }
+        return manifest;
+    }
+
+    static boolean isNativeExport(Path directory) {
+        return directory != null && Files.isRegularFile(directory.resolve(FILE_NAME));
+    }
+}
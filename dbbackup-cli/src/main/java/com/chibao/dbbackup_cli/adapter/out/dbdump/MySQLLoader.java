@@ -0,0 +1,409 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.RestoreInput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.RestoreOutput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.TableTiming;
+import com.mysql.cj.jdbc.JdbcStatement;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Native MySQL restore: loads a MySQL export directory in phases
+ * 1. schema: schema.sql through the mysql client
+ * 2. defer-indexes: non-unique B-tree secondary indexes are dropped (their
+ *    definitions kept), except those a foreign key needs
+ * 3. data: table files (ranges of a split table are separate files) taken
+ *    largest first by N connections, each LOAD DATA LOCAL INFILE fed from
+ *    the file through Connector/J's local infile stream, with unique and
+ *    foreign key checks off
+ * 4. indexes: the dropped indexes are added back, one ALTER TABLE per table,
+ *    tables in parallel
+ * 5. triggers: triggers.sql, once no more rows are loaded
+ * Sessions use UTC and add NO_AUTO_VALUE_ON_ZERO to the server's sql_mode,
+ * like the export, so TIMESTAMP values and zero auto-increment keys come
+ * back unchanged. A data part that raises a warning fails the restore.
+ */
+@Slf4j
+class MySQLLoader {
+
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final int WARNINGS_REPORTED = 3;
+    private static final String INDEXES_QUERY =
+            "SELECT s.INDEX_NAME, s.INDEX_TYPE, s.COLUMN_NAME, s.SUB_PART, s.COLLATION FROM information_schema.STATISTICS s "
+                    + "WHERE s.TABLE_SCHEMA = ? AND s.TABLE_NAME = ? AND s.NON_UNIQUE = 1 "
+                    + "ORDER BY s.INDEX_NAME, s.SEQ_IN_INDEX";
+    // Columns of the table's foreign keys and columns other tables' foreign keys reference
+    private static final String FOREIGN_KEY_COLUMNS_QUERY =
+            "SELECT COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE "
+                    + "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND REFERENCED_TABLE_NAME IS NOT NULL "
+                    + "UNION SELECT REFERENCED_COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE "
+                    + "WHERE REFERENCED_TABLE_SCHEMA = ? AND REFERENCED_TABLE_NAME = ?";
+
+    // Runs one SQL script of the export through the mysql client
+    @FunctionalInterface
+    interface ScriptRunner {
+        void run(Path script) throws Exception;
+    }
+
+    // One statement per item, run on a worker connection
+    @FunctionalInterface
+    private interface ItemTask<T> {
+        void run(Connection connection, T item) throws Exception;
+    }
+
+    private final RestoreInput input;
+    private final Path directory;
+    private final ScriptRunner scriptRunner;
+    private final String url;
+
+    MySQLLoader(RestoreInput input, ScriptRunner scriptRunner) {
+        this.input = input;
+        this.directory = input.getDumpFilePath();
+        this.scriptRunner = scriptRunner;
+        // LOAD DATA LOCAL also needs local_infile=ON on the server
+        this.url = String.format("jdbc:mysql://%s:%d/%s?allowLoadLocalInfile=true",
+                input.getTargetHost(), input.getTargetPort(), input.getTargetDatabase());
+    }
+
+    RestoreOutput restore() throws Exception {
+        MySQLExportManifest manifest = MySQLExportManifest.read(directory.resolve(MySQLExportManifest.FILE_NAME));
+        int jobs = Math.max(1, input.getJobs());
+
+        List<MySQLExportManifest.TableData> parts = new ArrayList<>();
+        for (MySQLExportManifest.TableData table : manifest.getTables()) {
+            if (isSelected(table)) {
+                parts.add(table);
+            }
+        }
+        parts.sort(Comparator.comparingLong(MySQLExportManifest.TableData::sizeBytes).reversed());
+        List<String> tables = parts.stream().map(MySQLLoader::relation).distinct().toList();
+        Map<String, Long> phases = new LinkedHashMap<>();
+
+        long started = System.nanoTime();
+        scriptRunner.run(directory.resolve(MySQLExportManifest.SCHEMA_FILE));
+        started = phase(phases, "schema", started);
+
+        Map<String, List<String>> deferred = new ConcurrentHashMap<>();
+        forEachParallel(tables, jobs, (connection, table) -> deferIndexes(connection, table, deferred));
+        started = phase(phases, "defer-indexes", started);
+
+        Map<String, long[]> timings = new ConcurrentHashMap<>();
+        forEachParallel(parts, jobs, (connection, table) -> load(connection, table, timings));
+        started = phase(phases, "data", started);
+
+        // The largest tables take longest to index: start them first
+        forEachParallel(tables.stream().filter(deferred::containsKey).toList(), jobs, (connection, table) ->
+                execute(connection, "ALTER TABLE " + MySQLParallelExporter.quote(table) + " "
+                        + String.join(", ", deferred.get(table))));
+        started = phase(phases, "indexes", started);
+
+        scriptRunner.run(directory.resolve(MySQLExportManifest.TRIGGERS_FILE));
+        phase(phases, "triggers", started);
+
+        List<TableTiming> tableTimings = new ArrayList<>();
+        timings.forEach((table, timing) -> tableTimings.add(TableTiming.builder()
+                .table(table)
+                .sizeBytes(timing[0])
+                .durationMs(timing[1])
+                .build()));
+        tableTimings.sort(Comparator.comparingLong(TableTiming::getDurationMs).reversed());
+        log.info("Native MySQL restore phases (ms): {}", phases);
+        return RestoreOutput.builder().tableTimings(tableTimings).phaseTimings(phases).build();
+    }
+
+    /**
+     * Drop the table's non-unique B-tree secondary indexes and remember how to add them back.
+     * Indexes on foreign key columns stay: MySQL will not drop an index a foreign key needs.
+     */
+    private void deferIndexes(Connection connection, String table, Map<String, List<String>> deferred)
+            throws SQLException {
+        Set<String> foreignKeyColumns = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(FOREIGN_KEY_COLUMNS_QUERY)) {
+            statement.setString(1, input.getTargetDatabase());
+            statement.setString(2, table);
+            statement.setString(3, input.getTargetDatabase());
+            statement.setString(4, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    foreignKeyColumns.add(rs.getString(1));
+                }
+            }
+        }
+
+        List<IndexColumn> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(INDEXES_QUERY)) {
+            statement.setString(1, input.getTargetDatabase());
+            statement.setString(2, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    long subPart = rs.getLong(4);
+                    columns.add(new IndexColumn(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.wasNull() ? null : subPart, rs.getString(5)));
+                }
+            }
+        }
+
+        List<String> drops = new ArrayList<>();
+        List<String> adds = new ArrayList<>();
+        deferrableIndexes(columns, foreignKeyColumns).forEach((index, keyParts) -> {
+            drops.add("DROP INDEX " + MySQLParallelExporter.quote(index));
+            adds.add("ADD INDEX " + MySQLParallelExporter.quote(index) + " (" + keyParts + ")");
+        });
+        if (drops.isEmpty()) {
+            return;
+        }
+        execute(connection, "ALTER TABLE " + MySQLParallelExporter.quote(table) + " " + String.join(", ", drops));
+        deferred.put(table, adds);
+        log.debug("Deferred {} index(es) of {}", adds.size(), table);
+    }
+
+    /**
+     * The indexes that can be dropped before the load, each with its key part list
+     * columns are STATISTICS rows in index order. An index stays when any of its
+     * columns is in a foreign key, when a key part is an expression (no column),
+     * or when it is FULLTEXT or SPATIAL: InnoDB adds FULLTEXT indexes one per
+     * ALTER, so rebuilding them would cost more than loading with them.
+     */
+    static Map<String, String> deferrableIndexes(List<IndexColumn> columns, Set<String> foreignKeyColumns) {
+        Map<String, List<String>> parts = new LinkedHashMap<>();
+        Set<String> kept = new HashSet<>();
+        for (IndexColumn column : columns) {
+            if (column.column() == null || foreignKeyColumns.contains(column.column())
+                    || "FULLTEXT".equals(column.type()) || "SPATIAL".equals(column.type())) {
+                kept.add(column.index());
+                continue;
+            }
+            String part = MySQLParallelExporter.quote(column.column())
+                    + (column.subPart() != null ? "(" + column.subPart() + ")" : "")
+                    + ("D".equals(column.collation()) ? " DESC" : "");
+            parts.computeIfAbsent(column.index(), name -> new ArrayList<>()).add(part);
+        }
+
+        Map<String, String> deferrable = new LinkedHashMap<>();
+        parts.forEach((index, keyParts) -> {
+            if (!kept.contains(index)) {
+                deferrable.put(index, String.join(", ", keyParts));
+            }
+        });
+        return deferrable;
+    }
+
+    /**
+     * LOAD DATA one table file; binary columns arrive as hex and are decoded with UNHEX.
+     * Ranges of a split table add up to one timing. LOAD DATA LOCAL acts as
+     * IGNORE whatever the sql_mode: a row that does not fit is truncated,
+     * converted or skipped with a warning, not an error. So the part fails on
+     * any warning, and when fewer rows went in than the file holds.
+     */
+    private void load(Connection connection, MySQLExportManifest.TableData table, Map<String, long[]> timings)
+            throws Exception {
+        long started = System.nanoTime();
+        try (Statement statement = connection.createStatement();
+             RowCountingInputStream data = new RowCountingInputStream(new BufferedInputStream(
+                     Files.newInputStream(directory.resolve(table.file())), READ_BUFFER_SIZE))) {
+            statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(data);
+            statement.execute(loadDataSql(table));
+            // Connector/J fetches the statement's warnings with SHOW WARNINGS when the server reported any
+            SQLWarning warning = statement.getWarnings();
+            if (warning != null) {
+                throw new BackupFailedException("Loading " + table.file() + " into " + table.name()
+                        + " raised warnings: " + describe(warning));
+            }
+            if (statement.getUpdateCount() != data.getRows()) {
+                throw new BackupFailedException("Loading " + table.file() + " into " + table.name() + " inserted "
+                        + statement.getUpdateCount() + " of " + data.getRows() + " rows");
+            }
+        }
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+        timings.merge(table.name(), new long[]{table.sizeBytes(), durationMs},
+                (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+        log.debug("Loaded {}{} in {} ms", table.name(),
+                table.isRange() ? " [" + table.range() + "]" : "", durationMs);
+    }
+
+    static String loadDataSql(MySQLExportManifest.TableData table) {
+        List<String> columns = table.columnList();
+        List<String> targets = new ArrayList<>();
+        List<String> decodes = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (table.isHex(i)) {
+                targets.add("@h" + i);
+                decodes.add(columns.get(i) + " = UNHEX(@h" + i + ")");
+            } else {
+                targets.add(columns.get(i));
+            }
+        }
+        // The file name is not read: Connector/J sends the statement's local infile stream instead
+        return "LOAD DATA LOCAL INFILE 'stream' INTO TABLE " + MySQLParallelExporter.quote(relation(table))
+                + " CHARACTER SET utf8mb4 (" + String.join(", ", targets) + ")"
+                + (decodes.isEmpty() ? "" : " SET " + String.join(", ", decodes));
+    }
+
+    /**
+     * Run task for every item on up to jobs connections; the first failure stops the
+     * other workers after their current item and is rethrown
+     */
+    private <T> void forEachParallel(List<T> items, int jobs, ItemTask<T> task) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        int workers = Math.min(jobs, items.size());
+        ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>(items);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "mysql-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = connect()) {
+                        T item;
+                        while (failure.get() == null && (item = queue.poll()) != null) {
+                            task.run(connection, item);
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new BackupFailedException("Native restore failed: " + failure.get().getMessage(), failure.get());
+        }
+    }
+
+    /**
+     * Connection tuned for bulk loading: rows were consistent at export, so checks are skipped
+     */
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, input.getUsername(), input.getPassword());
+        try {
+            // The server's own modes (STRICT_*, NO_ZERO_DATE, ...) stay on
+            execute(connection, "SET SESSION unique_checks = 0, foreign_key_checks = 0, time_zone = '+00:00', "
+                    + "sql_mode = CONCAT_WS(',', NULLIF(@@SESSION.sql_mode, ''), 'NO_AUTO_VALUE_ON_ZERO')");
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long phase(Map<String, Long> phases, String name, long started) {
+        long now = System.nanoTime();
+        phases.put(name, (now - started) / 1_000_000);
+        log.info("Native MySQL restore: {} done in {} ms", name, phases.get(name));
+        return now;
+    }
+
+    private static String describe(SQLWarning warning) {
+        List<String> messages = new ArrayList<>();
+        for (SQLWarning next = warning; next != null && messages.size() < WARNINGS_REPORTED;
+             next = next.getNextWarning()) {
+            messages.add(next.getMessage());
+        }
+        return String.join("; ", messages);
+    }
+
+    // Table name without the source database: rows go into the target database
+    private static String relation(MySQLExportManifest.TableData table) {
+        return table.name().substring(table.name().indexOf('.') + 1);
+    }
+
+    private boolean isSelected(MySQLExportManifest.TableData table) {
+        List<String> selection = input.getTables();
+        return selection == null || selection.isEmpty()
+                || selection.contains(table.name()) || selection.contains(relation(table));
+    }
+
+    /**
+     * One row of information_schema.STATISTICS; subPart is null unless the key part is a column prefix
+     */
+    record IndexColumn(String index, String type, String column, Long subPart, String collation) {
+    }
+
+    /**
+     * Counts the rows of a LOAD DATA file as the driver sends it: newlines inside
+     * values are escaped, so every newline byte ends a row
+     */
+    private static class RowCountingInputStream extends FilterInputStream {
+
+        private long rows;
+
+        RowCountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == '\n') {
+                rows++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            for (int i = off; i < off + n; i++) {
+                if (b[i] == '\n') {
+                    rows++;
+                }
+            }
+            return n;
+        }
+
+        long getRows() {
+            return rows;
+        }
+    }
+}
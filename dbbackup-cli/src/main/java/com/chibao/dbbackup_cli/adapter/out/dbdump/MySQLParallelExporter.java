@@ -0,0 +1,481 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpConfig;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpOutput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpStreamSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Native MySQL export: parallel SELECT under one consistent snapshot
+ * The coordinator takes FLUSH TABLES WITH READ LOCK just long enough to
+ * read the binlog position and let every worker connection run
+ * START TRANSACTION WITH CONSISTENT SNAPSHOT, so all workers (InnoDB tables)
+ * see the database as of that position. Workers take tables largest first
+ * from a shared queue; tables above the split threshold are queued as
+ * primary key ranges. Rows are read with streaming result sets and written
+ * in LOAD DATA format through the sink, one part per table or range. The
+ * schema and the triggers come from mysqldump --no-data as separate parts.
+ */
+@Slf4j
+class MySQLParallelExporter {
+
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final Set<String> INTEGER_TYPES = Set.of("tinyint", "smallint", "mediumint", "int", "bigint");
+    // Written as hex text: raw bytes would be re-encoded on the way back in
+    private static final Set<String> BINARY_TYPES = Set.of("binary", "varbinary", "tinyblob", "blob", "mediumblob",
+            "longblob", "bit", "geometry", "point", "linestring", "polygon", "multipoint", "multilinestring",
+            "multipolygon", "geometrycollection", "geomcollection");
+    private static final String TABLES_QUERY =
+            "SELECT TABLE_NAME, ENGINE, COALESCE(DATA_LENGTH, 0) FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME";
+    private static final String COLUMNS_QUERY =
+            "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, EXTRA, COLUMN_KEY, COALESCE(GENERATION_EXPRESSION, '') "
+                    + "FROM information_schema.COLUMNS "
+                    + "WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+    // Dumps one schema part (tables and routines, or triggers) with mysqldump
+    @FunctionalInterface
+    interface SchemaDumper {
+        void dump(String file, OutputStream target) throws Exception;
+    }
+
+    private final DumpConfig config;
+    private final DumpStreamSink sink;
+    private final SchemaDumper schemaDumper;
+    private final RangeSplitter splitter;
+    private final int lockWaitTimeoutSeconds;
+    private final String url;
+
+    /**
+     * @param splitter sizes the ranges; its key range arithmetic is the same as for PostgreSQL
+     * @param lockWaitTimeoutSeconds gives up on FLUSH TABLES WITH READ LOCK instead of stalling writers behind it
+     */
+    MySQLParallelExporter(DumpConfig config, DumpStreamSink sink, SchemaDumper schemaDumper,
+                          RangeSplitter splitter, int lockWaitTimeoutSeconds) {
+        this.config = config;
+        this.sink = sink;
+        this.schemaDumper = schemaDumper;
+        this.splitter = splitter;
+        this.lockWaitTimeoutSeconds = lockWaitTimeoutSeconds;
+        this.url = String.format("jdbc:mysql://%s:%d/%s", config.getHost(), config.getPort(), config.getDatabase());
+    }
+
+    DumpOutput export() throws Exception {
+        int jobs = Math.max(1, config.getJobs());
+        List<Connection> workers = new ArrayList<>();
+        try {
+            MySQLExportManifest manifest = new MySQLExportManifest();
+            openSnapshots(jobs, workers, manifest);
+
+            List<MySQLExportManifest.TableData> parts = listParts(workers.get(0));
+            int active = Math.max(1, Math.min(jobs, parts.size()));
+            log.info("Native MySQL export: binlog={}, parts={}, workers={}",
+                    manifest.getBinlogPosition(), parts.size(), active);
+
+            AtomicLong bytes = new AtomicLong();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            ConcurrentLinkedQueue<MySQLExportManifest.TableData> queue = new ConcurrentLinkedQueue<>(parts);
+
+            ExecutorService executor = Executors.newFixedThreadPool(active + 1, runnable -> {
+                Thread thread = new Thread(runnable, "mysql-export");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                futures.add(executor.submit(() -> {
+                    try {
+                        for (String file : List.of(MySQLExportManifest.SCHEMA_FILE, MySQLExportManifest.TRIGGERS_FILE)) {
+                            sink.write(file, target -> schemaDumper.dump(file, target));
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e); // stops the workers after their current table
+                        throw e;
+                    }
+                    return null;
+                }));
+                for (int i = 0; i < active; i++) {
+                    Connection connection = workers.get(i);
+                    futures.add(executor.submit(() -> {
+                        runWorker(connection, queue, manifest, bytes, failure);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        failure.compareAndSet(null, e.getCause());
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (failure.get() != null) {
+                throw new BackupFailedException("Native export failed: " + failure.get().getMessage(), failure.get());
+            }
+
+            // Last: a stored manifest marks the export complete
+            sink.write(MySQLExportManifest.FILE_NAME, target -> target.write(manifest.toBytes()));
+
+            Map<String, Long> tableSizes = new HashMap<>();
+            parts.forEach(table -> tableSizes.merge(table.name(), table.sizeBytes(), Long::sum));
+            Map<String, String> metadata = new LinkedHashMap<>();
+            metadata.put("tool", "select");
+            metadata.put("format", "native");
+            metadata.put("jobs", String.valueOf(active));
+            MySQLExportManifest.BinlogPosition binlog = manifest.getBinlogPosition();
+            if (binlog != null) {
+                metadata.put("binlog.file", binlog.file());
+                metadata.put("binlog.position", String.valueOf(binlog.position()));
+                if (!binlog.gtidSet().isEmpty()) {
+                    metadata.put("binlog.gtidSet", binlog.gtidSet());
+                }
+            }
+            return DumpOutput.builder()
+                    .sizeBytes(bytes.get())
+                    .tableSizes(tableSizes)
+                    .metadata(metadata)
+                    .build();
+        } finally {
+            for (Connection connection : workers) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Failed to close export connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Under FLUSH TABLES WITH READ LOCK: record the binlog position and start a
+     * consistent snapshot on every worker connection. No commit can happen while
+     * the lock is held, so all snapshots match the recorded position.
+     */
+    private void openSnapshots(int jobs, List<Connection> workers, MySQLExportManifest manifest)
+            throws SQLException {
+        for (int i = 0; i < jobs; i++) {
+            Connection connection = DriverManager.getConnection(url, config.getUsername(), config.getPassword());
+            workers.add(connection);
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement statement = connection.createStatement()) {
+                // TIMESTAMP text in UTC, whatever the server's zone; the restore reads it in UTC too
+                statement.execute("SET SESSION time_zone = '+00:00'");
+            }
+        }
+        try (Connection coordinator = DriverManager.getConnection(url, config.getUsername(), config.getPassword());
+             Statement lock = coordinator.createStatement()) {
+            lock.execute("SET SESSION lock_wait_timeout = " + Math.max(1, lockWaitTimeoutSeconds));
+            long started = System.nanoTime();
+            lock.execute("FLUSH TABLES WITH READ LOCK");
+            try {
+                manifest.setBinlogPosition(binlogPosition(coordinator));
+                for (Connection connection : workers) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+                    }
+                }
+            } finally {
+                lock.execute("UNLOCK TABLES");
+                log.info("Global read lock held for {} ms", (System.nanoTime() - started) / 1_000_000);
+            }
+        }
+    }
+
+    /**
+     * Current binlog file and position, null when binary logging is off
+     */
+    private MySQLExportManifest.BinlogPosition binlogPosition(Connection coordinator) throws SQLException {
+        try (Statement statement = coordinator.createStatement();
+             ResultSet rs = binlogStatus(statement)) {
+            if (!rs.next()) {
+                log.warn("Binary logging is disabled; the export has no binlog position for point-in-time recovery");
+                return null;
+            }
+            String gtidSet = "";
+            if (rs.getMetaData().getColumnCount() >= 5) {
+                String executed = rs.getString(5); // Executed_Gtid_Set
+                gtidSet = executed != null ? executed.replaceAll("\\s", "") : "";
+            }
+            return new MySQLExportManifest.BinlogPosition(rs.getString(1), rs.getLong(2), gtidSet);
+        }
+    }
+
+    static ResultSet binlogStatus(Statement statement) throws SQLException {
+        try {
+            return statement.executeQuery("SHOW BINARY LOG STATUS"); // 8.2+, SHOW MASTER STATUS is gone in 8.4
+        } catch (SQLException e) {
+            return statement.executeQuery("SHOW MASTER STATUS");
+        }
+    }
+
+    /**
+     * Worker: export tables on its snapshot connection until the queue is empty
+     */
+    private void runWorker(Connection connection, ConcurrentLinkedQueue<MySQLExportManifest.TableData> queue,
+                           MySQLExportManifest manifest, AtomicLong bytes, AtomicReference<Throwable> failure)
+            throws Exception {
+        MySQLExportManifest.TableData table;
+        while (failure.get() == null && (table = queue.poll()) != null) {
+            long started = System.nanoTime();
+            MySQLExportManifest.TableData part = table;
+            AtomicLong written = new AtomicLong();
+            try {
+                sink.write(part.file(), target -> written.set(writeRows(connection, part, target)));
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            }
+            bytes.addAndGet(written.get());
+            manifest.addTable(part);
+            log.debug("Exported {}{}: {} bytes in {} ms", part.name(), part.isRange() ? " [" + part.range() + "]" : "",
+                    written.get(), (System.nanoTime() - started) / 1_000_000);
+        }
+        connection.commit();
+    }
+
+    /**
+     * Stream one table (or range) in LOAD DATA format; returns the bytes written
+     */
+    private long writeRows(Connection connection, MySQLExportManifest.TableData table, OutputStream target)
+            throws SQLException, IOException {
+        String sql = "SELECT " + table.columns() + " FROM " + quote(config.getDatabase()) + "."
+                + quote(table.name().substring(table.name().indexOf('.') + 1))
+                + (table.isRange() ? " WHERE " + table.range() : "");
+        int columns = table.columnList().size();
+        boolean[] hex = new boolean[columns];
+        for (int i = 0; i < columns; i++) {
+            hex[i] = table.isHex(i);
+        }
+
+        LoadDataWriter out = new LoadDataWriter(target);
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream rows instead of buffering the result
+            try (ResultSet rs = statement.executeQuery(sql)) {
+                while (rs.next()) {
+                    for (int i = 0; i < columns; i++) {
+                        if (i > 0) {
+                            out.write('\t');
+                        }
+                        if (hex[i]) {
+                            out.writeHex(rs.getBytes(i + 1));
+                        } else {
+                            String value = rs.getString(i + 1);
+                            out.writeEscaped(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+                        }
+                    }
+                    out.write('\n');
+                }
+            }
+        }
+        out.flush();
+        return out.getCount();
+    }
+
+    /**
+     * Export parts, largest first: one per table, or one per primary key range for tables above the split threshold
+     */
+    private List<MySQLExportManifest.TableData> listParts(Connection snapshot) throws SQLException {
+        Map<String, List<String[]>> columnsByTable = new HashMap<>();
+        try (PreparedStatement statement = snapshot.prepareStatement(COLUMNS_QUERY)) {
+            statement.setString(1, config.getDatabase());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    columnsByTable.computeIfAbsent(rs.getString(1), table -> new ArrayList<>()).add(new String[]{
+                            rs.getString(2), rs.getString(3).toLowerCase(), rs.getString(4), rs.getString(5),
+                            rs.getString(6)});
+                }
+            }
+        }
+
+        List<MySQLExportManifest.TableData> parts = new ArrayList<>();
+        List<String> nonTransactional = new ArrayList<>();
+        int index = 0;
+        try (PreparedStatement statement = snapshot.prepareStatement(TABLES_QUERY)) {
+            statement.setString(1, config.getDatabase());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString(1);
+                    String name = config.getDatabase() + "." + table;
+                    if (!isSelected(table, name)) {
+                        continue;
+                    }
+                    if (rs.getString(2) != null && !"InnoDB".equalsIgnoreCase(rs.getString(2))) {
+                        nonTransactional.add(name + " (" + rs.getString(2) + ")");
+                    }
+                    addParts(snapshot, parts, "t" + index++, name, table,
+                            columnsByTable.getOrDefault(table, List.of()), rs.getLong(3));
+                }
+            }
+        }
+        if (!nonTransactional.isEmpty()) {
+            log.warn("Tables not covered by the consistent snapshot (non-transactional engine): {}", nonTransactional);
+        }
+        parts.sort(Comparator.comparingLong(MySQLExportManifest.TableData::sizeBytes).reversed());
+        return parts;
+    }
+
+    private void addParts(Connection snapshot, List<MySQLExportManifest.TableData> parts, String prefix, String name,
+                          String table, List<String[]> columnInfo, long sizeBytes) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<String> hexColumns = new ArrayList<>();
+        List<String> primaryKey = new ArrayList<>();
+        String keyType = null;
+        for (String[] column : columnInfo) {
+            if ("PRI".equals(column[3])) {
+                primaryKey.add(column[0]);
+                keyType = column[1];
+            }
+            // Generated columns are computed again on load
+            if (isGenerated(column[2], column[4])) {
+                continue;
+            }
+            if (BINARY_TYPES.contains(column[1])) {
+                hexColumns.add(String.valueOf(columns.size()));
+            }
+            columns.add(quote(column[0]));
+        }
+        String columnList = String.join(", ", columns);
+        String hexList = String.join(",", hexColumns);
+
+        List<String> ranges = List.of();
+        int count = splitter.rangeCount(sizeBytes);
+        if (count > 1 && primaryKey.size() == 1 && INTEGER_TYPES.contains(keyType)) {
+            String key = quote(primaryKey.get(0));
+            try (Statement statement = snapshot.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT MIN(" + key + "), MAX(" + key + ") FROM "
+                         + quote(config.getDatabase()) + "." + quote(table))) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    ranges = RangeSplitter.keyRanges(key,
+                            RangeSplitter.linearCuts(rs.getLong(1), rs.getLong(2), count));
+                }
+            }
+        } else if (count > 1) {
+            log.debug("{} has no single-column integer primary key, not splitting", name);
+        }
+
+        if (ranges.isEmpty()) {
+            parts.add(new MySQLExportManifest.TableData(prefix + ".tsv", name, columnList, hexList, sizeBytes, ""));
+            return;
+        }
+        log.info("Splitting {} ({} bytes) into {} ranges", name, sizeBytes, ranges.size());
+        for (int r = 0; r < ranges.size(); r++) {
+            parts.add(new MySQLExportManifest.TableData(prefix + "." + r + ".tsv", name, columnList, hexList,
+                    sizeBytes / ranges.size(), ranges.get(r)));
+        }
+    }
+
+    /**
+     * VIRTUAL / STORED GENERATED columns only; EXTRA also says DEFAULT_GENERATED
+     * for plain columns with an expression default (DEFAULT CURRENT_TIMESTAMP),
+     * whose values must be exported
+     */
+    static boolean isGenerated(String extra, String generationExpression) {
+        if (generationExpression != null && !generationExpression.isEmpty()) {
+            return true;
+        }
+        String normalized = extra == null ? "" : extra.toUpperCase();
+        return normalized.contains("VIRTUAL GENERATED") || normalized.contains("STORED GENERATED");
+    }
+
+    private boolean isSelected(String table, String qualifiedName) {
+        List<String> selection = config.getTables();
+        return selection == null || selection.isEmpty()
+                || selection.contains(table) || selection.contains(qualifiedName);
+    }
+
+    static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    /**
+     * LOAD DATA text: tab between fields, newline after rows, backslash escapes, \N for NULL
+     */
+    static class LoadDataWriter {
+        private final OutputStream out;
+        private long count;
+
+        LoadDataWriter(OutputStream target) {
+            this.out = new BufferedOutputStream(target, WRITE_BUFFER_SIZE);
+        }
+
+        void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        void writeEscaped(byte[] value) throws IOException {
+            if (value == null) {
+                writeNull();
+                return;
+            }
+            for (byte b : value) {
+                switch (b) {
+                    case '\\' -> writePair('\\');
+                    case '\t' -> writePair('t');
+                    case '\n' -> writePair('n');
+                    case '\r' -> writePair('r');
+                    case 0 -> writePair('0');
+                    default -> write(b);
+                }
+            }
+        }
+
+        void writeHex(byte[] value) throws IOException {
+            if (value == null) {
+                writeNull();
+                return;
+            }
+            for (byte b : value) {
+                write(HEX[(b >> 4) & 0x0F]);
+                write(HEX[b & 0x0F]);
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        private void writeNull() throws IOException {
+            writePair('N');
+        }
+
+        private void writePair(char escaped) throws IOException {
+            write('\\');
+            write(escaped);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.BaseBackupPort;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel Tar Extractor
+ * A tar stream can only be read in order, but the writes need not be: the
+ * reading thread cuts each file into chunks and hands them to a pool of
+ * writers (positional writes, so chunks of one file may land in any
+ * order). Each file is fsynced by whichever writer finishes it last, so
+ * the many small relation files of a cluster are flushed concurrently.
+ * At most jobs * 4 chunks are in memory.
+ */
+class ParallelTarExtractor {
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private final int jobs;
+    private final int chunkSize;
+
+    ParallelTarExtractor(int jobs, int chunkSize) {
+        this.jobs = Math.max(1, jobs);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Extract every entry under target; entries escaping it, by name or
+     * through a symlink extracted earlier, are rejected
+     */
+    BaseBackupPort.LayoutOutput extract(InputStream source, Path target) throws IOException {
+        Path root = target.toAbsolutePath().normalize();
+        ExecutorService writers = Executors.newFixedThreadPool(jobs, runnable -> {
+            Thread thread = new Thread(runnable, "tar-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(jobs * 4);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong bytes = new AtomicLong();
+        long files = 0;
+        List<TarArchiveEntry> directories = new ArrayList<>();
+        Set<Path> symlinks = new HashSet<>();
+
+        try {
+            TarArchiveInputStream tar = new TarArchiveInputStream(source);
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                rethrow(failure);
+                Path path = resolve(root, entry.getName(), symlinks);
+                if (entry.isDirectory()) {
+                    Files.createDirectories(path);
+                    directories.add(entry);
+                } else if (entry.isSymbolicLink()) {
+                    // pg_tblspc entries point at tablespaces outside the data directory
+                    Files.createDirectories(path.getParent());
+                    Files.createSymbolicLink(path, Path.of(entry.getLinkName()));
+                    symlinks.add(path);
+                } else if (entry.isFile()) {
+                    Files.createDirectories(path.getParent());
+                    writeFile(tar, entry, path, writers, inFlight, failure, bytes);
+                    files++;
+                }
+            }
+            // Tar padding and any codec trailer still count towards the caller's checksum
+            source.transferTo(OutputStream.nullOutputStream());
+
+            writers.shutdown();
+            while (!writers.awaitTermination(1, TimeUnit.SECONDS)) {
+                rethrow(failure);
+            }
+            rethrow(failure);
+
+            // Last, so creating files in them was not blocked by a read-only mode
+            for (TarArchiveEntry directory : directories) {
+                applyMode(resolve(root, directory.getName(), symlinks), directory.getMode());
+            }
+            applyMode(root, 0700); // PostgreSQL refuses to start on a group/world-accessible directory
+            return BaseBackupPort.LayoutOutput.builder().files(files).bytes(bytes.get()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction interrupted");
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private void writeFile(TarArchiveInputStream tar, TarArchiveEntry entry, Path path, ExecutorService writers,
+                           Semaphore inFlight, AtomicReference<Throwable> failure, AtomicLong bytes)
+            throws IOException, InterruptedException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        // One reference for the reader plus one per chunk in flight; whoever drops the last one syncs
+        AtomicInteger references = new AtomicInteger(1);
+        Runnable release = () -> {
+            if (references.decrementAndGet() == 0) {
+                try (channel) {
+                    if (failure.get() == null) {
+                        channel.force(false);
+                        applyMode(path, entry.getMode());
+                    }
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        try {
+            long position = 0;
+            while (position < entry.getSize()) {
+                byte[] chunk = new byte[(int) Math.min(chunkSize, entry.getSize() - position)];
+                int filled = tar.readNBytes(chunk, 0, chunk.length);
+                if (filled < chunk.length) {
+                    throw new IOException("Truncated tar entry: " + entry.getName());
+                }
+                inFlight.acquire();
+                rethrow(failure);
+                long offset = position;
+                references.incrementAndGet();
+                writers.execute(() -> {
+                    try {
+                        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer, offset + buffer.position());
+                        }
+                        bytes.addAndGet(chunk.length);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                        release.run();
+                    }
+                });
+                position += chunk.length;
+            }
+        } finally {
+            release.run();
+        }
+    }
+
+    /**
+     * Target path of an entry. Symlinks may point anywhere (tablespaces), so
+     * no entry may be written through one: x -> /etc followed by x/passwd
+     * would otherwise replace a file outside the target.
+     */
+    private Path resolve(Path root, String name, Set<Path> symlinks) throws IOException {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) {
+            throw new IOException("Tar entry outside the target directory: " + name);
+        }
+        for (Path parent = path.getParent(); parent != null && !parent.equals(root); parent = parent.getParent()) {
+            if (symlinks.contains(parent)) {
+                throw new IOException("Tar entry outside the target directory (through symlink "
+                        + root.relativize(parent) + "): " + name);
+            }
+        }
+        return path;
+    }
+
+    private void applyMode(Path path, int mode) throws IOException {
+        if (!POSIX || mode == 0) {
+            return;
+        }
+        Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(toRwx(mode & 0777)));
+    }
+
+    private String toRwx(int mode) {
+        StringBuilder rwx = new StringBuilder(9);
+        String letters = "rwxrwxrwx";
+        for (int bit = 8; bit >= 0; bit--) {
+            rwx.append((mode & (1 << bit)) != 0 ? letters.charAt(8 - bit) : '-');
+        }
+        return rwx.toString();
+    }
+
+    private void rethrow(AtomicReference<Throwable> failure) throws IOException {
+        Throwable cause = failure.get();
+        if (cause instanceof IOException io) {
+            throw io;
+        }
+        if (cause != null) {
+            throw new IOException("Writing extracted file failed", cause);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpConfig;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpOutput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpStreamSink;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Native PostgreSQL export: COPY under one shared snapshot
+ * The coordinator connection opens a REPEATABLE READ transaction and
+ * exports its snapshot; every worker connection imports it, so all tables
+ * are read as of the same instant, exactly like pg_dump -j. Workers take
+ * tables largest first from a shared queue and stream
+ * COPY ... TO STDOUT (FORMAT binary) through the sink. The schema comes
+ * from pg_dump --schema-only against the same snapshot. The coordinator
+ * transaction stays open until the last worker is done.
+ * Tables above the split threshold are exported as several ranges (see
+ * RangeSplitter; tables without an integer primary key are split by ctid),
+ * each a separate queue entry and stored part, so one huge table keeps
+ * every worker busy instead of one.
+ */
+@Slf4j
+class PgCopyExporter {
+
+    // Streams a schema-only archive taken at the given snapshot
+    @FunctionalInterface
+    interface SchemaDumper {
+        void dump(String snapshot, OutputStream target) throws Exception;
+    }
+
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+    private static final String TABLES_QUERY =
+            "SELECT c.oid, n.nspname, c.relname, format('%I.%I', n.nspname, c.relname), "
+                    + "(SELECT string_agg(quote_ident(a.attname), ', ' ORDER BY a.attnum) FROM pg_attribute a "
+                    + "  WHERE a.attrelid = c.oid AND a.attnum > 0 AND NOT a.attisdropped AND a.attgenerated = ''), "
+                    + "pg_table_size(c.oid), c.relpages, "
+                    // Single-column integer primary key, usable for range splitting
+                    + "(SELECT a.attname FROM pg_index i JOIN pg_attribute a "
+                    + "  ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0] "
+                    + "  WHERE i.indrelid = c.oid AND i.indisprimary AND i.indnatts = 1 "
+                    + "  AND a.atttypid IN ('int2'::regtype, 'int4'::regtype, 'int8'::regtype)) "
+                    + "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                    + "WHERE c.relkind = 'r' "
+                    + "AND n.nspname NOT IN ('pg_catalog', 'information_schema') "
+                    + "AND n.nspname NOT LIKE 'pg_toast%' AND n.nspname NOT LIKE 'pg_temp%' "
+                    // Extension-owned tables are recreated by CREATE EXTENSION
+                    + "AND NOT EXISTS (SELECT 1 FROM pg_depend d WHERE d.classid = 'pg_class'::regclass "
+                    + "  AND d.objid = c.oid AND d.deptype = 'e')";
+    private static final String HISTOGRAM_QUERY =
+            "SELECT histogram_bounds::text::bigint[] FROM pg_stats "
+                    + "WHERE schemaname = ? AND tablename = ? AND attname = ?";
+    // ctid ranges are only cheap with TID range scans
+    private static final int TID_RANGE_SCAN_VERSION = 14;
+    private static final String SEQUENCES_QUERY =
+            "SELECT format('%I.%I', schemaname, sequencename), COALESCE(last_value, start_value), "
+                    + "last_value IS NOT NULL FROM pg_sequences";
+
+    private final DumpConfig config;
+    private final DumpStreamSink sink;
+    private final SchemaDumper schemaDumper;
+    private final RangeSplitter splitter;
+    private final JdbcConnector connector;
+
+    PgCopyExporter(DumpConfig config, DumpStreamSink sink, SchemaDumper schemaDumper, RangeSplitter splitter) {
+        this(config, sink, schemaDumper, splitter, JdbcConnector.driverManager(
+                String.format("jdbc:postgresql://%s:%d/%s", config.getHost(), config.getPort(), config.getDatabase()),
+                config.getUsername(), config.getPassword()));
+    }
+
+    PgCopyExporter(DumpConfig config, DumpStreamSink sink, SchemaDumper schemaDumper, RangeSplitter splitter,
+                   JdbcConnector connector) {
+        this.config = config;
+        this.sink = sink;
+        this.schemaDumper = schemaDumper;
+        this.splitter = splitter;
+        this.connector = connector;
+    }
+
+    DumpOutput export() throws Exception {
+        try (Connection coordinator = connector.connect()) {
+            coordinator.setAutoCommit(false);
+            coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            coordinator.setReadOnly(true);
+
+            String snapshot;
+            try (Statement statement = coordinator.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT pg_export_snapshot()")) {
+                rs.next();
+                snapshot = rs.getString(1);
+            }
+            List<PgNativeManifest.TableData> tables = listTables(coordinator);
+            int workers = Math.max(1, Math.min(config.getJobs(), tables.size()));
+            log.info("Native export: snapshot={}, parts={}, workers={}", snapshot, tables.size(), workers);
+
+            PgNativeManifest manifest = new PgNativeManifest();
+            AtomicLong bytes = new AtomicLong();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            ConcurrentLinkedQueue<PgNativeManifest.TableData> queue = new ConcurrentLinkedQueue<>(tables);
+
+            ExecutorService executor = Executors.newFixedThreadPool(workers + 1, runnable -> {
+                Thread thread = new Thread(runnable, "pg-copy-export");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                futures.add(executor.submit(() -> {
+                    try {
+                        sink.write(PgNativeManifest.SCHEMA_FILE, target -> schemaDumper.dump(snapshot, target));
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e); // stops the workers after their current table
+                        throw e;
+                    }
+                    return null;
+                }));
+                for (int i = 0; i < workers; i++) {
+                    futures.add(executor.submit(() -> {
+                        runWorker(snapshot, queue, manifest, bytes, failure);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        failure.compareAndSet(null, e.getCause());
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (failure.get() != null) {
+                throw new BackupFailedException("Native export failed: " + failure.get().getMessage(), failure.get());
+            }
+
+            if (config.getTables() == null || config.getTables().isEmpty()) {
+                addSequences(coordinator, manifest);
+            }
+            // Last: a stored manifest marks the export complete
+            sink.write(PgNativeManifest.FILE_NAME, target -> target.write(manifest.toBytes()));
+            coordinator.commit();
+
+            Map<String, Long> tableSizes = new HashMap<>();
+            tables.forEach(table -> tableSizes.merge(table.name(), table.sizeBytes(), Long::sum));
+            return DumpOutput.builder()
+                    .sizeBytes(bytes.get())
+                    .tableSizes(tableSizes)
+                    .metadata(Map.of(
+                            "tool", "copy",
+                            "format", "native",
+                            "jobs", String.valueOf(workers)))
+                    .build();
+        }
+    }
+
+    /**
+     * Worker: import the snapshot on its own connection, then export tables until the queue is empty
+     */
+    private void runWorker(String snapshot, ConcurrentLinkedQueue<PgNativeManifest.TableData> queue,
+                           PgNativeManifest manifest, AtomicLong bytes, AtomicReference<Throwable> failure)
+            throws Exception {
+        try (Connection connection = connector.connect()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION SNAPSHOT '" + checkSnapshotId(snapshot) + "'");
+            }
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            PgNativeManifest.TableData table;
+            while (failure.get() == null && (table = queue.poll()) != null) {
+                long started = System.nanoTime();
+                String sql = copySql(table);
+                AtomicLong written = new AtomicLong();
+                try {
+                    sink.write(table.file(), target -> copyManager.copyOut(sql, new CountingOutputStream(target, written)));
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    throw e;
+                }
+                bytes.addAndGet(written.get());
+                manifest.addTable(table);
+                log.debug("Exported {}: {} bytes in {} ms", table.name(), written.get(),
+                        (System.nanoTime() - started) / 1_000_000);
+            }
+            connection.commit();
+        }
+    }
+
+    /**
+     * COPY of one part. COPY table reads the table alone; a range query needs
+     * ONLY, or rows of inheritance children (exported on their own) come too.
+     */
+    static String copySql(PgNativeManifest.TableData table) {
+        if (!table.isRange()) {
+            return "COPY " + table.table() + (table.columns().isEmpty() ? "" : " (" + table.columns() + ")")
+                    + " TO STDOUT (FORMAT binary)";
+        }
+        return "COPY (SELECT " + table.columns() + " FROM ONLY " + table.table() + " WHERE " + table.range()
+                + ") TO STDOUT (FORMAT binary)";
+    }
+
+    /**
+     * Export parts, largest first: one per table, or one per range for tables above the split threshold
+     */
+    private List<PgNativeManifest.TableData> listTables(Connection coordinator) throws SQLException {
+        long blockSize;
+        try (Statement statement = coordinator.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT current_setting('block_size')::bigint")) {
+            rs.next();
+            blockSize = rs.getLong(1);
+        }
+        boolean tidRangeScan = coordinator.getMetaData().getDatabaseMajorVersion() >= TID_RANGE_SCAN_VERSION;
+
+        List<PgNativeManifest.TableData> tables = new ArrayList<>();
+        List<String[]> keys = new ArrayList<>();
+        List<Long> pages = new ArrayList<>();
+        try (Statement statement = coordinator.createStatement();
+             ResultSet rs = statement.executeQuery(TABLES_QUERY)) {
+            while (rs.next()) {
+                String name = rs.getString(2) + "." + rs.getString(3);
+                if (!isSelected(rs.getString(3), name)) {
+                    continue;
+                }
+                String columns = rs.getString(5);
+                tables.add(new PgNativeManifest.TableData("t" + rs.getLong(1) + ".copy", name, rs.getString(4),
+                        columns != null ? columns : "", rs.getLong(6)));
+                keys.add(new String[]{rs.getString(2), rs.getString(3), rs.getString(8)});
+                pages.add(rs.getLong(7));
+            }
+        }
+
+        List<PgNativeManifest.TableData> parts = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            PgNativeManifest.TableData table = tables.get(i);
+            int count = splitter.rangeCount(pages.get(i) * blockSize);
+            List<String> ranges = count > 1
+                    ? ranges(coordinator, table, keys.get(i), pages.get(i), count, tidRangeScan)
+                    : List.of();
+            if (ranges.isEmpty()) {
+                parts.add(table);
+                continue;
+            }
+            log.info("Splitting {} ({} pages) into {} ranges", table.name(), pages.get(i), ranges.size());
+            String prefix = table.file().substring(0, table.file().length() - ".copy".length());
+            for (int r = 0; r < ranges.size(); r++) {
+                parts.add(new PgNativeManifest.TableData(prefix + "." + r + ".copy", table.name(), table.table(),
+                        table.columns(), table.sizeBytes() / ranges.size(), ranges.get(r)));
+            }
+        }
+        parts.sort(Comparator.comparingLong(PgNativeManifest.TableData::sizeBytes).reversed());
+        return parts;
+    }
+
+    /**
+     * Range predicates for one table; empty when it cannot be split
+     * @param key schema, table and integer primary key column (null if none), unquoted
+     */
+    private List<String> ranges(Connection coordinator, PgNativeManifest.TableData table, String[] key, long pages,
+                                int count, boolean tidRangeScan) throws SQLException {
+        if (key[2] != null) {
+            String column = quoteIdentifier(coordinator, key[2]);
+            List<Long> cuts = List.of();
+            try (PreparedStatement statement = coordinator.prepareStatement(HISTOGRAM_QUERY)) {
+                statement.setString(1, key[0]);
+                statement.setString(2, key[1]);
+                statement.setString(3, key[2]);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next() && rs.getArray(1) != null) {
+                        Object[] bounds = (Object[]) rs.getArray(1).getArray();
+                        long[] values = new long[bounds.length];
+                        for (int i = 0; i < bounds.length; i++) {
+                            values[i] = ((Number) bounds[i]).longValue();
+                        }
+                        cuts = RangeSplitter.histogramCuts(values, count);
+                    }
+                }
+            }
+            if (cuts.isEmpty()) {
+                // Not analyzed yet: min and max come from the primary key index
+                try (Statement statement = coordinator.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT min(" + column + "), max(" + column + ") FROM "
+                             + table.table())) {
+                    if (rs.next() && rs.getObject(1) != null) {
+                        cuts = RangeSplitter.linearCuts(rs.getLong(1), rs.getLong(2), count);
+                    }
+                }
+            }
+            if (!cuts.isEmpty()) {
+                return RangeSplitter.keyRanges(column, cuts);
+            }
+        }
+        if (tidRangeScan) {
+            return ctidRanges(pages, count);
+        }
+        log.debug("{} has no integer primary key and the server has no TID range scans, not splitting",
+                table.name());
+        return List.of();
+    }
+
+    /**
+     * Predicates on ctid covering pages [0, pages) in count blocks, the last one open-ended
+     * (PostgreSQL 14+ reads them with a TID range scan)
+     */
+    static List<String> ctidRanges(long pages, int count) {
+        List<String> ranges = new ArrayList<>();
+        long pagesPerRange = Math.max(1, (pages + count - 1) / count);
+        long start = 0;
+        while (start + pagesPerRange < pages) {
+            long end = start + pagesPerRange;
+            ranges.add(start == 0
+                    ? "ctid < '(" + end + ",0)'::tid"
+                    : "ctid >= '(" + start + ",0)'::tid AND ctid < '(" + end + ",0)'::tid");
+            start = end;
+        }
+        ranges.add(start == 0 ? "true" : "ctid >= '(" + start + ",0)'::tid");
+        return ranges.size() > 1 ? ranges : List.of();
+    }
+
+    private String quoteIdentifier(Connection coordinator, String identifier) throws SQLException {
+        try (PreparedStatement statement = coordinator.prepareStatement("SELECT quote_ident(?)")) {
+            statement.setString(1, identifier);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private boolean isSelected(String table, String qualifiedName) {
+        List<String> selection = config.getTables();
+        return selection == null || selection.isEmpty()
+                || selection.contains(table) || selection.contains(qualifiedName);
+    }
+
+    /**
+     * Sequence values are not part of the schema-only archive (they are pg_dump's data section)
+     */
+    private void addSequences(Connection coordinator, PgNativeManifest manifest) throws SQLException {
+        try (Statement statement = coordinator.createStatement();
+             ResultSet rs = statement.executeQuery(SEQUENCES_QUERY)) {
+            while (rs.next()) {
+                manifest.addSequence(new PgNativeManifest.SequenceValue(rs.getString(1), rs.getLong(2),
+                        rs.getBoolean(3)));
+            }
+        }
+    }
+
+    private static String checkSnapshotId(String snapshot) {
+        if (snapshot == null || !SNAPSHOT_ID.matcher(snapshot).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot id: " + snapshot);
+        }
+        return snapshot;
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final AtomicLong count;
+
+        CountingOutputStream(OutputStream target, AtomicLong count) {
+            super(target);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count.addAndGet(len);
+        }
+    }
+}
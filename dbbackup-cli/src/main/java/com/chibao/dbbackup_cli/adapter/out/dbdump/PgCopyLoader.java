@@ -0,0 +1,273 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.RestoreInput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.RestoreOutput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.TableTiming;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Native PostgreSQL restore: loads a native export directory in phases
+ * 1. pre-data: pg_restore --section=pre-data (tables, types, functions)
+ * 2. data: table files (ranges of a split table are separate files) taken
+ *    largest first by N connections, each COPY ... FROM STDIN (FORMAT binary)
+ *    with synchronous_commit off; tables are optionally UNLOGGED meanwhile
+ *    and switched back to LOGGED after the load, before anything is indexed
+ * 3. sequences: setval for every recorded sequence
+ * 4. post-data: pg_restore --section=post-data -j N, so indexes and
+ *    constraints are built in parallel on the loaded tables, with a larger
+ *    maintenance_work_mem
+ * 5. analyze: ANALYZE of every loaded table over N connections
+ * The time of each phase is reported with the per-table load timings.
+ */
+@Slf4j
+class PgCopyLoader {
+
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final Pattern MEMORY_SETTING = Pattern.compile("\\d+\\s*(kB|MB|GB|TB)?");
+
+    // Applies one section of the schema archive with pg_restore
+    @FunctionalInterface
+    interface SectionRestorer {
+        void restore(Path archive, String section, int jobs) throws Exception;
+    }
+
+    /**
+     * Bulk-load session tuning
+     * @param maintenanceWorkMem maintenance_work_mem for index builds and ANALYZE (e.g. "1GB"), null = server default
+     * @param unlogged load into UNLOGGED tables (no WAL) and set them LOGGED afterwards
+     */
+    record Tuning(String maintenanceWorkMem, boolean unlogged) {
+
+        Tuning {
+            if (maintenanceWorkMem != null && !MEMORY_SETTING.matcher(maintenanceWorkMem).matches()) {
+                throw new IllegalArgumentException("Invalid maintenance_work_mem: " + maintenanceWorkMem);
+            }
+        }
+    }
+
+    // One statement per item, run on a worker connection
+    @FunctionalInterface
+    private interface ItemTask<T> {
+        void run(Connection connection, T item) throws Exception;
+    }
+
+    private final RestoreInput input;
+    private final Path directory;
+    private final Tuning tuning;
+    private final SectionRestorer sectionRestorer;
+    private final JdbcConnector connector;
+
+    PgCopyLoader(RestoreInput input, Tuning tuning, SectionRestorer sectionRestorer) {
+        this(input, tuning, sectionRestorer, JdbcConnector.driverManager(
+                String.format("jdbc:postgresql://%s:%d/%s",
+                        input.getTargetHost(), input.getTargetPort(), input.getTargetDatabase()),
+                input.getUsername(), input.getPassword()));
+    }
+
+    PgCopyLoader(RestoreInput input, Tuning tuning, SectionRestorer sectionRestorer, JdbcConnector connector) {
+        this.input = input;
+        this.directory = input.getDumpFilePath();
+        this.tuning = tuning;
+        this.sectionRestorer = sectionRestorer;
+        this.connector = connector;
+    }
+
+    RestoreOutput restore() throws Exception {
+        PgNativeManifest manifest = PgNativeManifest.read(directory.resolve(PgNativeManifest.FILE_NAME));
+        Path schema = directory.resolve(PgNativeManifest.SCHEMA_FILE);
+        int jobs = Math.max(1, input.getJobs());
+
+        List<PgNativeManifest.TableData> parts = new ArrayList<>();
+        for (PgNativeManifest.TableData table : manifest.getTables()) {
+            if (isSelected(table)) {
+                parts.add(table);
+            }
+        }
+        parts.sort(Comparator.comparingLong(PgNativeManifest.TableData::sizeBytes).reversed());
+        List<String> tables = new ArrayList<>(new LinkedHashSet<>(parts.stream()
+                .map(PgNativeManifest.TableData::table)
+                .toList()));
+        Map<String, Long> phases = new LinkedHashMap<>();
+
+        long started = System.nanoTime();
+        sectionRestorer.restore(schema, "pre-data", 1);
+        started = phase(phases, "pre-data", started);
+
+        Map<String, long[]> timings = new ConcurrentHashMap<>();
+        if (tuning.unlogged()) {
+            forEachParallel(tables, jobs, (connection, table) -> execute(connection,
+                    "ALTER TABLE " + table + " SET UNLOGGED"));
+        }
+        forEachParallel(parts, jobs, (connection, table) -> load(connection, table, timings));
+        started = phase(phases, "data", started);
+
+        if (tuning.unlogged()) {
+            // Rewrites each table into WAL; done before indexes exist so they are not rewritten too
+            forEachParallel(tables, jobs, (connection, table) -> execute(connection,
+                    "ALTER TABLE " + table + " SET LOGGED"));
+            started = phase(phases, "set-logged", started);
+        }
+
+        if (input.getTables() == null || input.getTables().isEmpty()) {
+            try (Connection connection = connect();
+                 PreparedStatement setval = connection.prepareStatement("SELECT setval(?::regclass, ?, ?)")) {
+                for (PgNativeManifest.SequenceValue sequence : manifest.getSequences()) {
+                    setval.setString(1, sequence.sequence());
+                    setval.setLong(2, sequence.lastValue());
+                    setval.setBoolean(3, sequence.called());
+                    setval.execute();
+                }
+            }
+            started = phase(phases, "sequences", started);
+        }
+
+        sectionRestorer.restore(schema, "post-data", jobs);
+        started = phase(phases, "post-data", started);
+
+        forEachParallel(tables, jobs, (connection, table) -> execute(connection, "ANALYZE " + table));
+        phase(phases, "analyze", started);
+
+        List<TableTiming> tableTimings = new ArrayList<>();
+        timings.forEach((table, timing) -> tableTimings.add(TableTiming.builder()
+                .table(table)
+                .sizeBytes(timing[0])
+                .durationMs(timing[1])
+                .build()));
+        tableTimings.sort(Comparator.comparingLong(TableTiming::getDurationMs).reversed());
+        log.info("Native restore phases (ms): {}", phases);
+        return RestoreOutput.builder().tableTimings(tableTimings).phaseTimings(phases).build();
+    }
+
+    /**
+     * COPY one table file; ranges of a split table add up to one timing
+     */
+    private void load(Connection connection, PgNativeManifest.TableData table, Map<String, long[]> timings)
+            throws Exception {
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        long started = System.nanoTime();
+        String sql = "COPY " + table.table() + (table.columns().isEmpty() ? "" : " (" + table.columns() + ")")
+                + " FROM STDIN (FORMAT binary)";
+        try (InputStream data = new BufferedInputStream(
+                Files.newInputStream(directory.resolve(table.file())), READ_BUFFER_SIZE)) {
+            copyManager.copyIn(sql, data);
+        }
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+        timings.merge(table.name(), new long[]{table.sizeBytes(), durationMs},
+                (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+        log.debug("Loaded {}{} in {} ms", table.name(),
+                table.isRange() ? " [" + table.range() + "]" : "", durationMs);
+    }
+
+    /**
+     * Run task for every item on up to jobs connections; the first failure stops the
+     * other workers after their current item and is rethrown
+     */
+    private <T> void forEachParallel(List<T> items, int jobs, ItemTask<T> task) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        int workers = Math.min(jobs, items.size());
+        ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>(items);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "pg-copy-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = connect()) {
+                        T item;
+                        while (failure.get() == null && (item = queue.poll()) != null) {
+                            task.run(connection, item);
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new BackupFailedException("Native restore failed: " + failure.get().getMessage(), failure.get());
+        }
+    }
+
+    /**
+     * Connection tuned for bulk loading: a lost commit on a crash only means re-running the restore
+     */
+    private Connection connect() throws SQLException {
+        Connection connection = connector.connect();
+        try {
+            execute(connection, "SET synchronous_commit = off");
+            if (tuning.maintenanceWorkMem() != null) {
+                execute(connection, "SET maintenance_work_mem = '" + tuning.maintenanceWorkMem() + "'");
+            }
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long phase(Map<String, Long> phases, String name, long started) {
+        long now = System.nanoTime();
+        phases.put(name, (now - started) / 1_000_000);
+        log.info("Native restore: {} done in {} ms", name, phases.get(name));
+        return now;
+    }
+
+    private boolean isSelected(PgNativeManifest.TableData table) {
+        List<String> selection = input.getTables();
+        if (selection == null || selection.isEmpty()) {
+            return true;
+        }
+        String relation = table.name().substring(table.name().indexOf('.') + 1);
+        return selection.contains(table.name()) || selection.contains(relation);
+    }
+}
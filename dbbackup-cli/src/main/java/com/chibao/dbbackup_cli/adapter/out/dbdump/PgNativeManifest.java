@@ -0,0 +1,99 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native export manifest (manifest.tsv)
+ * Written last, so a backup whose manifest is stored is complete. One
+ * tab-separated line per part:
+ *   table    file  schema.table  "schema"."table"  column list  size at export  range
+ *   sequence "schema"."sequence"  last_value  is_called
+ * SQL names are stored as quoted identifiers; the plain schema.table name
+ * is what table sizes and timings are keyed by. A table split into ranges
+ * has one line (and file) per range; range is its WHERE predicate, empty
+ * for a whole table.
+ */
+class PgNativeManifest {
+
+    static final String FILE_NAME = "manifest.tsv";
+    static final String SCHEMA_FILE = "schema.dump";
+    private static final String HEADER = "# dbbackup native export v1";
+
+    private final List<TableData> tables = new ArrayList<>();
+    private final List<SequenceValue> sequences = new ArrayList<>();
+
+    record TableData(String file, String name, String table, String columns, long sizeBytes, String range) {
+
+        TableData(String file, String name, String table, String columns, long sizeBytes) {
+            this(file, name, table, columns, sizeBytes, "");
+        }
+
+        boolean isRange() {
+            return !range.isEmpty();
+        }
+    }
+
+    record SequenceValue(String sequence, long lastValue, boolean called) {
+    }
+
+    synchronized void addTable(TableData table) {
+        tables.add(table);
+    }
+
+    synchronized void addSequence(SequenceValue sequence) {
+        sequences.add(sequence);
+    }
+
+    List<TableData> getTables() {
+        return tables;
+    }
+
+    List<SequenceValue> getSequences() {
+        return sequences;
+    }
+
+    synchronized byte[] toBytes() {
+        StringBuilder text = new StringBuilder(HEADER).append('\n');
+        for (TableData table : tables) {
+            text.append(String.join("\t", "table", table.file(), table.name(), table.table(), table.columns(),
+                    String.valueOf(table.sizeBytes()), table.range())).append('\n');
+        }
+        for (SequenceValue sequence : sequences) {
+            text.append(String.join("\t", "sequence", sequence.sequence(), String.valueOf(sequence.lastValue()),
+                    String.valueOf(sequence.called()))).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static PgNativeManifest read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException("Not a native export manifest: " + file);
+        }
+        PgNativeManifest manifest = new PgNativeManifest();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            switch (fields[0]) {
+                case "table" -> manifest.addTable(
+                        new TableData(fields[1], fields[2], fields[3], fields[4], Long.parseLong(fields[5]),
+                                fields.length > 6 ? fields[6] : ""));
+                case "sequence" -> manifest.addSequence(
+                        new SequenceValue(fields[1], Long.parseLong(fields[2]), Boolean.parseBoolean(fields[3])));
+                default -> throw new IOException("Unknown manifest line: " + line);
+            }
+        }
+        return manifest;
+    }
+
+    static boolean isNativeExport(Path directory) {
+        return directory != null && Files.isRegularFile(directory.resolve(FILE_NAME));
+    }
+}
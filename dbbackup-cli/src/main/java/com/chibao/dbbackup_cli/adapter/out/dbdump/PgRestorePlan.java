@@ -0,0 +1,144 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.TableTiming;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * pg_restore TOC plan and progress
+ * - reorders the TABLE DATA entries of a "pg_restore -l" listing largest
+ *   first; with "-L list -j N" the workers then start on the tables that
+ *   take longest, instead of finding them at the end of the schedule
+ * - turns pg_restore --verbose lines into per-table load times:
+ *   parallel mode logs "launching item" / "finished item" per TOC entry,
+ *   sequential mode logs "processing data for table" and the next line
+ *   marks the end of that table
+ * Not thread-safe: feed lines from a single reader thread.
+ */
+class PgRestorePlan {
+
+    // "3001; 1259 16390 TABLE DATA public orders postgres"
+    private static final Pattern TOC_TABLE_DATA =
+            Pattern.compile("^(\\d+);\\s+\\d+\\s+\\d+\\s+TABLE DATA\\s+(\\S+)\\s+(\\S+)");
+    private static final Pattern LAUNCHING = Pattern.compile("launching item (\\d+) TABLE DATA (\\S+)");
+    private static final Pattern FINISHED = Pattern.compile("finished item (\\d+) TABLE DATA (\\S+)");
+    private static final Pattern PROCESSING = Pattern.compile("processing data for table \"([^\"]+)\"");
+
+    private final Map<String, Long> tableSizes;
+    private final boolean parallel;
+    private final Map<String, String> tablesByDumpId = new HashMap<>();
+    private final Map<String, Long> startedAt = new HashMap<>();
+    private final List<TableTiming> timings = new ArrayList<>();
+    private String sequentialTable;
+
+    PgRestorePlan(Map<String, Long> tableSizes, boolean parallel) {
+        this.tableSizes = tableSizes != null ? new HashMap<>(tableSizes) : new HashMap<>();
+        this.parallel = parallel;
+    }
+
+    // ===== TOC ORDERING =====
+
+    /**
+     * Same listing with the TABLE DATA lines sorted by size, biggest first.
+     * They keep their slots relative to the other entries, so the pre-data /
+     * data / post-data sections stay as pg_dump wrote them.
+     * @param dataFileSizes dumpId -> data file size, used for tables without a recorded size
+     */
+    List<String> reorderLargestFirst(List<String> tocLines, Map<String, Long> dataFileSizes) {
+        List<Integer> slots = new ArrayList<>();
+        List<String> dataLines = new ArrayList<>();
+        for (int i = 0; i < tocLines.size(); i++) {
+            Matcher matcher = TOC_TABLE_DATA.matcher(tocLines.get(i));
+            if (matcher.find()) {
+                String table = matcher.group(2) + "." + matcher.group(3);
+                tablesByDumpId.put(matcher.group(1), table);
+                Long fileSize = dataFileSizes.get(matcher.group(1));
+                if (fileSize != null) {
+                    tableSizes.putIfAbsent(table, fileSize);
+                }
+                slots.add(i);
+                dataLines.add(tocLines.get(i));
+            }
+        }
+
+        // Stable sort: tables without a recorded size keep their order, after the known ones
+        dataLines.sort(Comparator.comparingLong(this::sizeOfTocLine).reversed());
+
+        List<String> reordered = new ArrayList<>(tocLines);
+        for (int i = 0; i < slots.size(); i++) {
+            reordered.set(slots.get(i), dataLines.get(i));
+        }
+        return reordered;
+    }
+
+    private long sizeOfTocLine(String line) {
+        Matcher matcher = TOC_TABLE_DATA.matcher(line);
+        if (!matcher.find()) {
+            return -1;
+        }
+        return tableSizes.getOrDefault(matcher.group(2) + "." + matcher.group(3), -1L);
+    }
+
+    // ===== PROGRESS =====
+
+    void onLine(String line) {
+        onLine(line, System.nanoTime());
+    }
+
+    void onLine(String line, long nowNanos) {
+        // Sequential mode: any following line means the current table is done
+        if (sequentialTable != null) {
+            record(sequentialTable, startedAt.remove(sequentialTable), nowNanos);
+            sequentialTable = null;
+        }
+
+        Matcher matcher = LAUNCHING.matcher(line);
+        if (matcher.find()) {
+            startedAt.put("#" + matcher.group(1), nowNanos);
+            return;
+        }
+        matcher = FINISHED.matcher(line);
+        if (matcher.find()) {
+            Long start = startedAt.remove("#" + matcher.group(1));
+            // Parallel messages carry only the table name; the TOC has the schema
+            String table = tablesByDumpId.getOrDefault(matcher.group(1), matcher.group(2));
+            record(table, start, nowNanos);
+            return;
+        }
+        matcher = PROCESSING.matcher(line);
+        if (!parallel && matcher.find()) {
+            sequentialTable = matcher.group(1);
+            startedAt.put(sequentialTable, nowNanos);
+        }
+    }
+
+    /**
+     * Timings collected so far, slowest first; closes a sequential table still open at exit
+     */
+    List<TableTiming> finish() {
+        if (sequentialTable != null) {
+            record(sequentialTable, startedAt.remove(sequentialTable), System.nanoTime());
+            sequentialTable = null;
+        }
+        List<TableTiming> result = new ArrayList<>(timings);
+        result.sort(Comparator.comparingLong(TableTiming::getDurationMs).reversed());
+        return result;
+    }
+
+    private void record(String table, Long startNanos, long endNanos) {
+        if (startNanos == null) {
+            return;
+        }
+        timings.add(TableTiming.builder()
+                .table(table)
+                .sizeBytes(tableSizes.getOrDefault(table, -1L))
+                .durationMs((endNanos - startNanos) / 1_000_000)
+                .build());
+    }
+}
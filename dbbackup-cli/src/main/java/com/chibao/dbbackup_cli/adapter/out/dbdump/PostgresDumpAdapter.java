@@ -1,6 +1,7 @@
 package com.chibao.dbbackup_cli.adapter.out.dbdump;
 
 import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.exception.RestoreFailedException;
 import com.chibao.dbbackup_cli.domain.model.DatabaseConfig;
 import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
 import lombok.extern.slf4j.Slf4j;
@@ -8,16 +9,28 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * PostgreSQL Database Dump Adapter
@@ -35,7 +48,34 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
     @Value("${postgres.pgrestore-path:pg_restore}")
     private String pgRestorePath;
 
+    // Native export: tables whose main fork is at least this big are exported as several ranges
+    @Value("${backup.native-export.split-threshold-bytes:1073741824}")
+    private long splitThresholdBytes;
+
+    // Native export: target size of one range
+    @Value("${backup.native-export.chunk-bytes:268435456}")
+    private long splitChunkBytes;
+
+    // Native restore: maintenance_work_mem for index/constraint builds and ANALYZE, empty = server default
+    @Value("${restore.native.maintenance-work-mem:1GB}")
+    private String nativeMaintenanceWorkMem;
+
+    // Native restore: load into UNLOGGED tables and set them LOGGED before indexes are built
+    @Value("${restore.native.unlogged:false}")
+    private boolean nativeUnlogged;
+
     private static final int TIMEOUT_SECONDS = 3600; // 1 hour default
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024; // 256KB
+    private static final String TOC_FILE = "toc.dat";
+    // pg_dump --verbose, parallel mode: "pg_dump: finished item 4321 TABLE DATA orders"
+    private static final Pattern FINISHED_TABLE_DATA = Pattern.compile("finished item (\\d+) TABLE DATA");
+    private static final Pattern DATA_FILE = Pattern.compile("(\\d+)\\.dat(\\..+)?");
+    private static final String TABLE_SIZES_QUERY =
+            "SELECT n.nspname, c.relname, pg_table_size(c.oid) FROM pg_class c "
+                    + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                    + "WHERE c.relkind IN ('r', 'm') "
+                    + "AND n.nspname NOT IN ('pg_catalog', 'information_schema') "
+                    + "AND n.nspname NOT LIKE 'pg_toast%'";
     // flow: USE CASE → DatabaseDumpPort → PostgresDumpAdapter → pg_dump binary →
     // file.dump
 
@@ -51,7 +91,8 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
                     .resolve(config.getDatabase() + "_" + System.currentTimeMillis() + ".dump");
 
             // 2. Build pg_dump command
-            List<String> command = buildPgDumpCommand(config, dumpFile);
+            List<String> command = buildPgDumpCommand(config, dumpFile, false);
+            Map<String, Long> tableSizes = collectTableSizes(config);
 
             log.debug("Executing command: {}", String.join(" ", command));
 
@@ -118,6 +159,7 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
             return DumpOutput.builder()
                     .dumpFilePath(dumpFile)
                     .sizeBytes(fileSize)
+                    .tableSizes(tableSizes)
                     .metadata(Map.of(
                             "tool", "pg_dump",
                             "format", "custom",
@@ -135,57 +177,384 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
         }
     }
 
+    /**
+     * Streaming dump: pg_dump writes the archive to stdout and we copy it
+     * straight into the target stream (compression/encryption/upload pipeline).
+     * No dump file is written. stderr is drained on a separate thread so the
+     * two pipes cannot deadlock; if the target fails, pg_dump is killed.
+     */
     @Override
-    public void performRestore(RestoreInput input) {
-        log.info("Starting PostgreSQL restore: database={}, host={}",
-                input.getTargetDatabase(), input.getTargetHost());
+    public DumpOutput performDump(DumpConfig config, OutputStream target) {
+        log.info("Starting streaming PostgreSQL dump: database={}, host={}",
+                config.getDatabase(), config.getHost());
 
+        Process process = null;
         try {
-            // Build pg_restore command
-            List<String> command = buildPgRestoreCommand(input);
-
+            List<String> command = buildPgDumpCommand(config, null, false);
+            Map<String, Long> tableSizes = collectTableSizes(config);
             log.debug("Executing command: {}", String.join(" ", command));
 
             ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.environment().put("PGPASSWORD", input.getPassword());
-            processBuilder.redirectErrorStream(true);
+            processBuilder.environment().put("PGPASSWORD", config.getPassword());
+            process = processBuilder.start();
+
+            StringBuilder errors = new StringBuilder();
+            Thread stderrDrainer = drainStderr(process, "pg_dump", errors, null);
+
+            long bytes = 0;
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            try (InputStream stdout = process.getInputStream()) {
+                int n;
+                while ((n = stdout.read(buffer)) != -1) {
+                    target.write(buffer, 0, n);
+                    bytes += n;
+                }
+            }
 
-            Process process = processBuilder.start();
+            boolean finished = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!finished) {
+                throw new BackupFailedException("pg_dump timeout after " + TIMEOUT_SECONDS + " seconds");
+            }
+            stderrDrainer.join(TimeUnit.SECONDS.toMillis(5));
 
-            // Capture output
-            StringBuilder output = new StringBuilder();
+            int exitCode = process.exitValue();
+            if (exitCode != 0) {
+                String errorMsg = "pg_dump failed with exit code " + exitCode + ": " + errors;
+                log.error(errorMsg);
+                throw new BackupFailedException(errorMsg);
+            }
+
+            log.info("Streaming PostgreSQL dump completed: database={}, size={} bytes",
+                    config.getDatabase(), bytes);
+
+            return DumpOutput.builder()
+                    .sizeBytes(bytes)
+                    .tableSizes(tableSizes)
+                    .metadata(Map.of(
+                            "tool", "pg_dump",
+                            "format", "custom",
+                            "mode", "stream",
+                            "version", getPgDumpVersion()))
+                    .build();
+
+        } catch (BackupFailedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Streaming PostgreSQL dump failed: database={}", config.getDatabase(), e);
+            throw new BackupFailedException("PostgreSQL dump failed", e);
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    /**
+     * Parallel dump: pg_dump --format=directory -j N writes one file per table
+     * (plus toc.dat). With --verbose, pg_dump logs "finished item <id> TABLE DATA"
+     * when a worker has closed <id>.dat, so each table file is handed to the
+     * sink while other tables are still being dumped. Files without such a log
+     * line (large objects, -j 1) and toc.dat - written last - follow once pg_dump
+     * exits successfully.
+     */
+    @Override
+    public DumpOutput performDump(DumpConfig config, DumpFileSink sink) {
+        int jobs = config.getJobs();
+        log.info("Starting parallel PostgreSQL dump: database={}, host={}, jobs={}",
+                config.getDatabase(), config.getHost(), jobs);
+
+        Process process = null;
+        try {
+            // pg_dump creates the directory itself and refuses an existing one
+            Path dumpDir = config.getWorkingDirectory()
+                    .resolve(config.getDatabase() + "_" + System.currentTimeMillis() + ".dir");
+
+            List<String> command = buildPgDumpCommand(config, dumpDir, true);
+            Map<String, Long> tableSizes = collectTableSizes(config);
+            log.debug("Executing command: {}", String.join(" ", command));
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.environment().put("PGPASSWORD", config.getPassword());
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            process = processBuilder.start();
+
+            // Read stderr on this thread: the progress lines drive the early uploads
+            Set<Path> delivered = new HashSet<>();
+            long totalSize = 0; // counted before delivery: the sink may delete a file once it is stored
+            StringBuilder errors = new StringBuilder();
             try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
+                    new InputStreamReader(process.getErrorStream()))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                    log.debug("pg_restore output: {}", line);
+                    log.debug("pg_dump output: {}", line);
+                    Matcher finished = FINISHED_TABLE_DATA.matcher(line);
+                    if (finished.find()) {
+                        Path dataFile = findDataFile(dumpDir, finished.group(1));
+                        if (dataFile != null && delivered.add(dataFile)) {
+                            totalSize += Files.size(dataFile);
+                            sink.accept(dumpDir, dataFile);
+                        }
+                    } else if (isDiagnostic(line)) {
+                        errors.append(line).append("\n");
+                    }
                 }
             }
 
             boolean finished = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
             if (!finished) {
-                process.destroyForcibly();
-                throw new BackupFailedException("pg_restore timeout");
+                throw new BackupFailedException("pg_dump timeout after " + TIMEOUT_SECONDS + " seconds");
             }
 
             int exitCode = process.exitValue();
-
             if (exitCode != 0) {
-                String errorMsg = "pg_restore failed with exit code " + exitCode + ": " + output.toString();
+                String errorMsg = "pg_dump failed with exit code " + exitCode + ": " + errors;
                 log.error(errorMsg);
                 throw new BackupFailedException(errorMsg);
             }
 
-            log.info("PostgreSQL restore completed: database={}", input.getTargetDatabase());
+            // Remaining files, then the table of contents
+            Path toc = dumpDir.resolve(TOC_FILE);
+            if (!Files.exists(toc)) {
+                throw new BackupFailedException("Dump directory has no " + TOC_FILE + ": " + dumpDir);
+            }
+            List<Path> remaining;
+            try (Stream<Path> files = Files.list(dumpDir)) {
+                remaining = files.filter(Files::isRegularFile)
+                        .filter(file -> !delivered.contains(file) && !file.equals(toc))
+                        .sorted()
+                        .toList();
+            }
+            for (Path file : remaining) {
+                totalSize += Files.size(file);
+                sink.accept(dumpDir, file);
+                delivered.add(file);
+            }
+            totalSize += Files.size(toc);
+            sink.accept(dumpDir, toc);
+            delivered.add(toc);
+
+            log.info("Parallel PostgreSQL dump completed: database={}, files={}, size={} bytes",
+                    config.getDatabase(), delivered.size(), totalSize);
+
+            return DumpOutput.builder()
+                    .dumpFilePath(dumpDir)
+                    .sizeBytes(totalSize)
+                    .tableSizes(tableSizes)
+                    .metadata(Map.of(
+                            "tool", "pg_dump",
+                            "format", "directory",
+                            "jobs", String.valueOf(jobs),
+                            "files", String.valueOf(delivered.size()),
+                            "version", getPgDumpVersion()))
+                    .build();
+
+        } catch (BackupFailedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Parallel PostgreSQL dump failed: database={}", config.getDatabase(), e);
+            throw new BackupFailedException("PostgreSQL dump failed: " + e.getMessage(), e);
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsParallelDump() {
+        return true;
+    }
+
+    /**
+     * Native export (format=native), see PgCopyExporter. The schema is a
+     * custom-format archive so that restore can apply its pre-data and
+     * post-data sections around the data load. Large object contents are
+     * pg_dump data and not part of a native export.
+     */
+    @Override
+    public DumpOutput performExport(DumpConfig config, DumpStreamSink sink) {
+        log.info("Starting native PostgreSQL export: database={}, host={}, jobs={}",
+                config.getDatabase(), config.getHost(), config.getJobs());
+        try {
+            DumpOutput output = new PgCopyExporter(config, sink,
+                    (snapshot, target) -> dumpSchema(config, snapshot, target),
+                    new RangeSplitter(splitThresholdBytes, splitChunkBytes)).export();
+            log.info("Native PostgreSQL export completed: database={}, tables={}, size={} bytes",
+                    config.getDatabase(), output.getTableSizes().size(), output.getSizeBytes());
+            return output;
+        } catch (BackupFailedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Native PostgreSQL export failed: database={}", config.getDatabase(), e);
+            throw new BackupFailedException("PostgreSQL native export failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsNativeExport() {
+        return true;
+    }
+
+    /**
+     * File/directory restore. With jobs > 1 the archive's TOC is listed
+     * (pg_restore -l), TABLE DATA entries are reordered largest-first using
+     * the sizes recorded at backup time and the list is fed back with
+     * -L ... -j N. --verbose progress lines yield per-table load times.
+     * A native export directory (manifest.tsv) is loaded with COPY instead.
+     */
+    @Override
+    public RestoreOutput performRestore(RestoreInput input) {
+        log.info("Starting PostgreSQL restore: database={}, host={}, jobs={}",
+                input.getTargetDatabase(), input.getTargetHost(), Math.max(1, input.getJobs()));
+
+        if (PgNativeManifest.isNativeExport(input.getDumpFilePath())) {
+            return performNativeRestore(input);
+        }
+
+        Path listFile = null;
+        try {
+            PgRestorePlan plan = new PgRestorePlan(input.getTableSizes(), input.getJobs() > 1);
+            if (input.getJobs() > 1) {
+                listFile = writeLargestFirstList(input, plan);
+            }
+
+            runPgRestore(input, listFile, null, plan::onLine);
+
+            List<TableTiming> timings = plan.finish();
+            log.info("PostgreSQL restore completed: database={}, tables={}",
+                    input.getTargetDatabase(), timings.size());
+            return RestoreOutput.builder().tableTimings(timings).build();
 
         } catch (Exception e) {
             log.error("PostgreSQL restore failed: database={}", input.getTargetDatabase(), e);
             throw new BackupFailedException("PostgreSQL restore failed", e);
+        } finally {
+            if (listFile != null) {
+                try {
+                    Files.deleteIfExists(listFile);
+                } catch (IOException e) {
+                    log.debug("Failed to delete restore list {}: {}", listFile, e.getMessage());
+                }
+            }
         }
     }
 
+    /**
+     * Restore of a native export directory, see PgCopyLoader
+     */
+    private RestoreOutput performNativeRestore(RestoreInput input) {
+        try {
+            PgCopyLoader.Tuning tuning = new PgCopyLoader.Tuning(
+                    nativeMaintenanceWorkMem == null || nativeMaintenanceWorkMem.isBlank()
+                            ? null : nativeMaintenanceWorkMem.trim(),
+                    nativeUnlogged);
+            String pgOptions = tuning.maintenanceWorkMem() == null ? null
+                    : "-c maintenance_work_mem=" + tuning.maintenanceWorkMem().replace(" ", "");
+            RestoreOutput output = new PgCopyLoader(input, tuning, (archive, section, jobs) -> runPgRestore(
+                    input.toBuilder().dumpFilePath(archive).jobs(jobs).build(), null, section, null, pgOptions))
+                    .restore();
+            log.info("Native PostgreSQL restore completed: database={}, tables={}, phases={}",
+                    input.getTargetDatabase(), output.getTableTimings().size(), output.getPhaseTimings());
+            return output;
+        } catch (Exception e) {
+            log.error("Native PostgreSQL restore failed: database={}", input.getTargetDatabase(), e);
+            throw new BackupFailedException("PostgreSQL restore failed", e);
+        }
+    }
+
+    /**
+     * Streaming restore: the custom-format archive is written to pg_restore's
+     * stdin as it arrives. pg_restore reads it sequentially, so parallel jobs
+     * are not possible here. When the source fails (download error, failed
+     * checksum, bad tag) pg_restore is killed while still waiting for input;
+     * with --single-transaction nothing has been committed at that point.
+     */
+    @Override
+    public RestoreOutput performRestore(RestoreInput input, InputStream source) {
+        log.info("Starting streaming PostgreSQL restore: database={}, host={}",
+                input.getTargetDatabase(), input.getTargetHost());
+
+        Process process = null;
+        try {
+            List<String> command = buildPgRestoreCommand(input, null, null);
+            log.debug("Executing command: {}", String.join(" ", command));
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.environment().put("PGPASSWORD", input.getPassword());
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            process = processBuilder.start();
+
+            // stdin is read sequentially: no -j, timings come from the sequential progress lines
+            PgRestorePlan plan = new PgRestorePlan(input.getTableSizes(), false);
+            StringBuilder errors = new StringBuilder();
+            Thread stderrDrainer = drainStderr(process, "pg_restore", errors, plan::onLine);
+
+            long bytes = 0;
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            try (OutputStream stdin = process.getOutputStream()) {
+                while (true) {
+                    int n;
+                    try {
+                        n = source.read(buffer);
+                    } catch (IOException e) {
+                        // Kill before stdin is closed: pg_restore never sees a complete archive
+                        process.destroyForcibly().waitFor(30, TimeUnit.SECONDS);
+                        throw new RestoreFailedException("Restore aborted, nothing committed: " + e.getMessage(), e);
+                    }
+                    if (n == -1) {
+                        break;
+                    }
+                    try {
+                        stdin.write(buffer, 0, n);
+                    } catch (IOException e) {
+                        // pg_restore exited early; its exit code and stderr explain why
+                        break;
+                    }
+                    bytes += n;
+                }
+            } catch (IOException e) {
+                log.debug("pg_restore stdin closed early: {}", e.getMessage());
+            }
+
+            boolean finished = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!finished) {
+                throw new RestoreFailedException("pg_restore timeout after " + TIMEOUT_SECONDS + " seconds");
+            }
+            stderrDrainer.join(TimeUnit.SECONDS.toMillis(5));
+
+            int exitCode = process.exitValue();
+            if (exitCode != 0) {
+                String errorMsg = "pg_restore failed with exit code " + exitCode + ": " + errors;
+                log.error(errorMsg);
+                throw new RestoreFailedException(errorMsg);
+            }
+
+            log.info("Streaming PostgreSQL restore completed: database={}, archive={} bytes",
+                    input.getTargetDatabase(), bytes);
+            return RestoreOutput.builder().tableTimings(plan.finish()).build();
+
+        } catch (RestoreFailedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Streaming PostgreSQL restore failed: database={}", input.getTargetDatabase(), e);
+            throw new RestoreFailedException("PostgreSQL restore failed", e);
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsStreamingRestore() {
+        return true;
+    }
+
     @Override
     public boolean testConnection(DatabaseConfig config) {
         String url = String.format(
@@ -217,10 +586,106 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
 
     // ===== PRIVATE HELPER METHODS =====
 
+    /**
+     * Run pg_restore to completion
+     * @param section pre-data | data | post-data, or null for the whole archive
+     * @param onLine optional observer of every output line (progress parsing)
+     */
+    private void runPgRestore(RestoreInput input, Path listFile, String section, Consumer<String> onLine)
+            throws IOException, InterruptedException {
+        runPgRestore(input, listFile, section, onLine, null);
+    }
+
+    /**
+     * Run pg_restore to completion with server settings for its sessions
+     * @param pgOptions PGOPTIONS for every pg_restore connection (e.g. "-c maintenance_work_mem=1GB"), or null
+     */
+    private void runPgRestore(RestoreInput input, Path listFile, String section, Consumer<String> onLine,
+                              String pgOptions) throws IOException, InterruptedException {
+        // Build pg_restore command
+        List<String> command = buildPgRestoreCommand(input, listFile, section);
+
+        log.debug("Executing command: {}", String.join(" ", command));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.environment().put("PGPASSWORD", input.getPassword());
+        if (pgOptions != null) {
+            processBuilder.environment().put("PGOPTIONS", pgOptions);
+        }
+        processBuilder.redirectErrorStream(true);
+
+        Process process = processBuilder.start();
+
+        // Capture output: progress lines feed the timings, the rest explains failures
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (onLine != null) {
+                    onLine.accept(line);
+                }
+                if (isDiagnostic(line)) {
+                    output.append(line).append("\n");
+                }
+                log.debug("pg_restore output: {}", line);
+            }
+        }
+
+        boolean finished = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        if (!finished) {
+            process.destroyForcibly();
+            throw new BackupFailedException("pg_restore timeout");
+        }
+
+        int exitCode = process.exitValue();
+
+        if (exitCode != 0) {
+            String errorMsg = "pg_restore failed with exit code " + exitCode + ": " + output.toString();
+            log.error(errorMsg);
+            throw new BackupFailedException(errorMsg);
+        }
+    }
+
+    /**
+     * Schema-only custom-format archive of the database as seen by the given snapshot, written to target
+     */
+    private void dumpSchema(DumpConfig config, String snapshot, OutputStream target) throws Exception {
+        List<String> command = buildPgDumpCommand(config, null, false);
+        command.remove("--blobs"); // large object contents are data
+        command.add("--schema-only");
+        command.add("--snapshot=" + snapshot);
+        log.debug("Executing command: {}", String.join(" ", command));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.environment().put("PGPASSWORD", config.getPassword());
+        Process process = processBuilder.start();
+        try {
+            StringBuilder errors = new StringBuilder();
+            Thread stderrDrainer = drainStderr(process, "pg_dump", errors, null);
+            try (InputStream stdout = process.getInputStream()) {
+                stdout.transferTo(target);
+            }
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BackupFailedException("pg_dump --schema-only timeout after " + TIMEOUT_SECONDS + " seconds");
+            }
+            stderrDrainer.join(TimeUnit.SECONDS.toMillis(5));
+            if (process.exitValue() != 0) {
+                throw new BackupFailedException("pg_dump --schema-only failed with exit code "
+                        + process.exitValue() + ": " + errors);
+            }
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
     /**
      * Build pg_dump command with options
      */
-    private List<String> buildPgDumpCommand(DumpConfig config, Path outputFile) {
+    private List<String> buildPgDumpCommand(DumpConfig config, Path outputFile, boolean directoryFormat) {
         List<String> command = new ArrayList<>();
 
         // Support multi-word commands (e.g. "docker exec -i container pg_dump")
@@ -237,8 +702,20 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
         command.add("-d");
         command.add(config.getDatabase());
 
-        // Use custom format for best compression and features
-        command.add("--format=custom");
+        if (directoryFormat) {
+            // One file per table, dumped by N parallel workers (each its own snapshot-synchronized session)
+            command.add("--format=directory");
+            command.add("--jobs=" + config.getJobs());
+            command.add("--verbose"); // progress lines tell which table files are complete
+        } else {
+            // Use custom format for best compression and features
+            command.add("--format=custom");
+        }
+
+        // Built-in zlib compression; turned off when the pipeline compresses better itself
+        if (config.getNativeCompressionLevel() != null) {
+            command.add("--compress=" + config.getNativeCompressionLevel());
+        }
 
         // Exclude ownership and privileges for portability
         command.add("--no-owner");
@@ -255,17 +732,34 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
             }
         }
 
-        // Output file
-        command.add("-f");
-        command.add(outputFile.toString());
+        // Output file (omitted when streaming to stdout)
+        if (outputFile != null) {
+            command.add("-f");
+            command.add(outputFile.toString());
+        }
 
         return command;
     }
 
+    /**
+     * Data file of a directory-format TOC entry: <id>.dat, plus .gz/.lz4/.zst when pg_dump compressed it
+     */
+    private Path findDataFile(Path dumpDir, String dumpId) throws IOException {
+        String prefix = dumpId + ".dat";
+        try (Stream<Path> files = Files.list(dumpDir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.equals(prefix) || name.startsWith(prefix + ".");
+                    })
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
     /**
      * Build pg_restore command
      */
-    private List<String> buildPgRestoreCommand(RestoreInput input) {
+    private List<String> buildPgRestoreCommand(RestoreInput input, Path listFile, String section) {
         List<String> command = new ArrayList<>();
 
         // Support multi-word commands
@@ -290,6 +784,29 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
         command.add("--no-owner");
         command.add("--no-acl");
 
+        // Parallel workers (file or directory; pg_restore rejects -j with --single-transaction)
+        if (input.getJobs() > 1 && !input.isSingleTransaction()) {
+            command.add("--jobs=" + input.getJobs());
+        }
+
+        // TOC entries in our order (largest tables first)
+        if (listFile != null) {
+            command.add("--use-list=" + listFile);
+        }
+
+        // One part of the archive (native restores load the data themselves)
+        if (section != null) {
+            command.add("--section=" + section);
+        }
+
+        // Progress lines for per-table timings
+        command.add("--verbose");
+
+        // All-or-nothing restore (required for streaming so a failed source rolls back)
+        if (input.isSingleTransaction()) {
+            command.add("--single-transaction");
+        }
+
         // Selective tables if specified
         if (input.getTables() != null && !input.getTables().isEmpty()) {
             for (String table : input.getTables()) {
@@ -298,12 +815,125 @@ public class PostgresDumpAdapter implements DatabaseDumpPort {
             }
         }
 
-        // Input dump file
-        command.add(input.getDumpFilePath().toString());
+        // Input dump file (omitted when streaming: pg_restore reads stdin)
+        if (input.getDumpFilePath() != null) {
+            command.add(input.getDumpFilePath().toString());
+        }
 
         return command;
     }
 
+    /**
+     * List the archive's TOC and write it back with TABLE DATA entries largest first
+     * @return list file for --use-list, or null if the archive could not be listed
+     */
+    private Path writeLargestFirstList(RestoreInput input, PgRestorePlan plan) {
+        try {
+            List<String> command = new ArrayList<>(List.of(pgRestorePath.split("\\s+")));
+            command.add("--list");
+            command.add(input.getDumpFilePath().toString());
+
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            List<String> toc;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                toc = reader.lines().toList();
+            }
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                log.warn("pg_restore --list failed, restoring in archive order: {}", String.join("\n", toc));
+                return null;
+            }
+
+            Path listFile = Files.createTempFile("pg_restore_", ".list");
+            Files.write(listFile, plan.reorderLargestFirst(toc, dataFileSizes(input.getDumpFilePath())));
+            log.debug("Wrote largest-first restore list: {}", listFile);
+            return listFile;
+        } catch (Exception e) {
+            log.warn("Could not build largest-first restore list, restoring in archive order: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Directory format: size of each <dumpId>.dat[.gz|.lz4|.zst] file; empty for single-file archives
+     */
+    private Map<String, Long> dataFileSizes(Path archive) throws IOException {
+        Map<String, Long> sizes = new HashMap<>();
+        if (!Files.isDirectory(archive)) {
+            return sizes;
+        }
+        try (Stream<Path> files = Files.list(archive)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = DATA_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sizes.put(matcher.group(1), Files.size(file));
+                }
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Table sizes for ordering parallel restores (best effort - the dump does not depend on it)
+     */
+    private Map<String, Long> collectTableSizes(DumpConfig config) {
+        String url = String.format("jdbc:postgresql://%s:%d/%s",
+                config.getHost(), config.getPort(), config.getDatabase());
+        Map<String, Long> sizes = new HashMap<>();
+        try (Connection conn = DriverManager.getConnection(url, config.getUsername(), config.getPassword());
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery(TABLE_SIZES_QUERY)) {
+            while (rs.next()) {
+                sizes.put(rs.getString(1) + "." + rs.getString(2), rs.getLong(3));
+            }
+            log.debug("Collected sizes of {} tables", sizes.size());
+        } catch (SQLException e) {
+            log.warn("Could not collect table sizes, parallel restores will use archive order: {}", e.getMessage());
+        }
+        return sizes;
+    }
+
+    /**
+     * Verbose progress lines ("pg_restore: launching item ...") are not worth keeping for error messages
+     */
+    private boolean isDiagnostic(String line) {
+        if (!line.startsWith("pg_restore: ") && !line.startsWith("pg_dump: ")) {
+            return true;
+        }
+        String lower = line.toLowerCase();
+        return lower.contains("error") || lower.contains("warning") || lower.contains("detail")
+                || lower.contains("hint");
+    }
+
+    /**
+     * Drain a process' stderr into a buffer (and the debug log) on a daemon thread
+     * @param onLine optional observer of every line (progress parsing)
+     */
+    private Thread drainStderr(Process process, String tool, StringBuilder sink, Consumer<String> onLine) {
+        Thread drainer = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (onLine != null) {
+                        onLine.accept(line);
+                    }
+                    if (isDiagnostic(line)) {
+                        synchronized (sink) {
+                            sink.append(line).append("\n");
+                        }
+                    }
+                    log.debug("{} output: {}", tool, line);
+                }
+            } catch (Exception e) {
+                log.debug("{} stderr drain stopped: {}", tool, e.getMessage());
+            }
+        }, tool + "-stderr");
+        drainer.setDaemon(true);
+        drainer.start();
+        return drainer;
+    }
+
     /**
      * Get pg_dump version
      */
@@ -0,0 +1,84 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a large table into ranges that export workers can read independently
+ * The number of ranges comes from the table's size divided by the target
+ * chunk size. Ranges are WHERE predicates on an integer primary key, cut at
+ * quantiles of a histogram (so each range holds about as many rows as the
+ * others) or evenly between min and max. The first and last ranges are
+ * open-ended: sizes and statistics are estimates, and no row may fall
+ * between two ranges. Engine-specific fallbacks (PostgreSQL ctid ranges)
+ * live with the exporter that uses them.
+ */
+class RangeSplitter {
+
+    private final long thresholdBytes;
+    private final long chunkBytes;
+
+    RangeSplitter(long thresholdBytes, long chunkBytes) {
+        this.thresholdBytes = thresholdBytes;
+        this.chunkBytes = Math.max(1, chunkBytes);
+    }
+
+    /**
+     * Ranges to export a table of the given size in; 1 means "do not split"
+     */
+    int rangeCount(long relationBytes) {
+        if (relationBytes < thresholdBytes) {
+            return 1;
+        }
+        return (int) Math.max(2, Math.min(Integer.MAX_VALUE, (relationBytes + chunkBytes - 1) / chunkBytes));
+    }
+
+    /**
+     * count - 1 strictly increasing cut points taken at even quantiles of a histogram
+     * (fewer if the histogram has too few distinct bounds)
+     */
+    static List<Long> histogramCuts(long[] bounds, int count) {
+        List<Long> cuts = new ArrayList<>();
+        if (bounds == null || bounds.length < 2) {
+            return cuts;
+        }
+        for (int i = 1; i < count; i++) {
+            long cut = bounds[(int) ((long) i * (bounds.length - 1) / count)];
+            if (cut > bounds[0] && (cuts.isEmpty() || cut > cuts.get(cuts.size() - 1))) {
+                cuts.add(cut);
+            }
+        }
+        return cuts;
+    }
+
+    /**
+     * count - 1 cut points spread evenly over [min, max]
+     */
+    static List<Long> linearCuts(long min, long max, int count) {
+        List<Long> cuts = new ArrayList<>();
+        double step = ((double) max - (double) min) / count;
+        for (int i = 1; i < count; i++) {
+            long cut = min + (long) Math.floor(step * i);
+            if (cut > min && (cuts.isEmpty() || cut > cuts.get(cuts.size() - 1))) {
+                cuts.add(cut);
+            }
+        }
+        return cuts;
+    }
+
+    /**
+     * Predicates on a (quoted) key column: key < c1, c1 <= key < c2, ..., key >= cn
+     */
+    static List<String> keyRanges(String column, List<Long> cuts) {
+        List<String> ranges = new ArrayList<>();
+        if (cuts.isEmpty()) {
+            return ranges;
+        }
+        ranges.add(column + " < " + cuts.get(0));
+        for (int i = 1; i < cuts.size(); i++) {
+            ranges.add(column + " >= " + cuts.get(i - 1) + " AND " + column + " < " + cuts.get(i));
+        }
+        ranges.add(column + " >= " + cuts.get(cuts.size() - 1));
+        return ranges;
+    }
+}
@@ -0,0 +1,78 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.BinlogStreamPort;
+import com.chibao.dbbackup_cli.domain.port.out.WalStreamPort;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running log receiver process (pg_receivewal, mysqlbinlog)
+ * Its output is logged and the last lines kept for the exit report.
+ */
+@Slf4j
+class SupervisedProcess implements WalStreamPort.WalReceiver, BinlogStreamPort.BinlogFollower {
+
+    private static final int OUTPUT_LINES_KEPT = 20;
+
+    private final Process process;
+    private final String name;
+    private final Deque<String> lastLines = new ArrayDeque<>();
+
+    SupervisedProcess(Process process, String name) {
+        this.process = process;
+        this.name = name;
+        Thread drainer = new Thread(this::drainOutput, name + "-output");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private void drainOutput() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug("{} output: {}", name, line);
+                synchronized (lastLines) {
+                    if (lastLines.size() == OUTPUT_LINES_KEPT) {
+                        lastLines.removeFirst();
+                    }
+                    lastLines.addLast(line);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("{} output drain stopped: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public String describeExit() {
+        synchronized (lastLines) {
+            return "exit code " + (process.isAlive() ? "(running)" : process.exitValue())
+                    + ": " + String.join(" | ", lastLines);
+        }
+    }
+
+    @Override
+    public void stop() {
+        // SIGTERM: pg_receivewal and mysqlbinlog flush and close the file being written
+        process.destroy();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.chibao.dbbackup_cli.adapter.out.dedup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over SHA-256 hashes
+ * The hash is already uniform, so the k bit positions come from two of
+ * its 64-bit words (double hashing) instead of rehashing. Thread-safe;
+ * mightContain() is false only for hashes never put.
+ */
+class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedEntries, double falsePositiveRate) {
+        long n = Math.max(1, expectedEntries);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void put(byte[] hash) {
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        long h1 = buffer.getLong(0);
+        long h2 = buffer.getLong(8);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(byte[] hash) {
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        long h1 = buffer.getLong(0);
+        long h2 = buffer.getLong(8);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeBytes() {
+        return (long) words.length() * 8;
+    }
+
+    int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,172 @@
+package com.chibao.dbbackup_cli.adapter.out.dedup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Immutable on-disk run of sorted, distinct 32-byte hashes
+ * Memory-mapped and binary searched, so a lookup touches about log2(n)
+ * pages, which stay in the page cache for a hot index. Written once
+ * through a temp file and an atomic rename, so a crash never leaves a
+ * partial segment behind.
+ */
+class HashSegment {
+
+    static final int HASH_LENGTH = 32;
+
+    // A segment must fit one mapping
+    static final long MAX_ENTRIES = (Integer.MAX_VALUE - 8) / HASH_LENGTH;
+
+    private final Path file;
+    private final MappedByteBuffer mapped;
+    private final int entries;
+
+    private HashSegment(Path file, MappedByteBuffer mapped, int entries) {
+        this.file = file;
+        this.mapped = mapped;
+        this.entries = entries;
+    }
+
+    static HashSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % HASH_LENGTH != 0 || size / HASH_LENGTH > MAX_ENTRIES) {
+                throw new IOException("Corrupt chunk index segment " + file + " (" + size + " bytes)");
+            }
+            return new HashSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+                    (int) (size / HASH_LENGTH));
+        }
+    }
+
+    /**
+     * Write sorted, distinct hashes as a new segment
+     */
+    static HashSegment write(Path file, Iterator<byte[]> sortedHashes) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_LENGTH * 4096);
+            while (sortedHashes.hasNext()) {
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+                buffer.put(sortedHashes.next());
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    boolean contains(byte[] hash) {
+        byte[] probe = new byte[HASH_LENGTH];
+        int low = 0;
+        int high = entries - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            mapped.get(middle * HASH_LENGTH, probe);
+            int order = Arrays.compareUnsigned(probe, hash);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void forEach(Consumer<byte[]> action) {
+        Iterator<byte[]> hashes = iterator();
+        while (hashes.hasNext()) {
+            action.accept(hashes.next());
+        }
+    }
+
+    Iterator<byte[]> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < entries;
+            }
+
+            @Override
+            public byte[] next() {
+                if (next >= entries) {
+                    throw new NoSuchElementException();
+                }
+                byte[] hash = new byte[HASH_LENGTH];
+                mapped.get(next++ * HASH_LENGTH, hash);
+                return hash;
+            }
+        };
+    }
+
+    /**
+     * K-way merge of sorted segments into one sorted, distinct sequence
+     */
+    static Iterator<byte[]> merge(List<HashSegment> segments) {
+        List<Iterator<byte[]>> sources = segments.stream().map(HashSegment::iterator).toList();
+        byte[][] heads = new byte[sources.size()][];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return Arrays.stream(heads).anyMatch(head -> head != null);
+            }
+
+            @Override
+            public byte[] next() {
+                byte[] smallest = null;
+                for (byte[] head : heads) {
+                    if (head != null && (smallest == null || Arrays.compareUnsigned(head, smallest) < 0)) {
+                        smallest = head;
+                    }
+                }
+                if (smallest == null) {
+                    throw new NoSuchElementException();
+                }
+                // Advance every source positioned on this hash (drops duplicates)
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] != null && Arrays.equals(heads[i], smallest)) {
+                        heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+                    }
+                }
+                return smallest;
+            }
+        };
+    }
+
+    int size() {
+        return entries;
+    }
+
+    Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,211 @@
+package com.chibao.dbbackup_cli.adapter.out.dedup;
+
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.port.out.ChunkIndexPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Local Chunk Index Adapter
+ *
+ * OUTBOUND ADAPTER - implements ChunkIndexPort
+ *
+ * Chunk hashes live in sorted, memory-mapped segment files under
+ * index-dir (one segment per flush, merged into one once there are more
+ * than max-segments). A Bloom filter in front, rebuilt from the segments
+ * at startup, answers "not stored" for new chunks without touching the
+ * segments; "maybe" is confirmed by binary search, so there are no false
+ * positives. Chunks added since the last flush are kept in memory.
+ *
+ * The index belongs to one storage target, recorded in index-dir/target:
+ * opened against another provider, bucket or prefix it is discarded and
+ * rebuilt, since that target holds none of the indexed chunks.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class LocalChunkIndexAdapter implements ChunkIndexPort {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String TARGET_FILE = "target";
+
+    private final StoragePort storagePort;
+
+    @Value("${backup.dedup.index.dir:${user.home}/.dbbackup/chunk-index}")
+    private String indexDir;
+
+    // Bloom filter sizing; it is made larger at startup if the index already holds more
+    @Value("${backup.dedup.index.expected-chunks:10000000}")
+    private long expectedChunks;
+
+    @Value("${backup.dedup.index.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${backup.dedup.index.max-segments:8}")
+    private int maxSegments;
+
+    private Path directory;
+    private BloomFilter bloomFilter;
+    private volatile List<HashSegment> segments = List.of();
+    private final Set<ByteBuffer> pending = new HashSet<>();
+    private long nextSegment;
+
+    @PostConstruct
+    void open() {
+        try {
+            directory = Files.createDirectories(Path.of(indexDir));
+            checkTarget();
+            List<HashSegment> loaded = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.sorted().toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".tmp")) {
+                        Files.deleteIfExists(file); // left by a crash mid-write
+                    } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        loaded.add(HashSegment.open(file));
+                        nextSegment = Math.max(nextSegment, segmentNumber(name) + 1);
+                    }
+                }
+            }
+            long stored = loaded.stream().mapToLong(HashSegment::size).sum();
+            bloomFilter = new BloomFilter(Math.max(expectedChunks, stored * 2), falsePositiveRate);
+            loaded.forEach(segment -> segment.forEach(bloomFilter::put));
+            segments = List.copyOf(loaded);
+
+            log.info("Chunk index opened: dir={}, chunks={}, segments={}, bloom={} KB (k={})",
+                    directory, stored, loaded.size(), bloomFilter.sizeBytes() / 1024, bloomFilter.getHashCount());
+        } catch (IOException e) {
+            throw new StorageException("Failed to open chunk index at " + indexDir, e);
+        }
+    }
+
+    /**
+     * Drop the segments if they were built for another storage target (or for an unrecorded one)
+     */
+    private void checkTarget() throws IOException {
+        String target = storagePort.getTargetId();
+        Path targetFile = directory.resolve(TARGET_FILE);
+        String indexed = Files.exists(targetFile) ? Files.readString(targetFile).trim() : null;
+        if (target.equals(indexed)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                if (file.getFileName().toString().startsWith(SEGMENT_PREFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (indexed != null) {
+            log.warn("Chunk index was built for {}, storage target is now {}: rebuilding it", indexed, target);
+        }
+        Path temp = directory.resolve(TARGET_FILE + ".tmp");
+        Files.writeString(temp, target + "\n");
+        Files.move(temp, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean contains(byte[] hash) {
+        if (!bloomFilter.mightContain(hash)) {
+            return false;
+        }
+        synchronized (this) {
+            if (pending.contains(ByteBuffer.wrap(hash))) {
+                return true;
+            }
+        }
+        // Newest first: recent backups are the likeliest source of a repeated chunk
+        List<HashSegment> current = segments;
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (current.get(i).contains(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void add(byte[] hash) {
+        if (hash.length != HashSegment.HASH_LENGTH) {
+            throw new IllegalArgumentException("Chunk hash must be " + HashSegment.HASH_LENGTH + " bytes");
+        }
+        // Bloom bit set last: a concurrent contains() that passes it also finds the entry
+        pending.add(ByteBuffer.wrap(hash.clone()));
+        bloomFilter.put(hash);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            List<byte[]> sorted = new ArrayList<>(pending.size());
+            pending.forEach(key -> sorted.add(key.array()));
+            sorted.sort(Arrays::compareUnsigned);
+
+            HashSegment segment = HashSegment.write(segmentFile(nextSegment++), sorted.iterator());
+            List<HashSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = List.copyOf(updated);
+            pending.clear();
+            log.debug("Chunk index flushed: {} new chunks, {} segments", segment.size(), updated.size());
+
+            if (updated.size() > maxSegments) {
+                compact(updated);
+            }
+        } catch (IOException e) {
+            // The chunks are stored; the next flush retries with the same pending set
+            throw new StorageException("Failed to flush chunk index", e);
+        }
+    }
+
+    /**
+     * Merge all segments into one, so lookups stay at one binary search
+     */
+    private void compact(List<HashSegment> current) throws IOException {
+        long total = current.stream().mapToLong(HashSegment::size).sum();
+        if (total > HashSegment.MAX_ENTRIES) {
+            log.warn("Chunk index too large to merge into one segment ({} chunks), keeping {} segments",
+                    total, current.size());
+            return;
+        }
+        HashSegment merged = HashSegment.write(segmentFile(nextSegment++), HashSegment.merge(current));
+        segments = List.of(merged);
+        for (HashSegment segment : current) {
+            Files.deleteIfExists(segment.getFile());
+        }
+        log.info("Chunk index compacted: {} segments -> 1 ({} chunks)", current.size(), merged.size());
+    }
+
+    @Override
+    public synchronized long size() {
+        return segments.stream().mapToLong(HashSegment::size).sum() + pending.size();
+    }
+
+    private Path segmentFile(long number) {
+        // Zero-padded so name order is creation order
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentNumber(String name) {
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -1,26 +1,42 @@
 package com.chibao.dbbackup_cli.adapter.out.encryption;
 
 import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
 import com.chibao.dbbackup_cli.domain.port.out.EncryptionPort;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * AES-256-GCM Encryption Adapter
  * OUTBOUND ADAPTER - implements EncryptionPort
  * Encrypts/decrypts files using AES-256-GCM algorithm.
  * GCM provides both confidentiality and authenticity.
+ * Two formats:
+ * - segmented (default): fixed-size segments, each with its own nonce and
+ *   tag, sealed/opened in parallel (see SegmentedGcmFormat)
+ * - legacy: IV length + IV + one GCM stream + tag; still decrypted, and
+ *   still written when backup.encrypt.format=legacy
  */
 @Component
 @Slf4j
@@ -32,11 +48,65 @@ class AesGcmEncryptionAdapter implements EncryptionPort {
     private static final int GCM_IV_LENGTH = 12; // bytes (96 bits recommended)
     private static final int GCM_TAG_LENGTH = 128; // bits
     private static final int BUFFER_SIZE = 8192; // 8KB
+    private static final String FORMAT_LEGACY = "legacy";
+
+    @Value("${backup.encrypt.format:segmented}")
+    private String format;
+
+    @Value("${backup.encrypt.segment-size:1048576}")
+    private int segmentSize;
+
+    @Value("${backup.encrypt.threads:0}")
+    private int threads;
+
+    @Value("${backup.encrypt.pooled-segments:32}")
+    private int pooledSegments;
+
+    private ExecutorService workers;
+    private BufferPool segmentBuffers; // direct, shared by every segmented stream
+
+    @PostConstruct
+    void init() {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "encrypt-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        segmentBuffers = new BufferPool(segmentSize + SegmentedGcmFormat.TAG_LENGTH, Math.max(1, pooledSegments), true);
+        log.info("Encryption initialized: format={}, segmentSize={} bytes, threads={}, pooledSegments={}",
+                format, segmentSize, threads, pooledSegments);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
 
     @Override
     public Path encrypt(Path input, EncryptionConfig config) {
         log.info("Encrypting file: {}", input);
 
+        if (!isLegacyFormat()) {
+            try {
+                Path outputPath = createEncryptedFilePath(input);
+                try (InputStream in = Files.newInputStream(input);
+                     OutputStream out = encrypt(Files.newOutputStream(outputPath), config)) {
+                    in.transferTo(out);
+                }
+                log.info("File encrypted successfully: {} -> {}", input, outputPath);
+                return outputPath;
+            } catch (StorageException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Encryption failed for file: {}", input, e);
+                throw new StorageException("Encryption failed", e);
+            }
+        }
+
         try {
             // 1. Generate or get encryption key
             SecretKey secretKey = getOrGenerateKey(config);
@@ -92,6 +162,23 @@ class AesGcmEncryptionAdapter implements EncryptionPort {
     public Path decrypt(Path input, EncryptionConfig config) {
         log.info("Decrypting file: {}", input);
 
+        if (isSegmentedArtifact(input)) {
+            try {
+                Path outputPath = createDecryptedFilePath(input);
+                try (InputStream in = decrypt(Files.newInputStream(input), config);
+                     OutputStream out = Files.newOutputStream(outputPath)) {
+                    in.transferTo(out);
+                }
+                log.info("File decrypted successfully: {} -> {}", input, outputPath);
+                return outputPath;
+            } catch (StorageException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Decryption failed for file: {}", input, e);
+                throw new StorageException("Decryption failed", e);
+            }
+        }
+
         try {
             // 1. Get decryption key
             SecretKey secretKey = getOrGenerateKey(config);
@@ -146,6 +233,72 @@ class AesGcmEncryptionAdapter implements EncryptionPort {
         }
     }
 
+    @Override
+    public OutputStream encrypt(OutputStream target, EncryptionConfig config) {
+        log.debug("Opening encrypting stream");
+
+        try {
+            SecretKey secretKey = getOrGenerateKey(config);
+
+            if (!isLegacyFormat()) {
+                SegmentedGcmFormat envelope = SegmentedGcmFormat.create(secretKey, segmentSize);
+                return new SegmentedGcmOutputStream(target, envelope, workers, threads * 2, segmentBuffers);
+            }
+
+            byte[] iv = generateIV();
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+
+            // Same layout as the file format: IV length + IV + ciphertext + tag
+            target.write(iv.length);
+            target.write(iv);
+
+            return new CipherOutputStream(target, cipher);
+
+        } catch (Exception e) {
+            log.error("Failed to open encrypting stream", e);
+            throw new StorageException("Encryption failed", e);
+        }
+    }
+
+    @Override
+    public InputStream decrypt(InputStream source, EncryptionConfig config) {
+        log.debug("Opening decrypting stream");
+
+        try {
+            SecretKey secretKey = getOrGenerateKey(config);
+
+            // Legacy artifacts start with the IV length (12), segmented ones with the magic
+            int first = source.read();
+            if (first == -1) {
+                throw new IOException("Encrypted stream is empty");
+            }
+            if (first == SegmentedGcmFormat.MAGIC[0]) {
+                byte[] header = new byte[SegmentedGcmFormat.HEADER_LENGTH];
+                header[0] = (byte) first;
+                if (source.readNBytes(header, 1, header.length - 1) != header.length - 1) {
+                    throw new IOException("Encrypted stream is truncated in the header");
+                }
+                SegmentedGcmFormat envelope = SegmentedGcmFormat.open(secretKey, header);
+                return new SegmentedGcmInputStream(source, envelope, workers, threads * 2, segmentBuffers(envelope));
+            }
+
+            // Legacy: CipherInputStream only releases GCM plaintext after the tag, so this buffers
+            byte[] iv = source.readNBytes(first);
+            if (iv.length != first) {
+                throw new IOException("Encrypted stream is truncated in the IV");
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            return new CipherInputStream(source, cipher);
+
+        } catch (Exception e) {
+            log.error("Failed to open decrypting stream", e);
+            throw new StorageException("Decryption failed", e);
+        }
+    }
+
     @Override
     public String getAlgorithm() {
         return TRANSFORMATION;
@@ -153,21 +306,37 @@ class AesGcmEncryptionAdapter implements EncryptionPort {
 
     // ===== PRIVATE HELPER METHODS =====
 
+    private boolean isLegacyFormat() {
+        return FORMAT_LEGACY.equalsIgnoreCase(format);
+    }
+
+    /**
+     * Artifacts written with another segment size get heap buffers of their own
+     */
+    private BufferPool segmentBuffers(SegmentedGcmFormat envelope) {
+        if (envelope.encryptedSegmentSize() == segmentBuffers.getBufferSize()) {
+            return segmentBuffers;
+        }
+        return new BufferPool(envelope.encryptedSegmentSize(), 4 * threads + 3, false);
+    }
+
+    private boolean isSegmentedArtifact(Path input) {
+        try (InputStream in = Files.newInputStream(input)) {
+            return SegmentedGcmFormat.isSegmented(in.readNBytes(SegmentedGcmFormat.MAGIC.length));
+        } catch (IOException e) {
+            throw new StorageException("Cannot read encrypted file: " + input, e);
+        }
+    }
+
     /**
-     * Get encryption key from config or generate new one
+     * Get the data encryption key from config
+     * A throwaway key would make the backup unrecoverable, so a missing key is an error.
      */
-    private SecretKey getOrGenerateKey(EncryptionConfig config) throws Exception {
-
-        if (config.getKey() != null && config.getKey().length > 0) {
-            // Use provided key
-            return new SecretKeySpec(config.getKey(), ALGORITHM);
-        } else {
-            // Generate new key
-            log.warn("No encryption key provided, generating new key (NOT recommended for production)");
-            KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
-            keyGen.init(KEY_SIZE);
-            return keyGen.generateKey();
+    private SecretKey getOrGenerateKey(EncryptionConfig config) {
+        if (config.getKey() == null || config.getKey().length != KEY_SIZE / 8) {
+            throw new StorageException("A " + KEY_SIZE + "-bit data encryption key is required (see KeyManagementPort)");
         }
+        return new SecretKeySpec(config.getKey(), ALGORITHM);
     }
 
     /**
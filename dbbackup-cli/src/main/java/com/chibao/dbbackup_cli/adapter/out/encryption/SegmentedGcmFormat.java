@@ -0,0 +1,142 @@
+package com.chibao.dbbackup_cli.adapter.out.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Segmented AES-GCM envelope (format version 1)
+ * <pre>
+ * header   : magic "DBSG" | version (1) | segment size (int32 BE) | nonce prefix (7)   = 16 bytes
+ * segment i: AES-GCM(plaintext[i]) | tag (16)
+ * nonce(i) : nonce prefix (7) | i (uint32 BE) | last flag (1 = final segment)       = 12 bytes
+ * AAD      : the 16 header bytes
+ * </pre>
+ * - every segment but the last holds exactly segment-size plaintext bytes,
+ *   so segment i starts at HEADER_LENGTH + i * (segmentSize + TAG_LENGTH)
+ *   and any range can be decrypted without touching the rest
+ * - the final segment (possibly empty) is sealed with last flag = 1; dropping
+ *   trailing segments or appending data makes authentication fail
+ * - the legacy single-stream format starts with its IV length (12), never
+ *   with the magic, so both can be told apart from the first byte
+ */
+final class SegmentedGcmFormat {
+
+    static final byte[] MAGIC = {'D', 'B', 'S', 'G'};
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+    static final int NONCE_PREFIX_LENGTH = 7;
+    static final int TAG_LENGTH = 16; // bytes
+    static final int MIN_SEGMENT_SIZE = 4 * 1024;
+    static final long MAX_SEGMENTS = 0xFFFFFFFFL;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM not available", e);
+        }
+    });
+
+    private final SecretKey key;
+    private final byte[] header;
+    private final int segmentSize;
+    private final byte[] noncePrefix;
+
+    private SegmentedGcmFormat(SecretKey key, byte[] header) {
+        this.key = key;
+        this.header = header;
+        this.segmentSize = ByteBuffer.wrap(header, MAGIC.length + 1, 4).getInt();
+        this.noncePrefix = Arrays.copyOfRange(header, HEADER_LENGTH - NONCE_PREFIX_LENGTH, HEADER_LENGTH);
+    }
+
+    /**
+     * New envelope with a random nonce prefix
+     */
+    static SegmentedGcmFormat create(SecretKey key, int segmentSize) {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+        new SecureRandom().nextBytes(prefix);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.put(MAGIC).put(VERSION).putInt(segmentSize).put(prefix);
+        return new SegmentedGcmFormat(key, header.array());
+    }
+
+    /**
+     * Envelope described by a header read from an encrypted artifact
+     */
+    static SegmentedGcmFormat open(SecretKey key, byte[] header) throws IOException {
+        if (header.length != HEADER_LENGTH || !isSegmented(header)) {
+            throw new IOException("Not a segmented AES-GCM artifact");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported segmented AES-GCM version: " + header[MAGIC.length]);
+        }
+        SegmentedGcmFormat format = new SegmentedGcmFormat(key, header.clone());
+        if (format.segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IOException("Corrupt header: segment size " + format.segmentSize);
+        }
+        return format;
+    }
+
+    static boolean isSegmented(byte[] leadingBytes) {
+        return leadingBytes.length >= MAGIC.length
+                && Arrays.equals(leadingBytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    byte[] header() {
+        return header.clone();
+    }
+
+    int segmentSize() {
+        return segmentSize;
+    }
+
+    int encryptedSegmentSize() {
+        return segmentSize + TAG_LENGTH;
+    }
+
+    /**
+     * Encrypt plaintext (position..limit) into ciphertext; both are flipped-for-read on return
+     */
+    void encryptSegment(long index, boolean last, ByteBuffer plaintext, ByteBuffer ciphertext)
+            throws GeneralSecurityException {
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, nonce(index, last));
+        cipher.updateAAD(header);
+        ciphertext.clear();
+        cipher.doFinal(plaintext, ciphertext);
+        ciphertext.flip();
+    }
+
+    /**
+     * Decrypt and authenticate one segment; plaintext is flipped-for-read on return
+     */
+    void decryptSegment(long index, boolean last, ByteBuffer ciphertext, ByteBuffer plaintext)
+            throws GeneralSecurityException {
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, nonce(index, last));
+        cipher.updateAAD(header);
+        plaintext.clear();
+        cipher.doFinal(ciphertext, plaintext);
+        plaintext.flip();
+    }
+
+    private GCMParameterSpec nonce(long index, boolean last) {
+        if (index < 0 || index > MAX_SEGMENTS) {
+            throw new IllegalStateException("Segment index out of range: " + index);
+        }
+        ByteBuffer nonce = ByteBuffer.allocate(NONCE_PREFIX_LENGTH + 5);
+        nonce.put(noncePrefix).putInt((int) index).put((byte) (last ? 1 : 0));
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce.array());
+    }
+}
@@ -0,0 +1,210 @@
+package com.chibao.dbbackup_cli.adapter.out.encryption;
+
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Segmented AES-GCM Input Stream
+ * Reads sealed segments ahead (source positioned after the header), opens
+ * up to maxInFlight of them concurrently and returns plaintext in order.
+ * A segment is treated as final when the source ends right after it; a
+ * truncated or extended artifact therefore fails authentication instead
+ * of yielding a silently shortened dump.
+ * Buffers come from a pool shared by all streams (see acquire()).
+ */
+class SegmentedGcmInputStream extends InputStream {
+
+    private final InputStream in;
+    private final SegmentedGcmFormat format;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final BufferPool pool;
+    private final Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+    private final byte[] transfer;
+
+    private ByteBuffer held;      // full segment whose successor has not been read yet
+    private ByteBuffer current;   // plaintext being returned
+    private long nextIndex;
+    private boolean sourceDone;
+    private boolean closed;
+
+    /**
+     * @param pool buffers of format.encryptedSegmentSize() bytes; per pending segment this stream
+     *             holds a ciphertext and a plaintext buffer, plus held, current and the one being read
+     */
+    SegmentedGcmInputStream(InputStream in, SegmentedGcmFormat format,
+                            ExecutorService executor, int maxInFlight, BufferPool pool) {
+        if (pool.getBufferSize() != format.encryptedSegmentSize()) {
+            throw new IllegalArgumentException("Pool buffers are " + pool.getBufferSize()
+                    + " bytes, segments need " + format.encryptedSegmentSize());
+        }
+        this.in = in;
+        this.format = format;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.pool = pool;
+        this.transfer = new byte[Math.min(format.encryptedSegmentSize(), 256 * 1024)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+            fill();
+            if (pending.isEmpty()) {
+                return -1;
+            }
+            current = next();
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.remaining() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        discardPending();
+        pool.release(held);
+        pool.release(current);
+        held = null;
+        current = null;
+        in.close();
+    }
+
+    // ===== INTERNALS =====
+
+    /**
+     * Read ahead and submit segments until maxInFlight are pending or the source ends
+     */
+    private void fill() throws IOException {
+        while (!sourceDone && pending.size() < maxInFlight) {
+            ByteBuffer ciphertext = acquire();
+            int n;
+            try {
+                n = readSegment(ciphertext);
+            } catch (IOException e) {
+                pool.release(ciphertext);
+                throw e;
+            }
+
+            if (held != null) {
+                submit(held, n == 0);
+                held = null;
+            }
+
+            if (n == 0) {
+                pool.release(ciphertext);
+                sourceDone = true;
+                if (nextIndex == 0) {
+                    throw new IOException("Encrypted artifact is truncated: no segments after header");
+                }
+            } else if (n < format.encryptedSegmentSize()) {
+                sourceDone = true;
+                submit(ciphertext, true);
+            } else {
+                held = ciphertext;
+            }
+        }
+    }
+
+    private int readSegment(ByteBuffer target) throws IOException {
+        int total = 0;
+        while (target.hasRemaining()) {
+            int n = in.read(transfer, 0, Math.min(transfer.length, target.remaining()));
+            if (n == -1) {
+                break;
+            }
+            target.put(transfer, 0, n);
+            total += n;
+        }
+        target.flip();
+        return total;
+    }
+
+    private void submit(ByteBuffer ciphertext, boolean last) throws IOException {
+        long index = nextIndex++;
+        ByteBuffer plaintext = acquire();
+        pending.addLast(executor.submit(() -> {
+            try {
+                format.decryptSegment(index, last, ciphertext, plaintext);
+                return plaintext;
+            } catch (Exception e) {
+                pool.release(plaintext);
+                throw e;
+            } finally {
+                pool.release(ciphertext);
+            }
+        }));
+    }
+
+    private ByteBuffer next() throws IOException {
+        try {
+            return pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for decryption worker");
+        } catch (ExecutionException e) {
+            throw new IOException("Segment authentication failed (corrupt, truncated or wrong key)", e.getCause());
+        }
+    }
+
+    /**
+     * Wait for the segments still in flight and hand their buffers back to the shared pool
+     */
+    private void discardPending() {
+        for (Future<ByteBuffer> future : pending) {
+            try {
+                pool.release(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // the task released its buffers
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Pooled buffer, or a heap buffer while other streams hold the whole pool:
+     * streams never wait on each other, maxInFlight bounds each one
+     */
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(pool.getBufferSize());
+    }
+}
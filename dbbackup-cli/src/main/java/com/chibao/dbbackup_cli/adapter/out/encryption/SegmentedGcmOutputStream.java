@@ -0,0 +1,202 @@
+package com.chibao.dbbackup_cli.adapter.out.encryption;
+
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Segmented AES-GCM Output Stream
+ * Collects plaintext into direct ByteBuffers of one segment each and seals
+ * them concurrently on a shared worker pool. Sealed segments are written in
+ * order; at most maxInFlight segments are pending, which bounds memory and
+ * applies backpressure to the writer (same scheme as parallel deflate).
+ * A full segment is only sealed once more data arrives, because whether it
+ * is the final one is not known before that (or close()).
+ * Buffers come from a pool shared by all streams (see acquire()).
+ */
+class SegmentedGcmOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final SegmentedGcmFormat format;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final BufferPool pool;
+    private final Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+    private final byte[] transfer;
+
+    private ByteBuffer current;
+    private long nextIndex;
+    private boolean headerWritten;
+    private boolean closed;
+
+    /**
+     * @param pool buffers of format.encryptedSegmentSize() bytes; per pending segment this
+     *             stream holds a plaintext and a ciphertext buffer, plus the one being filled
+     */
+    SegmentedGcmOutputStream(OutputStream out, SegmentedGcmFormat format,
+                             ExecutorService executor, int maxInFlight, BufferPool pool) {
+        if (pool.getBufferSize() != format.encryptedSegmentSize()) {
+            throw new IllegalArgumentException("Pool buffers are " + pool.getBufferSize()
+                    + " bytes, segments need " + format.encryptedSegmentSize());
+        }
+        this.out = out;
+        this.format = format;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.pool = pool;
+        this.transfer = new byte[Math.min(format.encryptedSegmentSize(), 256 * 1024)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (len > 0) {
+            if (current == null) {
+                current = acquire();
+                current.limit(format.segmentSize());
+            } else if (!current.hasRemaining()) {
+                // More data follows, so the full segment is not the last one
+                submit(false);
+                continue;
+            }
+            int n = Math.min(len, current.remaining());
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes out segments that are already sealed; a partial segment is not
+     * forced out since that would fix its length early.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain(false);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (current == null) {
+                current = acquire(); // empty input still gets a sealed final segment
+            }
+            submit(true);
+            drain(true);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            pool.release(current);
+            current = null;
+            discardPending();
+            throw e;
+        } finally {
+            out.close();
+        }
+    }
+
+    // ===== INTERNALS =====
+
+    private void submit(boolean last) throws IOException {
+        if (!headerWritten) {
+            out.write(format.header());
+            headerWritten = true;
+        }
+
+        ByteBuffer plaintext = current;
+        current = null;
+        plaintext.flip();
+        long index = nextIndex++;
+        ByteBuffer ciphertext = acquire();
+
+        pending.addLast(executor.submit(() -> {
+            try {
+                format.encryptSegment(index, last, plaintext, ciphertext);
+                return ciphertext;
+            } catch (Exception e) {
+                pool.release(ciphertext);
+                throw e;
+            } finally {
+                pool.release(plaintext);
+            }
+        }));
+
+        while (pending.size() > maxInFlight) {
+            writeNext();
+        }
+        drain(false);
+    }
+
+    private void drain(boolean all) throws IOException {
+        while (!pending.isEmpty() && (all || pending.peekFirst().isDone())) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        ByteBuffer ciphertext;
+        try {
+            ciphertext = pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for encryption worker");
+        } catch (ExecutionException e) {
+            throw new IOException("Segment encryption failed", e.getCause());
+        }
+
+        try {
+            while (ciphertext.hasRemaining()) {
+                int n = Math.min(transfer.length, ciphertext.remaining());
+                ciphertext.get(transfer, 0, n);
+                out.write(transfer, 0, n);
+            }
+        } finally {
+            pool.release(ciphertext);
+        }
+    }
+
+    /**
+     * Wait for the segments still in flight and hand their buffers back to the shared pool
+     */
+    private void discardPending() {
+        for (Future<ByteBuffer> future : pending) {
+            try {
+                pool.release(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // the task released its buffers
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Pooled buffer, or a heap buffer while other streams hold the whole pool:
+     * streams never wait on each other, maxInFlight bounds each one
+     */
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(pool.getBufferSize());
+    }
+}
@@ -0,0 +1,75 @@
+package com.chibao.dbbackup_cli.adapter.out.kms;
+
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort.DataKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.DataKeySpec;
+import software.amazon.awssdk.services.kms.model.DecryptRequest;
+import software.amazon.awssdk.services.kms.model.DecryptResponse;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyRequest;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyResponse;
+import software.amazon.awssdk.services.kms.model.KmsException;
+
+/**
+ * AWS KMS Key Provider
+ * GenerateDataKey returns a fresh AES-256 DEK plus its KMS ciphertext blob;
+ * Decrypt unwraps the blob (the KEK never leaves KMS).
+ */
+@Component
+@ConditionalOnProperty(name = "backup.encrypt.kms.provider", havingValue = "aws")
+@RequiredArgsConstructor
+@Slf4j
+class AwsKmsKeyProvider implements KeyProvider {
+
+    private final KmsClient kmsClient;
+
+    @Override
+    public DataKey generateDataKey(String keyId) {
+        log.debug("KMS GenerateDataKey: keyId={}", keyId);
+
+        try {
+            GenerateDataKeyResponse response = kmsClient.generateDataKey(GenerateDataKeyRequest.builder()
+                    .keyId(keyId)
+                    .keySpec(DataKeySpec.AES_256)
+                    .build());
+
+            return DataKey.builder()
+                    .keyId(keyId)
+                    .plaintextKey(response.plaintext().asByteArray())
+                    .wrappedKey(response.ciphertextBlob().asByteArray())
+                    .build();
+
+        } catch (KmsException e) {
+            log.error("KMS GenerateDataKey failed: keyId={}", keyId, e);
+            throw new StorageException("KMS data key generation failed", e);
+        }
+    }
+
+    @Override
+    public byte[] unwrapDataKey(String keyId, byte[] wrappedKey) {
+        log.debug("KMS Decrypt: keyId={}", keyId);
+
+        try {
+            DecryptResponse response = kmsClient.decrypt(DecryptRequest.builder()
+                    .keyId(keyId)
+                    .ciphertextBlob(SdkBytes.fromByteArray(wrappedKey))
+                    .build());
+
+            return response.plaintext().asByteArray();
+
+        } catch (KmsException e) {
+            log.error("KMS Decrypt failed: keyId={}", keyId, e);
+            throw new StorageException("KMS data key unwrap failed", e);
+        }
+    }
+
+    @Override
+    public String getProviderType() {
+        return "aws-kms";
+    }
+}
@@ -0,0 +1,93 @@
+package com.chibao.dbbackup_cli.adapter.out.kms;
+
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Caching Key Management Adapter
+ * OUTBOUND ADAPTER - implements KeyManagementPort
+ * Fronts the configured KeyProvider (AWS KMS or local) with two caches:
+ * - generated DEKs are reused for up to max-encryptions backups within ttl,
+ *   so scheduled backups do not each call GenerateDataKey
+ * - unwrapped DEKs (keyed by wrapped bytes) serve repeated restores
+ * Both are bounded LRU caches; callers always get their own copy of the
+ * key bytes (made inside the cache), evicted entries are zeroed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class CachingKeyManagementAdapter implements KeyManagementPort {
+
+    private final KeyProvider keyProvider;
+
+    @Value("${backup.encrypt.kms.cache.ttl:PT5M}")
+    private Duration ttl;
+
+    @Value("${backup.encrypt.kms.cache.max-entries:100}")
+    private int maxEntries;
+
+    @Value("${backup.encrypt.kms.cache.max-encryptions:50}")
+    private long maxEncryptions;
+
+    private DataKeyCache<DataKey> generatedKeys;
+    private DataKeyCache<byte[]> unwrappedKeys;
+
+    @PostConstruct
+    void init() {
+        generatedKeys = new DataKeyCache<>(maxEntries, ttl, maxEncryptions, CachingKeyManagementAdapter::copy,
+                dataKey -> Arrays.fill(dataKey.getPlaintextKey(), (byte) 0));
+        unwrappedKeys = new DataKeyCache<>(maxEntries, ttl, Long.MAX_VALUE, byte[]::clone,
+                key -> Arrays.fill(key, (byte) 0));
+        log.info("Key management initialized: provider={}, cacheTtl={}, maxEntries={}, maxEncryptionsPerKey={}",
+                keyProvider.getProviderType(), ttl, maxEntries, maxEncryptions);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        generatedKeys.clear();
+        unwrappedKeys.clear();
+    }
+
+    @Override
+    public DataKey generateDataKey(String keyId) {
+        return generatedKeys.get(keyId, () -> {
+            DataKey fresh = keyProvider.generateDataKey(keyId);
+            // A restore of this backup can now skip the unwrap round trip
+            byte[] copy = unwrappedKeys.get(cacheKey(keyId, fresh.getWrappedKey()),
+                    () -> fresh.getPlaintextKey().clone());
+            Arrays.fill(copy, (byte) 0);
+            return fresh;
+        });
+    }
+
+    @Override
+    public byte[] unwrapDataKey(String keyId, byte[] wrappedKey) {
+        return unwrappedKeys.get(cacheKey(keyId, wrappedKey), () -> keyProvider.unwrapDataKey(keyId, wrappedKey));
+    }
+
+    @Override
+    public String getProviderType() {
+        return keyProvider.getProviderType();
+    }
+
+    private static DataKey copy(DataKey dataKey) {
+        return DataKey.builder()
+                .keyId(dataKey.getKeyId())
+                .plaintextKey(dataKey.getPlaintextKey().clone())
+                .wrappedKey(dataKey.getWrappedKey().clone())
+                .build();
+    }
+
+    private String cacheKey(String keyId, byte[] wrappedKey) {
+        return keyId + ":" + Base64.getEncoder().encodeToString(wrappedKey);
+    }
+}
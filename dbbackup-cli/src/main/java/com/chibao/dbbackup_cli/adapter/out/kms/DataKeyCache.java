@@ -0,0 +1,149 @@
+package com.chibao.dbbackup_cli.adapter.out.kms;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded, TTL-expiring LRU cache for key material
+ * - at most maxEntries entries; the least recently used one is evicted
+ * - entries older than ttl are never returned
+ * - an entry can be limited to maxUses hits (data key reuse cap)
+ * Callers get a copy made under the cache lock, never the cached value
+ * itself, so evicted values can be handed to the destroyer and their key
+ * bytes wiped while a caller is still using its key.
+ */
+class DataKeyCache<V> {
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final long maxUses;
+    private final UnaryOperator<V> copier;
+    private final Consumer<V> destroyer;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // One lock per key for loading, so a slow KMS call does not block other keys
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    private long hits;
+    private long misses;
+
+    DataKeyCache(int maxEntries, Duration ttl, long maxUses, UnaryOperator<V> copier, Consumer<V> destroyer) {
+        this(maxEntries, ttl, maxUses, copier, destroyer, Clock.systemUTC());
+    }
+
+    DataKeyCache(int maxEntries, Duration ttl, long maxUses, UnaryOperator<V> copier, Consumer<V> destroyer,
+                 Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.maxUses = maxUses;
+        this.copier = copier;
+        this.destroyer = destroyer;
+        this.clock = clock;
+    }
+
+    /**
+     * Copy of the cached value, or of the loader's result (cached) on a
+     * miss/expiry. Loading holds only that key's lock, so concurrent misses
+     * for the same key make a single KMS call and other keys are not held up.
+     */
+    V get(String key, Supplier<V> loader) {
+        if (maxEntries <= 0 || ttl.isZero()) {
+            countMiss();
+            return loader.get(); // not cached: the caller owns it
+        }
+        V cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (loadLocks.computeIfAbsent(key, k -> new Object())) {
+            cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            return store(key, loader.get());
+        }
+    }
+
+    private synchronized V lookup(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.instant().isBefore(entry.created.plus(ttl)) && entry.uses < maxUses) {
+            entry.uses++;
+            hits++;
+            return copier.apply(entry.value);
+        }
+        remove(key);
+        return null;
+    }
+
+    private synchronized V store(String key, V value) {
+        misses++;
+        Entry<V> replaced = entries.put(key, new Entry<>(value, clock.instant()));
+        if (replaced != null) {
+            destroyer.accept(replaced.value);
+        }
+        evictOverflow();
+        return copier.apply(value);
+    }
+
+    private synchronized void countMiss() {
+        misses++;
+    }
+
+    synchronized void clear() {
+        entries.values().forEach(entry -> destroyer.accept(entry.value));
+        entries.clear();
+        loadLocks.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(String key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            destroyer.accept(removed.value);
+            loadLocks.remove(key);
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Map.Entry<String, Entry<V>> eldest = it.next();
+            destroyer.accept(eldest.getValue().value);
+            it.remove();
+            loadLocks.remove(eldest.getKey());
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final Instant created;
+        private long uses = 1;
+
+        private Entry(V value, Instant created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
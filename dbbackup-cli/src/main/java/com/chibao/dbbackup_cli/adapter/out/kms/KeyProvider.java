@@ -0,0 +1,17 @@
+package com.chibao.dbbackup_cli.adapter.out.kms;
+
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort.DataKey;
+
+/**
+ * Raw KEK operations of one key provider (AWS KMS or the local stand-in).
+ * Caching is layered on top by CachingKeyManagementAdapter, so providers
+ * always do the real round trip.
+ */
+interface KeyProvider {
+
+    DataKey generateDataKey(String keyId);
+
+    byte[] unwrapDataKey(String keyId, byte[] wrappedKey);
+
+    String getProviderType();
+}
@@ -0,0 +1,163 @@
+package com.chibao.dbbackup_cli.adapter.out.kms;
+
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort.DataKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Local File Key Provider (KMS stand-in)
+ * For development, CI and air-gapped installs. Each KEK is a 256-bit key in
+ * <key-dir>/<keyId>.kek (Base64, owner read/write only), created on first use.
+ * Wrapped DEK layout: version (1) | IV (12) | AES-GCM(DEK) + tag, with the
+ * keyId as AAD so a DEK cannot be unwrapped under another key name.
+ */
+@Component
+@ConditionalOnProperty(name = "backup.encrypt.kms.provider", havingValue = "local", matchIfMissing = true)
+@Slf4j
+class LocalFileKeyProvider implements KeyProvider {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte WRAP_VERSION = 1;
+    private static final int KEY_LENGTH = 32; // bytes (AES-256)
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128; // bits
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, SecretKey> keks = new ConcurrentHashMap<>();
+
+    @Value("${backup.encrypt.kms.local.key-dir:${user.home}/.dbbackup/keys}")
+    private String keyDir;
+
+    @Value("${backup.encrypt.kms.local.create-missing:true}")
+    private boolean createMissing;
+
+    @Override
+    public DataKey generateDataKey(String keyId) {
+        byte[] dek = new byte[KEY_LENGTH];
+        random.nextBytes(dek);
+
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, kek(keyId), new GCMParameterSpec(TAG_LENGTH, iv));
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = cipher.doFinal(dek);
+
+            byte[] wrapped = ByteBuffer.allocate(1 + IV_LENGTH + sealed.length)
+                    .put(WRAP_VERSION).put(iv).put(sealed)
+                    .array();
+
+            return DataKey.builder()
+                    .keyId(keyId)
+                    .plaintextKey(dek)
+                    .wrappedKey(wrapped)
+                    .build();
+
+        } catch (GeneralSecurityException e) {
+            throw new StorageException("Local data key generation failed", e);
+        }
+    }
+
+    @Override
+    public byte[] unwrapDataKey(String keyId, byte[] wrappedKey) {
+        if (wrappedKey == null || wrappedKey.length <= 1 + IV_LENGTH || wrappedKey[0] != WRAP_VERSION) {
+            throw new StorageException("Unsupported wrapped data key format");
+        }
+
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, kek(keyId),
+                    new GCMParameterSpec(TAG_LENGTH, wrappedKey, 1, IV_LENGTH));
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(wrappedKey, 1 + IV_LENGTH, wrappedKey.length - 1 - IV_LENGTH);
+
+        } catch (GeneralSecurityException e) {
+            throw new StorageException("Local data key unwrap failed (wrong key or corrupt metadata)", e);
+        }
+    }
+
+    @Override
+    public String getProviderType() {
+        return "local";
+    }
+
+    // ===== PRIVATE HELPER METHODS =====
+
+    private SecretKey kek(String keyId) {
+        if (keyId == null || !KEY_ID.matcher(keyId).matches()) {
+            throw new StorageException("Invalid local key id: " + keyId);
+        }
+        return keks.computeIfAbsent(keyId, this::loadOrCreateKek);
+    }
+
+    private SecretKey loadOrCreateKek(String keyId) {
+        Path file = Paths.get(keyDir).resolve(keyId + ".kek");
+
+        try {
+            if (Files.notExists(file)) {
+                if (!createMissing) {
+                    throw new StorageException("Local KEK not found: " + file);
+                }
+                createKek(file);
+            }
+
+            byte[] key = Base64.getDecoder().decode(Files.readString(file).trim());
+            if (key.length != KEY_LENGTH) {
+                throw new StorageException("Local KEK has wrong length: " + file);
+            }
+            SecretKey kek = new SecretKeySpec(key, "AES");
+            Arrays.fill(key, (byte) 0);
+            return kek;
+
+        } catch (IOException | IllegalArgumentException e) {
+            throw new StorageException("Cannot load local KEK: " + file, e);
+        }
+    }
+
+    private void createKek(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        byte[] key = new byte[KEY_LENGTH];
+        random.nextBytes(key);
+        try {
+            Files.createFile(file);
+            try {
+                Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                log.debug("POSIX permissions not supported for {}", file);
+            }
+            Files.writeString(file, Base64.getEncoder().encodeToString(key));
+            log.warn("Created new local KEK: {} - back this file up, backups cannot be restored without it", file);
+        } catch (FileAlreadyExistsException e) {
+            log.debug("Local KEK created concurrently: {}", file);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+}
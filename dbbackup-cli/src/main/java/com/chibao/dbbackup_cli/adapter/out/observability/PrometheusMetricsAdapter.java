@@ -2,13 +2,17 @@ package com.chibao.dbbackup_cli.adapter.out.observability;
 
 import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Prometheus Metrics Adapter
@@ -102,6 +106,33 @@ public class PrometheusMetricsAdapter implements MetricsPort {
                 log.debug("Recorded retry count metric: operation={}, count={}", operation, retryCount);
         }
 
+        @Override
+        public void recordAttempt(String operation, String outcome, long durationMs) {
+
+                // Record as Timer metric (count per outcome + latency)
+                // Metric name: dbbackup_attempt_duration_seconds
+                Timer.builder(METRIC_PREFIX + ".attempt.duration")
+                                .description("Duration of individual attempts of retried operations")
+                                .tag("operation", operation)
+                                .tag("outcome", outcome)
+                                .register(meterRegistry)
+                                .record(durationMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void registerGauge(String name, Map<String, String> tags, Supplier<Number> value) {
+
+                // Gauge.builder with a Supplier keeps a strong reference to it
+                // Metric name: dbbackup_<name>
+                Gauge.builder(METRIC_PREFIX + "." + name, value)
+                                .tags(tags.entrySet().stream()
+                                                .map(tag -> Tag.of(tag.getKey(), tag.getValue()))
+                                                .toList())
+                                .register(meterRegistry);
+
+                log.debug("Registered gauge metric: name={}, tags={}", name, tags);
+        }
+
         /**
          * Custom method: Record restore duration
          * (Can add to MetricsPort interface if needed)
@@ -1,6 +1,7 @@
 package com.chibao.dbbackup_cli.adapter.out.persistence;
 
 import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
 import com.chibao.dbbackup_cli.domain.port.out.BackupRecordPort;
 import com.chibao.dbbackup_cli.domain.repository.BackupRepository;
 import lombok.RequiredArgsConstructor;
@@ -35,4 +36,9 @@ public class JpaBackupRecordAdapter implements BackupRecordPort {
     public Optional<Backup> findById(String backupId) {
         return backupRepository.findById(backupId);
     }
+
+    @Override
+    public List<Backup> findByStatus(BackupStatus status) {
+        return backupRepository.findByStatus(status);
+    }
 }
@@ -0,0 +1,135 @@
+package com.chibao.dbbackup_cli.adapter.out.storage;
+
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Additive-increase / multiplicative-decrease limit on concurrent transfers
+ * Every transfer (part upload, ranged GET) holds a slot while it runs and
+ * reports how it went:
+ * - success at normal speed: limit += 1 / limit (about +1 per round of transfers)
+ * - throttled (503 SlowDown, 429): limit x 0.5
+ * - error rate (EWMA) above 10%: limit x 0.75
+ * - slow: time per byte above latencyTolerance x the baseline (a slowly
+ *   rising minimum) means the link or the store is saturated: limit x 0.9
+ * Decreases are applied at most once per transfer time, so one burst of
+ * failures halves the limit once, not once per failed transfer.
+ */
+@Slf4j
+class AimdConcurrencyLimit {
+
+    private static final double ERROR_RATE_WEIGHT = 0.1;
+    private static final double ERROR_RATE_THRESHOLD = 0.1;
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final Predicate<Throwable> isThrottle;
+
+    private double limit;
+    private int inFlight;
+    private double baselineNanosPerByte;
+    private double errorRate;
+    private long throttleCount;
+    private long lastDecreaseNanos;
+    private long lastTransferNanos;
+
+    AimdConcurrencyLimit(String name, int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                         Predicate<Throwable> isThrottle) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.latencyTolerance = latencyTolerance;
+        this.isThrottle = isThrottle;
+    }
+
+    /**
+     * Wait for a transfer slot
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Give a slot back
+     */
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Adjust the limit from one transfer attempt's outcome (a slot may see several with retries)
+     * @param failure null on success
+     */
+    synchronized void record(long startNanos, long bytes, Throwable failure) {
+        long now = System.nanoTime();
+        lastTransferNanos = now - startNanos;
+
+        if (failure != null && isThrottle.test(failure)) {
+            throttleCount++;
+            decrease(0.5, now, "throttled");
+        } else if (failure != null) {
+            errorRate += ERROR_RATE_WEIGHT * (1 - errorRate);
+            if (errorRate > ERROR_RATE_THRESHOLD) {
+                decrease(0.75, now, "error rate " + Math.round(errorRate * 100) + "%");
+            }
+        } else {
+            errorRate -= ERROR_RATE_WEIGHT * errorRate;
+            double nanosPerByte = (double) lastTransferNanos / Math.max(1, bytes);
+            baselineNanosPerByte = baselineNanosPerByte == 0
+                    ? nanosPerByte
+                    : Math.min(nanosPerByte, baselineNanosPerByte * (1 + BASELINE_DRIFT));
+            if (nanosPerByte > latencyTolerance * baselineNanosPerByte) {
+                decrease(0.9, now, "latency");
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+        notifyAll();
+    }
+
+    private void decrease(double factor, long now, String reason) {
+        if (now - lastDecreaseNanos < lastTransferNanos) {
+            return;
+        }
+        double previous = limit;
+        limit = Math.max(minLimit, limit * factor);
+        lastDecreaseNanos = now;
+        if ((int) previous != (int) limit) {
+            log.debug("{} concurrency {} -> {} ({})", name, (int) previous, (int) limit, reason);
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+
+    synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    void registerGauges(MetricsPort metricsPort, Map<String, String> tags) {
+        metricsPort.registerGauge("transfer.concurrency.limit", tags, this::getLimit);
+        metricsPort.registerGauge("transfer.in.flight", tags, this::getInFlight);
+        metricsPort.registerGauge("transfer.throttled", tags, this::getThrottleCount);
+        metricsPort.registerGauge("transfer.error.rate", tags, this::getErrorRate);
+    }
+}
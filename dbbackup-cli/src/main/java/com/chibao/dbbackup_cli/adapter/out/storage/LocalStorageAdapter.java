@@ -42,16 +42,25 @@ class LocalStorageAdapter implements StoragePort {
 
             // Build file path
             Path targetFile = baseDir.resolve(request.getFilename());
+            // Filenames may carry a sub-path (files of a directory-format dump)
+            Files.createDirectories(targetFile.getParent());
 
             log.info("Saving to local storage: path={}, size={} bytes",
                     targetFile, request.getSizeBytes());
 
-            // Copy input stream to file
-            Files.copy(
-                    request.getData(),
-                    targetFile,
-                    StandardCopyOption.REPLACE_EXISTING
-            );
+            // Copy input stream to a .part file first: a streamed upload that
+            // fails halfway must not leave a truncated backup under the real name
+            Path partFile = baseDir.resolve(request.getFilename() + ".part");
+            try (InputStream data = request.openStream()) {
+                Files.copy(
+                        data,
+                        partFile,
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+                Files.move(partFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(partFile);
+            }
 
             log.info("Local storage upload completed: path={}", targetFile);
 
@@ -106,8 +115,18 @@ class LocalStorageAdapter implements StoragePort {
         return Files.exists(file);
     }
 
+    @Override
+    public String locate(String filename) {
+        return Paths.get(basePath).resolve(filename).toString();
+    }
+
     @Override
     public String getProviderType() {
         return "local";
     }
+
+    @Override
+    public String getTargetId() {
+        return "local:" + Paths.get(basePath).toAbsolutePath().normalize();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package com.chibao.dbbackup_cli.adapter.out.storage;
+
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel ranged download of one object
+ * The object is split into fixed-size ranges and a window of up to
+ * `concurrency` consecutive ranges is fetched at once, each over its own
+ * connection. Completed ranges wait in the window (the reorder buffer)
+ * until all earlier ones are done, so memory stays at about
+ * concurrency x range size.
+ * - a failed range is retried with the ranged-get retry policy
+ * - the range at the head of the window is hedged (fetched a second
+ *   time, first copy wins) once it takes longer than the hedge delay:
+ *   max(hedgeAfter, 3 x mean range time so far)
+ * GETs actually running are further capped by the shared AIMD limit,
+ * which each GET reports its latency or failure to. Ranges are delivered
+ * either as one ordered InputStream or written at their offsets into a
+ * local file. One consumer thread per download.
+ */
+@Slf4j
+class RangedDownload {
+
+    @FunctionalInterface
+    interface RangeFetcher {
+        // Bytes first..last (inclusive) of the object
+        InputStream open(long first, long last) throws IOException;
+    }
+
+    private static final byte[] WRITTEN = new byte[0];
+
+    private final RangeFetcher fetcher;
+    private final long objectSize;
+    private final int rangeSize;
+    private final int concurrency;
+    private final Duration hedgeAfter;
+    private final RetryExecutor retryExecutor;
+    private final Executor executor;
+    private final AimdConcurrencyLimit limit;
+
+    private final int rangeCount;
+    private final Deque<Range> window = new ArrayDeque<>();
+    private int nextRange;
+    private int deliveredRanges;
+    private volatile FileChannel target;
+    private volatile boolean cancelled;
+
+    private final AtomicLong completedRanges = new AtomicLong();
+    private final AtomicLong completedNanos = new AtomicLong();
+
+    RangedDownload(RangeFetcher fetcher, long objectSize, int rangeSize, int concurrency,
+                   Duration hedgeAfter, RetryExecutor retryExecutor, Executor executor,
+                   AimdConcurrencyLimit limit) {
+        this.fetcher = fetcher;
+        this.objectSize = objectSize;
+        this.rangeSize = rangeSize;
+        this.concurrency = Math.max(1, concurrency);
+        this.hedgeAfter = hedgeAfter;
+        this.retryExecutor = retryExecutor;
+        this.executor = executor;
+        this.limit = limit;
+        this.rangeCount = (int) ((objectSize + rangeSize - 1) / rangeSize);
+    }
+
+    // ===== CONSUMERS =====
+
+    /**
+     * The whole object as one stream, in order; closing it stops further fetches
+     */
+    InputStream openStream() {
+        fillWindow();
+        return new InputStream() {
+            private byte[] current = WRITTEN;
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                int n = read(one, 0, 1);
+                return n == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                while (position == current.length) {
+                    if (deliveredRanges == rangeCount) {
+                        return -1;
+                    }
+                    current = awaitHead();
+                    position = 0;
+                }
+                int n = Math.min(len, current.length - position);
+                System.arraycopy(current, position, b, off, n);
+                position += n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+                cancelled = true;
+            }
+        };
+    }
+
+    /**
+     * Download into a file; each range is written at its offset by whichever fetch finishes it
+     */
+    void writeTo(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            target = channel;
+            fillWindow();
+            while (deliveredRanges < rangeCount) {
+                awaitHead();
+            }
+            channel.force(false);
+        } finally {
+            cancelled = true;
+        }
+    }
+
+    // ===== WINDOW =====
+
+    private void fillWindow() {
+        while (window.size() < concurrency && nextRange < rangeCount) {
+            long offset = (long) nextRange * rangeSize;
+            Range range = new Range(nextRange++, offset, (int) Math.min(rangeSize, objectSize - offset));
+            window.addLast(range);
+            launch(range);
+        }
+    }
+
+    /**
+     * Wait for the head range (hedging it if slow), then slide the window
+     */
+    private byte[] awaitHead() throws IOException {
+        Range head = window.peekFirst();
+        while (true) {
+            try {
+                byte[] bytes = head.result.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+                window.removeFirst();
+                deliveredRanges++;
+                fillWindow();
+                return bytes;
+            } catch (TimeoutException e) {
+                if (!head.hedged) {
+                    head.hedged = true;
+                    log.debug("Hedging slow range {} ({} bytes at offset {})", head.index, head.length, head.offset);
+                    launch(head);
+                }
+            } catch (ExecutionException e) {
+                cancelled = true;
+                throw new IOException("Range " + head.index + " failed after retries: "
+                        + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                cancelled = true;
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for range " + head.index);
+            }
+        }
+    }
+
+    private long hedgeDelayNanos() {
+        long floor = hedgeAfter.toNanos();
+        long done = completedRanges.get();
+        return done == 0 ? floor : Math.max(floor, 3 * (completedNanos.get() / done));
+    }
+
+    // ===== FETCHES =====
+
+    private void launch(Range range) {
+        range.running.incrementAndGet();
+        executor.execute(() -> fetch(range));
+    }
+
+    private void fetch(Range range) {
+        long started = System.nanoTime();
+        try {
+            byte[] bytes = retryExecutor.execute(RetryOperation.RANGED_GET, () -> {
+                if (cancelled || range.result.isDone()) {
+                    throw new CancellationException("Range " + range.index + " no longer needed");
+                }
+                return fetchLimited(range);
+            });
+            deliver(range, bytes, System.nanoTime() - started);
+            range.running.decrementAndGet();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // The range fails only when its last running fetch gives up
+            if (range.running.decrementAndGet() == 0) {
+                range.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * One GET of the range, holding a slot of the shared AIMD limit
+     */
+    private byte[] fetchLimited(Range range) throws IOException, InterruptedException {
+        limit.acquire();
+        long started = System.nanoTime();
+        Throwable failure = null;
+        try (InputStream in = fetcher.open(range.offset, range.offset + range.length - 1)) {
+            byte[] bytes = in.readNBytes(range.length);
+            if (bytes.length != range.length) {
+                throw new IOException("Short read: " + bytes.length + " of " + range.length + " bytes");
+            }
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            limit.record(started, range.length, failure);
+            limit.release();
+        }
+    }
+
+    private void deliver(Range range, byte[] bytes, long elapsedNanos) throws IOException {
+        if (range.result.isDone()) {
+            return; // the other copy of a hedged range won
+        }
+        FileChannel channel = target;
+        if (channel != null) {
+            // Both copies of a hedged range may get here; they write the same bytes
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = range.offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            bytes = WRITTEN;
+        }
+        if (range.result.complete(bytes)) {
+            completedRanges.incrementAndGet();
+            completedNanos.addAndGet(elapsedNanos);
+        }
+    }
+
+    private static final class Range {
+        final int index;
+        final long offset;
+        final int length;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final AtomicInteger running = new AtomicInteger();
+        boolean hedged; // consumer thread only
+
+        Range(int index, long offset, int length) {
+            this.index = index;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
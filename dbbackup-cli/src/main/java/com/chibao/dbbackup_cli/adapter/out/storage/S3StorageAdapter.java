@@ -1,20 +1,55 @@
 package com.chibao.dbbackup_cli.adapter.out.storage;
 
 import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
 import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * S3 Storage Adapter
@@ -22,7 +57,8 @@ import java.util.List;
  * OUTBOUND ADAPTER - implements StoragePort
  *
  * Handles file upload/download to AWS S3.
- * Supports multipart upload for large files.
+ * Supports multipart upload for large files and parallel ranged GETs
+ * for large downloads.
  */
 @Component
 @ConditionalOnProperty(name = "storage.provider", havingValue = "s3")
@@ -31,6 +67,8 @@ import java.util.List;
 public class S3StorageAdapter implements StoragePort {
 
     private final S3Client s3Client;
+    private final MetricsPort metricsPort;
+    private final RetryExecutor retryExecutor;
 
     @Value("${storage.s3.bucket}")
     private String bucketName;
@@ -38,8 +76,90 @@ public class S3StorageAdapter implements StoragePort {
     @Value("${storage.s3.prefix:backups/}")
     private String prefix;
 
-    private static final long MULTIPART_THRESHOLD = 100 * 1024 * 1024; // 100MB
-    private static final long PART_SIZE = 50 * 1024 * 1024; // 50MB per part
+    private static final long MB = 1024 * 1024;
+    private static final long MIN_PART_SIZE = 5 * MB;
+    private static final long MAX_PART_SIZE = 5 * 1024 * MB;
+    private static final long MAX_SINGLE_PUT = 5 * 1024 * MB;
+    private static final int MAX_PARTS = 10_000;
+
+    @Value("${storage.s3.upload.multipart-threshold:104857600}")
+    private long multipartThreshold; // 100MB
+
+    // Preferred part size; smaller objects get smaller parts, huge ones larger (10,000 parts max)
+    @Value("${storage.s3.upload.part-size:52428800}")
+    private long partSize; // 50MB per part
+
+    // Upper bound of the adaptive part concurrency, shared by all uploads
+    @Value("${storage.s3.upload.max-in-flight:8}")
+    private int maxInFlightParts;
+
+    // Part buffers (direct, part-size each) shared by all uploads: caps off-heap memory
+    @Value("${storage.s3.upload.buffer-count:16}")
+    private int partBufferCount;
+
+    // Parallel ranged GETs: several connections per download instead of one
+    @Value("${storage.s3.download.ranged.enabled:true}")
+    private boolean rangedDownloadEnabled;
+
+    @Value("${storage.s3.download.ranged.range-size:8388608}")
+    private int rangeSize; // 8MB per range
+
+    @Value("${storage.s3.download.ranged.concurrency:8}")
+    private int rangeConcurrency;
+
+    // A range slower than max(hedge-after, 3 x mean range time) is fetched a second time
+    @Value("${storage.s3.download.ranged.hedge-after:PT2S}")
+    private Duration rangeHedgeAfter;
+
+    // AIMD transfer concurrency: starts here, grows while transfers stay fast, shrinks on throttling/errors
+    @Value("${storage.s3.transfer.initial-concurrency:4}")
+    private int initialConcurrency;
+
+    @Value("${storage.s3.transfer.min-concurrency:1}")
+    private int minConcurrency;
+
+    // Time per byte above this multiple of the best recently seen counts as congestion
+    @Value("${storage.s3.transfer.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    private AimdConcurrencyLimit uploadLimit;
+    private AimdConcurrencyLimit downloadLimit;
+    private BufferPool partBuffers;
+    private ExecutorService partUploadExecutor;
+    private ExecutorService rangeDownloadExecutor;
+
+    @PostConstruct
+    void initPartUploads() {
+        if (partSize < 5 * 1024 * 1024 || partSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("storage.s3.upload.part-size must be between 5MB and 2GB");
+        }
+        if (rangeSize <= 0) {
+            throw new IllegalStateException("storage.s3.download.ranged.range-size must be positive");
+        }
+        partBuffers = new BufferPool((int) partSize, Math.max(1, partBufferCount), true);
+        uploadLimit = new AimdConcurrencyLimit("S3 upload", initialConcurrency, minConcurrency,
+                maxInFlightParts, latencyTolerance, S3StorageAdapter::isThrottle);
+        downloadLimit = new AimdConcurrencyLimit("S3 download", initialConcurrency, minConcurrency,
+                rangeConcurrency, latencyTolerance, S3StorageAdapter::isThrottle);
+        uploadLimit.registerGauges(metricsPort, Map.of("provider", "s3", "direction", "upload"));
+        downloadLimit.registerGauges(metricsPort, Map.of("provider", "s3", "direction", "download"));
+        partUploadExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rangeDownloadExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "s3-range-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdownPartUploads() {
+        partUploadExecutor.shutdownNow();
+        rangeDownloadExecutor.shutdownNow();
+    }
 
     @Override
     public String upload(UploadRequest request) {
@@ -49,7 +169,15 @@ public class S3StorageAdapter implements StoragePort {
                 bucketName, objectKey, request.getSizeBytes());
 
         try {
-            if (request.isEnableMultipart() && request.getSizeBytes() > MULTIPART_THRESHOLD) {
+            // Unknown size (streaming pipeline) can only go through multipart
+            boolean unknownSize = request.getSizeBytes() < 0;
+            if (request.getResumeFrom() != null) {
+                return resumeMultipartUpload(request);
+            }
+            // A single PUT is limited to 5GB whatever the caller asked for
+            boolean large = request.getSizeBytes() > multipartThreshold
+                    && (request.isEnableMultipart() || request.getSizeBytes() > MAX_SINGLE_PUT);
+            if (unknownSize || large) {
                 return multipartUpload(request, objectKey);
             } else {
                 return simpleUpload(request, objectKey);
@@ -65,6 +193,11 @@ public class S3StorageAdapter implements StoragePort {
         log.info("Downloading from S3: bucket={}, key={}", bucketName, identifier);
 
         try {
+            RangedDownload ranged = rangedDownload(identifier);
+            if (ranged != null) {
+                return ranged.openStream();
+            }
+
             GetObjectRequest getRequest = GetObjectRequest.builder()
                     .bucket(bucketName)
                     .key(identifier)
@@ -78,6 +211,26 @@ public class S3StorageAdapter implements StoragePort {
         }
     }
 
+    @Override
+    public void downloadTo(String identifier, Path target) {
+        log.info("Downloading from S3 to file: bucket={}, key={}, target={}", bucketName, identifier, target);
+
+        try {
+            RangedDownload ranged = rangedDownload(identifier);
+            if (ranged != null) {
+                ranged.writeTo(target);
+                return;
+            }
+            try (InputStream in = download(identifier)) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException | S3Exception e) {
+            log.error("S3 download failed: key={}", identifier, e);
+            throw new StorageException("S3 download failed", e);
+        }
+    }
+
     @Override
     public void delete(String identifier) {
         log.info("Deleting from S3: bucket={}, key={}", bucketName, identifier);
@@ -99,12 +252,7 @@ public class S3StorageAdapter implements StoragePort {
     @Override
     public boolean exists(String identifier) {
         try {
-            HeadObjectRequest headRequest = HeadObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(identifier)
-                    .build();
-
-            s3Client.headObject(headRequest);
+            headObject(identifier);
             return true;
 
         } catch (NoSuchKeyException e) {
@@ -120,8 +268,100 @@ public class S3StorageAdapter implements StoragePort {
         return "s3";
     }
 
+    @Override
+    public String getTargetId() {
+        return "s3://" + bucketName + "/" + prefix;
+    }
+
+    @Override
+    public String locate(String filename) {
+        return buildObjectKey(filename);
+    }
+
+    @Override
+    public boolean supportsDeltaUpload() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsResumableUpload() {
+        return true;
+    }
+
+    @Override
+    public List<UploadCheckpoint> listIncompleteUploads() {
+        try {
+            ListMultipartUploadsRequest listRequest = ListMultipartUploadsRequest.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix)
+                    .build();
+
+            // Part size and parts are unknown here; only id, key and age are needed to sweep
+            return s3Client.listMultipartUploadsPaginator(listRequest).uploads().stream()
+                    .map(upload -> UploadCheckpoint.builder()
+                            .uploadId(upload.uploadId())
+                            .objectKey(upload.key())
+                            .initiatedAt(upload.initiated())
+                            .completedParts(new TreeMap<>())
+                            .build())
+                    .toList();
+
+        } catch (S3Exception e) {
+            log.error("S3 list multipart uploads failed: prefix={}", prefix, e);
+            throw new StorageException("S3 list multipart uploads failed", e);
+        }
+    }
+
+    @Override
+    public void abortUpload(UploadCheckpoint checkpoint) {
+        log.info("Aborting S3 multipart upload: key={}, uploadId={}",
+                checkpoint.getObjectKey(), checkpoint.getUploadId());
+
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(checkpoint.getObjectKey())
+                    .uploadId(checkpoint.getUploadId())
+                    .build());
+
+        } catch (NoSuchUploadException e) {
+            log.debug("Multipart upload already gone: uploadId={}", checkpoint.getUploadId());
+        } catch (S3Exception e) {
+            log.error("S3 abort multipart upload failed: uploadId={}", checkpoint.getUploadId(), e);
+            throw new StorageException("S3 abort multipart upload failed", e);
+        }
+    }
+
     // ===== PRIVATE METHODS =====
 
+    /**
+     * Ranged download of an object big enough to gain from it, null for a single GET
+     * Every range is pinned to the ETag seen by HEAD, so an object replaced
+     * mid-download fails the ranges instead of mixing two versions.
+     */
+    private RangedDownload rangedDownload(String objectKey) {
+        if (!rangedDownloadEnabled || rangeConcurrency <= 1) {
+            return null;
+        }
+        HeadObjectResponse head = headObject(objectKey);
+        long size = head.contentLength();
+        if (size <= 2L * rangeSize) {
+            return null;
+        }
+
+        log.debug("Ranged download: key={}, size={} bytes, ranges of {} bytes, concurrency={}",
+                objectKey, size, rangeSize, rangeConcurrency);
+        String eTag = head.eTag();
+        return new RangedDownload((first, last) -> s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .range("bytes=" + first + "-" + last)
+                .ifMatch(eTag)
+                .build()),
+                size, rangeSize, rangeConcurrency, rangeHedgeAfter, retryExecutor, rangeDownloadExecutor,
+                downloadLimit);
+    }
+
     /**
      * Simple upload for small files
      */
@@ -132,10 +372,10 @@ public class S3StorageAdapter implements StoragePort {
                 .metadata(request.getMetadata())
                 .build();
 
-        s3Client.putObject(
-                putRequest,
-                RequestBody.fromInputStream(request.getData(), request.getSizeBytes())
-        );
+        RequestBody body = request.getData() == null && request.getSourceFile() != null
+                ? RequestBody.fromFile(request.getSourceFile())
+                : RequestBody.fromInputStream(request.getData(), request.getSizeBytes());
+        s3Client.putObject(putRequest, body);
 
         log.info("S3 simple upload completed: key={}", objectKey);
         return objectKey;
@@ -143,12 +383,36 @@ public class S3StorageAdapter implements StoragePort {
 
     /**
      * Multipart upload for large files
-     *
-     * Properly handles byte buffer and uses correct S3 API
+     * Parts are uploaded concurrently, as many as the AIMD upload limit
+     * (shared by all uploads) allows, from direct buffers borrowed from a
+     * pool shared by all uploads, so the memory used by any number of
+     * concurrent backups stays bounded and no per-part byte[] is allocated.
+     * A part buffer is filled either from the request stream (in order, on
+     * the calling thread) or, for a source file, by the part worker with a
+     * positional FileChannel read. File parts sized above the buffers (huge
+     * objects) are streamed from the file region directly.
      */
     private String multipartUpload(UploadRequest request, String objectKey) throws IOException {
-        log.info("Starting S3 multipart upload: key={}, size={} bytes",
-                objectKey, request.getSizeBytes());
+        // Streamed parts are filled into the pooled buffers, so they cannot be larger
+        boolean fromFile = request.getData() == null && request.getSourceFile() != null;
+        long uploadPartSize = fromFile
+                ? choosePartSize(request.getSizeBytes())
+                : Math.min(partSize, choosePartSize(request.getSizeBytes()));
+        // Parts can only be compared with (and copied from) the previous object at the same boundaries
+        PartDigests deltaBase = fromFile ? usableDeltaBase(request) : null;
+        if (deltaBase != null) {
+            uploadPartSize = deltaBase.getPartSize();
+        }
+        if (request.getSizeBytes() > uploadPartSize * MAX_PARTS) {
+            throw new StorageException("Object of " + request.getSizeBytes() + " bytes needs more than "
+                    + MAX_PARTS + " parts of " + uploadPartSize + " bytes");
+        }
+        PartDelta delta = fromFile && (deltaBase != null || request.getPartDigestListener() != null)
+                ? new PartDelta(deltaBase, (int) ((request.getSizeBytes() + uploadPartSize - 1) / uploadPartSize))
+                : null;
+
+        log.info("Starting S3 multipart upload: key={}, size={} bytes, part size={} bytes",
+                objectKey, request.getSizeBytes(), uploadPartSize);
 
         // 1. Initiate multipart upload
         CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest.builder()
@@ -162,48 +426,156 @@ public class S3StorageAdapter implements StoragePort {
 
         log.debug("Multipart upload initiated: uploadId={}", uploadId);
 
-        List<CompletedPart> completedParts = new ArrayList<>();
-        int partNumber = 1;
-        byte[] buffer = new byte[(int) PART_SIZE];
-        int bytesRead;
+        UploadProgress progress = new UploadProgress(UploadCheckpoint.builder()
+                .uploadId(uploadId)
+                .objectKey(objectKey)
+                .partSize(uploadPartSize)
+                .initiatedAt(Instant.now())
+                .completedParts(new TreeMap<>())
+                .build(), request.getCheckpointListener());
+        progress.publish();
 
-        try {
-            // 2. Upload parts
-            InputStream inputStream = request.getData();
+        return uploadParts(request, progress, delta);
+    }
 
-            while ((bytesRead = inputStream.read(buffer)) > 0) {
+    /**
+     * Delta base the new object can be split against, null if it does not fit
+     * The new object must be cut at the base's part size, which has to be a
+     * valid size for it as well.
+     */
+    private PartDigests usableDeltaBase(UploadRequest request) {
+        PartDigests base = request.getDeltaBase();
+        if (base == null) {
+            return null;
+        }
+        long basePartSize = base.getPartSize();
+        if (base.getETag() == null || basePartSize < MIN_PART_SIZE || basePartSize > MAX_PART_SIZE
+                || request.getSizeBytes() > basePartSize * MAX_PARTS) {
+            log.info("Delta base {} not usable (part size {} bytes), uploading every part",
+                    base.getObjectKey(), basePartSize);
+            return null;
+        }
+        return base;
+    }
 
-                // Create byte array with actual bytes read (important!)
-                byte[] partData = java.util.Arrays.copyOf(buffer, bytesRead);
+    /**
+     * Continue a multipart upload from a checkpoint
+     * S3's own part list is authoritative: parts that finished after the
+     * last checkpoint was saved are kept too. Only the missing parts are
+     * read from the source file and uploaded, with the part size the
+     * upload was started with.
+     */
+    private String resumeMultipartUpload(UploadRequest request) throws IOException {
+        UploadCheckpoint checkpoint = request.getResumeFrom();
+        if (request.getSourceFile() == null) {
+            throw new StorageException("Resuming a multipart upload requires a source file");
+        }
 
-                // Build upload part request with RequestBody
-                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
-                        .bucket(bucketName)
-                        .key(objectKey)
-                        .uploadId(uploadId)
-                        .partNumber(partNumber)
-                        .contentLength((long) bytesRead)  // Important for S3
-                        .build();
+        SortedMap<Integer, String> uploadedParts = new TreeMap<>();
+        try {
+            ListPartsRequest listRequest = ListPartsRequest.builder()
+                    .bucket(bucketName)
+                    .key(checkpoint.getObjectKey())
+                    .uploadId(checkpoint.getUploadId())
+                    .build();
+            s3Client.listPartsPaginator(listRequest).parts()
+                    .forEach(part -> uploadedParts.put(part.partNumber(), part.eTag()));
+        } catch (NoSuchUploadException e) {
+            throw new StorageException("Multipart upload no longer exists: " + checkpoint.getUploadId(), e);
+        }
 
-                // ✅ CORRECT: uploadPart() takes request + RequestBody separately
-                UploadPartResponse uploadPartResponse = s3Client.uploadPart(
-                        uploadPartRequest,
-                        RequestBody.fromBytes(partData)
-                );
+        log.info("Resuming S3 multipart upload: key={}, uploadId={}, parts done={} (checkpointed {})",
+                checkpoint.getObjectKey(), checkpoint.getUploadId(),
+                uploadedParts.size(), checkpoint.getCompletedParts().size());
 
-                CompletedPart part = CompletedPart.builder()
-                        .partNumber(partNumber)
-                        .eTag(uploadPartResponse.eTag())
-                        .build();
+        UploadProgress progress = new UploadProgress(checkpoint.toBuilder()
+                .completedParts(uploadedParts)
+                .build(), request.getCheckpointListener());
+        progress.publish();
 
-                completedParts.add(part);
+        return uploadParts(request, progress, null);
+    }
 
-                log.debug("Uploaded part {}: {} bytes, etag={}",
-                        partNumber, bytesRead, uploadPartResponse.eTag());
+    /**
+     * Upload every part not yet in progress, then complete the upload (or abort it on failure)
+     */
+    private String uploadParts(UploadRequest request, UploadProgress progress, PartDelta delta) throws IOException {
+        String objectKey = progress.objectKey;
+        String uploadId = progress.uploadId;
+        long uploadPartSize = progress.partSize;
 
-                partNumber++;
+        AtomicReference<Throwable> partFailure = new AtomicReference<>();
+        List<Future<CompletedPart>> pendingParts = new ArrayList<>();
+
+        try {
+            // 2. Upload parts
+            if (request.getData() == null && request.getSourceFile() != null) {
+                try (FileChannel channel = FileChannel.open(request.getSourceFile(), StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    // Parts larger than the pooled buffers are streamed from the file instead
+                    boolean buffered = uploadPartSize <= partBuffers.getBufferSize();
+                    int partNumber = 1;
+                    for (long position = 0; position < size; position += uploadPartSize, partNumber++) {
+                        String uploadedETag = progress.uploadedETag(partNumber);
+                        if (uploadedETag != null) {
+                            pendingParts.add(CompletableFuture.completedFuture(CompletedPart.builder()
+                                    .partNumber(partNumber)
+                                    .eTag(uploadedETag)
+                                    .build()));
+                            continue;
+                        }
+                        long offset = position;
+                        int length = (int) Math.min(uploadPartSize, size - position);
+                        PartBody body;
+                        if (buffered) {
+                            ByteBuffer buffer = reservePart(partFailure, length);
+                            body = bufferedPart(buffer, () -> readFully(channel, buffer, offset, length));
+                        } else {
+                            reserveSlot(partFailure);
+                            body = filePart(channel, offset, length);
+                        }
+                        pendingParts.add(submitPart(progress, partNumber, body, partFailure, delta));
+                    }
+                    // The channel must stay open until every part has been read
+                    awaitParts(pendingParts);
+                }
+            } else {
+                ReadableByteChannel source = Channels.newChannel(request.getData());
+                for (int partNumber = 1; ; partNumber++) {
+                    ByteBuffer buffer = reservePart(partFailure, (int) uploadPartSize);
+                    try {
+                        // Fill the whole part even from a pipe that returns short reads
+                        while (buffer.hasRemaining() && source.read(buffer) >= 0) {
+                            // keep reading
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // A failed producer: the buffer and slot are shared by every upload
+                        partBuffers.release(buffer);
+                        uploadLimit.release();
+                        throw e;
+                    }
+                    if (buffer.position() == 0) {
+                        partBuffers.release(buffer);
+                        uploadLimit.release();
+                        break;
+                    }
+                    if (partNumber > MAX_PARTS) {
+                        partBuffers.release(buffer);
+                        uploadLimit.release();
+                        throw new StorageException("Stream exceeds " + MAX_PARTS + " parts of " + uploadPartSize
+                                + " bytes; raise storage.s3.upload.part-size");
+                    }
+                    buffer.flip();
+                    pendingParts.add(submitPart(progress, partNumber, bufferedPart(buffer, () -> { }), partFailure,
+                            null));
+                    if (buffer.limit() < uploadPartSize) {
+                        break; // short part: end of stream
+                    }
+                }
             }
 
+            List<CompletedPart> completedParts = awaitParts(pendingParts);
+
             // Validate at least one part uploaded
             if (completedParts.isEmpty()) {
                 throw new StorageException("No parts uploaded - file may be empty");
@@ -221,14 +593,21 @@ public class S3StorageAdapter implements StoragePort {
                     .multipartUpload(completedUpload)
                     .build();
 
-            s3Client.completeMultipartUpload(completeRequest);
+            CompleteMultipartUploadResponse completeResponse = s3Client.completeMultipartUpload(completeRequest);
 
             log.info("S3 multipart upload completed: key={}, parts={}", objectKey, completedParts.size());
+            if (delta != null) {
+                delta.report(request, objectKey, completeResponse.eTag(), uploadPartSize);
+            }
             return objectKey;
 
         } catch (Exception e) {
             // Abort multipart upload on failure
             log.error("Multipart upload failed, aborting: uploadId={}", uploadId, e);
+            // Not cancelled: a part cancelled before it starts would never return its buffer and slot.
+            // Parts still queued see the failure and return them without uploading.
+            partFailure.compareAndSet(null, e);
+            drainParts(pendingParts);
 
             try {
                 AbortMultipartUploadRequest abortRequest = AbortMultipartUploadRequest.builder()
@@ -244,10 +623,411 @@ public class S3StorageAdapter implements StoragePort {
                 log.error("Failed to abort multipart upload: uploadId={}", uploadId, abortException);
             }
 
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             throw new StorageException("Multipart upload failed", e);
         }
     }
 
+    /**
+     * Part size for an object of the given size (-1 = unknown)
+     * As large as configured, but small enough that every transfer slot gets
+     * a part, never under S3's 5MB minimum and never more than 10,000 parts.
+     * Rounded up to whole MB.
+     */
+    long choosePartSize(long objectSize) {
+        if (objectSize < 0) {
+            return partSize;
+        }
+        long forConcurrency = objectSize / Math.max(1, maxInFlightParts);
+        long size = Math.max(MIN_PART_SIZE, Math.min(partSize, forConcurrency));
+        size = Math.max(size, (objectSize + MAX_PARTS - 1) / MAX_PARTS);
+        size = (size + MB - 1) / MB * MB;
+        return Math.min(size, MAX_PART_SIZE);
+    }
+
+    /**
+     * Wait for a transfer slot; fail fast if a part already failed
+     */
+    private void reserveSlot(AtomicReference<Throwable> partFailure) throws InterruptedException {
+        throwIfFailed(partFailure);
+        uploadLimit.acquire();
+    }
+
+    /**
+     * Wait for a transfer slot and a pooled buffer (limited to length bytes)
+     */
+    private ByteBuffer reservePart(AtomicReference<Throwable> partFailure, int length)
+            throws InterruptedException {
+        reserveSlot(partFailure);
+        try {
+            ByteBuffer buffer = partBuffers.acquire();
+            buffer.limit(length);
+            return buffer;
+        } catch (InterruptedException | RuntimeException e) {
+            uploadLimit.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Part sent from a pooled buffer, filled by the part worker
+     */
+    private PartBody bufferedPart(ByteBuffer buffer, PartFiller filler) {
+        return new PartBody() {
+            @Override
+            public int prepare() throws IOException {
+                filler.fill();
+                return buffer.remaining();
+            }
+
+            @Override
+            public InputStream open() {
+                return new ByteBufferInputStream(buffer);
+            }
+
+            @Override
+            public void release() {
+                partBuffers.release(buffer);
+            }
+        };
+    }
+
+    /**
+     * Part streamed from a region of the source file (no buffer)
+     */
+    private static PartBody filePart(FileChannel channel, long offset, int length) {
+        return new PartBody() {
+            @Override
+            public int prepare() {
+                return length;
+            }
+
+            @Override
+            public InputStream open() {
+                return new FileRegionInputStream(channel, offset, length);
+            }
+
+            @Override
+            public void release() {
+                // nothing pooled
+            }
+        };
+    }
+
+    /**
+     * HEAD, hedged with a second request if the first is slow (storage-read policy)
+     */
+    private HeadObjectResponse headObject(String objectKey) {
+        HeadObjectRequest headRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+        try {
+            return retryExecutor.executeHedged(RetryOperation.STORAGE_READ, () -> s3Client.headObject(headRequest));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted during S3 HEAD: " + objectKey, e);
+        } catch (Exception e) {
+            throw new StorageException("S3 HEAD failed: " + objectKey, e);
+        }
+    }
+
+    /**
+     * Upload one part on a worker (retried per the part-upload policy); its transfer slot is handed back at the end
+     * With a delta, the part is hashed first; a part identical to the same
+     * part of the base object is copied server-side instead of uploaded.
+     */
+    private Future<CompletedPart> submitPart(UploadProgress progress, int partNumber, PartBody body,
+                                             AtomicReference<Throwable> partFailure, PartDelta delta) {
+        return partUploadExecutor.submit(() -> {
+            try {
+                throwIfFailed(partFailure);
+                int length = body.prepare();
+
+                if (delta != null) {
+                    String digest = digest(body);
+                    delta.digests[partNumber - 1] = digest;
+                    String copiedETag = digest.equals(delta.baseDigest(partNumber))
+                            ? copyPart(progress, partNumber, delta, length)
+                            : null;
+                    if (copiedETag != null) {
+                        log.debug("Copied part {} from {}: {} bytes, etag={}",
+                                partNumber, delta.base.getObjectKey(), length, copiedETag);
+                        delta.copied(length);
+                        progress.partCompleted(partNumber, copiedETag);
+                        return CompletedPart.builder()
+                                .partNumber(partNumber)
+                                .eTag(copiedETag)
+                                .build();
+                    }
+                }
+
+                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(progress.objectKey)
+                        .uploadId(progress.uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) length)  // Important for S3
+                        .build();
+
+                // Streams straight from the buffer or file, reopened on every attempt;
+                // each attempt's outcome feeds the AIMD limit, the slot is held throughout
+                UploadPartResponse uploadPartResponse = retryExecutor.execute(RetryOperation.PART_UPLOAD, () -> {
+                    long started = System.nanoTime();
+                    Throwable failure = null;
+                    try {
+                        return s3Client.uploadPart(uploadPartRequest,
+                                RequestBody.fromContentProvider(body::open, length, "application/octet-stream"));
+                    } catch (RuntimeException e) {
+                        failure = e;
+                        throw e;
+                    } finally {
+                        uploadLimit.record(started, length, failure);
+                    }
+                });
+
+                log.debug("Uploaded part {}: {} bytes, etag={}",
+                        partNumber, length, uploadPartResponse.eTag());
+                progress.partCompleted(partNumber, uploadPartResponse.eTag());
+
+                return CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(uploadPartResponse.eTag())
+                        .build();
+            } catch (Exception e) {
+                partFailure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                body.release();
+                uploadLimit.release();
+            }
+        });
+    }
+
+    /**
+     * Server-side copy of the same byte range of the base object into this part
+     * Pinned to the base ETag; returns null (upload the part instead) once
+     * the base object turns out to be gone or replaced.
+     */
+    private String copyPart(UploadProgress progress, int partNumber, PartDelta delta, int length)
+            throws Exception {
+        if (delta.baseUnavailable) {
+            return null;
+        }
+        long offset = (partNumber - 1L) * delta.base.getPartSize();
+        UploadPartCopyRequest copyRequest = UploadPartCopyRequest.builder()
+                .sourceBucket(bucketName)
+                .sourceKey(delta.base.getObjectKey())
+                .copySourceIfMatch(delta.base.getETag())
+                .copySourceRange("bytes=" + offset + "-" + (offset + length - 1))
+                .destinationBucket(bucketName)
+                .destinationKey(progress.objectKey)
+                .uploadId(progress.uploadId)
+                .partNumber(partNumber)
+                .build();
+        try {
+            return retryExecutor.execute(RetryOperation.PART_UPLOAD, () -> s3Client.uploadPartCopy(copyRequest))
+                    .copyPartResult()
+                    .eTag();
+        } catch (AwsServiceException e) {
+            if (e.statusCode() != 404 && e.statusCode() != 412) {
+                throw e;
+            }
+            delta.baseUnavailable = true;
+            log.warn("Delta base {} is gone or changed (HTTP {}), uploading remaining parts",
+                    delta.base.getObjectKey(), e.statusCode());
+            return null;
+        }
+    }
+
+    private static String digest(PartBody body) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(body.open(), sha256)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return Base64.getEncoder().withoutPadding().encodeToString(sha256.digest());
+    }
+
+    private List<CompletedPart> awaitParts(List<Future<CompletedPart>> pendingParts)
+            throws InterruptedException {
+        List<CompletedPart> completedParts = new ArrayList<>();
+        for (Future<CompletedPart> part : pendingParts) {
+            try {
+                completedParts.add(part.get());
+            } catch (ExecutionException e) {
+                throw new StorageException("Part upload failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return completedParts;
+    }
+
+    /**
+     * Wait for submitted parts to finish (each releases its buffer and slot), ignoring their outcome
+     */
+    private void drainParts(List<Future<CompletedPart>> pendingParts) {
+        for (Future<CompletedPart> part : pendingParts) {
+            try {
+                part.get();
+            } catch (ExecutionException e) {
+                // already failed, or skipped after the first failure
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void throwIfFailed(AtomicReference<Throwable> partFailure) {
+        Throwable failure = partFailure.get();
+        if (failure != null) {
+            throw new StorageException("Part upload failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Positional read of one part; leaves the buffer flipped for reading
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset, int length)
+            throws IOException {
+        buffer.limit(length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file at offset " + position);
+            }
+            position += n;
+        }
+        buffer.flip();
+    }
+
+    @FunctionalInterface
+    private interface PartFiller {
+        void fill() throws IOException;
+    }
+
+    private interface PartBody {
+        int prepare() throws IOException;  // returns the part length
+
+        InputStream open();
+
+        void release();
+    }
+
+    /**
+     * S3 asking the client to slow down (503 SlowDown, 429), possibly wrapped
+     */
+    private static boolean isThrottle(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException
+                    && (serviceException.isThrottlingException()
+                    || serviceException.statusCode() == 503
+                    || serviceException.statusCode() == 429)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Completed parts of one multipart upload, reported to the request's checkpoint listener
+     * Parts finish on the worker threads in any order; each one publishes
+     * a snapshot of all parts done so far.
+     */
+    private static final class UploadProgress {
+        private final String uploadId;
+        private final String objectKey;
+        private final long partSize;
+        private final Instant initiatedAt;
+        private final SortedMap<Integer, String> completedParts;
+        private final Consumer<UploadCheckpoint> listener;
+
+        private UploadProgress(UploadCheckpoint start, Consumer<UploadCheckpoint> listener) {
+            this.uploadId = start.getUploadId();
+            this.objectKey = start.getObjectKey();
+            this.partSize = start.getPartSize();
+            this.initiatedAt = start.getInitiatedAt();
+            this.completedParts = new TreeMap<>(start.getCompletedParts());
+            this.listener = listener;
+        }
+
+        synchronized String uploadedETag(int partNumber) {
+            return completedParts.get(partNumber);
+        }
+
+        synchronized void partCompleted(int partNumber, String eTag) {
+            completedParts.put(partNumber, eTag);
+            publish();
+        }
+
+        synchronized void publish() {
+            if (listener == null) {
+                return;
+            }
+            listener.accept(UploadCheckpoint.builder()
+                    .uploadId(uploadId)
+                    .objectKey(objectKey)
+                    .partSize(partSize)
+                    .initiatedAt(initiatedAt)
+                    .completedParts(new TreeMap<>(completedParts))
+                    .build());
+        }
+    }
+
+    /**
+     * Part digests of one multipart upload from a file, and the base to copy unchanged parts from
+     * Digests are filled in by the part workers; they are reported only if
+     * every part was hashed (a resumed upload skips the parts done before).
+     */
+    private static final class PartDelta {
+        private final PartDigests base;      // null: only record digests
+        private final String[] digests;
+        private final AtomicInteger copiedParts = new AtomicInteger();
+        private final AtomicLong copiedBytes = new AtomicLong();
+        private volatile boolean baseUnavailable;
+
+        private PartDelta(PartDigests base, int partCount) {
+            this.base = base;
+            this.digests = new String[partCount];
+        }
+
+        String baseDigest(int partNumber) {
+            return base != null && partNumber <= base.getDigests().size()
+                    ? base.getDigests().get(partNumber - 1)
+                    : null;
+        }
+
+        void copied(int length) {
+            copiedParts.incrementAndGet();
+            copiedBytes.addAndGet(length);
+        }
+
+        void report(UploadRequest request, String objectKey, String eTag, long partSize) {
+            if (base != null) {
+                log.info("Delta upload: {} of {} parts copied from {} ({} bytes not uploaded)",
+                        copiedParts.get(), digests.length, base.getObjectKey(), copiedBytes.get());
+            }
+            if (request.getPartDigestListener() == null || Arrays.asList(digests).contains(null)) {
+                return;
+            }
+            request.getPartDigestListener().accept(PartDigests.builder()
+                    .objectKey(objectKey)
+                    .eTag(eTag)
+                    .partSize(partSize)
+                    .digests(List.of(digests))
+                    .build());
+        }
+    }
+
     /**
      * Build S3 object key with prefix
      * Format: prefix/env/dbtype/dbname/yyyy/MM/filename
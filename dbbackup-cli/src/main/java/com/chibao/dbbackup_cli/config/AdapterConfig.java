@@ -1,11 +1,13 @@
 package com.chibao.dbbackup_cli.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
 import java.net.URI;
@@ -59,4 +61,30 @@ public class AdapterConfig {
 
         return builder.build();
     }
+
+    /**
+     * KMS Client Bean
+     * Only created when envelope encryption uses AWS KMS as key provider
+     */
+    @Bean
+    @ConditionalOnProperty(name = "backup.encrypt.kms.provider", havingValue = "aws")
+    public KmsClient kmsClient(
+            @org.springframework.beans.factory.annotation.Value("${backup.encrypt.kms.region:${storage.s3.region:us-east-1}}")
+            String region,
+
+            @org.springframework.beans.factory.annotation.Value("${backup.encrypt.kms.endpoint:}")
+            String endpoint
+    ) {
+
+        var builder = KmsClient.builder()
+                .region(Region.of(region));
+
+        // For LocalStack or VPC endpoints
+        if (!endpoint.isEmpty()) {
+            log.info("Configuring KMS client with custom endpoint: {}", endpoint);
+            builder.endpointOverride(URI.create(endpoint));
+        }
+
+        return builder.build();
+    }
 }
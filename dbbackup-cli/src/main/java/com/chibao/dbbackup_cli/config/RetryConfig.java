@@ -0,0 +1,169 @@
+package com.chibao.dbbackup_cli.config;
+
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import com.chibao.dbbackup_cli.domain.retry.RetryPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Retry Configuration
+ * One policy per RetryOperation, overridable under retry.policies.<key>.*
+ * (max-attempts, initial-backoff, max-backoff, multiplier, hedge-after,
+ * budget-capacity, budget-ratio). Also decides which failures are
+ * transient, since that depends on the adapters' exception types.
+ */
+@Configuration
+@Slf4j
+public class RetryConfig {
+
+    // Dump tool errors worth another run: lock contention and dropped connections
+    private static final List<String> TRANSIENT_DUMP_ERRORS = List.of(
+            "lock timeout",
+            "could not obtain lock",
+            "deadlock detected",
+            "lock wait timeout exceeded",
+            "connection reset",
+            "could not connect",
+            "server closed the connection unexpectedly",
+            "lost connection");
+
+    @Bean
+    public RetryExecutor retryExecutor(MetricsPort metricsPort, Environment environment) {
+        Map<RetryOperation, RetryPolicy> policies = new EnumMap<>(RetryOperation.class);
+        for (RetryOperation operation : RetryOperation.values()) {
+            policies.put(operation, configure(environment, operation, defaultPolicy(operation)));
+        }
+        log.info("Retry policies: {}", policies.keySet());
+        return new RetryExecutor(policies, metricsPort);
+    }
+
+    private RetryPolicy defaultPolicy(RetryOperation operation) {
+        return switch (operation) {
+            case PART_UPLOAD -> RetryPolicy.builder()
+                    .maxAttempts(4)
+                    .initialBackoff(Duration.ofMillis(200))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case RANGED_GET -> RetryPolicy.builder()
+                    .maxAttempts(4)
+                    .maxBackoff(Duration.ofSeconds(5))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case STORAGE_READ -> RetryPolicy.builder()
+                    .hedgeAfter(Duration.ofMillis(500))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case METADATA_UPLOAD -> RetryPolicy.builder()
+                    .maxAttempts(5)
+                    .initialBackoff(Duration.ofMillis(200))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case CONNECTION_TEST -> RetryPolicy.builder()
+                    .initialBackoff(Duration.ofSeconds(1))
+                    .maxBackoff(Duration.ofSeconds(5))
+                    .build();
+            case DATABASE_DUMP -> RetryPolicy.builder()
+                    .maxAttempts(2)
+                    .initialBackoff(Duration.ofSeconds(5))
+                    .maxBackoff(Duration.ofSeconds(30))
+                    .budgetCapacity(5)
+                    .retryable(RetryConfig::isTransientDumpFailure)
+                    .build();
+            case CHUNK_UPLOAD -> RetryPolicy.builder()
+                    .maxAttempts(5)
+                    .initialBackoff(Duration.ofMillis(200))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case CHUNK_DOWNLOAD -> RetryPolicy.builder()
+                    .maxAttempts(4)
+                    .maxBackoff(Duration.ofSeconds(5))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case WAL_UPLOAD -> RetryPolicy.builder()
+                    .maxAttempts(5)
+                    .initialBackoff(Duration.ofMillis(500))
+                    .maxBackoff(Duration.ofSeconds(30))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+            case WAL_DOWNLOAD -> RetryPolicy.builder()
+                    .maxAttempts(4)
+                    .maxBackoff(Duration.ofSeconds(5))
+                    .retryable(RetryConfig::isTransient)
+                    .build();
+        };
+    }
+
+    private RetryPolicy configure(Environment environment, RetryOperation operation, RetryPolicy defaults) {
+        String prefix = "retry.policies." + operation.getKey() + ".";
+        return defaults.toBuilder()
+                .maxAttempts(environment.getProperty(prefix + "max-attempts", Integer.class,
+                        defaults.getMaxAttempts()))
+                .initialBackoff(environment.getProperty(prefix + "initial-backoff", Duration.class,
+                        defaults.getInitialBackoff()))
+                .maxBackoff(environment.getProperty(prefix + "max-backoff", Duration.class,
+                        defaults.getMaxBackoff()))
+                .multiplier(environment.getProperty(prefix + "multiplier", Double.class,
+                        defaults.getMultiplier()))
+                .hedgeAfter(environment.getProperty(prefix + "hedge-after", Duration.class,
+                        defaults.getHedgeAfter()))
+                .budgetCapacity(environment.getProperty(prefix + "budget-capacity", Integer.class,
+                        defaults.getBudgetCapacity()))
+                .budgetRatio(environment.getProperty(prefix + "budget-ratio", Double.class,
+                        defaults.getBudgetRatio()))
+                .build();
+    }
+
+    /**
+     * Network failures, timeouts, 5xx and throttling; never 4xx or missing files
+     */
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException) {
+                return serviceException.isThrottlingException()
+                        || serviceException.statusCode() >= 500
+                        || serviceException.statusCode() == 429;
+            }
+            if (cause instanceof FileNotFoundException || cause instanceof NoSuchFileException) {
+                return false;
+            }
+            if (cause instanceof SdkClientException
+                    || cause instanceof IOException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isTransientDumpFailure(Throwable failure) {
+        Predicate<String> transientMessage = message -> {
+            String lower = message.toLowerCase(Locale.ROOT);
+            return TRANSIENT_DUMP_ERRORS.stream().anyMatch(lower::contains);
+        };
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && transientMessage.test(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+package com.chibao.dbbackup_cli.domain.dedup;
+
+import lombok.Value;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A deduplicated backup: the dump as an ordered list of chunk references
+ * Stored in place of the dump itself, as text:
+ *   dbbackup-chunk-manifest 1
+ *   <sha256 hex> <length>
+ *   ...
+ */
+@Value
+public class ChunkManifest {
+
+    private static final String HEADER = "dbbackup-chunk-manifest 1";
+
+    List<ChunkRef> chunks;
+
+    @Value
+    public static class ChunkRef {
+        byte[] hash;  // SHA-256 of the uncompressed chunk
+        int length;   // uncompressed length
+
+        public String hashHex() {
+            return HexFormat.of().formatHex(hash);
+        }
+    }
+
+    public long totalLength() {
+        return chunks.stream().mapToLong(ChunkRef::getLength).sum();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+        writer.write(HEADER);
+        writer.write('\n');
+        for (ChunkRef chunk : chunks) {
+            writer.write(chunk.hashHex());
+            writer.write(' ');
+            writer.write(Integer.toString(chunk.getLength()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public static ChunkManifest readFrom(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        if (!HEADER.equals(reader.readLine())) {
+            throw new IOException("Not a chunk manifest (unknown header)");
+        }
+        List<ChunkRef> chunks = new ArrayList<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space != 64) {
+                throw new IOException("Malformed manifest line " + (chunks.size() + 2) + ": " + line);
+            }
+            try {
+                chunks.add(new ChunkRef(HexFormat.of().parseHex(line, 0, space),
+                        Integer.parseInt(line.substring(space + 1))));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed manifest line " + (chunks.size() + 2) + ": " + line, e);
+            }
+        }
+        return new ChunkManifest(List.copyOf(chunks));
+    }
+}
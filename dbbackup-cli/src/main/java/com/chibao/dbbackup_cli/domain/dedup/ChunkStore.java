@@ -0,0 +1,420 @@
+package com.chibao.dbbackup_cli.domain.dedup;
+
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.out.ChunkIndexPort;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Deduplicating chunk store on top of StoragePort
+ * A backup is written through a ChunkWriter: the dump is cut into
+ * content-defined chunks, each identified by the SHA-256 of its content.
+ * Chunks already in the chunk index (or earlier in the same backup) are
+ * only referenced; new ones are compressed and uploaded concurrently to
+ * chunks/<2 hex>/<sha256>. The ordered references form the ChunkManifest
+ * that is stored as the backup artifact.
+ * A ChunkReader turns a manifest back into the dump stream, fetching a
+ * window of chunks in parallel and verifying each one's hash.
+ * Chunk objects start with one byte naming their codec, so chunks written
+ * with different codecs can be mixed in one backup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkStore {
+
+    private static final String CHUNK_DIRECTORY = "chunks/";
+
+    private final StoragePort storagePort;
+    private final CompressionPort compressionPort;
+    private final ChunkIndexPort chunkIndexPort;
+    private final RetryExecutor retryExecutor;
+
+    @Value("${backup.dedup.chunk.min-size:262144}")
+    private int minChunkSize;
+
+    @Value("${backup.dedup.chunk.avg-size:1048576}")
+    private int avgChunkSize;
+
+    @Value("${backup.dedup.chunk.max-size:4194304}")
+    private int maxChunkSize;
+
+    // New chunks compressed and uploaded at once (twice as many may wait in memory)
+    @Value("${backup.dedup.upload-concurrency:8}")
+    private int uploadConcurrency;
+
+    // Chunks fetched ahead of the reader during restore
+    @Value("${backup.dedup.download-concurrency:8}")
+    private int downloadConcurrency;
+
+    private final ExecutorService chunkExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dedup-chunk");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    void shutdownChunkExecutor() {
+        chunkExecutor.shutdownNow();
+    }
+
+    /**
+     * Start writing a backup; new chunks are compressed with the given codec
+     */
+    public ChunkWriter newWriter(CompressionType codec, Integer level) {
+        if (codec == CompressionType.AUTO) {
+            throw new IllegalArgumentException("Chunks need a concrete codec, not AUTO");
+        }
+        return new ChunkWriter(codec, level);
+    }
+
+    /**
+     * The dump described by the manifest, as one stream
+     */
+    public InputStream openReader(ChunkManifest manifest) {
+        return new ChunkReader(manifest.getChunks());
+    }
+
+    private String chunkFilename(String hashHex) {
+        return CHUNK_DIRECTORY + hashHex.substring(0, 2) + "/" + hashHex;
+    }
+
+    // ===== CHUNK ENCODING =====
+
+    // Persisted in every chunk object: never renumber
+    private static int codecId(CompressionType codec) {
+        return switch (codec) {
+            case NONE -> 0;
+            case GZIP -> 1;
+            case ZIP -> 2;
+            case ZSTD -> 3;
+            case LZ4 -> 4;
+            case AUTO -> throw new IllegalArgumentException("AUTO is not a chunk codec");
+        };
+    }
+
+    private static CompressionType codecOf(int id) throws IOException {
+        return switch (id) {
+            case 0 -> CompressionType.NONE;
+            case 1 -> CompressionType.GZIP;
+            case 2 -> CompressionType.ZIP;
+            case 3 -> CompressionType.ZSTD;
+            case 4 -> CompressionType.LZ4;
+            default -> throw new IOException("Unknown chunk codec id " + id);
+        };
+    }
+
+    private byte[] encode(byte[] chunk, CompressionType codec, Integer level) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(chunk.length / 2 + 16);
+        encoded.write(codecId(codec));
+        if (codec == CompressionType.NONE) {
+            encoded.write(chunk);
+        } else {
+            try (OutputStream out = compressionPort.compress(encoded, codec, level)) {
+                out.write(chunk);
+            }
+        }
+        return encoded.toByteArray();
+    }
+
+    private byte[] decode(byte[] stored) throws IOException {
+        if (stored.length == 0) {
+            throw new IOException("Empty chunk object");
+        }
+        CompressionType codec = codecOf(stored[0]);
+        InputStream body = new ByteArrayInputStream(stored, 1, stored.length - 1);
+        if (codec == CompressionType.NONE) {
+            return body.readAllBytes();
+        }
+        try (InputStream in = compressionPort.decompress(body, codec)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ===== WRITER =====
+
+    /**
+     * Write side of one backup; not thread-safe (one dump writes into it)
+     * close() waits for the remaining uploads and makes the new chunks
+     * durable in the index; the manifest is available after that.
+     */
+    public final class ChunkWriter extends OutputStream {
+
+        private final CompressionType codec;
+        private final Integer level;
+        private final ContentDefinedChunker chunker;
+        private final MessageDigest digest = sha256();
+        private final Semaphore uploadSlots;
+        private final int slotCount;
+
+        private final List<ChunkManifest.ChunkRef> chunks = new ArrayList<>();
+        private final Set<ByteBuffer> seen = new HashSet<>();
+        private final AtomicReference<Throwable> uploadFailure = new AtomicReference<>();
+        private final AtomicLong newChunks = new AtomicLong();
+        private final AtomicLong storedBytes = new AtomicLong();
+        private long logicalBytes;
+        private long reusedChunks;
+        private boolean closed;
+
+        private ChunkWriter(CompressionType codec, Integer level) {
+            this.codec = codec;
+            this.level = level;
+            this.chunker = new ContentDefinedChunker(this::accept, minChunkSize, avgChunkSize, maxChunkSize);
+            this.slotCount = Math.max(1, uploadConcurrency) * 2;
+            this.uploadSlots = new Semaphore(slotCount);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            chunker.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            chunker.write(b, off, len);
+        }
+
+        private void accept(byte[] data, int length) throws IOException {
+            throwIfFailed();
+            byte[] chunk = Arrays.copyOf(data, length);
+            byte[] hash = digest.digest(chunk);
+            chunks.add(new ChunkManifest.ChunkRef(hash, length));
+            logicalBytes += length;
+
+            // Seen earlier in this backup, or stored by an earlier one
+            if (!seen.add(ByteBuffer.wrap(hash)) || chunkIndexPort.contains(hash)) {
+                reusedChunks++;
+                return;
+            }
+
+            try {
+                uploadSlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a chunk upload slot");
+            }
+            try {
+                chunkExecutor.execute(() -> {
+                    try {
+                        upload(hash, chunk);
+                    } catch (Exception e) {
+                        uploadFailure.compareAndSet(null, e);
+                    } finally {
+                        uploadSlots.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                uploadSlots.release();
+                throw e;
+            }
+        }
+
+        private void upload(byte[] hash, byte[] chunk) throws Exception {
+            if (uploadFailure.get() != null) {
+                return; // the backup is failing anyway
+            }
+            String hashHex = HexFormat.of().formatHex(hash);
+            byte[] encoded = encode(chunk, codec, level);
+            retryExecutor.execute(RetryOperation.CHUNK_UPLOAD, () -> storagePort.upload(
+                    StoragePort.UploadRequest.builder()
+                            .data(new ByteArrayInputStream(encoded))
+                            .filename(chunkFilename(hashHex))
+                            .sizeBytes(encoded.length)
+                            .metadata(Map.of("type", "chunk"))
+                            .enableMultipart(false)
+                            .build()));
+            // Only a stored chunk may be referenced by later backups
+            chunkIndexPort.add(hash);
+            newChunks.incrementAndGet();
+            storedBytes.addAndGet(encoded.length);
+        }
+
+        private void throwIfFailed() throws IOException {
+            Throwable failure = uploadFailure.get();
+            if (failure != null) {
+                throw new IOException("Chunk upload failed: " + failure.getMessage(), failure);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                chunker.close();
+            } finally {
+                // Wait for every upload, even after a failure: uploaded chunks go into the index
+                uploadSlots.acquireUninterruptibly(slotCount);
+                uploadSlots.release(slotCount);
+                chunkIndexPort.flush();
+            }
+            throwIfFailed();
+        }
+
+        public ChunkManifest getManifest() {
+            if (!closed) {
+                throw new IllegalStateException("Manifest is only complete after close()");
+            }
+            return new ChunkManifest(List.copyOf(chunks));
+        }
+
+        public int getChunkCount() {
+            return chunks.size();
+        }
+
+        public long getNewChunks() {
+            return newChunks.get();
+        }
+
+        public long getReusedChunks() {
+            return reusedChunks;
+        }
+
+        public long getLogicalBytes() {
+            return logicalBytes;
+        }
+
+        // Compressed bytes of the chunks this backup uploaded
+        public long getStoredBytes() {
+            return storedBytes.get();
+        }
+    }
+
+    // ===== READER =====
+
+    /**
+     * Ordered stream over the chunks of a manifest
+     * Up to download-concurrency chunks are fetched ahead; each is
+     * decompressed and checked against its hash before any of its bytes
+     * are returned.
+     */
+    private final class ChunkReader extends InputStream {
+
+        private final List<ChunkManifest.ChunkRef> chunks;
+        private final Deque<Future<byte[]>> window = new ArrayDeque<>();
+        private int nextChunk;
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean closed;
+
+        private ChunkReader(List<ChunkManifest.ChunkRef> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                fillWindow();
+                if (window.isEmpty()) {
+                    return -1;
+                }
+                current = awaitHead();
+                position = 0;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private void fillWindow() {
+            while (window.size() < Math.max(1, downloadConcurrency) && nextChunk < chunks.size()) {
+                ChunkManifest.ChunkRef chunk = chunks.get(nextChunk++);
+                window.addLast(chunkExecutor.submit(() -> fetch(chunk)));
+            }
+        }
+
+        private byte[] awaitHead() throws IOException {
+            try {
+                return window.removeFirst().get();
+            } catch (ExecutionException e) {
+                close();
+                throw new IOException("Chunk fetch failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a chunk");
+            }
+        }
+
+        private byte[] fetch(ChunkManifest.ChunkRef chunk) throws Exception {
+            String hashHex = chunk.hashHex();
+            String location = storagePort.locate(chunkFilename(hashHex));
+            // A corrupt transfer is retried like any other I/O failure
+            return retryExecutor.execute(RetryOperation.CHUNK_DOWNLOAD, () -> {
+                byte[] stored;
+                try (InputStream in = storagePort.download(location)) {
+                    stored = in.readAllBytes();
+                }
+                byte[] data = decode(stored);
+                if (data.length != chunk.getLength() || !MessageDigest.isEqual(sha256().digest(data), chunk.getHash())) {
+                    throw new IOException("Chunk " + hashHex + " does not match its hash");
+                }
+                return data;
+            });
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            window.forEach(future -> future.cancel(true));
+            window.clear();
+        }
+    }
+}
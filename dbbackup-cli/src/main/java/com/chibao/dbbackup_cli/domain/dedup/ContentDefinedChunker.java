@@ -0,0 +1,107 @@
+package com.chibao.dbbackup_cli.domain.dedup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Content-defined chunking (FastCDC-style gear hash)
+ * Bytes written are cut into chunks where the rolling hash of the last
+ * ~64 bytes matches a mask, so boundaries follow the content: an insert
+ * or delete early in a dump shifts only the chunks around it, and the
+ * rest of the chunks are identical to yesterday's.
+ * - no cut before minSize, forced cut at maxSize
+ * - normalized chunking: a stricter mask below avgSize and a looser one
+ *   above it keep chunk sizes close to avgSize
+ * Each complete chunk is handed to the ChunkConsumer; close() emits the last one.
+ */
+public class ContentDefinedChunker extends OutputStream {
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        // data[0..length) is only valid during the call
+        void accept(byte[] data, int length) throws IOException;
+    }
+
+    // Fixed seed: boundaries must be the same in every run or nothing deduplicates
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6462_6261_636b_7570L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final ChunkConsumer consumer;
+    private final int minSize;
+    private final int avgSize;
+    private final long strictMask;
+    private final long looseMask;
+
+    private final byte[] chunk;
+    private int length;
+    private long hash;
+    private boolean closed;
+
+    public ContentDefinedChunker(ChunkConsumer consumer, int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min <= avg <= max");
+        }
+        this.consumer = consumer;
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        int bits = 63 - Long.numberOfLeadingZeros(avgSize);
+        // The gear hash shifts left, so its high bits depend on the most bytes
+        this.strictMask = highBits(bits + 2);
+        this.looseMask = highBits(Math.max(1, bits - 2));
+        this.chunk = new byte[maxSize];
+    }
+
+    private static long highBits(int count) {
+        return -1L << (64 - count);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Chunker is closed");
+        }
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            byte value = b[i];
+            chunk[length++] = value;
+            hash = (hash << 1) + GEAR[value & 0xFF];
+
+            if (length < minSize) {
+                continue;
+            }
+            long mask = length < avgSize ? strictMask : looseMask;
+            if ((hash & mask) == 0 || length == chunk.length) {
+                emit();
+            }
+        }
+    }
+
+    private void emit() throws IOException {
+        consumer.accept(chunk, length);
+        length = 0;
+        hash = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (length > 0) {
+            emit();
+        }
+    }
+}
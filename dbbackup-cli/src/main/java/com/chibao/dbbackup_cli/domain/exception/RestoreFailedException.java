@@ -4,4 +4,8 @@ public class RestoreFailedException extends RuntimeException {
     public RestoreFailedException(String message) {
         super(message);
     }
+
+    public RestoreFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -52,6 +52,7 @@ public class Backup {
 
     @Enumerated(EnumType.STRING)
     private CompressionType compression;
+    private Integer compressionLevel;
     private boolean encrypted;
 
     private String storageLocation;   // S3 key, local path, etc.
@@ -1,7 +1,43 @@
 package com.chibao.dbbackup_cli.domain.model;
 
 public enum CompressionType {
-    NONE,
-    GZIP,
-    ZIP
+    NONE("", 0, 0),
+    GZIP(".gz", 1, 9),
+    ZIP(".zip", 1, 9),
+    ZSTD(".zst", 1, 19),
+    LZ4(".lz4", 1, 17),   // 1 = fast compressor, 2-17 = high compression
+    AUTO("", 0, 0);       // chosen per backup by sampling; resolved to one of the above before storing
+
+    private final String extension;
+    private final int minLevel;
+    private final int maxLevel;
+
+    CompressionType(String extension, int minLevel, int maxLevel) {
+        this.extension = extension;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+    }
+
+    // File extension for artifacts compressed with this type
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Check a user supplied level against the codec's range
+     * @param level requested level, null means codec default
+     * @throws IllegalArgumentException if out of range
+     */
+    public void validateLevel(Integer level) {
+        if (level == null) {
+            return;
+        }
+        if (this == NONE || this == AUTO) {
+            throw new IllegalArgumentException("Compression level is not applicable to " + name());
+        }
+        if (level < minLevel || level > maxLevel) {
+            throw new IllegalArgumentException(String.format(
+                    "%s compression level must be between %d and %d, got %d", name(), minLevel, maxLevel, level));
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package com.chibao.dbbackup_cli.domain.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One stored file of a directory-format dump (e.g. pg_dump -Fd: toc.dat + one file per table).
+ * Kept in Backup.metadata as "dump.file.<name>" -> "sha256|size|compression|level|location"
+ * so restore can fetch, verify and decode every file without the metadata JSON.
+ */
+@Value
+@Builder
+public class DumpFileEntry {
+
+    public static final String KEY_PREFIX = "dump.file.";
+
+    String name;             // file name inside the dump directory
+    String storageLocation;
+    String checksum;         // SHA-256 of the stored (compressed/encrypted) bytes
+    long sizeBytes;          // stored size
+    CompressionType compression;
+    Integer compressionLevel;
+
+    public String metadataKey() {
+        return KEY_PREFIX + name;
+    }
+
+    public String metadataValue() {
+        return String.join("|",
+                checksum,
+                String.valueOf(sizeBytes),
+                compression.name(),
+                compressionLevel != null ? compressionLevel.toString() : "",
+                storageLocation);
+    }
+
+    public static DumpFileEntry parse(String key, String value) {
+        String[] parts = value.split("\\|", 5); // the location is last and may contain '|'
+        if (!key.startsWith(KEY_PREFIX) || parts.length != 5) {
+            throw new IllegalArgumentException("Not a dump file entry: " + key);
+        }
+        return DumpFileEntry.builder()
+                .name(key.substring(KEY_PREFIX.length()))
+                .checksum(parts[0])
+                .sizeBytes(Long.parseLong(parts[1]))
+                .compression(CompressionType.valueOf(parts[2]))
+                .compressionLevel(parts[3].isEmpty() ? null : Integer.valueOf(parts[3]))
+                .storageLocation(parts[4])
+                .build();
+    }
+
+    public static Map<String, String> toMetadata(List<DumpFileEntry> entries) {
+        Map<String, String> metadata = new HashMap<>();
+        entries.forEach(entry -> metadata.put(entry.metadataKey(), entry.metadataValue()));
+        return metadata;
+    }
+
+    public static List<DumpFileEntry> fromMetadata(Map<String, String> metadata) {
+        if (metadata == null) {
+            return List.of();
+        }
+        return metadata.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(KEY_PREFIX))
+                .map(entry -> parse(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,255 @@
+package com.chibao.dbbackup_cli.domain.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded Pipe
+ * Connects a producer thread (writing to sink()) with a consumer thread
+ * (reading from source()) through buffers borrowed from a BufferPool.
+ * - The producer blocks when all pool buffers are queued, so a slow
+ *   consumer (e.g. upload) throttles the producer (e.g. pg_dump).
+ * - Either side can call fail(): the other side then gets an IOException
+ *   instead of a silent EOF, so a broken dump never looks like a complete one.
+ *   Queued buffers go back to the pool at once, and each side returns the
+ *   buffer it holds when it next touches the pipe.
+ * Unlike PipedInputStream/PipedOutputStream it moves whole buffers and
+ * does not poll with 1 second sleeps.
+ */
+public class BoundedPipe {
+
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+    private static final long POLL_MILLIS = 100;
+
+    private final BufferPool pool;
+    private final BlockingQueue<ByteBuffer> filled = new LinkedBlockingQueue<>();
+    private final Sink sink = new Sink();
+    private final Source source = new Source();
+
+    private volatile Throwable failure;
+
+    public BoundedPipe(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    public OutputStream sink() {
+        return sink;
+    }
+
+    public InputStream source() {
+        return source;
+    }
+
+    /**
+     * Abort the pipe. Pending and future reads/writes fail with the given cause.
+     */
+    public void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause != null ? cause : new IOException("Pipe aborted");
+        }
+        releaseQueued();
+    }
+
+    /**
+     * First cause passed to fail(), or null if the pipe is healthy
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Return every queued buffer to the pool, leaving only the end marker a blocked reader needs
+     */
+    private void releaseQueued() {
+        ByteBuffer pending;
+        while ((pending = filled.poll()) != null) {
+            if (pending != END_OF_STREAM) {
+                pool.release(pending);
+            }
+        }
+        filled.offer(END_OF_STREAM);
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("Pipeline aborted: " + cause.getMessage(), cause);
+        }
+    }
+
+    // ===== PRODUCER SIDE =====
+
+    private class Sink extends OutputStream {
+
+        private ByteBuffer current;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Pipe sink already closed");
+            }
+            while (len > 0) {
+                checkFailed();
+                if (current == null) {
+                    current = awaitBuffer();
+                }
+                int n = Math.min(len, current.remaining());
+                current.put(b, off, n);
+                off += n;
+                len -= n;
+                if (!current.hasRemaining()) {
+                    publish();
+                }
+            }
+        }
+
+        /**
+         * Flushes are ignored on purpose: upstream codecs flush often and
+         * publishing half-empty buffers would waste pool capacity.
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            checkFailed();
+            if (current != null && current.position() > 0) {
+                publish();
+            } else if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+            filled.offer(END_OF_STREAM);
+        }
+
+        private void publish() {
+            current.flip();
+            filled.offer(current);
+            current = null;
+            if (failure != null) {
+                // fail() may have drained the queue just before this buffer went in
+                releaseQueued();
+            }
+        }
+
+        private void checkFailed() throws IOException {
+            if (failure != null && current != null) {
+                pool.release(current);
+                current = null;
+            }
+            checkFailure();
+        }
+
+        private ByteBuffer awaitBuffer() throws IOException {
+            try {
+                while (true) {
+                    ByteBuffer buffer = pool.acquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (buffer != null) {
+                        return buffer;
+                    }
+                    checkFailed();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a pipe buffer");
+            }
+        }
+    }
+
+    // ===== CONSUMER SIDE =====
+
+    private class Source extends InputStream {
+
+        private ByteBuffer current;
+        private boolean eof;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current != null ? current.remaining() : 0;
+        }
+
+        /**
+         * Closing before EOF means the consumer gave up, so the producer is told to stop.
+         */
+        @Override
+        public void close() {
+            if (!eof) {
+                fail(new IOException("Pipe source closed before end of stream"));
+            }
+            if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+            releaseQueued();
+        }
+
+        private boolean advance() throws IOException {
+            if (current != null && current.hasRemaining()) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+            try {
+                ByteBuffer next = filled.take();
+                if (failure != null) {
+                    if (next != END_OF_STREAM) {
+                        pool.release(next);
+                    }
+                    filled.offer(END_OF_STREAM); // later reads fail the same way instead of blocking
+                    checkFailure();
+                }
+                if (next == END_OF_STREAM) {
+                    eof = true;
+                    return false;
+                }
+                current = next;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for pipe data");
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.chibao.dbbackup_cli.domain.pipeline;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffer Pool
+ * Fixed-capacity pool of reusable ByteBuffers.
+ * Buffers are allocated lazily up to the capacity, then recycled.
+ * acquire() blocks while every buffer is in use - this is what bounds
+ * memory and pushes backpressure onto whoever produces data.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int capacity;
+    private final boolean direct;
+
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int capacity, boolean direct) {
+        if (bufferSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Buffer size and capacity must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+        this.direct = direct;
+        this.free = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Take a cleared buffer, waiting until one is released if the pool is exhausted
+     */
+    public ByteBuffer acquire() throws InterruptedException {
+        ByteBuffer buffer = tryAllocate();
+        return buffer != null ? buffer : free.take();
+    }
+
+    /**
+     * Take a cleared buffer, waiting at most the given time
+     * @return buffer, or null if none became available in time
+     */
+    public ByteBuffer acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        ByteBuffer buffer = tryAllocate();
+        return buffer != null ? buffer : free.poll(timeout, unit);
+    }
+
+    /**
+     * Take a cleared buffer without waiting
+     * @return buffer, or null if every buffer is in use
+     */
+    public ByteBuffer poll() {
+        return tryAllocate();
+    }
+
+    /**
+     * Return a buffer to the pool; buffers of another size or kind are left to the GC
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of buffers currently handed out
+     */
+    public int inUse() {
+        return allocated.get() - free.size();
+    }
+
+    private ByteBuffer tryAllocate() {
+        ByteBuffer recycled = free.poll();
+        if (recycled != null) {
+            return recycled;
+        }
+        while (true) {
+            int current = allocated.get();
+            if (current >= capacity) {
+                return null;
+            }
+            if (allocated.compareAndSet(current, current + 1)) {
+                return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+            }
+        }
+    }
+}
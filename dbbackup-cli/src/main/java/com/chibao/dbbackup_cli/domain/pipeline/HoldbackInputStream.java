@@ -0,0 +1,99 @@
+package com.chibao.dbbackup_cli.domain.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Holdback Input Stream
+ * Passes data through but always keeps the last holdbackBytes back. Only
+ * when the source reaches EOF and the verifier succeeds are they released.
+ * A consumer that needs the complete input before it commits anything
+ * (pg_restore --single-transaction) therefore never commits unverified
+ * data: a failed verification surfaces as an IOException while it is
+ * still waiting for the tail.
+ */
+public class HoldbackInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024; // 64KB
+
+    /**
+     * Called once at EOF, before the held bytes are released
+     */
+    @FunctionalInterface
+    public interface Verifier {
+        void verify() throws IOException;
+    }
+
+    private final InputStream in;
+    private final int holdbackBytes;
+    private final Verifier verifier;
+    private final byte[] window;
+
+    private int start;
+    private int end;
+    private boolean eof;
+
+    public HoldbackInputStream(InputStream in, int holdbackBytes, Verifier verifier) {
+        if (holdbackBytes <= 0) {
+            throw new IllegalArgumentException("Holdback must be positive");
+        }
+        this.in = in;
+        this.holdbackBytes = holdbackBytes;
+        this.verifier = verifier;
+        this.window = new byte[holdbackBytes + CHUNK_SIZE];
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (releasable() == 0) {
+            if (eof) {
+                return -1;
+            }
+            fill();
+        }
+        int n = Math.min(len, releasable());
+        System.arraycopy(window, start, b, off, n);
+        start += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return releasable();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int releasable() {
+        int buffered = end - start;
+        return eof ? buffered : Math.max(0, buffered - holdbackBytes);
+    }
+
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(window, start, window, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        int n = in.read(window, end, window.length - end);
+        if (n == -1) {
+            verifier.verify();
+            eof = true;
+        } else {
+            end += n;
+        }
+    }
+}
@@ -25,7 +25,7 @@ public interface BackupUseCase {
     // ===== COMMAND (Input) =====
 
     @Value
-    @Builder
+    @Builder(toBuilder = true)
     class BackupCommand {
         String databaseType;      // postgres, mysql, mongodb
         String host;
@@ -37,6 +37,8 @@ public interface BackupUseCase {
         @Builder.Default
         CompressionType compression = CompressionType.GZIP;
 
+        Integer compressionLevel; // null = codec default
+
         @Builder.Default
         boolean encrypt = false;
 
@@ -0,0 +1,27 @@
+package com.chibao.dbbackup_cli.domain.port.in;
+
+/**
+ * INBOUND PORT: Binlog Archive Use Case
+ * Continuous archiving of a MySQL server's binary log, the basis for
+ * incremental backups and point-in-time restore between full backups.
+ * Được IMPLEMENT bởi BinlogArchiveService (domain/service).
+ * Được SỬ DỤNG bởi scheduler adapter.
+ */
+public interface BinlogArchiveUseCase {
+
+    /**
+     * Start the binlog follower, or restart it (with backoff) if it has exited
+     */
+    void superviseFollower();
+
+    /**
+     * Compress, encrypt and upload every binlog file the server has rotated since the last call
+     * @return number of files archived
+     */
+    int archiveCompletedFiles();
+
+    /**
+     * Stop the follower (the file being written stays in the spool directory)
+     */
+    void stopFollower();
+}
@@ -3,7 +3,9 @@ package com.chibao.dbbackup_cli.domain.port.in;
 import lombok.Builder;
 import lombok.Value;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Inbound Port for restoring a database from a backup.
@@ -25,6 +27,24 @@ public interface RestoreUseCase {
         String targetDatabase;
         String username;
         String password;
+
+        Integer jobs;             // parallel restore workers, null = backup's dump jobs / configured default
+
+        // Point-in-time recovery: replay archived WAL on the base backup in dataDirectory (PostgreSQL),
+        // or archived binlog on the restored native export (MySQL, time or GTID target)
+        String dataDirectory;
+        Instant recoveryTargetTime;
+        String recoveryTargetLsn;
+        String recoveryTargetGtid;  // uuid:N (that server's transactions up to N) or a GTID set
+
+        public boolean isPointInTime() {
+            return recoveryTargetTime != null || recoveryTargetLsn != null || recoveryTargetGtid != null;
+        }
+
+        // Binlog replay after a logical restore rather than WAL replay in a data directory
+        public boolean isBinlogReplay() {
+            return isPointInTime() && dataDirectory == null && recoveryTargetLsn == null;
+        }
     }
 
     @Value
@@ -34,5 +54,15 @@ public interface RestoreUseCase {
         boolean success;
         String message;
         long durationMs;
+        List<TableTiming> tableTimings;  // slowest first, empty when the tool reports none
+        Map<String, Long> phaseTimings;  // ms per restore phase in execution order, empty when not reported
+    }
+
+    @Value
+    @Builder
+    class TableTiming {
+        String table;
+        long sizeBytes;   // size recorded at backup time, -1 if unknown
+        long durationMs;
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.chibao.dbbackup_cli.domain.port.in;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * INBOUND PORT: Upload Recovery Use Case
+ * Finishes backups whose process died during the upload and cleans up
+ * multipart uploads nobody will complete.
+ * Được IMPLEMENT bởi UploadRecoveryService (domain/service).
+ * Được SỬ DỤNG bởi scheduler adapter.
+ */
+public interface UploadRecoveryUseCase {
+
+    /**
+     * Resume every IN_PROGRESS backup that staged its upload before it was interrupted
+     * @return one result per resumed backup
+     */
+    List<BackupUseCase.BackupResult> resumeInterruptedUploads();
+
+    /**
+     * Abort incomplete multipart uploads older than the threshold that no backup can resume
+     * @return number of uploads aborted
+     */
+    int abortAbandonedUploads(Duration olderThan);
+}
@@ -0,0 +1,27 @@
+package com.chibao.dbbackup_cli.domain.port.in;
+
+/**
+ * INBOUND PORT: WAL Archive Use Case
+ * Continuous archiving of a PostgreSQL cluster's WAL, the basis for
+ * point-in-time recovery between full backups.
+ * Được IMPLEMENT bởi WalArchiveService (domain/service).
+ * Được SỬ DỤNG bởi scheduler adapter.
+ */
+public interface WalArchiveUseCase {
+
+    /**
+     * Start the WAL receiver, or restart it (with backoff) if it has exited
+     */
+    void superviseReceiver();
+
+    /**
+     * Compress and upload every WAL file the receiver has completed since the last call
+     * @return number of files archived
+     */
+    int archiveCompletedSegments();
+
+    /**
+     * Stop the receiver (the partial segment stays in the spool directory)
+     */
+    void stopReceiver();
+}
@@ -1,6 +1,7 @@
 package com.chibao.dbbackup_cli.domain.port.out;
 
 import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,4 +32,11 @@ public interface BackupRecordPort {
      * @return An Optional containing the backup if found.
      */
     Optional<Backup> findById(String backupId);
+
+    /**
+     * Finds all backup records in the given state.
+     * @param status The backup status, e.g. IN_PROGRESS after a crash.
+     * @return Matching backups (possibly empty).
+     */
+    List<Backup> findByStatus(BackupStatus status);
 }
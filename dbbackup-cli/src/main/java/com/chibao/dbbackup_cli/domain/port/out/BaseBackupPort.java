@@ -0,0 +1,57 @@
+package com.chibao.dbbackup_cli.domain.port.out;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * OUTBOUND PORT: Base Backup Port
+ * Physical copy of a whole PostgreSQL cluster (data files plus the WAL
+ * needed to make them consistent) as a single tar stream, and the reverse:
+ * laying such a stream out as a data directory.
+ * Implementations: pg_basebackup
+ */
+public interface BaseBackupPort {
+
+    // Write the cluster's tar stream to target; returns the WAL range the copy spans
+    BaseBackupOutput performBaseBackup(BaseBackupConfig config, OutputStream target);
+
+    // Extract a tar stream produced by performBaseBackup into a data directory (the caller checks it is empty)
+    LayoutOutput layOut(InputStream source, Path dataDirectory, int jobs);
+
+    // Get database type this port handles
+    String getSupportedDatabaseType();
+
+    // ===== VALUE OBJECTS =====
+
+    @Value
+    @Builder
+    class BaseBackupConfig {
+        String host;
+        int port;
+        String username;
+        String password;
+        String label;         // shown in backup_label and pg_stat_progress_basebackup
+    }
+
+    @Value
+    @Builder
+    class BaseBackupOutput {
+        long sizeBytes;
+        String startLsn;      // replay of archived WAL starts here
+        String endLsn;        // the copy is consistent once replay has passed this point
+        String timeline;
+        String walMethod;     // fetch: the tar holds the WAL up to endLsn; none: it must come from the archive
+        String version;
+    }
+
+    @Value
+    @Builder
+    class LayoutOutput {
+        long files;
+        long bytes;
+    }
+}
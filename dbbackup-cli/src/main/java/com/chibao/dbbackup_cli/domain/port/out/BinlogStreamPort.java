@@ -0,0 +1,67 @@
+package com.chibao.dbbackup_cli.domain.port.out;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * OUTBOUND PORT: Binlog Stream Port
+ * Continuous copy of a MySQL server's binary log into a local spool
+ * directory, read as a replica; files are written under their server names
+ * and the newest one grows until the server rotates it. Replay applies
+ * such files to a database.
+ * Implementations: mysqlbinlog
+ */
+public interface BinlogStreamPort {
+
+    // Start following the binlog; runs until stopped or the connection is lost
+    BinlogFollower start(BinlogStreamConfig config);
+
+    // Make the server close its current binlog file (FLUSH BINARY LOGS)
+    void rotate(BinlogStreamConfig config);
+
+    // Apply binlog files in order, from a position in the first one up to the target
+    void replay(BinlogReplayConfig config);
+
+    // A running follower (supervised by the caller, which restarts it when it exits)
+    interface BinlogFollower {
+        boolean isAlive();
+
+        // Exit code and last output lines once the follower has exited
+        String describeExit();
+
+        void stop();
+    }
+
+    @Value
+    @Builder
+    class BinlogStreamConfig {
+        String host;
+        int port;
+        String username;      // needs REPLICATION SLAVE (and RELOAD for rotate)
+        String password;
+        int serverId;         // replica server id, unique among the source's replicas
+        String startFile;     // first file to request, null = the server's current file
+        Path directory;
+    }
+
+    @Value
+    @Builder
+    class BinlogReplayConfig {
+        List<Path> files;         // consecutive binlog files, oldest first
+        long startPosition;       // position in the first file
+        Instant stopTime;         // stop before the first event after this time, null = no time target
+        String includeGtids;      // apply only these transactions, null = all
+        String sourceDatabase;    // only this database's changes are applied
+
+        // Target database connection details
+        String targetHost;
+        int targetPort;
+        String targetDatabase;
+        String username;
+        String password;
+    }
+}
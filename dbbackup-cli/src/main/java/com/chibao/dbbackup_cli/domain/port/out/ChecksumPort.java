@@ -2,6 +2,7 @@ package com.chibao.dbbackup_cli.domain.port.out;
 
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
 
 /**
@@ -21,4 +22,27 @@ public interface ChecksumPort {
 
     // Get algorithm name --> algorithm (SHA-256, MD5, etc.)
     String getAlgorithm();
+
+    // Start a digest computed inline while bytes flow through a wrapped stream
+    StreamingChecksum newStreamingChecksum();
+
+    /**
+     * Running checksum over the bytes passing through wrap(...).
+     * Lets a stage (upload, download) compute the checksum without a second read.
+     * Not thread-safe: wrap one stream per instance.
+     */
+    interface StreamingChecksum {
+
+        // Every byte written to the returned stream is digested, then forwarded to target
+        OutputStream wrap(OutputStream target);
+
+        // Every byte read from the returned stream is digested
+        InputStream wrap(InputStream source);
+
+        // Bytes digested so far
+        long getByteCount();
+
+        // Finalize and return the hex checksum (call after the stream is fully written/read)
+        String finish();
+    }
 }
@@ -0,0 +1,23 @@
+package com.chibao.dbbackup_cli.domain.port.out;
+
+/**
+ * OUTBOUND PORT: Chunk Index Port
+ * Remembers which chunks (by SHA-256 of their content) the dedup store
+ * already holds, so a backup uploads only chunks it has not seen before.
+ * A chunk is added only once its upload has succeeded; a lost index only
+ * costs re-uploads of chunks that are already stored.
+ */
+public interface ChunkIndexPort {
+
+    // True if a chunk with this SHA-256 (32 bytes) has been stored; never a false positive
+    boolean contains(byte[] hash);
+
+    // Record a stored chunk; visible to contains() at once, durable after flush()
+    void add(byte[] hash);
+
+    // Persist the chunks added since the last flush
+    void flush();
+
+    // Number of chunks in the index
+    long size();
+}
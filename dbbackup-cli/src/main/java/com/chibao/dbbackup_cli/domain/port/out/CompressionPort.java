@@ -0,0 +1,83 @@
+package com.chibao.dbbackup_cli.domain.port.out;
+
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * OUTBOUND PORT: Compression Port
+ * Core cần nén dữ liệu backup khi stream qua pipeline.
+ */
+public interface CompressionPort {
+
+    /**
+     * Wrap a stream so everything written to it is compressed into target.
+     * Closing the returned stream finishes the compressed format and closes target.
+     * @param target downstream stage
+     * @param type compression algorithm (NONE returns target unchanged)
+     * @return compressing stream
+     */
+    default OutputStream compress(OutputStream target, CompressionType type) {
+        return compress(target, type, null);
+    }
+
+    /**
+     * Same as compress(target, type) with an explicit level
+     * @param level codec level, null for the configured default
+     */
+    OutputStream compress(OutputStream target, CompressionType type, Integer level);
+
+    /**
+     * Wrap a compressed stream so reads return the original bytes
+     * @param source compressed data
+     * @param type algorithm the data was compressed with
+     * @return decompressing stream
+     */
+    InputStream decompress(InputStream source, CompressionType type);
+
+    /**
+     * Adaptive compression (CompressionType.AUTO)
+     * Buffers a sample of the stream, trial-compresses it with the candidate
+     * codecs and then compresses the whole stream with the chosen one.
+     * @param target downstream stage
+     * @param onDecision called once (on the writing thread) as soon as the codec is chosen,
+     *                   at the latest when the returned stream is closed
+     * @return compressing stream
+     */
+    OutputStream compressAdaptive(OutputStream target, Consumer<CompressionDecision> onDecision);
+
+    // ===== VALUE OBJECTS =====
+
+    @Value
+    @Builder
+    class CompressionDecision {
+        CompressionType type;       // never AUTO
+        Integer level;              // null for NONE
+        long sampleBytes;
+        double sampleRatio;         // uncompressed / compressed on the sample
+        double sampleThroughputMbps;
+        String reason;
+        Map<String, String> candidates; // "ZSTD:3" -> "ratio=2.91 mbps=412.7"
+
+        /**
+         * Flat form for Backup.metadata and the metadata JSON
+         */
+        public Map<String, String> toMetadata() {
+            Map<String, String> metadata = new LinkedHashMap<>();
+            metadata.put("compression.decision", type.name() + (level != null ? ":" + level : ""));
+            metadata.put("compression.reason", reason);
+            metadata.put("compression.sampleBytes", String.valueOf(sampleBytes));
+            metadata.put("compression.sampleRatio", String.format(Locale.ROOT, "%.3f", sampleRatio));
+            metadata.put("compression.sampleMbps", String.format(Locale.ROOT, "%.1f", sampleThroughputMbps));
+            candidates.forEach((codec, stats) -> metadata.put("compression.candidate." + codec, stats));
+            return metadata;
+        }
+    }
+}
@@ -4,16 +4,83 @@ import com.chibao.dbbackup_cli.domain.model.DatabaseConfig;
 import lombok.Builder;
 import lombok.Value;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Map;
 
 //"dumping the database" refers to the process of creating a file that contains a full copy of a database's data and structure.
 public interface DatabaseDumpPort {
+    // DumpConfig.additionalOptions keys understood by the dump adapters
+    String OPTION_FORMAT = "format";   // custom (default) | directory | native | physical (BaseBackupPort)
+    String OPTION_JOBS = "jobs";       // parallel dump workers (directory and native formats)
+
     // Perform database-specific backup/dump
     DumpOutput performDump(DumpConfig config);
 
+    // Perform dump writing the archive to a stream instead of a file (single-pass pipeline)
+    default DumpOutput performDump(DumpConfig config, OutputStream target) {
+        throw new UnsupportedOperationException(
+                "Streaming dump not supported for " + getSupportedDatabaseType());
+    }
+
+    // Whether performDump(config, target) is implemented
+    default boolean supportsStreaming() {
+        return false;
+    }
+
+    // Parallel dump into a directory of per-table files. Each file is passed to
+    // sink as soon as the tool has finished writing it; the table of contents
+    // (needed to restore the others) is always passed last.
+    default DumpOutput performDump(DumpConfig config, DumpFileSink sink) {
+        throw new UnsupportedOperationException(
+                "Parallel directory dump not supported for " + getSupportedDatabaseType());
+    }
+
+    // Whether performDump(config, sink) is implemented
+    default boolean supportsParallelDump() {
+        return false;
+    }
+
+    // Native parallel export: the adapter's own workers read the database under
+    // one shared snapshot and write every part (schema, table data, and a
+    // manifest, always last) into a stream obtained from sink. Restored from
+    // the directory of those parts with performRestore(input).
+    default DumpOutput performExport(DumpConfig config, DumpStreamSink sink) {
+        throw new UnsupportedOperationException(
+                "Native export not supported for " + getSupportedDatabaseType());
+    }
+
+    // Whether performExport(config, sink) is implemented
+    default boolean supportsNativeExport() {
+        return false;
+    }
+
+    // Format used when the backup command names none
+    default String getDefaultFormat() {
+        return "custom";
+    }
+
+    // Whether performDump(config) is implemented; without it the engine backs up as native exports only
+    default boolean supportsSingleFileDump() {
+        return true;
+    }
+
     // Restore database from dump file
-    void performRestore(RestoreInput input);
+    RestoreOutput performRestore(RestoreInput input);
+
+    // Restore from an archive stream (input.dumpFilePath is ignored). If reading
+    // source fails, the restore tool is killed before it sees the end of the
+    // archive, so a single-transaction restore rolls back.
+    default RestoreOutput performRestore(RestoreInput input, InputStream source) {
+        throw new UnsupportedOperationException(
+                "Streaming restore not supported for " + getSupportedDatabaseType());
+    }
+
+    // Whether performRestore(input, source) is implemented
+    default boolean supportsStreamingRestore() {
+        return false;
+    }
 
     // Test database connection
     boolean testConnection(DatabaseConfig config);
@@ -21,6 +88,24 @@ public interface DatabaseDumpPort {
     // Get database type this port handles
     String getSupportedDatabaseType();
 
+    // Receives finished files of a directory dump (called from the dump thread)
+    @FunctionalInterface
+    interface DumpFileSink {
+        void accept(Path directory, Path file) throws Exception;
+    }
+
+    // Stores one part of a native export and returns once it is stored. The writer
+    // may run on another thread while the caller waits. Called concurrently.
+    @FunctionalInterface
+    interface DumpStreamSink {
+        void write(String name, StreamWriter writer) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface StreamWriter {
+        void writeTo(OutputStream target) throws Exception;
+    }
+
     // ===== VALUE OBJECTS =====
 
     @Value
@@ -34,6 +119,31 @@ public interface DatabaseDumpPort {
         Path workingDirectory;
         java.util.List<String> tables;  // For selective backup
         Map<String, String> additionalOptions;
+        Integer nativeCompressionLevel; // Tool's built-in compression (0 = off), null = tool default
+
+        public String getOption(String key) {
+            return additionalOptions != null ? additionalOptions.get(key) : null;
+        }
+
+        public boolean isDirectoryFormat() {
+            return "directory".equalsIgnoreCase(getOption(OPTION_FORMAT));
+        }
+
+        public boolean isNativeFormat() {
+            return "native".equalsIgnoreCase(getOption(OPTION_FORMAT));
+        }
+
+        public int getJobs() {
+            String jobs = getOption(OPTION_JOBS);
+            if (jobs == null || jobs.isBlank()) {
+                return 1;
+            }
+            try {
+                return Math.max(1, Integer.parseInt(jobs.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid '" + OPTION_JOBS + "' option: " + jobs);
+            }
+        }
     }
 
     @Value
@@ -42,6 +152,7 @@ public interface DatabaseDumpPort {
         Path dumpFilePath;
         long sizeBytes;
         Map<String, String> metadata;  // Tool version, format, etc.
+        Map<String, Long> tableSizes;  // "schema.table" -> on-disk size at dump time (orders parallel restores)
 
         public String getMetadata(String key) {
             return metadata != null ? metadata.get(key) : null;
@@ -49,7 +160,7 @@ public interface DatabaseDumpPort {
     }
 
     @Value
-    @Builder
+    @Builder(toBuilder = true)
     class RestoreInput {
         Path dumpFilePath;
         String targetHost;
@@ -59,5 +170,23 @@ public interface DatabaseDumpPort {
         String password;
         boolean skipIfExists;
         java.util.List<String> tables;
+        boolean singleTransaction;  // all-or-nothing: nothing is committed unless the whole archive applies
+        int jobs;                   // parallel restore workers (needs a file or directory), 0/1 = sequential
+        Map<String, Long> tableSizes;  // recorded at backup time; biggest tables are scheduled first
+    }
+
+    @Value
+    @Builder
+    class RestoreOutput {
+        java.util.List<TableTiming> tableTimings;  // data load time per table, slowest first
+        Map<String, Long> phaseTimings;            // ms per restore phase in execution order, null if not reported
+    }
+
+    @Value
+    @Builder
+    class TableTiming {
+        String table;     // schema.table
+        long sizeBytes;   // recorded size, -1 if unknown
+        long durationMs;
     }
 }
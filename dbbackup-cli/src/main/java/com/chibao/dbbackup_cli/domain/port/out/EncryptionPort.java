@@ -3,6 +3,8 @@ package com.chibao.dbbackup_cli.domain.port.out;
 import lombok.Builder;
 import lombok.Value;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -27,6 +29,26 @@ public interface EncryptionPort {
      */
     Path decrypt(Path input, EncryptionConfig config);
 
+    /**
+     * Encrypt stream
+     * Wraps target so that bytes written are encrypted on the fly.
+     * Output format is identical to encrypt(Path, ...).
+     *  target downstream stage
+     *  config encryption configuration
+     * @return encrypting stream (close it to write the authentication tag)
+     */
+    OutputStream encrypt(OutputStream target, EncryptionConfig config);
+
+    /**
+     * Decrypt stream
+     * Wraps source (either encryption format) so reads return plaintext.
+     * Authentication failures surface as IOException from read().
+     *  source encrypted data
+     *  config encryption configuration
+     * @return decrypting stream
+     */
+    InputStream decrypt(InputStream source, EncryptionConfig config);
+
     /**
      * Get encryption algorithm
      * @return algorithm name (AES-256-GCM)
@@ -0,0 +1,43 @@
+package com.chibao.dbbackup_cli.domain.port.out;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * OUTBOUND PORT: Key Management Port
+ * Core cần data encryption keys (DEK) cho envelope encryption:
+ * - each backup is encrypted with a DEK
+ * - the DEK is stored only in wrapped form (encrypted by a KEK held by the provider)
+ * - restore asks the provider to unwrap it again
+ */
+public interface KeyManagementPort {
+
+    /**
+     * Generate (or reuse a cached) data key under the given KEK
+     * @param keyId KEK reference (KMS key id/alias/ARN, or local key name)
+     * @return plaintext DEK + wrapped DEK
+     */
+    DataKey generateDataKey(String keyId);
+
+    /**
+     * Unwrap a DEK previously returned by generateDataKey
+     * @param keyId KEK reference the DEK was wrapped with
+     * @param wrappedKey wrapped DEK as stored in the backup metadata
+     * @return plaintext DEK
+     */
+    byte[] unwrapDataKey(String keyId, byte[] wrappedKey);
+
+    /**
+     * Get provider type
+     * @return provider type (aws-kms, local)
+     */
+    String getProviderType();
+
+    @Value
+    @Builder
+    class DataKey {
+        String keyId;
+        byte[] plaintextKey;  // never persist
+        byte[] wrappedKey;    // safe to store next to the backup
+    }
+}
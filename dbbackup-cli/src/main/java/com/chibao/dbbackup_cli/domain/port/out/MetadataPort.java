@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Value;
 
 import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * OUTBOUND PORT: Metadata Port
@@ -46,7 +47,12 @@ public interface MetadataPort {
         long sizeBytes;
         String sha256;
         String compressAlgo;
+        Integer compressLevel;
+        Map<String, String> compressDecision; // AUTO: chosen codec and sampled ratio/throughput
         String encryptAlgo;
+        String encryptKeyId;       // KEK reference
+        String encryptWrappedKey;  // Base64 wrapped DEK (envelope encryption)
+        Map<String, String> dumpLayout;   // directory format: dump.format/jobs/toc and one dump.file.* entry per file
         Integer chunks;
         String status;
     }
@@ -1,5 +1,8 @@
 package com.chibao.dbbackup_cli.domain.port.out;
 
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * OUTBOUND PORT: Metrics Port
  * Core cần record metrics cho observability
@@ -41,4 +44,20 @@ public interface MetricsPort {
      * @param retryCount number of retries
      */
     void recordRetryCount(String operation, int retryCount);
+
+    /**
+     * Record one attempt of a retried operation
+     * @param operation operation name (retry policy key)
+     * @param outcome success, retry, failure, exhausted, budget_exhausted, hedged
+     * @param durationMs duration of the attempt
+     */
+    void recordAttempt(String operation, String outcome, long durationMs);
+
+    /**
+     * Register a gauge read from the supplier each time metrics are collected
+     * @param name metric name (without prefix)
+     * @param tags tag key/value pairs
+     * @param value current value
+     */
+    void registerGauge(String name, Map<String, String> tags, Supplier<Number> value);
 }
\ No newline at end of file
@@ -1,10 +1,23 @@
 package com.chibao.dbbackup_cli.domain.port.out;
 
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
 import lombok.Builder;
 import lombok.Value;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * OUTBOUND PORT: Storage Port
@@ -18,6 +31,15 @@ public interface StoragePort {
     // Download file from storage
     InputStream download(String identifier);
 
+    // Download file from storage into a local file
+    default void downloadTo(String identifier, Path target) {
+        try (InputStream in = download(identifier)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new StorageException("Download to " + target + " failed", e);
+        }
+    }
+
     // Delete file from storage
     void delete(String identifier);
 
@@ -27,13 +49,136 @@ public interface StoragePort {
     // Get storage provider type
     String getProviderType();
 
+    // Where objects go: provider plus bucket and prefix, or base path; state kept about
+    // stored objects (the chunk index) is only valid for the target it was built against
+    default String getTargetId() {
+        return getProviderType();
+    }
+
+    // Identifier upload() returns for this filename, without uploading (lets the dedup store address shared chunks)
+    default String locate(String filename) {
+        throw new UnsupportedOperationException("Chunk deduplication not supported by " + getProviderType());
+    }
+
+    // Whether multipart uploads of a sourceFile report part digests and can copy unchanged parts from deltaBase
+    default boolean supportsDeltaUpload() {
+        return false;
+    }
+
+    // Whether multipart uploads of a sourceFile report checkpoints and can be resumed from one
+    default boolean supportsResumableUpload() {
+        return false;
+    }
+
+    // Multipart uploads that were started but neither completed nor aborted
+    default List<UploadCheckpoint> listIncompleteUploads() {
+        return List.of();
+    }
+
+    // Abort an incomplete multipart upload, discarding its parts
+    default void abortUpload(UploadCheckpoint checkpoint) {
+        throw new UnsupportedOperationException("Resumable uploads not supported by " + getProviderType());
+    }
+
     @Value
     @Builder
     class UploadRequest {
         InputStream data;
+        Path sourceFile;          // Alternative to data: lets adapters read parts with positional reads
         String filename;
         long sizeBytes;
         Map<String, String> metadata;
         boolean enableMultipart;  // For large files
+        UploadCheckpoint resumeFrom;                       // continue this multipart upload (sourceFile only)
+        Consumer<UploadCheckpoint> checkpointListener;     // called after initiation and each part (any thread)
+        PartDigests deltaBase;                             // copy unchanged parts from this object (sourceFile only)
+        Consumer<PartDigests> partDigestListener;          // called with the new object's part digests, if computed
+
+        // Stream to upload: data, or a new stream over sourceFile
+        public InputStream openStream() throws IOException {
+            return data != null ? data : Files.newInputStream(sourceFile);
+        }
+    }
+
+    /**
+     * Progress of a multipart upload: enough to resume it after a crash
+     * (upload id, part size and the ETag of every completed part)
+     */
+    @Value
+    @Builder(toBuilder = true)
+    class UploadCheckpoint {
+        String uploadId;
+        String objectKey;
+        long partSize;
+        Instant initiatedAt;
+        SortedMap<Integer, String> completedParts;  // part number -> ETag
+
+        public Map<String, String> toMetadata() {
+            Map<String, String> metadata = new HashMap<>();
+            metadata.put("upload.id", uploadId);
+            metadata.put("upload.key", objectKey);
+            metadata.put("upload.partSize", String.valueOf(partSize));
+            metadata.put("upload.initiatedAt", initiatedAt.toString());
+            metadata.put("upload.parts", completedParts.entrySet().stream()
+                    .map(part -> part.getKey() + ":" + part.getValue())
+                    .collect(Collectors.joining(",")));
+            return metadata;
+        }
+
+        public static Optional<UploadCheckpoint> fromMetadata(Map<String, String> metadata) {
+            if (metadata == null || metadata.get("upload.id") == null) {
+                return Optional.empty();
+            }
+            SortedMap<Integer, String> parts = new TreeMap<>();
+            String encoded = metadata.getOrDefault("upload.parts", "");
+            if (!encoded.isEmpty()) {
+                for (String part : encoded.split(",")) {
+                    int separator = part.indexOf(':');
+                    parts.put(Integer.parseInt(part.substring(0, separator)), part.substring(separator + 1));
+                }
+            }
+            return Optional.of(UploadCheckpoint.builder()
+                    .uploadId(metadata.get("upload.id"))
+                    .objectKey(metadata.get("upload.key"))
+                    .partSize(Long.parseLong(metadata.get("upload.partSize")))
+                    .initiatedAt(Instant.parse(metadata.get("upload.initiatedAt")))
+                    .completedParts(parts)
+                    .build());
+        }
+    }
+
+    /**
+     * SHA-256 of every part of a stored multipart object, in part order
+     * Recorded after an upload so the next one can have the parts that did
+     * not change copied server-side instead of sent again. The ETag pins the
+     * exact object version the digests describe.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    class PartDigests {
+        String objectKey;
+        String eTag;
+        long partSize;
+        List<String> digests;  // Base64, part 1 first
+
+        public Map<String, String> toMetadata() {
+            Map<String, String> metadata = new HashMap<>();
+            metadata.put("delta.eTag", eTag);
+            metadata.put("delta.partSize", String.valueOf(partSize));
+            metadata.put("delta.digests", String.join(",", digests));
+            return metadata;
+        }
+
+        public static Optional<PartDigests> fromMetadata(Map<String, String> metadata, String objectKey) {
+            if (metadata == null || metadata.get("delta.digests") == null || objectKey == null) {
+                return Optional.empty();
+            }
+            return Optional.of(PartDigests.builder()
+                    .objectKey(objectKey)
+                    .eTag(metadata.get("delta.eTag"))
+                    .partSize(Long.parseLong(metadata.get("delta.partSize")))
+                    .digests(List.of(metadata.get("delta.digests").split(",")))
+                    .build());
+        }
     }
 }
@@ -0,0 +1,41 @@
+package com.chibao.dbbackup_cli.domain.port.out;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+
+/**
+ * OUTBOUND PORT: WAL Stream Port
+ * Continuous copy of a PostgreSQL server's write-ahead log into a local
+ * spool directory. Segments are written under their WAL file names, with
+ * a ".partial" suffix until they are complete.
+ * Implementations: pg_receivewal
+ */
+public interface WalStreamPort {
+
+    // Start receiving WAL; runs until stopped or the connection is lost
+    WalReceiver start(WalStreamConfig config);
+
+    // A running receiver (supervised by the caller, which restarts it when it exits)
+    interface WalReceiver {
+        boolean isAlive();
+
+        // Exit code and last output lines once the receiver has exited
+        String describeExit();
+
+        void stop();
+    }
+
+    @Value
+    @Builder
+    class WalStreamConfig {
+        String host;
+        int port;
+        String username;
+        String password;
+        String slotName;      // replication slot: the server keeps WAL the receiver has not confirmed yet
+        boolean createSlot;   // create the slot if it does not exist
+        Path directory;
+    }
+}
@@ -1,10 +1,15 @@
 package com.chibao.dbbackup_cli.domain.repository;
 
 import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
 public interface BackupRepository extends JpaRepository<Backup, String> {
+
+    List<Backup> findByStatus(BackupStatus status);
 }
@@ -0,0 +1,36 @@
+package com.chibao.dbbackup_cli.domain.retry;
+
+/**
+ * Token bucket that caps retries relative to successful calls
+ * Starts full; every retry or hedge takes a token, every success puts
+ * back a fraction of one. When the store is down hard, the bucket drains
+ * and further failures surface at once instead of multiplying the load.
+ */
+class RetryBudget {
+
+    private final int capacity;
+    private final double ratio;
+    private double tokens;
+
+    RetryBudget(int capacity, double ratio) {
+        this.capacity = Math.max(0, capacity);
+        this.ratio = ratio;
+        this.tokens = this.capacity;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    synchronized double available() {
+        return tokens;
+    }
+}
@@ -0,0 +1,173 @@
+package com.chibao.dbbackup_cli.domain.retry;
+
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Retry engine shared by the storage and dump stages
+ * - execute: retries failures the operation's policy classifies as
+ *   transient, with jittered exponential backoff, while attempts and the
+ *   operation's retry budget last
+ * - executeHedged: for idempotent reads, also sends a duplicate request
+ *   when the first is slower than the policy's hedgeAfter; the first
+ *   success wins and the other is cancelled
+ * Every attempt is recorded through MetricsPort (operation, outcome, duration).
+ */
+@Slf4j
+public class RetryExecutor {
+
+    /**
+     * Waits between attempts; replaceable so tests do not sleep
+     */
+    @FunctionalInterface
+    public interface Sleeper {
+        void sleep(Duration duration) throws InterruptedException;
+    }
+
+    private static final RetryPolicy NO_RETRY = RetryPolicy.builder().maxAttempts(1).build();
+
+    private final Map<RetryOperation, RetryPolicy> policies;
+    private final Map<RetryOperation, RetryBudget> budgets = new EnumMap<>(RetryOperation.class);
+    private final MetricsPort metricsPort;
+    private final Sleeper sleeper;
+    private final DoubleSupplier random;
+    private final ExecutorService hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "retry-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RetryExecutor(Map<RetryOperation, RetryPolicy> policies, MetricsPort metricsPort) {
+        this(policies, metricsPort, duration -> Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000),
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    public RetryExecutor(Map<RetryOperation, RetryPolicy> policies, MetricsPort metricsPort,
+                         Sleeper sleeper, DoubleSupplier random) {
+        this.policies = new EnumMap<>(policies);
+        this.metricsPort = metricsPort;
+        this.sleeper = sleeper;
+        this.random = random;
+        for (RetryOperation operation : RetryOperation.values()) {
+            RetryPolicy policy = policy(operation);
+            budgets.put(operation, new RetryBudget(policy.getBudgetCapacity(), policy.getBudgetRatio()));
+        }
+    }
+
+    public RetryPolicy policy(RetryOperation operation) {
+        return policies.getOrDefault(operation, NO_RETRY);
+    }
+
+    /**
+     * Run the call, retrying transient failures
+     * @throws Exception the last failure once the call is not retried any more
+     */
+    public <T> T execute(RetryOperation operation, Callable<T> call) throws Exception {
+        RetryPolicy policy = policy(operation);
+        RetryBudget budget = budget(operation);
+
+        for (int attempt = 1; ; attempt++) {
+            long started = System.nanoTime();
+            try {
+                T result = call.call();
+                recordAttempt(operation, "success", started);
+                budget.onSuccess();
+                if (attempt > 1) {
+                    metricsPort.recordRetryCount(operation.getKey(), attempt - 1);
+                }
+                return result;
+
+            } catch (Exception e) {
+                if (e instanceof InterruptedException || !policy.getRetryable().test(e)) {
+                    recordAttempt(operation, "failure", started);
+                    throw e;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    recordAttempt(operation, "exhausted", started);
+                    if (attempt > 1) {
+                        metricsPort.recordRetryCount(operation.getKey(), attempt - 1);
+                    }
+                    throw e;
+                }
+                if (!budget.tryAcquire()) {
+                    recordAttempt(operation, "budget_exhausted", started);
+                    log.warn("Retry budget exhausted for {}, not retrying: {}", operation.getKey(), e.getMessage());
+                    throw e;
+                }
+                recordAttempt(operation, "retry", started);
+
+                Duration delay = policy.backoff(attempt, random.getAsDouble());
+                log.debug("{} attempt {}/{} failed, retrying in {}ms: {}", operation.getKey(), attempt,
+                        policy.getMaxAttempts(), delay.toMillis(), e.getMessage());
+                sleeper.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Like execute, but each attempt may be hedged; only for idempotent calls
+     */
+    public <T> T executeHedged(RetryOperation operation, Callable<T> call) throws Exception {
+        Duration hedgeAfter = policy(operation).getHedgeAfter();
+        if (hedgeAfter == null) {
+            return execute(operation, call);
+        }
+        return execute(operation, () -> hedged(operation, hedgeAfter, call));
+    }
+
+    private <T> T hedged(RetryOperation operation, Duration hedgeAfter, Callable<T> call) throws Exception {
+        CompletionService<T> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<T>> requests = new ArrayList<>();
+        requests.add(completion.submit(call));
+        try {
+            Future<T> done = completion.poll(hedgeAfter.toNanos(), TimeUnit.NANOSECONDS);
+            if (done == null && budget(operation).tryAcquire()) {
+                log.debug("{} slower than {}ms, sending hedged request", operation.getKey(), hedgeAfter.toMillis());
+                metricsPort.recordAttempt(operation.getKey(), "hedged", hedgeAfter.toMillis());
+                requests.add(completion.submit(call));
+            }
+
+            Exception firstFailure = null;
+            for (int outstanding = requests.size(); outstanding > 0; outstanding--) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                }
+                done = null;
+            }
+            throw firstFailure;
+        } finally {
+            requests.forEach(request -> request.cancel(true));
+        }
+    }
+
+    private RetryBudget budget(RetryOperation operation) {
+        return budgets.get(operation);
+    }
+
+    private void recordAttempt(RetryOperation operation, String outcome, long startedNanos) {
+        metricsPort.recordAttempt(operation.getKey(), outcome, (System.nanoTime() - startedNanos) / 1_000_000);
+    }
+}
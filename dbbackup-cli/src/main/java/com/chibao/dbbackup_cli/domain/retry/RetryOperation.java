@@ -0,0 +1,24 @@
+package com.chibao.dbbackup_cli.domain.retry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Operations with their own retry policy, configured under retry.policies.<key>
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RetryOperation {
+    PART_UPLOAD("part-upload"),
+    RANGED_GET("ranged-get"),
+    STORAGE_READ("storage-read"),       // small idempotent reads (HEAD); hedged
+    METADATA_UPLOAD("metadata-upload"),
+    CONNECTION_TEST("connection-test"),
+    DATABASE_DUMP("database-dump"),
+    CHUNK_UPLOAD("chunk-upload"),       // dedup store chunks (single PUTs)
+    CHUNK_DOWNLOAD("chunk-download"),
+    WAL_UPLOAD("wal-upload"),           // archived WAL segments and binlog files
+    WAL_DOWNLOAD("wal-download");
+
+    private final String key;
+}
@@ -0,0 +1,51 @@
+package com.chibao.dbbackup_cli.domain.retry;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Retry policy of one operation
+ * Backoff is exponential with full jitter: the n-th retry waits a random
+ * time in [0, min(maxBackoff, initialBackoff x multiplier^(n-1))], so
+ * clients that failed together do not retry together.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+    @Builder.Default
+    int maxAttempts = 3;              // including the first one
+
+    @Builder.Default
+    Duration initialBackoff = Duration.ofMillis(100);
+
+    @Builder.Default
+    Duration maxBackoff = Duration.ofSeconds(10);
+
+    @Builder.Default
+    double multiplier = 2.0;
+
+    Duration hedgeAfter;              // idempotent reads: send a duplicate after this long (null = never)
+
+    @Builder.Default
+    int budgetCapacity = 20;          // retries (and hedges) allowed in a burst
+
+    @Builder.Default
+    double budgetRatio = 0.1;         // tokens earned per success: long-run retries <= 10% of calls
+
+    @Builder.Default
+    Predicate<Throwable> retryable = failure -> true;
+
+    /**
+     * Delay before the given retry (1 = first retry)
+     * @param random uniform in [0, 1)
+     */
+    public Duration backoff(int retry, double random) {
+        double ceiling = initialBackoff.toNanos() * Math.pow(multiplier, retry - 1);
+        long cappedNanos = (long) Math.min(maxBackoff.toNanos(), ceiling);
+        return Duration.ofNanos((long) (cappedNanos * random));
+    }
+}
@@ -1,27 +1,52 @@
 package com.chibao.dbbackup_cli.domain.service;
 
 import com.chibao.dbbackup_cli.config.DatabaseDumpFactory;
+import com.chibao.dbbackup_cli.domain.dedup.ChunkStore;
 import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
 import com.chibao.dbbackup_cli.domain.model.Backup;
 import com.chibao.dbbackup_cli.domain.model.BackupStatus;
 import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.model.DumpFileEntry;
+import com.chibao.dbbackup_cli.domain.pipeline.BoundedPipe;
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
 import com.chibao.dbbackup_cli.domain.port.in.BackupUseCase;
 import com.chibao.dbbackup_cli.domain.port.out.*;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * BackupService - Core Business Logic
@@ -47,15 +72,89 @@ public class BackupService implements BackupUseCase {
     private final MetadataPort metadataPort;
     private final MetricsPort metricsPort;
     private final BackupRecordPort backupRecordPort;
+    private final CompressionPort compressionPort;
+    private final KeyManagementPort keyManagementPort;
+    private final RetryExecutor retryExecutor;
+    private final ChunkStore chunkStore;
+    private final BaseBackupPort baseBackupPort;
+
+    // KEK used to wrap each backup's data key (KMS key id/alias/ARN, or local key name)
+    @Value("${backup.encrypt.kms.keyId:backup-encryption-key}")
+    private String encryptionKeyId;
+
+    // ===== STREAMING PIPELINE SETTINGS =====
+
+    @Value("${backup.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${backup.streaming.buffer-size:1048576}")
+    private int streamBufferSize;
+
+    @Value("${backup.streaming.buffer-count:16}")
+    private int streamBufferCount;
+
+    // ===== PARALLEL (DIRECTORY FORMAT) DUMP SETTINGS =====
+
+    // Dump files encoded and uploaded concurrently while the dump is still running
+    @Value("${backup.parallel-dump.upload-concurrency:4}")
+    private int parallelUploadConcurrency;
+
+    // ===== RESUMABLE UPLOAD SETTINGS =====
+
+    // Stage the final file and checkpoint multipart progress in the backup record
+    @Value("${backup.resumable-upload.enabled:false}")
+    private boolean resumableUploadEnabled;
+
+    @Value("${backup.resumable-upload.staging-dir:${java.io.tmpdir}/dbbackup-staging}")
+    private String stagingDir;
+
+    // Failed resumes of one backup before it is marked FAILED and its staged file deleted
+    @Value("${backup.resumable-upload.max-resume-attempts:3}")
+    private int maxResumeAttempts;
+
+    // ===== DEDUPLICATION SETTINGS =====
+
+    // Store the dump as content-defined chunks, uploading only chunks no earlier backup stored
+    @Value("${backup.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    // Chunk codec when the backup asks for AUTO (chunks need one fixed codec)
+    @Value("${backup.dedup.compression:ZSTD}")
+    private CompressionType dedupCompression;
+
+    // ===== DELTA UPLOAD SETTINGS =====
+
+    // File pipeline: copy parts unchanged since the last backup of the database server-side (S3 UploadPartCopy)
+    @Value("${backup.delta-upload.enabled:false}")
+    private boolean deltaUploadEnabled;
+
+    // Artifact names end in ".tar" plus the codec's extension (.tar.gz, .tar.zst, ...)
+    static final String ARCHIVE_STEM = ".tar";
+    private static final String MANIFEST_EXTENSION = ".chunks";
+    static final String TABLE_SIZE_PREFIX = "table.size.";
+    static final String STAGED_FILE = "staged.file";
+    static final String STAGED_FILENAME = "staged.filename";
+    static final String STAGED_SHA256 = "staged.sha256";
+    static final String RESUME_ATTEMPTS = "staged.resumeAttempts";
+    static final String DEDUP_CHUNKS = "dedup.chunks";
+
+    private final ExecutorService pipelineExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "backup-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Execute backup - Main business logic
+     * Steps 1-5 run either as a single-pass streaming pipeline (default,
+     * when the dump adapter supports it) or as the file-based pipeline;
+     * with dedup enabled the dump is stored as chunks plus a manifest instead.
      * Flow:
      * 1. Initialize backup entity
      * 2. Dump database via port
      * 3. Compress file
      * 4. Encrypt if needed
-     * 5. Calculate checksum
+     * 5. Calculate checksum (inline on the upload stream, no extra read)
      * 6. Upload to storage
      * 7. Save metadata
      * 8. Record metrics
@@ -74,85 +173,70 @@ public class BackupService implements BackupUseCase {
         Backup backup = createBackupEntity(backupId, command, startTime);
         backupRecordPort.save(backup);
 
-        Path tempDumpFile = null;
-        Path compressedFile = null;
-        Path encryptedFile = null;
+        List<Path> tempFiles = new ArrayList<>();
+        EncryptionPort.EncryptionConfig encryptionConfig = null;
+        UploadCheckpointRecorder recorder = null;
 
         try {
-            // ===== 1. DUMP DATABASE (via outbound port) =====
-            log.debug("Performing database dump: backupId={}", backupId);
-
             // Get the correct adapter from the factory based on user input
             DatabaseDumpPort databaseDumpPort = databaseDumpFactory.getAdapter(command.getDatabaseType());
+            command = withDefaultFormat(command, databaseDumpPort);
+            checkFormatSupported(command, databaseDumpPort);
 
-            DatabaseDumpPort.DumpConfig dumpConfig = buildDumpConfig(command);
-            DatabaseDumpPort.DumpOutput dumpOutput = databaseDumpPort.performDump(dumpConfig);
-
-            tempDumpFile = dumpOutput.getDumpFilePath();
-            log.info("Database dump completed: backupId={}, size={} bytes",
-                    backupId, dumpOutput.getSizeBytes());
-
-            // ===== 2. COMPRESS FILE (business logic) =====
-            compressedFile = compressIfNeeded(tempDumpFile, command.getCompression());
+            boolean dedup = useDedup(command);
+            DatabaseDumpPort.DumpConfig dumpConfig = buildDumpConfig(command, dedup);
+            String filename = generateFilename(backupId, command);
 
-            // ===== 3. ENCRYPT FILE (via outbound port) =====
-            Path finalFile = compressedFile;
+            // Envelope encryption: per-backup DEK, only its wrapped form is persisted
             if (command.isEncrypt()) {
-                log.debug("Encrypting backup: backupId={}", backupId);
-                EncryptionPort.EncryptionConfig encryptConfig = buildEncryptionConfig();
-                encryptedFile = encryptionPort.encrypt(compressedFile, encryptConfig);
-                finalFile = encryptedFile;
+                KeyManagementPort.DataKey dataKey = keyManagementPort.generateDataKey(encryptionKeyId);
+                encryptionConfig = buildEncryptionConfig(dataKey);
+                backup = putMetadata(backup, Map.of(
+                        "encryption.keyProvider", keyManagementPort.getProviderType(),
+                        "encryption.keyId", dataKey.getKeyId(),
+                        "encryption.wrappedKey", Base64.getEncoder().encodeToString(dataKey.getWrappedKey())));
+            }
+
+            // ===== 1-5. DUMP, COMPRESS, ENCRYPT, CHECKSUM, UPLOAD =====
+            StoredArtifact artifact;
+            if (dedup) {
+                // Chunks carry their own codec; the stored manifest is plain text
+                backup = backup.toBuilder()
+                        .compression(CompressionType.NONE)
+                        .compressionLevel(null)
+                        .build();
+                artifact = runDedupPipeline(backupId, command, databaseDumpPort, dumpConfig, filename, tempFiles);
+            } else if (isPhysicalFormat(command)) {
+                artifact = runBaseBackupPipeline(backupId, command, filename, encryptionConfig);
+            } else if (useNativeExport(databaseDumpPort, dumpConfig)) {
+                artifact = runNativeExportPipeline(backupId, command, databaseDumpPort, dumpConfig, filename,
+                        encryptionConfig);
+            } else if (useParallelDump(databaseDumpPort, dumpConfig)) {
+                artifact = runParallelDumpPipeline(backupId, command, databaseDumpPort, dumpConfig, filename,
+                        encryptionConfig);
+            } else if (!isResumableUpload() && !useDeltaUpload(command) && useStreamingPipeline(databaseDumpPort)) {
+                artifact = runStreamingPipeline(backupId, command, databaseDumpPort, dumpConfig, filename,
+                        encryptionConfig);
+            } else {
+                // A resumable upload needs a source it can re-read after a crash: the staged final file
+                recorder = isResumableUpload() ? new UploadCheckpointRecorder(backup) : null;
+                artifact = runFilePipeline(backupId, command, databaseDumpPort, dumpConfig, filename,
+                        encryptionConfig, tempFiles, recorder);
+                if (recorder != null) {
+                    backup = recorder.close();
+                }
             }
 
-            // ===== 4. CALCULATE CHECKSUM (via outbound port) =====
-            log.debug("Calculating checksum: backupId={}", backupId);
-            String checksum = checksumPort.calculate(finalFile);
-
-            // ===== 5. UPLOAD TO STORAGE (via outbound port) =====
-            log.debug("Uploading to storage: backupId={}, provider={}",
-                    backupId, command.getStorageProvider());
-
-            String storageLocation = uploadToStorage(finalFile, backupId, command);
-
-            // ===== 6. SAVE METADATA (via outbound port) =====
-            Path metadataPath = saveMetadata(
-                    backup,
-                    checksum,
-                    Files.size(finalFile),
-                    storageLocation,
-                    startTime
-            );
-
-            // Upload metadata alongside backup
-            uploadMetadata(metadataPath, backupId);
-
-            // ===== 7. UPDATE DOMAIN ENTITY AND SAVE =====
-            backup = backup.markAsCompleted(checksum, Files.size(finalFile), storageLocation);
-            backupRecordPort.save(backup);
-
-            // ===== 8. RECORD METRICS (via outbound port) =====
-            long durationMs = backup.getDurationSeconds() * 1000;
-            metricsPort.recordBackupDuration(command.getDatabaseType(), durationMs, true);
-            metricsPort.recordBackupSize(command.getDatabaseType(), Files.size(finalFile));
-            metricsPort.incrementBackupCount(command.getDatabaseType(), "success");
-
-            log.info("Backup completed successfully: backupId={}, duration={}ms, size={} bytes",
-                    backupId, durationMs, Files.size(finalFile));
-
-            return BackupResult.success(
-                    backupId,
-                    "Backup completed successfully",
-                    BackupMetadata.builder()
-                            .storageLocation(storageLocation)
-                            .sizeBytes(Files.size(finalFile))
-                            .checksum(checksum)
-                            .durationMs(durationMs)
-                            .build()
-            );
+            return completeBackup(backup, artifact, startTime, tempFiles);
 
         } catch (Exception e) {
             log.error("Backup failed: backupId={}, error={}", backupId, e.getMessage(), e);
 
+            // Stop checkpoints from late part uploads before the final state is written
+            if (recorder != null) {
+                backup = recorder.close();
+            }
+
             // Save failed state to database
             Backup failedBackup = backup.markAsFailed(e.getMessage());
             backupRecordPort.save(failedBackup);
@@ -166,7 +250,689 @@ public class BackupService implements BackupUseCase {
 
         } finally {
             // ===== 9. CLEANUP TEMPORARY FILES =====
-            cleanupTempFiles(tempDumpFile, compressedFile, encryptedFile);
+            cleanupTempFiles(tempFiles.toArray(new Path[0]));
+            if (encryptionConfig != null) {
+                Arrays.fill(encryptionConfig.getKey(), (byte) 0);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdownPipelineExecutor() {
+        pipelineExecutor.shutdownNow();
+    }
+
+    /**
+     * Finish the upload of a backup whose process died mid-upload
+     * The staged file is hashed again and must match the checksum recorded
+     * before the crash. The multipart upload then continues from its
+     * checkpoint; if it no longer exists, the staged file is uploaded again.
+     * A failed upload leaves the record IN_PROGRESS and the staged file in
+     * place for the next start, up to max-resume-attempts; a staged file
+     * that is missing or changed cannot be resumed and fails the backup
+     * (a changed one is kept for inspection).
+     */
+    BackupResult resumeUpload(Backup backup) {
+        String backupId = backup.getId();
+        Map<String, String> metadata = backup.getMetadata() != null ? backup.getMetadata() : Map.of();
+        String stagedPath = metadata.get(STAGED_FILE);
+        Path stagedFile = stagedPath != null ? Path.of(stagedPath) : null;
+        int attempt = Integer.parseInt(metadata.getOrDefault(RESUME_ATTEMPTS, "0")) + 1;
+        List<Path> tempFiles = new ArrayList<>();
+        UploadCheckpointRecorder recorder = new UploadCheckpointRecorder(backup);
+        boolean staged = false;
+        boolean changed = false;
+
+        log.info("Resuming interrupted backup upload: backupId={}, attempt={}", backupId, attempt);
+
+        try {
+            String expectedChecksum = metadata.get(STAGED_SHA256);
+            if (stagedFile == null || expectedChecksum == null) {
+                throw new BackupFailedException("Interrupted before the upload was staged, cannot resume");
+            }
+            if (!Files.isRegularFile(stagedFile)) {
+                throw new BackupFailedException("Staged file is missing: " + stagedFile);
+            }
+
+            ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+            try (InputStream in = checksum.wrap(Files.newInputStream(stagedFile))) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            if (!checksum.finish().equals(expectedChecksum)) {
+                changed = true;
+                throw new BackupFailedException("Staged file checksum mismatch: " + stagedFile);
+            }
+            staged = true;
+            recorder.update(current -> putMetadata(current, Map.of(RESUME_ATTEMPTS, String.valueOf(attempt))));
+
+            StoragePort.UploadRequest.UploadRequestBuilder request = StoragePort.UploadRequest.builder()
+                    .sourceFile(stagedFile)
+                    .filename(metadata.get(STAGED_FILENAME))
+                    .sizeBytes(Files.size(stagedFile))
+                    .metadata(uploadMetadata(backupId, backup.getDatabaseType(), backup.getDatabaseName()))
+                    .enableMultipart(Files.size(stagedFile) > 100 * 1024 * 1024) // > 100MB
+                    .checkpointListener(recorder::checkpoint);
+            StoragePort.UploadCheckpoint checkpoint = StoragePort.UploadCheckpoint.fromMetadata(metadata).orElse(null);
+
+            String storageLocation;
+            try {
+                storageLocation = storagePort.upload(request.resumeFrom(checkpoint).build());
+            } catch (StorageException e) {
+                if (checkpoint == null) {
+                    throw e;
+                }
+                log.warn("Cannot resume upload {}, uploading staged file again: backupId={}, error={}",
+                        checkpoint.getUploadId(), backupId, e.getMessage());
+                storageLocation = storagePort.upload(request.resumeFrom(null).build());
+            }
+
+            BackupResult result = completeBackup(recorder.close(),
+                    new StoredArtifact(storageLocation, expectedChecksum, Files.size(stagedFile), null, null),
+                    backup.getCreatedAt(), tempFiles);
+            // The staged file goes only once the backup is complete
+            cleanupTempFiles(stagedFile);
+            return result;
+
+        } catch (Exception e) {
+            Backup current = recorder.close();
+            if (staged && attempt < maxResumeAttempts) {
+                // Storage may be back by the next start: keep the record resumable and the staged file
+                log.warn("Resumed upload failed, will retry at next start: backupId={}, attempt={}/{}, error={}",
+                        backupId, attempt, maxResumeAttempts, e.getMessage(), e);
+                return BackupResult.failure(backupId, "Resume attempt " + attempt + " failed: " + e.getMessage());
+            }
+
+            log.error("Resumed upload failed: backupId={}, error={}", backupId, e.getMessage(), e);
+            backupRecordPort.save(current.markAsFailed("Resume failed: " + e.getMessage()));
+            metricsPort.incrementBackupCount(backup.getDatabaseType(), "failure");
+            if (!changed) {
+                cleanupTempFiles(stagedFile);
+            }
+
+            return BackupResult.failure(backupId, "Resume failed: " + e.getMessage());
+
+        } finally {
+            cleanupTempFiles(tempFiles.toArray(new Path[0]));
+        }
+    }
+
+    /**
+     * Steps 6-8 once the artifact is stored: metadata file, final record, metrics
+     */
+    private BackupResult completeBackup(Backup backup, StoredArtifact artifact, Instant startTime,
+                                        List<Path> tempFiles) {
+        String backupId = backup.getId();
+        String databaseType = backup.getDatabaseType();
+        String checksum = artifact.getChecksum();
+        String storageLocation = artifact.getStorageLocation();
+        long sizeBytes = artifact.getSizeBytes();
+
+        // AUTO: store the codec actually used so restore can decode it
+        if (artifact.getCompressionDecision() != null) {
+            backup = applyCompressionDecision(backup, artifact.getCompressionDecision());
+        }
+        // Table sizes (restore ordering) and, for directory dumps, where each file went
+        if (artifact.getDumpMetadata() != null) {
+            backup = putMetadata(backup, artifact.getDumpMetadata());
+        }
+        // Staging and multipart checkpoints only matter while the upload is unfinished
+        backup = removeMetadata(backup, "staged.", "upload.");
+
+        // ===== 6. SAVE METADATA (via outbound port) =====
+        Path metadataPath = saveMetadata(
+                backup,
+                checksum,
+                sizeBytes,
+                storageLocation,
+                startTime
+        );
+        tempFiles.add(metadataPath);
+
+        // Upload metadata alongside backup
+        uploadMetadata(metadataPath, backupId);
+
+        // ===== 7. UPDATE DOMAIN ENTITY AND SAVE =====
+        backup = backup.markAsCompleted(checksum, sizeBytes, storageLocation);
+        backupRecordPort.save(backup);
+
+        // ===== 8. RECORD METRICS (via outbound port) =====
+        long durationMs = backup.getDurationSeconds() * 1000;
+        metricsPort.recordBackupDuration(databaseType, durationMs, true);
+        metricsPort.recordBackupSize(databaseType, sizeBytes);
+        metricsPort.incrementBackupCount(databaseType, "success");
+
+        log.info("Backup completed successfully: backupId={}, duration={}ms, size={} bytes",
+                backupId, durationMs, sizeBytes);
+
+        return BackupResult.success(
+                backupId,
+                "Backup completed successfully",
+                BackupMetadata.builder()
+                        .storageLocation(storageLocation)
+                        .sizeBytes(sizeBytes)
+                        .checksum(checksum)
+                        .durationMs(durationMs)
+                        .build()
+        );
+    }
+
+    // ===== PIPELINES =====
+
+    private boolean useParallelDump(DatabaseDumpPort databaseDumpPort, DatabaseDumpPort.DumpConfig dumpConfig) {
+        if (!dumpConfig.isDirectoryFormat()) {
+            return false;
+        }
+        if (!databaseDumpPort.supportsParallelDump()) {
+            log.warn("Adapter {} does not support directory-format dumps, ignoring format option",
+                    databaseDumpPort.getSupportedDatabaseType());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean useNativeExport(DatabaseDumpPort databaseDumpPort, DatabaseDumpPort.DumpConfig dumpConfig) {
+        if (!dumpConfig.isNativeFormat()) {
+            return false;
+        }
+        if (!databaseDumpPort.supportsNativeExport()) {
+            log.warn("Adapter {} does not support native exports, ignoring format option",
+                    databaseDumpPort.getSupportedDatabaseType());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean useDedup(BackupCommand command) {
+        if (!dedupEnabled) {
+            return false;
+        }
+        if (command.isEncrypt()) {
+            // Chunks are shared by every backup, data keys are per backup
+            log.warn("Encrypted backups are not deduplicated, using the regular pipeline");
+            return false;
+        }
+        if (isDirectoryFormat(command)) {
+            log.warn("Directory-format dumps are not deduplicated, using the parallel dump pipeline");
+            return false;
+        }
+        if (isPhysicalFormat(command)) {
+            log.warn("Base backups are not deduplicated, using the base backup pipeline");
+            return false;
+        }
+        if (isNativeFormat(command)) {
+            log.warn("Native exports are not deduplicated, using the native export pipeline");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean useDeltaUpload(BackupCommand command) {
+        // A fresh data key per backup makes every part differ
+        return deltaUploadEnabled && storagePort.supportsDeltaUpload() && !command.isEncrypt();
+    }
+
+    private boolean isResumableUpload() {
+        return resumableUploadEnabled && storagePort.supportsResumableUpload();
+    }
+
+    private boolean useStreamingPipeline(DatabaseDumpPort databaseDumpPort) {
+        if (!streamingEnabled) {
+            return false;
+        }
+        if (!databaseDumpPort.supportsStreaming()) {
+            log.debug("Adapter {} does not support streaming, using file pipeline",
+                    databaseDumpPort.getSupportedDatabaseType());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Single-pass streaming pipeline (no temp files)
+     * Producer thread: dump stdout -> compress -> encrypt -> SHA-256/count -> pipe
+     * Calling thread:  pipe -> StoragePort.upload
+     * The pipe holds at most buffer-count buffers, so a slow upload
+     * throttles the dump instead of growing memory or disk usage.
+     */
+    private StoredArtifact runStreamingPipeline(
+            String backupId,
+            BackupCommand command,
+            DatabaseDumpPort databaseDumpPort,
+            DatabaseDumpPort.DumpConfig dumpConfig,
+            String filename,
+            EncryptionPort.EncryptionConfig encryptionConfig
+    ) throws Exception {
+        log.debug("Running streaming pipeline: backupId={}", backupId);
+
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        AtomicReference<CompressionPort.CompressionDecision> decision = new AtomicReference<>();
+
+        PipedUpload<DatabaseDumpPort.DumpOutput> upload = uploadThroughPipe(
+                filename, uploadMetadata(backupId, command), "Database dump failed", sink -> {
+                    OutputStream stages = encodeStages(checksum.wrap(sink), command, encryptionConfig, decision);
+
+                    DatabaseDumpPort.DumpOutput output = databaseDumpPort.performDump(dumpConfig, stages);
+
+                    // Closing finishes compression/encryption trailers and signals EOF to the upload
+                    stages.close();
+                    return output;
+                });
+        String storageLocation = upload.getStorageLocation();
+        DatabaseDumpPort.DumpOutput dumpOutput = upload.getResult();
+
+        log.info("Streaming pipeline completed: backupId={}, dumped={} bytes, stored={} bytes",
+                backupId, dumpOutput.getSizeBytes(), checksum.getByteCount());
+
+        return new StoredArtifact(storageLocation, checksum.finish(), checksum.getByteCount(), decision.get(),
+                tableSizeMetadata(dumpOutput));
+    }
+
+    /**
+     * Physical base backup pipeline (PostgreSQL)
+     * Producer thread: pg_basebackup tar on stdout -> compress -> encrypt -> SHA-256/count -> pipe
+     * Calling thread:  pipe -> StoragePort.upload (multipart, parts in parallel)
+     * Like the streaming pipeline nothing is staged on disk. The WAL range
+     * of the copy is recorded so a restore knows where replay starts.
+     */
+    private StoredArtifact runBaseBackupPipeline(
+            String backupId,
+            BackupCommand command,
+            String filename,
+            EncryptionPort.EncryptionConfig encryptionConfig
+    ) throws Exception {
+        if (!baseBackupPort.getSupportedDatabaseType().equalsIgnoreCase(command.getDatabaseType())) {
+            throw new BackupFailedException("Physical backups are not supported for " + command.getDatabaseType());
+        }
+        log.debug("Running base backup pipeline: backupId={}", backupId);
+
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        AtomicReference<CompressionPort.CompressionDecision> decision = new AtomicReference<>();
+        BaseBackupPort.BaseBackupConfig config = BaseBackupPort.BaseBackupConfig.builder()
+                .host(command.getHost())
+                .port(command.getPort())
+                .username(command.getUsername())
+                .password(command.getPassword())
+                .label("dbbackup " + backupId)
+                .build();
+
+        PipedUpload<BaseBackupPort.BaseBackupOutput> upload = uploadThroughPipe(
+                filename, uploadMetadata(backupId, command), "Base backup failed", sink -> {
+                    OutputStream stages = encodeStages(checksum.wrap(sink), command, encryptionConfig, decision);
+
+                    BaseBackupPort.BaseBackupOutput output = baseBackupPort.performBaseBackup(config, stages);
+
+                    stages.close();
+                    return output;
+                });
+        BaseBackupPort.BaseBackupOutput output = upload.getResult();
+
+        Map<String, String> dumpMetadata = new HashMap<>();
+        dumpMetadata.put("dump.format", "physical");
+        dumpMetadata.put("basebackup.startLsn", output.getStartLsn());
+        dumpMetadata.put("basebackup.timeline", output.getTimeline());
+        dumpMetadata.put("basebackup.walMethod", output.getWalMethod());
+        if (output.getEndLsn() != null) {
+            dumpMetadata.put("basebackup.endLsn", output.getEndLsn());
+        }
+
+        log.info("Base backup pipeline completed: backupId={}, copied={} bytes, stored={} bytes, start={}",
+                backupId, output.getSizeBytes(), checksum.getByteCount(), output.getStartLsn());
+
+        return new StoredArtifact(upload.getStorageLocation(), checksum.finish(), checksum.getByteCount(),
+                decision.get(), dumpMetadata);
+    }
+
+    /**
+     * Parallel directory-format pipeline
+     * Dump thread:    pg_dump -Fd -j N, reports each finished per-table file
+     * Upload workers: file -> compress -> encrypt -> SHA-256 -> pipe -> StoragePort.upload
+     * Table files are uploaded (and deleted locally) while other tables are
+     * still being dumped; toc.dat is reported last. Its object becomes the
+     * backup's storage location, the per-file entries go into the metadata.
+     */
+    private StoredArtifact runParallelDumpPipeline(
+            String backupId,
+            BackupCommand command,
+            DatabaseDumpPort databaseDumpPort,
+            DatabaseDumpPort.DumpConfig dumpConfig,
+            String filename,
+            EncryptionPort.EncryptionConfig encryptionConfig
+    ) throws Exception {
+        log.debug("Running parallel dump pipeline: backupId={}, jobs={}", backupId, dumpConfig.getJobs());
+
+        String directoryName = archiveBaseName(filename);
+        ExecutorService uploadExecutor = Executors.newFixedThreadPool(Math.max(1, parallelUploadConcurrency),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "backup-file-upload");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        List<Future<DumpFileEntry>> uploads = new ArrayList<>();
+        AtomicReference<Throwable> uploadFailure = new AtomicReference<>();
+
+        try {
+            DatabaseDumpPort.DumpOutput dumpOutput = databaseDumpPort.performDump(dumpConfig, (directory, file) -> {
+                // Stop dumping as soon as an upload has failed
+                Throwable failure = uploadFailure.get();
+                if (failure != null) {
+                    throw new BackupFailedException("Upload of dump file failed: " + failure.getMessage(), failure);
+                }
+                uploads.add(uploadExecutor.submit(() -> {
+                    try {
+                        return uploadDumpFile(file, directoryName, backupId, command, encryptionConfig);
+                    } catch (Exception e) {
+                        uploadFailure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }));
+            });
+            List<DumpFileEntry> entries = new ArrayList<>();
+            for (Future<DumpFileEntry> upload : uploads) {
+                try {
+                    entries.add(upload.get());
+                } catch (ExecutionException e) {
+                    throw new BackupFailedException("Upload of dump file failed: " + e.getCause().getMessage(),
+                            e.getCause());
+                }
+            }
+
+            // The table of contents is reported last
+            DumpFileEntry toc = entries.get(entries.size() - 1);
+            long storedBytes = entries.stream().mapToLong(DumpFileEntry::getSizeBytes).sum();
+
+            Map<String, String> dumpMetadata = new HashMap<>(DumpFileEntry.toMetadata(entries));
+            dumpMetadata.putAll(tableSizeMetadata(dumpOutput));
+            dumpMetadata.put("dump.format", "directory");
+            dumpMetadata.put("dump.jobs", String.valueOf(dumpConfig.getJobs()));
+            dumpMetadata.put("dump.toc", toc.getName());
+
+            log.info("Parallel dump pipeline completed: backupId={}, files={}, dumped={} bytes, stored={} bytes",
+                    backupId, entries.size(), dumpOutput.getSizeBytes(), storedBytes);
+
+            return new StoredArtifact(toc.getStorageLocation(), toc.getChecksum(), storedBytes, null, dumpMetadata);
+        } finally {
+            uploadExecutor.shutdownNow();
+            // Per-backup work dir: removes whatever is left of the dump directory after a failure
+            deleteRecursively(dumpConfig.getWorkingDirectory());
+        }
+    }
+
+    /**
+     * Native export pipeline
+     * Export workers: one shared snapshot, each worker streams its tables
+     * Per part:       COPY stdout -> compress -> encrypt -> SHA-256 -> pipe -> StoragePort.upload
+     * Nothing touches local disk; as many parts are in flight as the export
+     * has workers. The manifest is stored last and becomes the backup's
+     * storage location, the per-part entries go into the metadata.
+     */
+    private StoredArtifact runNativeExportPipeline(
+            String backupId,
+            BackupCommand command,
+            DatabaseDumpPort databaseDumpPort,
+            DatabaseDumpPort.DumpConfig dumpConfig,
+            String filename,
+            EncryptionPort.EncryptionConfig encryptionConfig
+    ) throws Exception {
+        log.debug("Running native export pipeline: backupId={}, jobs={}", backupId, dumpConfig.getJobs());
+
+        String directoryName = archiveBaseName(filename);
+        List<DumpFileEntry> entries = Collections.synchronizedList(new ArrayList<>());
+        try {
+            DatabaseDumpPort.DumpOutput dumpOutput = databaseDumpPort.performExport(dumpConfig, (name, writer) ->
+                    entries.add(uploadDumpStream(name, directoryName, backupId, command, encryptionConfig, writer)));
+
+            // The manifest is written last
+            DumpFileEntry manifest = entries.get(entries.size() - 1);
+            long storedBytes = entries.stream().mapToLong(DumpFileEntry::getSizeBytes).sum();
+
+            Map<String, String> dumpMetadata = new HashMap<>(DumpFileEntry.toMetadata(entries));
+            dumpMetadata.putAll(tableSizeMetadata(dumpOutput));
+            dumpMetadata.put("dump.format", "native");
+            dumpMetadata.put("dump.jobs", dumpOutput.getMetadata("jobs"));
+            dumpMetadata.put("dump.toc", manifest.getName());
+            // Position of the export's snapshot in the source's change log (MySQL binlog)
+            dumpOutput.getMetadata().forEach((key, value) -> {
+                if (key.startsWith("binlog.")) {
+                    dumpMetadata.put(key, value);
+                }
+            });
+
+            log.info("Native export pipeline completed: backupId={}, parts={}, exported={} bytes, stored={} bytes",
+                    backupId, entries.size(), dumpOutput.getSizeBytes(), storedBytes);
+
+            return new StoredArtifact(manifest.getStorageLocation(), manifest.getChecksum(), storedBytes, null,
+                    dumpMetadata);
+        } finally {
+            deleteRecursively(dumpConfig.getWorkingDirectory());
+        }
+    }
+
+    /**
+     * Encode one finished dump file and upload it under <directoryName>/<file name>
+     */
+    private DumpFileEntry uploadDumpFile(Path file, String directoryName, String backupId, BackupCommand command,
+                                         EncryptionPort.EncryptionConfig encryptionConfig) throws Exception {
+        DumpFileEntry entry = uploadDumpStream(file.getFileName().toString(), directoryName, backupId, command,
+                encryptionConfig, target -> Files.copy(file, target));
+
+        // Free local disk while the dump continues
+        Files.deleteIfExists(file);
+        return entry;
+    }
+
+    /**
+     * Encode what writer produces and upload it under <directoryName>/<name>
+     */
+    private DumpFileEntry uploadDumpStream(String name, String directoryName, String backupId, BackupCommand command,
+                                           EncryptionPort.EncryptionConfig encryptionConfig,
+                                           DatabaseDumpPort.StreamWriter writer) throws Exception {
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        AtomicReference<CompressionPort.CompressionDecision> decision = new AtomicReference<>();
+
+        PipedUpload<Void> upload = uploadThroughPipe(
+                directoryName + "/" + name, uploadMetadata(backupId, command), "Encoding " + name + " failed",
+                sink -> {
+                    OutputStream stages = encodeStages(checksum.wrap(sink), command, encryptionConfig, decision);
+                    writer.writeTo(stages);
+                    stages.close();
+                    return null;
+                });
+
+        // AUTO is decided per file: text-heavy tables and already-compressed blobs get different codecs
+        CompressionPort.CompressionDecision chosen = decision.get();
+        DumpFileEntry entry = DumpFileEntry.builder()
+                .name(name)
+                .storageLocation(upload.getStorageLocation())
+                .checksum(checksum.finish())
+                .sizeBytes(checksum.getByteCount())
+                .compression(chosen != null ? chosen.getType() : command.getCompression())
+                .compressionLevel(chosen != null ? chosen.getLevel() : command.getCompressionLevel())
+                .build();
+        log.debug("Uploaded dump file: backupId={}, file={}, stored={} bytes", backupId, name, entry.getSizeBytes());
+        return entry;
+    }
+
+    /**
+     * Run producer on the pipeline executor writing into a bounded pipe while
+     * the calling thread uploads what comes out of it. The pipe holds at most
+     * buffer-count buffers, so a slow upload throttles the producer.
+     */
+    private <T> PipedUpload<T> uploadThroughPipe(String filename, Map<String, String> metadata,
+                                                 String producerFailureMessage,
+                                                 PipeProducer<T> producer) throws Exception {
+        BoundedPipe pipe = new BoundedPipe(new BufferPool(streamBufferSize, streamBufferCount, false));
+
+        Future<T> producerFuture = pipelineExecutor.submit(() -> {
+            try {
+                return producer.writeTo(pipe.sink());
+            } catch (Exception | Error e) {
+                pipe.fail(e);
+                throw e;
+            }
+        });
+
+        String storageLocation;
+        InputStream source = pipe.source();
+        try {
+            storageLocation = storagePort.upload(StoragePort.UploadRequest.builder()
+                    .data(source)
+                    .filename(filename)
+                    .sizeBytes(-1) // unknown until the producer finishes
+                    .metadata(metadata)
+                    .enableMultipart(true)
+                    .build());
+        } catch (Exception e) {
+            // If the producer failed first its error is the real cause
+            Throwable producerFailure = pipe.getFailure();
+            pipe.fail(e);
+            awaitQuietly(producerFuture);
+            if (producerFailure != null) {
+                throw new BackupFailedException("Backup pipeline failed: " + producerFailure.getMessage(),
+                        producerFailure);
+            }
+            throw e;
+        } finally {
+            source.close();
+        }
+
+        try {
+            return new PipedUpload<>(storageLocation, producerFuture.get());
+        } catch (ExecutionException e) {
+            throw new BackupFailedException(producerFailureMessage, e.getCause());
+        }
+    }
+
+    /**
+     * File-based pipeline (fallback, and the resumable upload path)
+     * Each stage writes a temp file that the next stage reads. With a
+     * recorder the final file is moved to the staging directory and its
+     * location, checksum and multipart progress are saved in the backup
+     * record while the upload runs.
+     */
+    private StoredArtifact runFilePipeline(
+            String backupId,
+            BackupCommand command,
+            DatabaseDumpPort databaseDumpPort,
+            DatabaseDumpPort.DumpConfig dumpConfig,
+            String filename,
+            EncryptionPort.EncryptionConfig encryptionConfig,
+            List<Path> tempFiles,
+            UploadCheckpointRecorder recorder
+    ) throws Exception {
+        // ===== 1. DUMP DATABASE (via outbound port) =====
+        log.debug("Performing database dump: backupId={}", backupId);
+
+        // The dump goes to a fresh file, so a run that hit a lock timeout or lost its connection can simply be repeated
+        DatabaseDumpPort.DumpOutput dumpOutput = retryExecutor.execute(RetryOperation.DATABASE_DUMP,
+                () -> databaseDumpPort.performDump(dumpConfig));
+
+        Path tempDumpFile = dumpOutput.getDumpFilePath();
+        tempFiles.add(tempDumpFile);
+        log.info("Database dump completed: backupId={}, size={} bytes",
+                backupId, dumpOutput.getSizeBytes());
+
+        // ===== 2-3. COMPRESS + ENCRYPT FILE, CHECKSUM INLINE (business logic + outbound ports) =====
+        AtomicReference<CompressionPort.CompressionDecision> decision = new AtomicReference<>();
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        Path finalFile = encodeFile(tempDumpFile, command, encryptionConfig, decision, checksum);
+        tempFiles.add(finalFile);
+
+        // ===== 4-5. UPLOAD TO STORAGE (via outbound port) =====
+        log.debug("Uploading to storage: backupId={}, provider={}",
+                backupId, command.getStorageProvider());
+
+        if (recorder != null) {
+            finalFile = stageForResume(finalFile, filename, tempFiles);
+            Path stagedFile = finalFile;
+            recorder.update(current -> {
+                Backup staged = putMetadata(current, tableSizeMetadata(dumpOutput));
+                staged = putMetadata(staged, Map.of(
+                        STAGED_FILE, stagedFile.toString(),
+                        STAGED_FILENAME, filename,
+                        STAGED_SHA256, checksum.finish()));
+                // The codec must be on record before the crash, restore needs it
+                return decision.get() != null ? applyCompressionDecision(staged, decision.get()) : staged;
+            });
+        }
+
+        Map<String, String> artifactMetadata = tableSizeMetadata(dumpOutput);
+        String storageLocation = uploadToStorage(finalFile, filename, backupId, command, recorder,
+                digests -> artifactMetadata.putAll(digests.toMetadata()));
+
+        return new StoredArtifact(storageLocation, checksum.finish(), Files.size(finalFile), decision.get(),
+                artifactMetadata);
+    }
+
+    /**
+     * Deduplicating pipeline
+     * dump stdout (or dump file) -> content-defined chunks -> new chunks compressed
+     * and uploaded concurrently -> manifest uploaded as the backup artifact
+     * The backup's checksum is the manifest's; the manifest holds every
+     * chunk's SHA-256, which restore checks chunk by chunk.
+     */
+    private StoredArtifact runDedupPipeline(
+            String backupId,
+            BackupCommand command,
+            DatabaseDumpPort databaseDumpPort,
+            DatabaseDumpPort.DumpConfig dumpConfig,
+            String filename,
+            List<Path> tempFiles
+    ) throws Exception {
+        boolean concreteCodec = command.getCompression() != CompressionType.AUTO;
+        CompressionType codec = concreteCodec ? command.getCompression() : dedupCompression;
+        Integer level = concreteCodec ? command.getCompressionLevel() : null;
+        log.debug("Running dedup pipeline: backupId={}, chunk codec={}", backupId, codec);
+
+        ChunkStore.ChunkWriter writer = chunkStore.newWriter(codec, level);
+        DatabaseDumpPort.DumpOutput dumpOutput;
+        try (writer) {
+            if (databaseDumpPort.supportsStreaming()) {
+                dumpOutput = databaseDumpPort.performDump(dumpConfig, writer);
+            } else {
+                dumpOutput = retryExecutor.execute(RetryOperation.DATABASE_DUMP,
+                        () -> databaseDumpPort.performDump(dumpConfig));
+                tempFiles.add(dumpOutput.getDumpFilePath());
+                Files.copy(dumpOutput.getDumpFilePath(), writer);
+            }
+        }
+
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        try (OutputStream out = checksum.wrap(manifestBytes)) {
+            writer.getManifest().writeTo(out);
+        }
+        String manifestName = archiveBaseName(filename)
+                + MANIFEST_EXTENSION;
+        String storageLocation = storagePort.upload(StoragePort.UploadRequest.builder()
+                .data(new ByteArrayInputStream(manifestBytes.toByteArray()))
+                .filename(manifestName)
+                .sizeBytes(manifestBytes.size())
+                .metadata(uploadMetadata(backupId, command))
+                .enableMultipart(false)
+                .build());
+
+        Map<String, String> dumpMetadata = tableSizeMetadata(dumpOutput);
+        dumpMetadata.put(DEDUP_CHUNKS, String.valueOf(writer.getChunkCount()));
+        dumpMetadata.put("dedup.newChunks", String.valueOf(writer.getNewChunks()));
+        dumpMetadata.put("dedup.logicalBytes", String.valueOf(writer.getLogicalBytes()));
+        dumpMetadata.put("dedup.storedBytes", String.valueOf(writer.getStoredBytes()));
+        dumpMetadata.put("dedup.compression", codec.name());
+
+        log.info("Dedup pipeline completed: backupId={}, dumped={} bytes, chunks={} ({} new, {} reused), "
+                        + "uploaded={} bytes",
+                backupId, writer.getLogicalBytes(), writer.getChunkCount(), writer.getNewChunks(),
+                writer.getReusedChunks(), writer.getStoredBytes());
+
+        // Size is what this backup added to storage
+        return new StoredArtifact(storageLocation, checksum.finish(), manifestBytes.size() + writer.getStoredBytes(),
+                null, dumpMetadata);
+    }
+
+    private void awaitQuietly(Future<?> future) {
+        try {
+            future.get(30, TimeUnit.SECONDS);
+        } catch (Exception ignored) {
+            future.cancel(true);
         }
     }
 
@@ -186,11 +952,12 @@ public class BackupService implements BackupUseCase {
                 .status(BackupStatus.IN_PROGRESS)
                 .createdAt(startTime)
                 .compression(command.getCompression())
+                .compressionLevel(command.getCompressionLevel())
                 .encrypted(command.isEncrypt())
                 .build();
     }
 
-    private DatabaseDumpPort.DumpConfig buildDumpConfig(BackupCommand command) {
+    private DatabaseDumpPort.DumpConfig buildDumpConfig(BackupCommand command, boolean dedup) {
         return DatabaseDumpPort.DumpConfig.builder()
                 .host(command.getHost())
                 .port(command.getPort())
@@ -200,9 +967,69 @@ public class BackupService implements BackupUseCase {
                 .workingDirectory(createTempWorkDir())
                 .tables(command.getTables())
                 .additionalOptions(command.getAdditionalOptions())
+                // Tool compression would make every dump's bytes differ after the first change
+                .nativeCompressionLevel(dedup ? Integer.valueOf(0) : nativeCompressionLevel(command))
                 .build();
     }
 
+    private Integer nativeCompressionLevel(BackupCommand command) {
+        // AUTO: dump uncompressed so only the chosen codec runs (no zlib + gzip double work)
+        if (command.getCompression() == CompressionType.AUTO) {
+            return 0;
+        }
+        // Directory format: each file goes through the pipeline codec anyway
+        if (isDirectoryFormat(command) && command.getCompression() != CompressionType.NONE) {
+            return 0;
+        }
+        return null;
+    }
+
+    private boolean isDirectoryFormat(BackupCommand command) {
+        Map<String, String> options = command.getAdditionalOptions();
+        return options != null && "directory".equalsIgnoreCase(options.get(DatabaseDumpPort.OPTION_FORMAT));
+    }
+
+    /**
+     * Command with the adapter's default format when it names none (MySQL backups are native exports)
+     */
+    private BackupCommand withDefaultFormat(BackupCommand command, DatabaseDumpPort databaseDumpPort) {
+        Map<String, String> options = command.getAdditionalOptions();
+        String defaultFormat = databaseDumpPort.getDefaultFormat();
+        if ((options != null && options.get(DatabaseDumpPort.OPTION_FORMAT) != null)
+                || "custom".equals(defaultFormat)) {
+            return command;
+        }
+        Map<String, String> withFormat = new HashMap<>(options != null ? options : Map.of());
+        withFormat.put(DatabaseDumpPort.OPTION_FORMAT, defaultFormat);
+        return command.toBuilder().additionalOptions(withFormat).build();
+    }
+
+    /**
+     * Reject a format the engine cannot produce before anything is recorded as dumped
+     * Engines without a single-file dump (MySQL) back up as native exports only;
+     * custom, directory and physical would otherwise end in a dump they do not implement.
+     */
+    private void checkFormatSupported(BackupCommand command, DatabaseDumpPort databaseDumpPort) {
+        if (databaseDumpPort.supportsSingleFileDump() || isNativeFormat(command)) {
+            return;
+        }
+        Map<String, String> options = command.getAdditionalOptions();
+        String format = options != null && options.get(DatabaseDumpPort.OPTION_FORMAT) != null
+                ? options.get(DatabaseDumpPort.OPTION_FORMAT) : "custom";
+        throw new IllegalArgumentException("Format '" + format + "' is not available for "
+                + databaseDumpPort.getSupportedDatabaseType() + " backups, use --format native");
+    }
+
+    private boolean isNativeFormat(BackupCommand command) {
+        Map<String, String> options = command.getAdditionalOptions();
+        return options != null && "native".equalsIgnoreCase(options.get(DatabaseDumpPort.OPTION_FORMAT));
+    }
+
+    private boolean isPhysicalFormat(BackupCommand command) {
+        Map<String, String> options = command.getAdditionalOptions();
+        return options != null && "physical".equalsIgnoreCase(options.get(DatabaseDumpPort.OPTION_FORMAT));
+    }
+
     private Path createTempWorkDir() {
         try {
             return Files.createTempDirectory("dbbackup_");
@@ -212,85 +1039,137 @@ public class BackupService implements BackupUseCase {
     }
 
     /**
-     * Compress file based on compression type
-     * Business logic for compression
+     * Compress and encrypt the dump into the final artifact in one pass
+     * Delegates to CompressionPort (block-parallel GZIP/ZIP, ZSTD, LZ4, AUTO) and EncryptionPort.
+     * The artifact's checksum is computed from the bytes as they are written,
+     * so the upload is the only read of the finished file. A dump that needs
+     * neither stage is the artifact itself and is hashed as it is.
      */
-    private Path compressIfNeeded(Path source, CompressionType compressionType) {
-        if (compressionType == CompressionType.NONE) {
-            return source;
-        }
-
+    private Path encodeFile(Path source, BackupCommand command, EncryptionPort.EncryptionConfig encryptionConfig,
+                            AtomicReference<CompressionPort.CompressionDecision> decision,
+                            ChecksumPort.StreamingChecksum checksum) {
+        CompressionType compressionType = command.getCompression();
         try {
-            // For now, assume gzip compression
-            // In real implementation, delegate to compression utility
-            Path compressedPath = Files.createTempFile("backup_", ".tar.gz");
-
-            switch (compressionType){
-                case GZIP -> {
-                    compressedPath = Files.createTempFile("backup_", ".gz");
-                    compressGzip(source, compressedPath);
-                    break;
+            if (compressionType == CompressionType.NONE && encryptionConfig == null) {
+                try (InputStream in = checksum.wrap(Files.newInputStream(source))) {
+                    in.transferTo(OutputStream.nullOutputStream());
                 }
-                case ZIP -> {
-                    compressedPath = Files.createTempFile("backup_", ".zip");
-                    compressZip(source, compressedPath);
-                    break;
-                }
-                default ->
-                    throw new IllegalArgumentException("Unsupported compression type: " + compressionType);
+                return source;
             }
-            log.debug("Compressed file: {} -> {}", source, compressedPath);
-            return compressedPath;
+
+            Path encodedPath = Files.createTempFile("backup_",
+                    compressionType.getExtension() + (encryptionConfig != null ? ".enc" : ""));
+
+            // Closing the stages writes the codec trailer (gzip CRC, zip central directory, zstd/lz4 frame end) and the GCM tag
+            try (OutputStream out = encodeStages(checksum.wrap(Files.newOutputStream(encodedPath)), command,
+                    encryptionConfig, decision)) {
+                Files.copy(source, out);
+            }
+
+            log.debug("Encoded file: {} -> {}", source, encodedPath);
+            return encodedPath;
+        } catch (StorageException e) {
+            throw e;
         } catch (Exception e) {
-            throw new BackupFailedException("Compression failed", e);
+            throw new BackupFailedException("Compression/encryption failed", e);
+        }
+    }
+
+    /**
+     * Wrap target with encryption (if enabled) and then compression, so data is compressed before it is encrypted
+     */
+    private OutputStream encodeStages(OutputStream target, BackupCommand command,
+                                      EncryptionPort.EncryptionConfig encryptionConfig,
+                                      AtomicReference<CompressionPort.CompressionDecision> decision) {
+        OutputStream stages = target;
+        if (encryptionConfig != null) {
+            stages = encryptionPort.encrypt(stages, encryptionConfig);
         }
+        return compressStage(stages, command, decision);
     }
-    private void compressGzip(Path source, Path target) throws IOException {
-        try (OutputStream fileOut = Files.newOutputStream(target)){
-            GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut);
-            Files.copy(source, gzipOut);
+
+    private OutputStream compressStage(OutputStream target, BackupCommand command,
+                                       AtomicReference<CompressionPort.CompressionDecision> decision) {
+        if (command.getCompression() == CompressionType.AUTO) {
+            return compressionPort.compressAdaptive(target, decision::set);
         }
+        return compressionPort.compress(target, command.getCompression(), command.getCompressionLevel());
     }
-    private void compressZip(Path source, Path target) throws IOException {
-        try (OutputStream fileOut = Files.newOutputStream(target);
-             ZipOutputStream zipOut = new ZipOutputStream(fileOut)) {
 
-            // Zip cần tạo một entry (tên file bên trong file zip)
-            ZipEntry zipEntry = new ZipEntry(source.getFileName().toString());
-            zipOut.putNextEntry(zipEntry);
+    private Backup applyCompressionDecision(Backup backup, CompressionPort.CompressionDecision decision) {
+        return putMetadata(backup, decision.toMetadata()).toBuilder()
+                .compression(decision.getType())
+                .compressionLevel(decision.getLevel())
+                .build();
+    }
+
+    /**
+     * Per-table sizes reported by the dump adapter, kept so parallel restores can start with the biggest tables
+     */
+    private Map<String, String> tableSizeMetadata(DatabaseDumpPort.DumpOutput dumpOutput) {
+        Map<String, String> metadata = new HashMap<>();
+        if (dumpOutput.getTableSizes() != null) {
+            dumpOutput.getTableSizes().forEach((table, size) ->
+                    metadata.put(TABLE_SIZE_PREFIX + table, String.valueOf(size)));
+        }
+        return metadata;
+    }
 
-            Files.copy(source, zipOut);
+    private Backup removeMetadata(Backup backup, String... prefixes) {
+        if (backup.getMetadata() == null) {
+            return backup;
+        }
+        Map<String, String> metadata = new HashMap<>(backup.getMetadata());
+        metadata.keySet().removeIf(key -> Arrays.stream(prefixes).anyMatch(key::startsWith));
+        return backup.toBuilder()
+                .metadata(metadata)
+                .build();
+    }
 
-            zipOut.closeEntry();
+    private Backup putMetadata(Backup backup, Map<String, String> entries) {
+        Map<String, String> metadata = new HashMap<>();
+        if (backup.getMetadata() != null) {
+            metadata.putAll(backup.getMetadata());
         }
+        metadata.putAll(entries);
+        return backup.toBuilder()
+                .metadata(metadata)
+                .build();
     }
 
-    private EncryptionPort.EncryptionConfig buildEncryptionConfig() {
-        // In real implementation, get key from KMS/Vault
+    private EncryptionPort.EncryptionConfig buildEncryptionConfig(KeyManagementPort.DataKey dataKey) {
         return EncryptionPort.EncryptionConfig.builder()
                 .algorithm("AES-256-GCM")
-           // TODO:     .keyId("backup-encryption-key")
+                .keyId(dataKey.getKeyId())
+                .key(dataKey.getPlaintextKey())
                 .build();
     }
 
     /**
      * Upload backup file to storage
+     * The storage adapter reads the file itself (multipart parts with
+     * positional reads, in parallel). With a recorder, every multipart
+     * checkpoint is saved as soon as it is known. With delta upload, parts
+     * equal to the same part of the database's previous backup are copied
+     * from it, and the new part digests go to partDigestListener for the
+     * next backup.
      */
-    private String uploadToStorage(Path file, String backupId, BackupCommand command) {
-        try (FileInputStream fis = new FileInputStream(file.toFile())) {
-
-            String filename = generateFilename(backupId, command);
+    private String uploadToStorage(Path file, String filename, String backupId, BackupCommand command,
+                                   UploadCheckpointRecorder recorder,
+                                   Consumer<StoragePort.PartDigests> partDigestListener) {
+        boolean delta = useDeltaUpload(command);
+        StoragePort.PartDigests deltaBase = delta ? findDeltaBase(command) : null;
 
+        try {
             StoragePort.UploadRequest uploadRequest = StoragePort.UploadRequest.builder()
-                    .data(fis)
+                    .sourceFile(file)
                     .filename(filename)
                     .sizeBytes(Files.size(file))
-                    .metadata(Map.of(
-                            "backupId", backupId,
-                            "databaseType", command.getDatabaseType(),
-                            "databaseName", command.getDatabase()
-                    ))
+                    .metadata(uploadMetadata(backupId, command))
                     .enableMultipart(Files.size(file) > 100 * 1024 * 1024) // > 100MB
+                    .checkpointListener(recorder != null ? recorder::checkpoint : null)
+                    .deltaBase(deltaBase)
+                    .partDigestListener(delta ? partDigestListener : null)
                     .build();
 
             return storagePort.upload(uploadRequest);
@@ -300,11 +1179,56 @@ public class BackupService implements BackupUseCase {
         }
     }
 
+    /**
+     * Part digests of the latest completed backup of the same database, if it recorded them
+     */
+    private StoragePort.PartDigests findDeltaBase(BackupCommand command) {
+        StoragePort.PartDigests base = backupRecordPort.findByStatus(BackupStatus.COMPLETED).stream()
+                .filter(backup -> command.getDatabaseType().equals(backup.getDatabaseType())
+                        && command.getDatabase().equals(backup.getDatabaseName()))
+                .max(Comparator.comparing(Backup::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .flatMap(backup -> StoragePort.PartDigests.fromMetadata(backup.getMetadata(),
+                        backup.getStorageLocation()))
+                .orElse(null);
+        if (base == null) {
+            log.info("No delta base for {}/{}, uploading every part", command.getDatabaseType(),
+                    command.getDatabase());
+        }
+        return base;
+    }
+
+    private Map<String, String> uploadMetadata(String backupId, BackupCommand command) {
+        return uploadMetadata(backupId, command.getDatabaseType(), command.getDatabase());
+    }
+
+    private Map<String, String> uploadMetadata(String backupId, String databaseType, String databaseName) {
+        return Map.of(
+                "backupId", backupId,
+                "databaseType", databaseType,
+                "databaseName", databaseName
+        );
+    }
+
+    /**
+     * Move the final file out of the temp area, where the hourly cleanup would not wait for a restart
+     */
+    private Path stageForResume(Path file, String filename, List<Path> tempFiles) {
+        try {
+            Path stagingDirectory = Files.createDirectories(Path.of(stagingDir));
+            Path staged = Files.move(file, stagingDirectory.resolve(filename), StandardCopyOption.REPLACE_EXISTING);
+            tempFiles.add(staged);
+            return staged;
+        } catch (Exception e) {
+            throw new BackupFailedException("Failed to stage backup file for resumable upload", e);
+        }
+    }
+
     private String generateFilename(String backupId, BackupCommand command) {
-        // Format: dbbackup_postgres_mydb_20251127T120000Z_uuid.tar.gz
+        // Format: dbbackup_postgres_mydb_20251127T120000Z_uuid.tar.zst
+        // AUTO picks its codec while compressing, so its artifacts end in plain .tar; the record keeps the codec
         String timestamp = Instant.now().toString().replace(":", "").replace("-", "");
         return String.format(
-                "dbbackup_%s_%s_%s_%s.tar.gz",
+                "dbbackup_%s_%s_%s_%s" + ARCHIVE_STEM + command.getCompression().getExtension(),
                 command.getDatabaseType(),
                 command.getDatabase(),
                 timestamp,
@@ -312,6 +1236,11 @@ public class BackupService implements BackupUseCase {
         );
     }
 
+    // Artifact name without ".tar" and the codec extension, for names derived from it
+    private static String archiveBaseName(String filename) {
+        return filename.substring(0, filename.lastIndexOf(ARCHIVE_STEM));
+    }
+
     private Path saveMetadata(
             Backup backup,
             String checksum,
@@ -335,6 +1264,11 @@ public class BackupService implements BackupUseCase {
                     .sizeBytes(sizeBytes)
                     .sha256(checksum)
                     .compressAlgo(backup.getCompression().name())
+                    .compressLevel(backup.getCompressionLevel())
+                    .compressDecision(metadataWithPrefix(backup, "compression."))
+                    .encryptKeyId(metadataValue(backup, "encryption.keyId"))
+                    .encryptWrappedKey(metadataValue(backup, "encryption.wrappedKey"))
+                    .dumpLayout(metadataWithPrefix(backup, "dump."))
                     .encryptAlgo(backup.isEncrypted() ? "AES-256-GCM" : "NONE")
                     .status("COMPLETED")
                     .build();
@@ -348,18 +1282,39 @@ public class BackupService implements BackupUseCase {
         }
     }
 
-    private void uploadMetadata(Path metadataPath, String backupId) {
-        try (FileInputStream fis = new FileInputStream(metadataPath.toFile())) {
+    private String metadataValue(Backup backup, String key) {
+        return backup.getMetadata() != null ? backup.getMetadata().get(key) : null;
+    }
 
-            StoragePort.UploadRequest uploadRequest = StoragePort.UploadRequest.builder()
-                    .data(fis)
-                    .filename(backupId + ".meta.json")
-                    .sizeBytes(Files.size(metadataPath))
-                    .metadata(Map.of("type", "metadata", "backupId", backupId))
-                    .enableMultipart(false)
-                    .build();
+    private Map<String, String> metadataWithPrefix(Backup backup, String prefix) {
+        if (backup.getMetadata() == null) {
+            return null;
+        }
+        Map<String, String> matching = new HashMap<>();
+        backup.getMetadata().forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                matching.put(key, value);
+            }
+        });
+        return matching.isEmpty() ? null : matching;
+    }
 
-            storagePort.upload(uploadRequest);
+    private void uploadMetadata(Path metadataPath, String backupId) {
+        try {
+            // Each attempt reopens the file
+            retryExecutor.execute(RetryOperation.METADATA_UPLOAD, () -> {
+                try (FileInputStream fis = new FileInputStream(metadataPath.toFile())) {
+                    StoragePort.UploadRequest uploadRequest = StoragePort.UploadRequest.builder()
+                            .data(fis)
+                            .filename(backupId + ".meta.json")
+                            .sizeBytes(Files.size(metadataPath))
+                            .metadata(Map.of("type", "metadata", "backupId", backupId))
+                            .enableMultipart(false)
+                            .build();
+
+                    return storagePort.upload(uploadRequest);
+                }
+            });
 
         } catch (Exception e) {
             log.warn("Failed to upload metadata: backupId={}", backupId, e);
@@ -367,6 +1322,23 @@ public class BackupService implements BackupUseCase {
         }
     }
 
+    private void deleteRecursively(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (Exception e) {
+                    log.warn("Failed to delete temp file: {}", path, e);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to clean up temp directory: {}", directory, e);
+        }
+    }
+
     private void cleanupTempFiles(Path... files) {
         for (Path file : files) {
             if (file != null && Files.exists(file)) {
@@ -379,4 +1351,65 @@ public class BackupService implements BackupUseCase {
             }
         }
     }
+
+    /**
+     * Result of the dump → upload stages, whichever pipeline produced it
+     */
+    @lombok.Value
+    private static class StoredArtifact {
+        String storageLocation;
+        String checksum;
+        long sizeBytes;
+        CompressionPort.CompressionDecision compressionDecision; // AUTO only, null otherwise
+        Map<String, String> dumpMetadata; // table sizes; directory format: file entries and layout
+    }
+
+    /**
+     * Keeps the IN_PROGRESS record of a resumable backup current
+     * Staging details and multipart checkpoints arrive from the pipeline and
+     * part upload threads; each change is saved at once so a restarted
+     * process can continue the upload. Closed before the final state is
+     * saved, so a late checkpoint cannot overwrite it.
+     */
+    private final class UploadCheckpointRecorder {
+        private Backup current;
+        private boolean closed;
+
+        private UploadCheckpointRecorder(Backup backup) {
+            this.current = backup;
+        }
+
+        synchronized void update(UnaryOperator<Backup> change) {
+            if (closed) {
+                return;
+            }
+            current = change.apply(current);
+            try {
+                backupRecordPort.save(current);
+            } catch (Exception e) {
+                // A lost checkpoint costs re-uploaded parts on resume, not the backup
+                log.warn("Failed to save upload checkpoint: backupId={}", current.getId(), e);
+            }
+        }
+
+        void checkpoint(StoragePort.UploadCheckpoint checkpoint) {
+            update(backup -> putMetadata(backup, checkpoint.toMetadata()));
+        }
+
+        synchronized Backup close() {
+            closed = true;
+            return current;
+        }
+    }
+
+    @lombok.Value
+    private static class PipedUpload<T> {
+        String storageLocation;
+        T result;
+    }
+
+    @FunctionalInterface
+    private interface PipeProducer<T> {
+        T writeTo(OutputStream sink) throws Exception;
+    }
 }
@@ -0,0 +1,525 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.domain.exception.RestoreFailedException;
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.in.BinlogArchiveUseCase;
+import com.chibao.dbbackup_cli.domain.port.in.RestoreUseCase;
+import com.chibao.dbbackup_cli.domain.port.out.BackupRecordPort;
+import com.chibao.dbbackup_cli.domain.port.out.BinlogStreamPort;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.EncryptionPort;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import com.chibao.dbbackup_cli.domain.wal.BinlogFiles;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Binlog Archive Service
+ * Archiving: mysqlbinlog follows the server as a replica and spools its
+ * binlog files; every file the server has rotated away from is compressed,
+ * optionally encrypted and uploaded as binlog/<cluster>/<file>, then
+ * removed from the spool (the newest is kept, the follower resumes from
+ * it). Without an explicit start file the follower starts at the binlog
+ * position of the latest MySQL backup of the server, so the archive picks
+ * up exactly where that full backup ends.
+ * Restore: the archived files from a native export's binlog position
+ * onwards are fetched and replayed on the restored database up to a target
+ * time or GTID.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BinlogArchiveService implements BinlogArchiveUseCase {
+
+    private final BinlogStreamPort binlogStreamPort;
+    private final StoragePort storagePort;
+    private final CompressionPort compressionPort;
+    private final EncryptionPort encryptionPort;
+    private final KeyManagementPort keyManagementPort;
+    private final BackupRecordPort backupRecordPort;
+    private final RetryExecutor retryExecutor;
+
+    // ===== ARCHIVE SETTINGS =====
+
+    // Archive prefix: binlog/<cluster>/; one source server per prefix
+    @Value("${backup.binlog-archive.cluster:default}")
+    private String cluster;
+
+    @Value("${backup.binlog-archive.host:localhost}")
+    private String host;
+
+    @Value("${backup.binlog-archive.port:3306}")
+    private int port;
+
+    @Value("${backup.binlog-archive.username:root}")
+    private String username;
+
+    @Value("${backup.binlog-archive.password:}")
+    private String password;
+
+    // Replica server id of the follower; must differ from the source and its other replicas
+    @Value("${backup.binlog-archive.server-id:4242}")
+    private int serverId;
+
+    // First file to follow when the spool is empty; empty = latest backup's position, else the current file
+    @Value("${backup.binlog-archive.start-file:}")
+    private String startFile;
+
+    @Value("${backup.binlog-archive.spool-dir:${user.home}/.dbbackup/binlog-spool}")
+    private String spoolDir;
+
+    @Value("${backup.binlog-archive.compression:ZSTD}")
+    private CompressionType compression;
+
+    @Value("${backup.binlog-archive.encrypt:false}")
+    private boolean encrypt;
+
+    @Value("${backup.encrypt.kms.keyId:backup-encryption-key}")
+    private String encryptionKeyId;
+
+    @Value("${backup.binlog-archive.restart-backoff:PT30S}")
+    private Duration restartBackoff;
+
+    // Rotate the server's binlog when the current file has been open this long (0 = only on size)
+    @Value("${backup.binlog-archive.rotate-interval:PT15M}")
+    private Duration rotateInterval;
+
+    // ===== RESTORE SETTINGS =====
+
+    // Archived files fetched concurrently while preparing a replay
+    @Value("${restore.pitr.download-concurrency:4}")
+    private int downloadConcurrency;
+
+    // First line of every archived object: format, codec, KEK id and wrapped DEK ("-" when not encrypted)
+    private static final String HEADER = "dbbackup-binlog v1";
+    private static final String NONE = "-";
+
+    private BinlogStreamPort.BinlogFollower follower;
+    private Instant restartNotBefore = Instant.MIN;
+    private String lastArchivedFile;
+    private String currentFile;
+    private Instant currentFileSince = Instant.now();
+
+    // ===== ARCHIVING =====
+
+    @Override
+    public synchronized void superviseFollower() {
+        if (follower != null && follower.isAlive()) {
+            return;
+        }
+        if (follower != null) {
+            log.warn("mysqlbinlog exited ({}), restarting in {}", follower.describeExit(), restartBackoff);
+            follower = null;
+            restartNotBefore = Instant.now().plus(restartBackoff);
+        }
+        if (Instant.now().isBefore(restartNotBefore)) {
+            return;
+        }
+        try {
+            Path spool = Files.createDirectories(Path.of(spoolDir));
+            follower = binlogStreamPort.start(streamConfig(spool, resolveStartFile(spool)));
+        } catch (Exception e) {
+            log.error("Failed to start binlog follower, retrying in {}", restartBackoff, e);
+            restartNotBefore = Instant.now().plus(restartBackoff);
+        }
+    }
+
+    @Override
+    public synchronized int archiveCompletedFiles() {
+        Path spool = Path.of(spoolDir);
+        if (!Files.isDirectory(spool)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> entries = Files.list(spool)) {
+            files = entries.filter(file -> BinlogFiles.isBinlog(file.getFileName().toString()))
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString(), BinlogFiles.ORDER))
+                    .toList();
+        } catch (IOException e) {
+            throw new StorageException("Failed to list binlog spool " + spool, e);
+        }
+        if (files.isEmpty()) {
+            return 0;
+        }
+
+        int archived = 0;
+        // The newest file is still being written; every older one has been rotated away from
+        for (Path file : files.subList(0, files.size() - 1)) {
+            String name = file.getFileName().toString();
+            if (lastArchivedFile != null && BinlogFiles.ORDER.compare(name, lastArchivedFile) <= 0) {
+                continue;
+            }
+            upload(file);
+            lastArchivedFile = name;
+            archived++;
+        }
+        // Keep only the newest file: the follower resumes from it
+        for (Path file : files.subList(0, files.size() - 1)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to remove archived binlog file {}", file, e);
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} binlog files, latest {}", archived, lastArchivedFile);
+        }
+        rotateIfDue(files.get(files.size() - 1).getFileName().toString());
+        return archived;
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stopFollower() {
+        if (follower != null) {
+            follower.stop();
+            follower = null;
+        }
+    }
+
+    /**
+     * Bound how much committed data can be missing from the archive
+     * A quiet server rotates only when a file reaches max_binlog_size, so
+     * the open file (not archived yet) could otherwise cover hours.
+     */
+    private void rotateIfDue(String newestFile) {
+        if (!newestFile.equals(currentFile)) {
+            currentFile = newestFile;
+            currentFileSince = Instant.now();
+            return;
+        }
+        if (rotateInterval.isZero() || follower == null || !follower.isAlive()
+                || Instant.now().isBefore(currentFileSince.plus(rotateInterval))) {
+            return;
+        }
+        try {
+            binlogStreamPort.rotate(streamConfig(Path.of(spoolDir), null));
+            currentFileSince = Instant.now();
+        } catch (RuntimeException e) {
+            log.warn("Failed to rotate binlog {} (open for more than {})", newestFile, rotateInterval, e);
+        }
+    }
+
+    /**
+     * Newest spooled file, else the configured start file, else the latest backup's binlog position
+     */
+    private String resolveStartFile(Path spool) throws IOException {
+        try (Stream<Path> entries = Files.list(spool)) {
+            String newest = entries.map(file -> file.getFileName().toString())
+                    .filter(BinlogFiles::isBinlog)
+                    .max(BinlogFiles.ORDER)
+                    .orElse(null);
+            if (newest != null) {
+                return newest;
+            }
+        }
+        if (!startFile.isBlank()) {
+            return startFile;
+        }
+        return backupRecordPort.findByStatus(BackupStatus.COMPLETED).stream()
+                .filter(backup -> "mysql".equalsIgnoreCase(backup.getDatabaseType()))
+                .filter(backup -> host.equalsIgnoreCase(backup.getHost()) && port == backup.getPort())
+                .filter(backup -> backup.getMetadata() != null && backup.getMetadata().containsKey("binlog.file"))
+                .max(Comparator.comparing(Backup::getCreatedAt))
+                .map(backup -> {
+                    log.info("Following binlog from backup {} at {}:{}", backup.getId(),
+                            backup.getMetadata().get("binlog.file"), backup.getMetadata().get("binlog.position"));
+                    return backup.getMetadata().get("binlog.file");
+                })
+                .orElse(null);
+    }
+
+    private BinlogStreamPort.BinlogStreamConfig streamConfig(Path spool, String fromFile) {
+        return BinlogStreamPort.BinlogStreamConfig.builder()
+                .host(host)
+                .port(port)
+                .username(username)
+                .password(password)
+                .serverId(serverId)
+                .startFile(fromFile)
+                .directory(spool)
+                .build();
+    }
+
+    /**
+     * Encode a binlog file next to it in the spool and upload that; binlog
+     * files grow to max_binlog_size, too large to hold in memory like WAL
+     */
+    private void upload(Path file) {
+        String binlogFile = file.getFileName().toString();
+        Path encoded = file.resolveSibling(binlogFile + ".upload");
+        try {
+            try (OutputStream stored = Files.newOutputStream(encoded)) {
+                OutputStream target = stored;
+                if (encrypt) {
+                    // Envelope encryption as for backups; the wrapped DEK travels in the object header
+                    KeyManagementPort.DataKey dataKey = keyManagementPort.generateDataKey(encryptionKeyId);
+                    writeHeader(stored, dataKey.getKeyId(), Base64.getEncoder().encodeToString(dataKey.getWrappedKey()));
+                    target = encryptionPort.encrypt(stored, EncryptionPort.EncryptionConfig.builder()
+                            .algorithm("AES-256-GCM")
+                            .keyId(dataKey.getKeyId())
+                            .key(dataKey.getPlaintextKey())
+                            .build());
+                } else {
+                    writeHeader(stored, NONE, NONE);
+                }
+                try (OutputStream out = compressionPort.compress(target, compression)) {
+                    Files.copy(file, out);
+                }
+            }
+            long size = Files.size(encoded);
+            retryExecutor.execute(RetryOperation.WAL_UPLOAD, () -> storagePort.upload(StoragePort.UploadRequest.builder()
+                    .sourceFile(encoded)
+                    .filename(archiveFilename(binlogFile))
+                    .sizeBytes(size)
+                    .enableMultipart(true)
+                    .metadata(Map.of("binlog-cluster", cluster, "binlog-file", binlogFile))
+                    .build()));
+            log.debug("Archived binlog file {}: {} -> {} bytes", binlogFile, Files.size(file), size);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException("Failed to archive binlog file " + binlogFile, e);
+        } finally {
+            try {
+                Files.deleteIfExists(encoded);
+            } catch (IOException e) {
+                log.warn("Failed to remove {}", encoded, e);
+            }
+        }
+    }
+
+    private void writeHeader(OutputStream out, String keyId, String wrappedKey) throws IOException {
+        out.write(String.join("\t", HEADER, compression.name(), keyId, wrappedKey).concat("\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The codec is in the header, so the name does not depend on the configured compression
+    private String archiveFilename(String binlogFile) {
+        return "binlog/" + cluster + "/" + binlogFile;
+    }
+
+    // ===== RESTORE =====
+
+    /**
+     * Roll a restored native export forward to the command's target
+     * Archived files from the export's binlog position onwards are fetched
+     * until the first one missing from the archive and replayed on the
+     * target database: only the backed-up database's changes, stopping at
+     * the end of the target second or after the target GTID. A GTID target
+     * uuid:N applies that server's transactions 1..N only. Changes still in
+     * the follower's open file are not in the archive yet.
+     */
+    public BinlogReplay replay(Backup backup, RestoreUseCase.RestoreCommand command) {
+        Map<String, String> metadata = backup.getMetadata() != null ? backup.getMetadata() : Map.of();
+        String firstFile = metadata.get("binlog.file");
+        if (firstFile == null || metadata.get("binlog.position") == null) {
+            throw new RestoreFailedException("Backup " + backup.getId() + " has no binlog position; only native "
+                    + "MySQL exports taken with binary logging on can be rolled forward");
+        }
+        if (command.getRecoveryTargetTime() == null && command.getRecoveryTargetGtid() == null) {
+            throw new RestoreFailedException("Binlog replay needs a target time or GTID");
+        }
+        if (command.getTables() != null && !command.getTables().isEmpty()) {
+            // mysqlbinlog filters by database only: replay would apply every table's changes
+            throw new RestoreFailedException("Binlog replay applies changes to all tables of "
+                    + backup.getDatabaseName() + "; it cannot be combined with a table subset");
+        }
+        Path directory = null;
+        try {
+            directory = Files.createTempDirectory("binlog_replay_");
+            List<String> fetched = fetchFilesFrom(firstFile, directory);
+            if (fetched.isEmpty()) {
+                throw new RestoreFailedException("Archive binlog/" + cluster + "/ has no binlog from " + firstFile
+                        + ", backup " + backup.getId() + " cannot be rolled forward");
+            }
+            Path files = directory;
+            binlogStreamPort.replay(BinlogStreamPort.BinlogReplayConfig.builder()
+                    .files(fetched.stream().map(files::resolve).toList())
+                    .startPosition(Long.parseLong(metadata.get("binlog.position")))
+                    .stopTime(command.getRecoveryTargetTime())
+                    .includeGtids(command.getRecoveryTargetGtid() != null
+                            ? BinlogFiles.upTo(command.getRecoveryTargetGtid()) : null)
+                    .sourceDatabase(backup.getDatabaseName())
+                    .targetHost(command.getTargetHost())
+                    .targetPort(command.getTargetPort())
+                    .targetDatabase(command.getTargetDatabase())
+                    .username(command.getUsername())
+                    .password(command.getPassword())
+                    .build());
+
+            log.info("Replayed {} binlog files ({} .. {}) onto {}", fetched.size(), fetched.get(0),
+                    fetched.get(fetched.size() - 1), command.getTargetDatabase());
+            return new BinlogReplay(fetched.size(), fetched.get(0), fetched.get(fetched.size() - 1));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RestoreFailedException("Failed to replay binlog onto " + command.getTargetDatabase(), e);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Fetch consecutive files in batches until one is not in the archive
+     */
+    private List<String> fetchFilesFrom(String firstFile, Path directory) throws IOException {
+        List<String> fetched = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, downloadConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "binlog-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String next = firstFile;
+            while (true) {
+                List<String> batch = new ArrayList<>();
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < Math.max(1, downloadConcurrency); i++) {
+                    String file = next;
+                    batch.add(file);
+                    results.add(executor.submit(() -> fetch(file, directory)));
+                    next = BinlogFiles.next(next);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!results.get(i).get()) {
+                        // Anything fetched past a gap must not be replayed
+                        results.forEach(result -> result.cancel(true));
+                        for (String unused : batch.subList(i + 1, batch.size())) {
+                            Files.deleteIfExists(directory.resolve(unused));
+                        }
+                        return fetched;
+                    }
+                    fetched.add(batch.get(i));
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RestoreFailedException("Failed to fetch archived binlog: " + e.getCause().getMessage(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestoreFailedException("Interrupted while fetching archived binlog", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Download and decode one archived binlog file; false if the archive does not have it
+     */
+    private boolean fetch(String binlogFile, Path directory) throws Exception {
+        String identifier = storagePort.locate(archiveFilename(binlogFile));
+        return retryExecutor.execute(RetryOperation.WAL_DOWNLOAD, () -> {
+            if (!storagePort.exists(identifier)) {
+                return false;
+            }
+            Path target = directory.resolve(binlogFile);
+            Path partial = directory.resolve(binlogFile + ".partial");
+            try (InputStream in = decode(storagePort.download(identifier), binlogFile)) {
+                Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        });
+    }
+
+    private InputStream decode(InputStream stored, String binlogFile) throws IOException {
+        String[] header = readHeader(stored).split("\t", -1);
+        if (header.length != 4 || !header[0].equals(HEADER) || !isCodec(header[1])) {
+            stored.close();
+            throw new RestoreFailedException("Archived binlog " + binlogFile + " has no dbbackup header");
+        }
+        CompressionType codec = CompressionType.valueOf(header[1]);
+        String keyId = header[2];
+        String wrappedKey = header[3];
+        InputStream decoded = stored;
+        if (!NONE.equals(keyId)) {
+            byte[] dataKey = keyManagementPort.unwrapDataKey(keyId, Base64.getDecoder().decode(wrappedKey));
+            try {
+                decoded = encryptionPort.decrypt(decoded, EncryptionPort.EncryptionConfig.builder()
+                        .algorithm("AES-256-GCM")
+                        .keyId(keyId)
+                        .key(dataKey)
+                        .build());
+            } finally {
+                Arrays.fill(dataKey, (byte) 0); // the cipher holds its own copy
+            }
+        }
+        return compressionPort.decompress(decoded, codec);
+    }
+
+    private static boolean isCodec(String name) {
+        return Arrays.stream(CompressionType.values()).anyMatch(type -> type != CompressionType.AUTO
+                && type.name().equals(name));
+    }
+
+    private String readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+            if (line.size() > 4096) {
+                break;
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private void deleteRecursively(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to clean up binlog replay directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Binlog replayed by a restore
+     */
+    @lombok.Value
+    public static class BinlogReplay {
+        int fileCount;
+        String firstFile;
+        String lastFile;
+    }
+}
@@ -1,19 +1,41 @@
 package com.chibao.dbbackup_cli.domain.service;
 
 import com.chibao.dbbackup_cli.config.DatabaseDumpFactory;
+import com.chibao.dbbackup_cli.domain.dedup.ChunkManifest;
+import com.chibao.dbbackup_cli.domain.dedup.ChunkStore;
 import com.chibao.dbbackup_cli.domain.exception.RestoreFailedException;
 import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.model.DumpFileEntry;
+import com.chibao.dbbackup_cli.domain.pipeline.HoldbackInputStream;
 import com.chibao.dbbackup_cli.domain.port.in.RestoreUseCase;
 import com.chibao.dbbackup_cli.domain.port.out.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -24,68 +46,154 @@ public class RestoreService implements RestoreUseCase {
     private final StoragePort storagePort;
     private final ChecksumPort checksumPort;
     private final DatabaseDumpFactory databaseDumpFactory;
-    // private final EncryptionPort encryptionPort; // Assuming it exists and will be used
+    private final CompressionPort compressionPort;
+    private final EncryptionPort encryptionPort;
+    private final KeyManagementPort keyManagementPort;
+    private final ChunkStore chunkStore;
+    private final WalArchiveService walArchiveService;
+    private final BinlogArchiveService binlogArchiveService;
+    private final BaseBackupPort baseBackupPort;
 
+    // ===== STREAMING RESTORE SETTINGS =====
+
+    @Value("${restore.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    // Archive bytes withheld from the restore tool until the checksum has been verified
+    @Value("${restore.streaming.holdback-bytes:1048576}")
+    private int holdbackBytes;
+
+    // pg_restore workers when the request does not say (directory backups default to their dump jobs)
+    @Value("${restore.jobs:1}")
+    private int defaultJobs;
+
+    // Files of a directory-format backup fetched and decoded concurrently
+    @Value("${restore.directory.download-concurrency:4}")
+    private int directoryDownloadConcurrency;
+
+    // Writer threads laying out a base backup (when the request does not say)
+    @Value("${restore.basebackup.jobs:4}")
+    private int baseBackupJobs;
+
+    /**
+     * Restore flow:
+     * 1. Find backup record
+     * 2-5. Download, verify checksum, decrypt, decompress - either streamed
+     *      straight into the restore tool (default, when the adapter supports
+     *      it) or through temp files
+     * 6. Restore
+     * 7. Cleanup temp files
+     * Base backups are laid out as a data directory instead of being
+     * restored into a database (see runBaseBackupRestore); with a recovery
+     * target, archived WAL is set up for replay on top (runPointInTimeRecovery).
+     * A MySQL native export restored with a target time or GTID is rolled
+     * forward from the archived binlog afterwards.
+     */
     @Override
     public RestoreResult execute(RestoreCommand command) {
         log.info("Starting restore for backupId: {}", command.getBackupId());
         Instant startTime = Instant.now();
         Path downloadedFile = null;
+        Path decompressedFile = null;
+        Path dumpDirectory = null;
 
         try {
+            if (command.isPointInTime() && !command.isBinlogReplay()) {
+                return runPointInTimeRecovery(command, startTime);
+            }
+
             // 1. Find backup metadata from database
             Backup backup = backupRecordPort.findById(command.getBackupId())
                     .orElseThrow(() -> new RestoreFailedException("Backup with ID '" + command.getBackupId() + "' not found."));
 
             log.debug("Found backup record: {}", backup);
 
-            // 2. Download backup file from storage
-            log.info("Downloading backup file from storage location: {}", backup.getStorageLocation());
-            try (InputStream backupStream = storagePort.download(backup.getStorageLocation())) {
-                downloadedFile = Files.createTempFile("restore_", backup.getStorageLocation());
-                Files.copy(backupStream, downloadedFile, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            if (command.isBinlogReplay() && !hasBinlogPosition(backup)) {
+                // Checked up front: the restore alone would not reach the requested point
+                throw new RestoreFailedException("Backup " + backup.getId() + " has no binlog position to roll "
+                        + "forward from; point-in-time restore needs a native MySQL export or, for PostgreSQL, "
+                        + "a base backup and a data directory");
+            }
+            if (command.isBinlogReplay() && command.getTables() != null && !command.getTables().isEmpty()) {
+                throw new RestoreFailedException("Binlog replay applies changes to all tables of "
+                        + backup.getDatabaseName() + "; it cannot be combined with a table subset");
             }
-            log.info("Download complete. File saved to temporary path: {}", downloadedFile);
 
-            // 3. Verify checksum
-            log.info("Verifying checksum...");
-            boolean checksumVerified = checksumPort.verify(downloadedFile, backup.getChecksum());
-            if (!checksumVerified) {
-                throw new RestoreFailedException("Checksum verification failed. The backup file may be corrupt.");
+            if (isBaseBackup(backup)) {
+                return runBaseBackupRestore(backup, command, startTime);
             }
-            log.info("Checksum verification successful.");
-
-            // 4. Decrypt file (if encrypted)
-            // Path fileToRestore = downloadedFile;
-            // if (backup.isEncrypted()) {
-            //     log.info("Decrypting backup file...");
-            //     fileToRestore = encryptionPort.decrypt(downloadedFile);
-            //     log.info("Decryption complete.");
-            // }
-
-            // 5. Get correct DB adapter and perform restore
-            log.info("Performing restore to target database: {}", command.getTargetDatabase());
+
             DatabaseDumpPort databaseDumpPort = databaseDumpFactory.getAdapter(backup.getDatabaseType());
+            int jobs = resolveJobs(command, backup);
 
-            DatabaseDumpPort.RestoreInput restoreInput = DatabaseDumpPort.RestoreInput.builder()
-                    .dumpFilePath(downloadedFile) // Use 'fileToRestore' if decryption is implemented
-                    .targetHost(command.getTargetHost())
-                    .targetPort(command.getTargetPort())
-                    .targetDatabase(command.getTargetDatabase())
-                    .username(command.getUsername())
-                    .password(command.getPassword())
-                    .tables(command.getTables())
-                    .build();
+            DatabaseDumpPort.RestoreOutput restoreOutput;
+            if (isDirectoryFormat(backup)) {
+                dumpDirectory = Files.createTempDirectory("restore_");
+                restoreOutput = runDirectoryRestore(backup, command, databaseDumpPort, dumpDirectory, jobs);
+            } else if (isDeduplicated(backup)) {
+                decompressedFile = useStreamingRestore(databaseDumpPort, jobs) ? null
+                        : Files.createTempFile("restore_", ".dump");
+                restoreOutput = runDedupRestore(backup, command, databaseDumpPort, decompressedFile, jobs);
+            } else if (useStreamingRestore(databaseDumpPort, jobs)) {
+                restoreOutput = runStreamingRestore(backup, command, databaseDumpPort);
+            } else {
+                // 2. Download backup file from storage (the adapter may write ranges in parallel),
+                //    then checksum it in one sequential pass, mostly from page cache
+                log.info("Downloading backup file from storage location: {}", backup.getStorageLocation());
+                downloadedFile = Files.createTempFile("restore_", ".download");
+                storagePort.downloadTo(backup.getStorageLocation(), downloadedFile);
+                ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+                try (InputStream downloaded = checksum.wrap(Files.newInputStream(downloadedFile))) {
+                    downloaded.transferTo(OutputStream.nullOutputStream());
+                }
+                log.info("Download complete. File saved to temporary path: {}", downloadedFile);
 
-            databaseDumpPort.performRestore(restoreInput);
+                // 3. Verify checksum
+                verifyChecksum(backup, checksum);
+                log.info("Checksum verification successful ({} bytes).", checksum.getByteCount());
+
+                // 4-5. Decrypt (if encrypted) and decompress (if compressed) in one pass
+                Path fileToRestore = downloadedFile;
+                if (needsDecoding(backup)) {
+                    log.info("Decoding backup file (encrypted={}, compression={})...",
+                            backup.isEncrypted(), backup.getCompression());
+                    decompressedFile = Files.createTempFile("restore_", ".dump");
+                    try (InputStream decoded = decode(Files.newInputStream(downloadedFile), backup)) {
+                        Files.copy(decoded, decompressedFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    fileToRestore = decompressedFile;
+                    log.info("Decoding complete.");
+                }
+
+                // 6. Perform restore
+                log.info("Performing restore to target database: {} (jobs={})", command.getTargetDatabase(), jobs);
+                restoreOutput = databaseDumpPort.performRestore(
+                        buildRestoreInput(command, backup, fileToRestore, false, jobs));
+            }
             log.info("Database restore completed successfully.");
 
+            Map<String, Long> phaseTimings = restoreOutput == null || restoreOutput.getPhaseTimings() == null
+                    ? Map.of() : restoreOutput.getPhaseTimings();
+            String message = "Restore completed successfully.";
+            if (command.isBinlogReplay()) {
+                long replayStarted = System.nanoTime();
+                BinlogArchiveService.BinlogReplay replay = binlogArchiveService.replay(backup, command);
+                phaseTimings = new LinkedHashMap<>(phaseTimings);
+                phaseTimings.put("binlog-replay", (System.nanoTime() - replayStarted) / 1_000_000);
+                message = String.format("Restore completed; replayed %d binlog files (%s .. %s) up to %s.",
+                        replay.getFileCount(), replay.getFirstFile(), replay.getLastFile(),
+                        command.getRecoveryTargetTime() != null ? command.getRecoveryTargetTime()
+                                : command.getRecoveryTargetGtid());
+            }
+
             long durationMs = Duration.between(startTime, Instant.now()).toMillis();
             return RestoreResult.builder()
                     .backupId(command.getBackupId())
                     .success(true)
-                    .message("Restore completed successfully.")
+                    .message(message)
                     .durationMs(durationMs)
+                    .tableTimings(toTableTimings(restoreOutput))
+                    .phaseTimings(phaseTimings)
                     .build();
 
         } catch (Exception e) {
@@ -96,17 +204,427 @@ public class RestoreService implements RestoreUseCase {
                     .success(false)
                     .message("Restore failed: " + e.getMessage())
                     .durationMs(durationMs)
+                    .tableTimings(List.of())
                     .build();
         } finally {
-            // 6. Cleanup temporary files
-            if (downloadedFile != null) {
+            // 7. Cleanup temporary files
+            deleteQuietly(downloadedFile);
+            deleteQuietly(decompressedFile);
+            deleteRecursively(dumpDirectory);
+        }
+    }
+
+    // ===== PIPELINES =====
+
+    /**
+     * Base backup restore
+     * The tar stream is decoded on the fly and laid out in dataDirectory by
+     * parallel writers; the checksum is verified once the whole object has
+     * been read, and the directory removed again if it does not match.
+     * Starting PostgreSQL on the directory replays the WAL that was copied
+     * with the backup and brings it to a consistent state.
+     */
+    private RestoreResult runBaseBackupRestore(Backup backup, RestoreCommand command, Instant startTime)
+            throws IOException {
+        if ("none".equals(walMethod(backup))) {
+            throw new RestoreFailedException("Base backup " + backup.getId() + " holds no WAL; recover it with a "
+                    + "target time or LSN so the archived WAL is fetched");
+        }
+        BaseBackupPort.LayoutOutput layout = layOutBaseBackup(backup, command);
+
+        return RestoreResult.builder()
+                .backupId(command.getBackupId())
+                .success(true)
+                .message(String.format("Base backup laid out in %s (%d files, %d bytes). Start PostgreSQL on it "
+                        + "to replay the WAL up to %s.", command.getDataDirectory(), layout.getFiles(),
+                        layout.getBytes(), backup.getMetadata().getOrDefault("basebackup.endLsn", "the backup end")))
+                .durationMs(Duration.between(startTime, Instant.now()).toMillis())
+                .tableTimings(List.of())
+                .build();
+    }
+
+    private BaseBackupPort.LayoutOutput layOutBaseBackup(Backup backup, RestoreCommand command) throws IOException {
+        if (command.getDataDirectory() == null) {
+            throw new RestoreFailedException("Restoring base backup " + backup.getId() + " needs a data directory");
+        }
+        Path dataDirectory = Path.of(command.getDataDirectory());
+        if (Files.exists(dataDirectory)) {
+            try (Stream<Path> entries = Files.list(dataDirectory)) {
+                if (entries.findAny().isPresent()) {
+                    throw new RestoreFailedException("Data directory is not empty: " + dataDirectory);
+                }
+            }
+        }
+        int jobs = command.getJobs() != null ? Math.max(1, command.getJobs()) : Math.max(1, baseBackupJobs);
+        log.info("Restoring base backup from storage location: {} into {} (jobs={})",
+                backup.getStorageLocation(), dataDirectory, jobs);
+
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        try {
+            BaseBackupPort.LayoutOutput layout;
+            InputStream raw = checksum.wrap(storagePort.download(backup.getStorageLocation()));
+            try (InputStream decoded = decode(raw, backup)) {
+                layout = baseBackupPort.layOut(decoded, dataDirectory, jobs);
+                // Codecs may stop before the end of the object (trailing padding/frames): hash the rest too
+                raw.transferTo(OutputStream.nullOutputStream());
+            } finally {
+                raw.close();
+            }
+            verifyChecksum(backup, checksum);
+            log.info("Checksum verification successful ({} bytes).", checksum.getByteCount());
+            return layout;
+        } catch (IOException | RuntimeException e) {
+            // A partial or unverified cluster must not be started by mistake
+            deleteRecursively(dataDirectory);
+            throw e;
+        }
+    }
+
+    private boolean hasBinlogPosition(Backup backup) {
+        return backup.getMetadata() != null && backup.getMetadata().containsKey("binlog.file");
+    }
+
+    private boolean isBaseBackup(Backup backup) {
+        return backup.getMetadata() != null && "physical".equals(backup.getMetadata().get("dump.format"));
+    }
+
+    private String walMethod(Backup backup) {
+        return backup.getMetadata().getOrDefault("basebackup.walMethod", "fetch");
+    }
+
+    /**
+     * Point-in-time recovery
+     * WAL replay needs a physical copy of the cluster: with a backup id the
+     * base backup is laid out in dataDirectory first, otherwise it must
+     * already be there. The archived WAL it needs is fetched and PostgreSQL
+     * configured to replay it up to the target; recovery runs when the
+     * server is started on that directory.
+     */
+    private RestoreResult runPointInTimeRecovery(RestoreCommand command, Instant startTime) throws IOException {
+        if (command.getDataDirectory() == null) {
+            throw new RestoreFailedException("Point-in-time recovery needs the data directory of a base backup");
+        }
+        if (command.getBackupId() != null) {
+            Backup backup = backupRecordPort.findById(command.getBackupId())
+                    .orElseThrow(() -> new RestoreFailedException("Backup with ID '" + command.getBackupId() + "' not found."));
+            if (!isBaseBackup(backup)) {
+                throw new RestoreFailedException("WAL cannot be replayed on a logical dump; backup "
+                        + command.getBackupId() + " is not a base backup");
+            }
+            layOutBaseBackup(backup, command);
+        }
+        WalArchiveService.RecoveryPreparation recovery = walArchiveService.prepareRecovery(
+                Path.of(command.getDataDirectory()), command.getRecoveryTargetTime(), command.getRecoveryTargetLsn());
+
+        return RestoreResult.builder()
+                .backupId(command.getBackupId())
+                .success(true)
+                .message(String.format("Recovery prepared: %d WAL segments (%s .. %s). Start PostgreSQL on %s "
+                                + "to replay up to %s.", recovery.getSegmentCount(), recovery.getFirstSegment(),
+                        recovery.getLastSegment(), command.getDataDirectory(),
+                        command.getRecoveryTargetTime() != null ? command.getRecoveryTargetTime()
+                                : command.getRecoveryTargetLsn()))
+                .durationMs(Duration.between(startTime, Instant.now()).toMillis())
+                .tableTimings(List.of())
+                .build();
+    }
+
+    private boolean useStreamingRestore(DatabaseDumpPort databaseDumpPort, int jobs) {
+        if (!streamingEnabled) {
+            return false;
+        }
+        if (jobs > 1) {
+            log.debug("Parallel restore (jobs={}) needs a seekable archive, using temp files", jobs);
+            return false;
+        }
+        if (!databaseDumpPort.supportsStreamingRestore()) {
+            log.debug("Adapter {} does not support streaming restore, using temp files",
+                    databaseDumpPort.getSupportedDatabaseType());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Streaming restore (no temp files)
+     * download -> SHA-256 -> decrypt -> decompress -> holdback -> restore tool stdin
+     * The restore runs in a single transaction and the last holdback-bytes
+     * of the archive are only released once the checksum of the complete
+     * download matches. On a mismatch the tool is killed while waiting for
+     * them, so nothing is committed.
+     */
+    private DatabaseDumpPort.RestoreOutput runStreamingRestore(Backup backup, RestoreCommand command,
+                                                               DatabaseDumpPort databaseDumpPort) throws IOException {
+        log.info("Streaming restore from storage location: {} into database: {}",
+                backup.getStorageLocation(), command.getTargetDatabase());
+
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        InputStream raw = checksum.wrap(storagePort.download(backup.getStorageLocation()));
+
+        InputStream decoded;
+        try {
+            decoded = decode(raw, backup);
+        } catch (RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+
+        try (InputStream archive = new HoldbackInputStream(decoded, holdbackBytes, () -> {
+            // Codecs may stop before the end of the object (trailing padding/frames): hash the rest too
+            raw.transferTo(OutputStream.nullOutputStream());
+            try {
+                verifyChecksum(backup, checksum);
+            } catch (RestoreFailedException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            log.info("Checksum verification successful ({} bytes), releasing archive tail.",
+                    checksum.getByteCount());
+        })) {
+            return databaseDumpPort.performRestore(buildRestoreInput(command, backup, null, true, 0), archive);
+        }
+    }
+
+    /**
+     * Directory-format restore (pg_dump -Fd backups)
+     * Every file listed in the backup metadata is downloaded, verified and
+     * decoded into a local dump directory - several at a time - then the
+     * restore tool runs on the directory with parallel workers.
+     */
+    private DatabaseDumpPort.RestoreOutput runDirectoryRestore(Backup backup, RestoreCommand command,
+                                                               DatabaseDumpPort databaseDumpPort,
+                                                               Path dumpDirectory, int jobs) throws Exception {
+        List<DumpFileEntry> entries = DumpFileEntry.fromMetadata(backup.getMetadata());
+        if (entries.isEmpty()) {
+            throw new RestoreFailedException("Directory-format backup has no file entries in its metadata");
+        }
+        log.info("Downloading {} dump files into {}", entries.size(), dumpDirectory);
+
+        ExecutorService downloadExecutor = Executors.newFixedThreadPool(Math.max(1, directoryDownloadConcurrency));
+        try {
+            List<Future<?>> downloads = new ArrayList<>();
+            for (DumpFileEntry entry : entries) {
+                downloads.add(downloadExecutor.submit(() -> {
+                    downloadDumpFile(backup, entry, dumpDirectory);
+                    return null;
+                }));
+            }
+            for (Future<?> download : downloads) {
                 try {
-                    Files.delete(downloadedFile);
-                    log.debug("Cleaned up temporary file: {}", downloadedFile);
-                } catch (Exception e) {
-                    log.warn("Failed to delete temporary file: {}", downloadedFile, e);
+                    download.get();
+                } catch (ExecutionException e) {
+                    throw new RestoreFailedException("Download of dump file failed: " + e.getCause().getMessage(),
+                            e.getCause());
+                }
+            }
+        } finally {
+            downloadExecutor.shutdownNow();
+        }
+        log.info("All dump files downloaded and verified.");
+
+        log.info("Performing restore to target database: {} (jobs={})", command.getTargetDatabase(), jobs);
+        return databaseDumpPort.performRestore(buildRestoreInput(command, backup, dumpDirectory, false, jobs));
+    }
+
+    /**
+     * Restore of a deduplicated backup
+     * The manifest (the stored artifact) is downloaded and checked against
+     * the backup checksum first; the dump is then reassembled from its
+     * chunks, fetched in parallel and each verified against its hash before
+     * any of its bytes reach the restore tool. Streamed into the tool when
+     * possible, otherwise written to dumpFile first.
+     */
+    private DatabaseDumpPort.RestoreOutput runDedupRestore(Backup backup, RestoreCommand command,
+                                                           DatabaseDumpPort databaseDumpPort, Path dumpFile,
+                                                           int jobs) throws IOException {
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        ChunkManifest manifest;
+        try (InputStream raw = checksum.wrap(storagePort.download(backup.getStorageLocation()))) {
+            manifest = ChunkManifest.readFrom(raw);
+            raw.transferTo(OutputStream.nullOutputStream());
+        }
+        verifyChecksum(backup, checksum);
+        log.info("Manifest verified: {} chunks, {} bytes to reassemble", manifest.getChunks().size(),
+                manifest.totalLength());
+
+        try (InputStream dump = chunkStore.openReader(manifest)) {
+            if (dumpFile == null) {
+                // A chunk that cannot be fetched fails the single transaction, nothing is committed
+                return databaseDumpPort.performRestore(buildRestoreInput(command, backup, null, true, 0), dump);
+            }
+            Files.copy(dump, dumpFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("Performing restore to target database: {} (jobs={})", command.getTargetDatabase(), jobs);
+        return databaseDumpPort.performRestore(buildRestoreInput(command, backup, dumpFile, false, jobs));
+    }
+
+    private void downloadDumpFile(Backup backup, DumpFileEntry entry, Path dumpDirectory) throws IOException {
+        Path target = dumpDirectory.resolve(entry.getName()).normalize();
+        if (!target.startsWith(dumpDirectory)) {
+            throw new RestoreFailedException("Invalid dump file name: " + entry.getName());
+        }
+
+        ChecksumPort.StreamingChecksum checksum = checksumPort.newStreamingChecksum();
+        Backup fileBackup = backup.toBuilder()
+                .compression(entry.getCompression())
+                .compressionLevel(entry.getCompressionLevel())
+                .build();
+
+        try (InputStream raw = checksum.wrap(storagePort.download(entry.getStorageLocation()));
+             InputStream decoded = decode(raw, fileBackup)) {
+            Files.copy(decoded, target, StandardCopyOption.REPLACE_EXISTING);
+            raw.transferTo(OutputStream.nullOutputStream()); // codecs may stop before the end of the object
+        }
+
+        String actualChecksum = checksum.finish();
+        if (!actualChecksum.equalsIgnoreCase(entry.getChecksum())) {
+            log.error("Checksum verification FAILED for {}: expected={}, actual={}",
+                    entry.getName(), entry.getChecksum(), actualChecksum);
+            throw new RestoreFailedException("Checksum verification failed for dump file " + entry.getName());
+        }
+        log.debug("Downloaded dump file: {} ({} bytes stored)", entry.getName(), checksum.getByteCount());
+    }
+
+    // ===== PRIVATE HELPER METHODS =====
+
+    /**
+     * Backups stored as several files (pg_dump -Fd, native export), restored from a local directory
+     */
+    private boolean isDirectoryFormat(Backup backup) {
+        if (backup.getMetadata() == null) {
+            return false;
+        }
+        String format = backup.getMetadata().get("dump.format");
+        return "directory".equals(format) || "native".equals(format);
+    }
+
+    private boolean isDeduplicated(Backup backup) {
+        return backup.getMetadata() != null && backup.getMetadata().containsKey(BackupService.DEDUP_CHUNKS);
+    }
+
+    private int resolveJobs(RestoreCommand command, Backup backup) {
+        if (command.getJobs() != null) {
+            return Math.max(1, command.getJobs());
+        }
+        if (isDirectoryFormat(backup)) {
+            return Math.max(defaultJobs, Integer.parseInt(backup.getMetadata().getOrDefault("dump.jobs", "1")));
+        }
+        return Math.max(1, defaultJobs);
+    }
+
+    /**
+     * Table sizes recorded at backup time ("table.size.<schema>.<table>")
+     */
+    private Map<String, Long> tableSizes(Backup backup) {
+        Map<String, Long> sizes = new HashMap<>();
+        if (backup.getMetadata() != null) {
+            backup.getMetadata().forEach((key, value) -> {
+                if (key.startsWith(BackupService.TABLE_SIZE_PREFIX)) {
+                    sizes.put(key.substring(BackupService.TABLE_SIZE_PREFIX.length()), Long.parseLong(value));
                 }
+            });
+        }
+        return sizes;
+    }
+
+    private List<TableTiming> toTableTimings(DatabaseDumpPort.RestoreOutput restoreOutput) {
+        if (restoreOutput == null || restoreOutput.getTableTimings() == null) {
+            return List.of();
+        }
+        return restoreOutput.getTableTimings().stream()
+                .map(timing -> TableTiming.builder()
+                        .table(timing.getTable())
+                        .sizeBytes(timing.getSizeBytes())
+                        .durationMs(timing.getDurationMs())
+                        .build())
+                .toList();
+    }
+
+    private DatabaseDumpPort.RestoreInput buildRestoreInput(RestoreCommand command, Backup backup, Path dumpFile,
+                                                            boolean singleTransaction, int jobs) {
+        return DatabaseDumpPort.RestoreInput.builder()
+                .dumpFilePath(dumpFile)
+                .targetHost(command.getTargetHost())
+                .targetPort(command.getTargetPort())
+                .targetDatabase(command.getTargetDatabase())
+                .username(command.getUsername())
+                .password(command.getPassword())
+                .skipIfExists(command.isSkipIfExists())
+                .tables(command.getTables())
+                .singleTransaction(singleTransaction)
+                .jobs(jobs)
+                .tableSizes(tableSizes(backup))
+                .build();
+    }
+
+    private void verifyChecksum(Backup backup, ChecksumPort.StreamingChecksum checksum) {
+        String actualChecksum = checksum.finish();
+        if (!actualChecksum.equalsIgnoreCase(backup.getChecksum())) {
+            log.error("Checksum verification FAILED: expected={}, actual={}", backup.getChecksum(), actualChecksum);
+            throw new RestoreFailedException("Checksum verification failed. The backup file may be corrupt.");
+        }
+    }
+
+    private boolean needsDecoding(Backup backup) {
+        CompressionType compression = backup.getCompression();
+        return backup.isEncrypted() || (compression != null && compression != CompressionType.NONE);
+    }
+
+    /**
+     * Wrap the stored bytes with decryption and decompression as recorded for the backup
+     */
+    private InputStream decode(InputStream stored, Backup backup) {
+        InputStream decoded = stored;
+        if (backup.isEncrypted()) {
+            byte[] dataKey = unwrapDataKey(backup);
+            try {
+                decoded = encryptionPort.decrypt(decoded, EncryptionPort.EncryptionConfig.builder()
+                        .algorithm("AES-256-GCM")
+                        .keyId(backup.getMetadata().get("encryption.keyId"))
+                        .key(dataKey)
+                        .build());
+            } finally {
+                Arrays.fill(dataKey, (byte) 0); // the cipher holds its own copy
+            }
+        }
+        CompressionType compression = backup.getCompression();
+        if (compression != null && compression != CompressionType.NONE) {
+            decoded = compressionPort.decompress(decoded, compression);
+        }
+        return decoded;
+    }
+
+    /**
+     * Unwrap the backup's DEK with the KEK recorded at backup time
+     */
+    private byte[] unwrapDataKey(Backup backup) {
+        Map<String, String> metadata = backup.getMetadata() != null ? backup.getMetadata() : Map.of();
+        String keyId = metadata.get("encryption.keyId");
+        String wrappedKey = metadata.get("encryption.wrappedKey");
+        if (keyId == null || wrappedKey == null) {
+            throw new RestoreFailedException("Backup is encrypted but has no wrapped data key in its metadata");
+        }
+        return keyManagementPort.unwrapDataKey(keyId, Base64.getDecoder().decode(wrappedKey));
+    }
+
+    private void deleteRecursively(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(this::deleteQuietly);
+        } catch (Exception e) {
+            log.warn("Failed to clean up temporary directory: {}", directory, e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+                log.debug("Cleaned up temporary file: {}", file);
+            } catch (Exception e) {
+                log.warn("Failed to delete temporary file: {}", file, e);
             }
         }
     }
-}
\ No newline at end of file
+}
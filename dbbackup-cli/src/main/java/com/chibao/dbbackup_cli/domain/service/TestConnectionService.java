@@ -4,6 +4,8 @@ import com.chibao.dbbackup_cli.config.DatabaseDumpFactory;
 import com.chibao.dbbackup_cli.domain.model.DatabaseConfig;
 import com.chibao.dbbackup_cli.domain.port.in.TestConnectionUseCase;
 import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,7 @@ import java.time.Instant;
 public class TestConnectionService implements TestConnectionUseCase {
 
     private final DatabaseDumpFactory databaseDumpFactory;
+    private final RetryExecutor retryExecutor;
 
     @Override
     public TestConnectionResult testConnection(TestConnectionCommand command) {
@@ -38,8 +41,18 @@ public class TestConnectionService implements TestConnectionUseCase {
                     .password(command.getPassword())
                     .build();
 
-            // 3. Delegate the test to the adapter
-            boolean success = databaseDumpPort.testConnection(dbConfig);
+            // 3. Delegate the test to the adapter, retrying a failed attempt per the connection-test policy
+            boolean success;
+            try {
+                success = retryExecutor.execute(RetryOperation.CONNECTION_TEST, () -> {
+                    if (!databaseDumpPort.testConnection(dbConfig)) {
+                        throw new IllegalStateException("Connection test failed");
+                    }
+                    return true;
+                });
+            } catch (IllegalStateException e) {
+                success = false;
+            }
             long durationMs = Duration.between(startTime, Instant.now()).toMillis();
 
             if (success) {
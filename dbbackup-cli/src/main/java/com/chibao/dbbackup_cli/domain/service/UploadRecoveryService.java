@@ -0,0 +1,88 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
+import com.chibao.dbbackup_cli.domain.port.in.BackupUseCase;
+import com.chibao.dbbackup_cli.domain.port.in.UploadRecoveryUseCase;
+import com.chibao.dbbackup_cli.domain.port.out.BackupRecordPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * UploadRecoveryService - crash recovery for resumable uploads
+ * Implements INBOUND PORT (UploadRecoveryUseCase)
+ * An IN_PROGRESS record with a staged file belongs to a process that died
+ * mid-upload (backups run inside one process, so at startup none of them
+ * can still be running here). Assumes one dbbackup instance per backup
+ * database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadRecoveryService implements UploadRecoveryUseCase {
+
+    private final BackupRecordPort backupRecordPort;
+    private final StoragePort storagePort;
+    private final BackupService backupService;
+
+    @Override
+    public List<BackupUseCase.BackupResult> resumeInterruptedUploads() {
+        List<BackupUseCase.BackupResult> results = new ArrayList<>();
+        for (Backup backup : backupRecordPort.findByStatus(BackupStatus.IN_PROGRESS)) {
+            Map<String, String> metadata = backup.getMetadata();
+            if (metadata == null || !metadata.containsKey(BackupService.STAGED_FILE)) {
+                continue;
+            }
+            results.add(backupService.resumeUpload(backup));
+        }
+        if (!results.isEmpty()) {
+            log.info("Resumed {} interrupted upload(s), {} succeeded", results.size(),
+                    results.stream().filter(BackupUseCase.BackupResult::isSuccess).count());
+        }
+        return results;
+    }
+
+    @Override
+    public int abortAbandonedUploads(Duration olderThan) {
+        if (!storagePort.supportsResumableUpload()) {
+            return 0;
+        }
+
+        // Uploads still referenced by a record are resumed, not swept
+        Set<String> resumable = backupRecordPort.findByStatus(BackupStatus.IN_PROGRESS).stream()
+                .map(backup -> StoragePort.UploadCheckpoint.fromMetadata(backup.getMetadata()))
+                .flatMap(Optional::stream)
+                .map(StoragePort.UploadCheckpoint::getUploadId)
+                .collect(Collectors.toSet());
+        Instant cutoff = Instant.now().minus(olderThan);
+
+        int aborted = 0;
+        for (StoragePort.UploadCheckpoint upload : storagePort.listIncompleteUploads()) {
+            if (resumable.contains(upload.getUploadId()) || upload.getInitiatedAt().isAfter(cutoff)) {
+                continue;
+            }
+            try {
+                storagePort.abortUpload(upload);
+                aborted++;
+            } catch (Exception e) {
+                log.warn("Failed to abort abandoned upload: key={}, uploadId={}",
+                        upload.getObjectKey(), upload.getUploadId(), e);
+            }
+        }
+        if (aborted > 0) {
+            log.info("Aborted {} abandoned multipart upload(s) older than {}", aborted, olderThan);
+        }
+        return aborted;
+    }
+}
@@ -0,0 +1,456 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.domain.exception.RestoreFailedException;
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.in.WalArchiveUseCase;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.EncryptionPort;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import com.chibao.dbbackup_cli.domain.port.out.WalStreamPort;
+import com.chibao.dbbackup_cli.domain.retry.RetryExecutor;
+import com.chibao.dbbackup_cli.domain.retry.RetryOperation;
+import com.chibao.dbbackup_cli.domain.wal.WalFiles;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * WAL Archive Service
+ * Archiving: pg_receivewal streams WAL into a local spool directory; every
+ * segment it completes is compressed, optionally encrypted and uploaded as
+ * wal/<cluster>/<file>, then removed from the spool (the newest is kept, pg_receivewal resumes
+ * from it). Recovery: the archived WAL from a base backup's start segment
+ * onwards is fetched next to its data directory and PostgreSQL is
+ * configured to replay it up to a target time or LSN.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalArchiveService implements WalArchiveUseCase {
+
+    private final WalStreamPort walStreamPort;
+    private final StoragePort storagePort;
+    private final CompressionPort compressionPort;
+    private final EncryptionPort encryptionPort;
+    private final KeyManagementPort keyManagementPort;
+    private final RetryExecutor retryExecutor;
+
+    // ===== ARCHIVE SETTINGS =====
+
+    // Archive prefix: wal/<cluster>/; one cluster (timeline history) per prefix
+    @Value("${backup.wal-archive.cluster:default}")
+    private String cluster;
+
+    @Value("${backup.wal-archive.host:localhost}")
+    private String host;
+
+    @Value("${backup.wal-archive.port:5432}")
+    private int port;
+
+    @Value("${backup.wal-archive.username:postgres}")
+    private String username;
+
+    @Value("${backup.wal-archive.password:}")
+    private String password;
+
+    @Value("${backup.wal-archive.slot:dbbackup_wal}")
+    private String slotName;
+
+    @Value("${backup.wal-archive.create-slot:true}")
+    private boolean createSlot;
+
+    @Value("${backup.wal-archive.spool-dir:${user.home}/.dbbackup/wal-spool}")
+    private String spoolDir;
+
+    @Value("${backup.wal-archive.compression:ZSTD}")
+    private CompressionType compression;
+
+    // WAL carries every change made to the database: encrypted whenever backups are, unless overridden
+    @Value("${backup.wal-archive.encrypt:${backup.encrypt.enabled:false}}")
+    private boolean encrypt;
+
+    @Value("${backup.encrypt.kms.keyId:backup-encryption-key}")
+    private String encryptionKeyId;
+
+    @Value("${backup.wal-archive.restart-backoff:PT30S}")
+    private Duration restartBackoff;
+
+    // Must match the server's wal_segment_size
+    @Value("${backup.wal-archive.segment-size:16777216}")
+    private long segmentSize;
+
+    // ===== RECOVERY SETTINGS =====
+
+    // Archived segments fetched concurrently while preparing a recovery
+    @Value("${restore.pitr.download-concurrency:4}")
+    private int downloadConcurrency;
+
+    // backup_label: "START WAL LOCATION: 0/2000028 (file 000000010000000000000002)"
+    private static final Pattern START_WAL = Pattern.compile("START WAL LOCATION: \\S+ \\(file ([0-9A-F]{24})\\)");
+    private static final DateTimeFormatter RECOVERY_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSx").withZone(ZoneOffset.UTC);
+    // First line of every archived object: format, codec, KEK id and wrapped DEK ("-" when not encrypted)
+    private static final String HEADER = "dbbackup-wal v1";
+    private static final String NONE = "-";
+
+    private WalStreamPort.WalReceiver receiver;
+    private Instant restartNotBefore = Instant.MIN;
+    private String lastArchivedSegment;
+    private final Set<String> archivedHistoryFiles = new HashSet<>();
+
+    // ===== ARCHIVING =====
+
+    @Override
+    public synchronized void superviseReceiver() {
+        if (receiver != null && receiver.isAlive()) {
+            return;
+        }
+        if (receiver != null) {
+            log.warn("pg_receivewal exited ({}), restarting in {}", receiver.describeExit(), restartBackoff);
+            receiver = null;
+            restartNotBefore = Instant.now().plus(restartBackoff);
+        }
+        if (Instant.now().isBefore(restartNotBefore)) {
+            return;
+        }
+        try {
+            receiver = walStreamPort.start(WalStreamPort.WalStreamConfig.builder()
+                    .host(host)
+                    .port(port)
+                    .username(username)
+                    .password(password)
+                    .slotName(slotName.isBlank() ? null : slotName)
+                    .createSlot(createSlot)
+                    .directory(Files.createDirectories(Path.of(spoolDir)))
+                    .build());
+        } catch (Exception e) {
+            log.error("Failed to start WAL receiver, retrying in {}", restartBackoff, e);
+            restartNotBefore = Instant.now().plus(restartBackoff);
+        }
+    }
+
+    @Override
+    public synchronized int archiveCompletedSegments() {
+        Path spool = Path.of(spoolDir);
+        if (!Files.isDirectory(spool)) {
+            return 0;
+        }
+        List<Path> segments = new ArrayList<>();
+        List<Path> historyFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(spool)) {
+            files.sorted().forEach(file -> {
+                String name = file.getFileName().toString();
+                if (WalFiles.isSegment(name)) {
+                    segments.add(file);
+                } else if (WalFiles.isHistory(name)) {
+                    historyFiles.add(file);
+                }
+            });
+        } catch (IOException e) {
+            throw new StorageException("Failed to list WAL spool " + spool, e);
+        }
+
+        int archived = 0;
+        // History first: recovery onto a new timeline needs it before that timeline's segments
+        for (Path file : historyFiles) {
+            if (!archivedHistoryFiles.contains(file.getFileName().toString())) {
+                upload(file);
+                archivedHistoryFiles.add(file.getFileName().toString());
+                archived++;
+            }
+        }
+        for (Path file : segments) {
+            String name = file.getFileName().toString();
+            if (lastArchivedSegment != null && name.compareTo(lastArchivedSegment) <= 0) {
+                continue;
+            }
+            upload(file);
+            lastArchivedSegment = name;
+            archived++;
+        }
+        // Keep only the newest segment: pg_receivewal derives its start position from it
+        for (int i = 0; i < segments.size() - 1; i++) {
+            try {
+                Files.deleteIfExists(segments.get(i));
+            } catch (IOException e) {
+                log.warn("Failed to remove archived WAL segment {}", segments.get(i), e);
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} WAL files, latest segment {}", archived, lastArchivedSegment);
+        }
+        return archived;
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stopReceiver() {
+        if (receiver != null) {
+            receiver.stop();
+            receiver = null;
+        }
+    }
+
+    private void upload(Path file) {
+        String walFile = file.getFileName().toString();
+        try {
+            ByteArrayOutputStream stored = new ByteArrayOutputStream((int) Math.min(segmentSize, Files.size(file)));
+            OutputStream target = stored;
+            if (encrypt) {
+                // Envelope encryption as for backups; the wrapped DEK travels in the object header
+                KeyManagementPort.DataKey dataKey = keyManagementPort.generateDataKey(encryptionKeyId);
+                writeHeader(stored, dataKey.getKeyId(), Base64.getEncoder().encodeToString(dataKey.getWrappedKey()));
+                target = encryptionPort.encrypt(stored, EncryptionPort.EncryptionConfig.builder()
+                        .algorithm("AES-256-GCM")
+                        .keyId(dataKey.getKeyId())
+                        .key(dataKey.getPlaintextKey())
+                        .build());
+            } else {
+                writeHeader(stored, NONE, NONE);
+            }
+            try (OutputStream out = compressionPort.compress(target, compression)) {
+                Files.copy(file, out);
+            }
+            byte[] data = stored.toByteArray();
+            retryExecutor.execute(RetryOperation.WAL_UPLOAD, () -> storagePort.upload(StoragePort.UploadRequest.builder()
+                    .data(new ByteArrayInputStream(data))
+                    .filename(archiveFilename(walFile))
+                    .sizeBytes(data.length)
+                    .metadata(Map.of("wal-cluster", cluster, "wal-file", walFile))
+                    .build()));
+            log.debug("Archived WAL file {}: {} -> {} bytes", walFile, Files.size(file), data.length);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException("Failed to archive WAL file " + walFile, e);
+        }
+    }
+
+    private void writeHeader(OutputStream out, String keyId, String wrappedKey) throws IOException {
+        out.write(String.join("\t", HEADER, compression.name(), keyId, wrappedKey).concat("\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The codec is in the header, so the name does not depend on the configured compression
+    private String archiveFilename(String walFile) {
+        return "wal/" + cluster + "/" + walFile;
+    }
+
+    // ===== RECOVERY =====
+
+    /**
+     * Make the base backup in dataDirectory recover to the target on its next start
+     * Archived segments from the backup's start segment are fetched into
+     * <dataDirectory>_wal until the first one missing from the archive, and
+     * recovery.signal plus restore_command and the recovery target are
+     * written. PostgreSQL replays the WAL when it is started and promotes
+     * once the target is reached; it refuses to open if the archive ends
+     * before the target.
+     */
+    public RecoveryPreparation prepareRecovery(Path dataDirectory, Instant targetTime, String targetLsn) {
+        if ((targetTime == null) == (targetLsn == null)) {
+            throw new RestoreFailedException("Give exactly one recovery target: a time or an LSN");
+        }
+        Path backupLabel = dataDirectory.resolve("backup_label");
+        if (!Files.isRegularFile(backupLabel)) {
+            throw new RestoreFailedException("No backup_label in " + dataDirectory + ", not a base backup");
+        }
+        try {
+            Matcher start = START_WAL.matcher(Files.readString(backupLabel));
+            if (!start.find()) {
+                throw new RestoreFailedException("No START WAL LOCATION in " + backupLabel);
+            }
+            String firstSegment = start.group(1);
+            Path walDirectory = Files.createDirectories(
+                    dataDirectory.resolveSibling(dataDirectory.getFileName() + "_wal"));
+
+            int timeline = WalFiles.timeline(firstSegment);
+            if (timeline > 1) {
+                fetch(WalFiles.historyFile(timeline), walDirectory);
+            }
+            List<String> fetched = fetchSegmentsFrom(firstSegment, walDirectory);
+            if (fetched.isEmpty()) {
+                throw new RestoreFailedException("Archive wal/" + cluster + "/ has no WAL from segment "
+                        + firstSegment + ", the base backup cannot be recovered");
+            }
+            writeRecoveryConfig(dataDirectory, walDirectory, targetTime, targetLsn);
+
+            log.info("Recovery prepared: {} WAL segments ({} .. {}) in {}, target {}",
+                    fetched.size(), fetched.get(0), fetched.get(fetched.size() - 1), walDirectory,
+                    targetTime != null ? targetTime : targetLsn);
+            return new RecoveryPreparation(fetched.size(), fetched.get(0), fetched.get(fetched.size() - 1),
+                    walDirectory);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RestoreFailedException("Failed to prepare recovery in " + dataDirectory, e);
+        }
+    }
+
+    /**
+     * Fetch consecutive segments in batches until one is not in the archive
+     */
+    private List<String> fetchSegmentsFrom(String firstSegment, Path walDirectory) throws IOException {
+        List<String> fetched = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, downloadConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "wal-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String next = firstSegment;
+            while (true) {
+                List<String> batch = new ArrayList<>();
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < Math.max(1, downloadConcurrency); i++) {
+                    String segment = next;
+                    batch.add(segment);
+                    results.add(executor.submit(() -> fetch(segment, walDirectory)));
+                    next = WalFiles.next(next, segmentSize);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!results.get(i).get()) {
+                        // Anything fetched past the end of the sequence is unusable
+                        results.forEach(result -> result.cancel(true));
+                        for (String unused : batch.subList(i + 1, batch.size())) {
+                            Files.deleteIfExists(walDirectory.resolve(unused));
+                        }
+                        return fetched;
+                    }
+                    fetched.add(batch.get(i));
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RestoreFailedException("Failed to fetch archived WAL: " + e.getCause().getMessage(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestoreFailedException("Interrupted while fetching archived WAL", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Download and decode one archived WAL file; false if the archive does not have it
+     */
+    private boolean fetch(String walFile, Path walDirectory) throws Exception {
+        String identifier = storagePort.locate(archiveFilename(walFile));
+        return retryExecutor.execute(RetryOperation.WAL_DOWNLOAD, () -> {
+            if (!storagePort.exists(identifier)) {
+                return false;
+            }
+            Path target = walDirectory.resolve(walFile);
+            Path partial = walDirectory.resolve(walFile + ".partial");
+            try (InputStream in = decode(storagePort.download(identifier), walFile)) {
+                Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        });
+    }
+
+    private InputStream decode(InputStream stored, String walFile) throws IOException {
+        String[] header = readHeader(stored).split("\t", -1);
+        if (header.length != 4 || !header[0].equals(HEADER) || !isCodec(header[1])) {
+            stored.close();
+            throw new RestoreFailedException("Archived WAL file " + walFile + " has no dbbackup header");
+        }
+        CompressionType codec = CompressionType.valueOf(header[1]);
+        String keyId = header[2];
+        String wrappedKey = header[3];
+        InputStream decoded = stored;
+        if (!NONE.equals(keyId)) {
+            byte[] dataKey = keyManagementPort.unwrapDataKey(keyId, Base64.getDecoder().decode(wrappedKey));
+            try {
+                decoded = encryptionPort.decrypt(decoded, EncryptionPort.EncryptionConfig.builder()
+                        .algorithm("AES-256-GCM")
+                        .keyId(keyId)
+                        .key(dataKey)
+                        .build());
+            } finally {
+                Arrays.fill(dataKey, (byte) 0); // the cipher holds its own copy
+            }
+        }
+        return compressionPort.decompress(decoded, codec);
+    }
+
+    private static boolean isCodec(String name) {
+        return Arrays.stream(CompressionType.values()).anyMatch(type -> type != CompressionType.AUTO
+                && type.name().equals(name));
+    }
+
+    private String readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+            if (line.size() > 4096) {
+                break;
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private void writeRecoveryConfig(Path dataDirectory, Path walDirectory, Instant targetTime, String targetLsn)
+            throws IOException {
+        StringBuilder settings = new StringBuilder("\n# Point-in-time recovery (dbbackup)\n")
+                .append("restore_command = 'cp \"").append(walDirectory.toAbsolutePath()).append("/%f\" \"%p\"'\n");
+        if (targetTime != null) {
+            settings.append("recovery_target_time = '").append(RECOVERY_TIME.format(targetTime)).append("'\n");
+        } else {
+            WalFiles.parseLsn(targetLsn); // reject a malformed LSN before PostgreSQL does
+            settings.append("recovery_target_lsn = '").append(targetLsn.trim()).append("'\n");
+        }
+        settings.append("recovery_target_action = 'promote'\n");
+
+        // Later settings in postgresql.auto.conf override earlier ones
+        Files.writeString(dataDirectory.resolve("postgresql.auto.conf"), settings, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Files.writeString(dataDirectory.resolve("recovery.signal"), "", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * WAL made available to a recovery
+     */
+    @lombok.Value
+    public static class RecoveryPreparation {
+        int segmentCount;
+        String firstSegment;
+        String lastSegment;
+        Path walDirectory;
+    }
+}
@@ -0,0 +1,65 @@
+package com.chibao.dbbackup_cli.domain.wal;
+
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MySQL binary log file names and GTIDs
+ * Binlog files are <basename>.NNNNNN: the sequence number is at least six
+ * digits and grows past that width after 999999, so names are ordered by
+ * their number rather than as strings.
+ */
+public final class BinlogFiles {
+
+    private static final Pattern FILE = Pattern.compile("(.+)\\.(\\d{6,})");
+    // uuid[:tag]:number - a single transaction (tags are MySQL 8.3+)
+    private static final Pattern GTID = Pattern.compile(
+            "([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}(?::[A-Za-z_][A-Za-z0-9_]{0,31})?):(\\d+)");
+    private static final Pattern GTID_SET = Pattern.compile("[0-9A-Za-z_:,\\-]+");
+
+    public static final Comparator<String> ORDER = Comparator
+            .comparing((String name) -> matcher(name).group(1))
+            .thenComparingLong(name -> Long.parseLong(matcher(name).group(2)));
+
+    private BinlogFiles() {
+    }
+
+    public static boolean isBinlog(String name) {
+        return FILE.matcher(name).matches() && !name.endsWith(".index");
+    }
+
+    /**
+     * File the server writes after this one
+     */
+    public static String next(String file) {
+        Matcher matcher = matcher(file);
+        String number = matcher.group(2);
+        return matcher.group(1) + "." + String.format("%0" + number.length() + "d", Long.parseLong(number) + 1);
+    }
+
+    /**
+     * GTID set that ends with the given transaction
+     * A single GTID (uuid:N) becomes uuid:1-N, the target and everything
+     * its server committed before it; a set is passed through as given.
+     */
+    public static String upTo(String gtid) {
+        String trimmed = gtid.replaceAll("\\s", "");
+        Matcher single = GTID.matcher(trimmed);
+        if (single.matches()) {
+            return single.group(1) + ":1-" + single.group(2);
+        }
+        if (!GTID_SET.matcher(trimmed).matches()) {
+            throw new IllegalArgumentException("Invalid GTID '" + gtid + "', expected uuid:N or a GTID set");
+        }
+        return trimmed;
+    }
+
+    private static Matcher matcher(String file) {
+        Matcher matcher = FILE.matcher(file);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a binlog file name: " + file);
+        }
+        return matcher;
+    }
+}
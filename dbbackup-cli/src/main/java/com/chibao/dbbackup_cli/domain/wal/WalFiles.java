@@ -0,0 +1,70 @@
+package com.chibao.dbbackup_cli.domain.wal;
+
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL WAL file names
+ * A segment is named TTTTTTTTXXXXXXXXYYYYYYYY: timeline, then the segment
+ * number split into "log id" (high) and segment-within-log (low), where one
+ * log id spans 4GB of WAL. Timeline history files are TTTTTTTT.history.
+ */
+public final class WalFiles {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private static final Pattern SEGMENT = Pattern.compile("[0-9A-F]{24}");
+    private static final Pattern HISTORY = Pattern.compile("[0-9A-F]{8}\\.history");
+    private static final long LOG_ID_SPAN = 0x1_0000_0000L;
+
+    private WalFiles() {
+    }
+
+    public static boolean isSegment(String name) {
+        return SEGMENT.matcher(name).matches();
+    }
+
+    public static boolean isHistory(String name) {
+        return HISTORY.matcher(name).matches();
+    }
+
+    public static String historyFile(int timeline) {
+        return String.format("%08X.history", timeline);
+    }
+
+    public static int timeline(String segment) {
+        return Integer.parseUnsignedInt(segment.substring(0, 8), 16);
+    }
+
+    /**
+     * Segment holding the given LSN ("X/Y" as printed by PostgreSQL)
+     */
+    public static String segmentFor(int timeline, String lsn, long segmentSize) {
+        return segmentName(timeline, parseLsn(lsn) / segmentSize, segmentSize);
+    }
+
+    /**
+     * Segment following this one on the same timeline
+     */
+    public static String next(String segment, long segmentSize) {
+        long segmentsPerLogId = LOG_ID_SPAN / segmentSize;
+        long logId = Long.parseLong(segment.substring(8, 16), 16);
+        long segmentInLog = Long.parseLong(segment.substring(16, 24), 16);
+        return segmentName(timeline(segment), logId * segmentsPerLogId + segmentInLog + 1, segmentSize);
+    }
+
+    public static long parseLsn(String lsn) {
+        int separator = lsn.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid LSN '" + lsn + "', expected X/Y");
+        }
+        long high = Long.parseLong(lsn.substring(0, separator).trim(), 16);
+        long low = Long.parseLong(lsn.substring(separator + 1).trim(), 16);
+        return (high << 32) | low;
+    }
+
+    private static String segmentName(int timeline, long segmentNumber, long segmentSize) {
+        long segmentsPerLogId = LOG_ID_SPAN / segmentSize;
+        return String.format("%08X%08X%08X", timeline, segmentNumber / segmentsPerLogId,
+                segmentNumber % segmentsPerLogId);
+    }
+}
@@ -0,0 +1,37 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Crc32Combine: crc(A + B) from crc(A), crc(B) and len(B) equals the CRC of the whole
+ */
+class Crc32CombineTest {
+
+	@Test
+	void combinedCrcEqualsCrcOfConcatenation() {
+		byte[] data = new byte[200_000];
+		new Random(3).nextBytes(data);
+
+		for (int split : new int[] {0, 1, 31, 32_768, 131_072, data.length - 1, data.length}) {
+			long combined = Crc32Combine.combine(crc(data, 0, split), crc(data, split, data.length - split),
+					data.length - split);
+			assertThat(combined).as("split at %d", split).isEqualTo(crc(data, 0, data.length));
+		}
+	}
+
+	@Test
+	void emptySecondPartLeavesCrcUnchanged() {
+		assertThat(Crc32Combine.combine(0xcbf43926L, 0, 0)).isEqualTo(0xcbf43926L);
+	}
+
+	private static long crc(byte[] data, int off, int len) {
+		CRC32 crc = new CRC32();
+		crc.update(data, off, len);
+		return crc.getValue();
+	}
+}
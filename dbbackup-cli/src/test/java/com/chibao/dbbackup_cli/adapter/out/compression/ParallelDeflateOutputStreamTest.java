@@ -0,0 +1,89 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parallel gzip/zip: blocks deflated on several threads form one stream any standard reader accepts
+ */
+class ParallelDeflateOutputStreamTest {
+
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	private final ExecutorService workers = Executors.newFixedThreadPool(4);
+
+	@AfterEach
+	void tearDown() {
+		workers.shutdownNow();
+	}
+
+	@Test
+	void gzipRoundTripsThroughStandardReader() throws IOException {
+		for (int size : new int[] {0, 1, BLOCK_SIZE, 5 * BLOCK_SIZE + 123}) {
+			byte[] data = sample(size);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (OutputStream out = new ParallelGzipOutputStream(compressed, workers, BLOCK_SIZE,
+					Deflater.DEFAULT_COMPRESSION, 3)) {
+				write(out, data);
+			}
+
+			try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+				// GZIPInputStream checks the trailer's CRC-32 and size
+				assertThat(in.readAllBytes()).as("size %d", size).isEqualTo(data);
+			}
+		}
+	}
+
+	@Test
+	void zipRoundTripsThroughStandardReader() throws IOException {
+		byte[] data = sample(3 * BLOCK_SIZE + 7);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream out = new ParallelZipOutputStream(compressed, workers, "dump.sql", BLOCK_SIZE,
+				Deflater.BEST_SPEED, 2)) {
+			write(out, data);
+		}
+
+		try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			ZipEntry entry = in.getNextEntry();
+			assertThat(entry).isNotNull();
+			assertThat(entry.getName()).isEqualTo("dump.sql");
+			assertThat(in.readAllBytes()).isEqualTo(data);
+			assertThat(in.getNextEntry()).isNull();
+		}
+	}
+
+	// Uneven write sizes so blocks fill from several calls
+	private static void write(OutputStream out, byte[] data) throws IOException {
+		int off = 0;
+		for (int chunk = 1; off < data.length; chunk = chunk * 3 % 40_000 + 1) {
+			int n = Math.min(chunk, data.length - off);
+			out.write(data, off, n);
+			off += n;
+		}
+	}
+
+	// Half random, half repetitive: exercises both stored-like and well-compressed blocks
+	private static byte[] sample(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		for (int i = 0; i < size; i++) {
+			data[i] = i % 2048 < 1024 ? (byte) random.nextInt() : (byte) ('a' + i % 7);
+		}
+		return data;
+	}
+}
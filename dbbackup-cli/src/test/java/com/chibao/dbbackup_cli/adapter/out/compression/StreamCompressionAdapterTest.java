@@ -0,0 +1,114 @@
+package com.chibao.dbbackup_cli.adapter.out.compression;
+
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort.CompressionDecision;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * StreamCompressionAdapter AUTO: codec chosen from a trial on the sample, recorded for decompression
+ */
+class StreamCompressionAdapterTest {
+
+	private static final int SAMPLE_SIZE = 256 * 1024;
+
+	private final StreamCompressionAdapter adapter = new StreamCompressionAdapter();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(adapter, "threads", 2);
+		ReflectionTestUtils.setField(adapter, "blockSize", 64 * 1024);
+		ReflectionTestUtils.setField(adapter, "level", 6);
+		ReflectionTestUtils.setField(adapter, "zstdLevel", 3);
+		ReflectionTestUtils.setField(adapter, "zstdWorkers", 0);
+		ReflectionTestUtils.setField(adapter, "autoSampleSize", SAMPLE_SIZE);
+		ReflectionTestUtils.setField(adapter, "autoStrongLevel", 9);
+		ReflectionTestUtils.setField(adapter, "autoMinRatio", 1.1);
+		ReflectionTestUtils.setField(adapter, "autoMinGain", 0.03);
+		ReflectionTestUtils.setField(adapter, "autoTargetMbps", 0.0); // every codec is fast enough
+		adapter.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		adapter.shutdown();
+	}
+
+	@Test
+	void compressibleSamplePicksACompressingCodec() {
+		CompressionDecision decision = adapter.chooseCodec(textRows(SAMPLE_SIZE));
+
+		assertThat(decision.getType()).isEqualTo(CompressionType.ZSTD);
+		assertThat(decision.getLevel()).isIn(3, 9);
+		assertThat(decision.getSampleRatio()).isGreaterThan(2.0);
+		assertThat(decision.getCandidates()).containsOnlyKeys("LZ4:1", "ZSTD:3", "ZSTD:9");
+	}
+
+	@Test
+	void randomBytesAreStored() {
+		CompressionDecision decision = adapter.chooseCodec(randomBytes(SAMPLE_SIZE));
+
+		assertThat(decision.getType()).isEqualTo(CompressionType.NONE);
+		assertThat(decision.getLevel()).isNull();
+		assertThat(decision.getReason()).startsWith("incompressible");
+	}
+
+	@Test
+	void unreachableTargetFallsBackToTheFastestCodec() {
+		ReflectionTestUtils.setField(adapter, "autoTargetMbps", 1e9);
+
+		CompressionDecision decision = adapter.chooseCodec(textRows(SAMPLE_SIZE));
+
+		assertThat(decision.getType()).isIn(CompressionType.LZ4, CompressionType.ZSTD);
+		assertThat(decision.getReason()).contains("using fastest");
+	}
+
+	@Test
+	void recordedCodecDecompressesTheStream() throws IOException {
+		for (byte[] data : new byte[][] {textRows(3 * SAMPLE_SIZE + 17), randomBytes(2 * SAMPLE_SIZE), textRows(1000)}) {
+			AtomicReference<CompressionDecision> recorded = new AtomicReference<>();
+			ByteArrayOutputStream stored = new ByteArrayOutputStream();
+			try (OutputStream out = adapter.compressAdaptive(stored, recorded::set)) {
+				out.write(data);
+			}
+
+			assertThat(recorded.get()).isNotNull();
+			assertThat(recorded.get().getType()).isNotEqualTo(CompressionType.AUTO);
+			try (InputStream in = adapter.decompress(new ByteArrayInputStream(stored.toByteArray()),
+					recorded.get().getType())) {
+				assertThat(in.readAllBytes()).isEqualTo(data);
+			}
+		}
+	}
+
+	private static byte[] textRows(int size) {
+		StringBuilder rows = new StringBuilder(size + 64);
+		for (int i = 0; rows.length() < size; i++) {
+			rows.append(i).append("\tcustomer-").append(i % 977).append("\tshipped\t2026-10-")
+					.append(10 + i % 20).append('\n');
+		}
+		byte[] bytes = rows.toString().getBytes(StandardCharsets.US_ASCII);
+		byte[] exact = new byte[size];
+		System.arraycopy(bytes, 0, exact, 0, size);
+		return exact;
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(42).nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,66 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MySQLExportManifest and the LOAD DATA encoding of the table files
+ */
+class MySQLExportManifestTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void roundTripsBinlogPositionAndTables() throws IOException {
+		MySQLExportManifest manifest = new MySQLExportManifest();
+		manifest.setBinlogPosition(new MySQLExportManifest.BinlogPosition("binlog.000042", 157,
+				"3e11fa47-71ca-11e1-9e33-c80aa9429562:1-77"));
+		manifest.addTable(new MySQLExportManifest.TableData("t0.1.tsv", "shop.orders",
+				"`id`, `odd, ``name```, `payload`", "2", 1_048_576, "`id` >= 500 AND `id` < 1000"));
+
+		Files.write(tempDir.resolve(MySQLExportManifest.FILE_NAME), manifest.toBytes());
+		MySQLExportManifest read = MySQLExportManifest.read(tempDir.resolve(MySQLExportManifest.FILE_NAME));
+
+		assertThat(read.getBinlogPosition()).isEqualTo(manifest.getBinlogPosition());
+		assertThat(read.getTables()).containsExactlyElementsOf(manifest.getTables());
+		MySQLExportManifest.TableData table = read.getTables().get(0);
+		assertThat(table.columnList()).containsExactly("`id`", "`odd, ``name```", "`payload`");
+		assertThat(table.isHex(2)).isTrue();
+		assertThat(table.isHex(0)).isFalse();
+	}
+
+	@Test
+	void escapesValuesForLoadData() throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		MySQLParallelExporter.LoadDataWriter writer = new MySQLParallelExporter.LoadDataWriter(target);
+
+		writer.writeEscaped("a\tb\nc\\d\0é".getBytes(StandardCharsets.UTF_8));
+		writer.write('\t');
+		writer.writeEscaped(null);
+		writer.write('\t');
+		writer.writeHex(new byte[]{0x00, (byte) 0xAB, 0x7F});
+		writer.write('\n');
+		writer.flush();
+
+		assertThat(target.toString(StandardCharsets.UTF_8)).isEqualTo("a\\tb\\nc\\\\d\\0é\t\\N\t00AB7F\n");
+		assertThat(writer.getCount()).isEqualTo(target.size());
+	}
+
+	@Test
+	void exportsColumnsWithExpressionDefaults() {
+		assertThat(MySQLParallelExporter.isGenerated("DEFAULT_GENERATED", "")).isFalse();
+		assertThat(MySQLParallelExporter.isGenerated("DEFAULT_GENERATED on update CURRENT_TIMESTAMP", "")).isFalse();
+		assertThat(MySQLParallelExporter.isGenerated("auto_increment", "")).isFalse();
+		assertThat(MySQLParallelExporter.isGenerated("VIRTUAL GENERATED", "(`price` * `qty`)")).isTrue();
+		assertThat(MySQLParallelExporter.isGenerated("STORED GENERATED", "")).isTrue();
+	}
+}
@@ -0,0 +1,45 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * MySQLLoader: LOAD DATA statements match the exported file layout; index deferral
+ */
+class MySQLLoaderTest {
+
+	@Test
+	void decodesHexColumnsIntoTargetTable() {
+		MySQLExportManifest.TableData table = new MySQLExportManifest.TableData("t3.0.tsv", "shop.files",
+				"`id`, `name`, `content`, `flags`", "2,3", 4096, "`id` < 100");
+
+		assertThat(MySQLLoader.loadDataSql(table)).isEqualTo(
+				"LOAD DATA LOCAL INFILE 'stream' INTO TABLE `files` CHARACTER SET utf8mb4 "
+						+ "(`id`, `name`, @h2, @h3) SET `content` = UNHEX(@h2), `flags` = UNHEX(@h3)");
+	}
+
+	@Test
+	void defersSecondaryIndexesNotNeededByForeignKeys() {
+		List<MySQLLoader.IndexColumn> columns = List.of(
+				new MySQLLoader.IndexColumn("idx_customer", "BTREE", "customer_id", null, "A"),
+				new MySQLLoader.IndexColumn("idx_name", "BTREE", "name", 10L, "A"),
+				new MySQLLoader.IndexColumn("idx_created", "BTREE", "created_at", null, "D"),
+				new MySQLLoader.IndexColumn("idx_status_total", "BTREE", "status", null, "A"),
+				new MySQLLoader.IndexColumn("idx_status_total", "BTREE", "total", null, "D"),
+				new MySQLLoader.IndexColumn("idx_total_customer", "BTREE", "total", null, "A"),
+				new MySQLLoader.IndexColumn("idx_total_customer", "BTREE", "customer_id", null, "A"),
+				new MySQLLoader.IndexColumn("idx_lower_name", "BTREE", null, null, "A"),
+				new MySQLLoader.IndexColumn("ft_notes", "FULLTEXT", "notes", null, null));
+
+		assertThat(MySQLLoader.deferrableIndexes(columns, Set.of("customer_id")))
+				.containsExactly(
+						entry("idx_name", "`name`(10)"),
+						entry("idx_created", "`created_at` DESC"),
+						entry("idx_status_total", "`status`, `total` DESC"));
+	}
+}
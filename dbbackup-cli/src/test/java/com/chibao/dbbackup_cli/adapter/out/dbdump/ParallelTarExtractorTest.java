@@ -0,0 +1,110 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.BaseBackupPort;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ParallelTarExtractor: chunked parallel writes must reproduce every file exactly
+ */
+class ParallelTarExtractorTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void extractsFilesSplitAcrossWriters() throws IOException {
+		Random random = new Random(42);
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("backup_label", "START WAL LOCATION: 0/2000028 (file 000000010000000000000002)\n".getBytes());
+		files.put("base/1/1259", randomBytes(random, 10_500));   // 11 chunks
+		files.put("base/1/1259_fsm", new byte[0]);
+		files.put("pg_wal/000000010000000000000002", randomBytes(random, 4096));
+
+		Path dataDirectory = tempDir.resolve("data");
+		BaseBackupPort.LayoutOutput output = new ParallelTarExtractor(3, 1000)
+				.extract(new ByteArrayInputStream(tar(files, "base/", "base/1/", "pg_wal/")), dataDirectory);
+
+		assertThat(output.getFiles()).isEqualTo(4);
+		assertThat(output.getBytes()).isEqualTo(files.values().stream().mapToLong(data -> data.length).sum());
+		for (Map.Entry<String, byte[]> file : files.entrySet()) {
+			assertThat(Files.readAllBytes(dataDirectory.resolve(file.getKey()))).isEqualTo(file.getValue());
+		}
+	}
+
+	@Test
+	void rejectsEntriesOutsideTheTarget() throws IOException {
+		byte[] archive = tar(Map.of("../escaped", "x".getBytes()));
+
+		assertThatThrownBy(() -> new ParallelTarExtractor(2, 1000)
+				.extract(new ByteArrayInputStream(archive), tempDir.resolve("data")))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("outside the target directory");
+		assertThat(tempDir.resolve("escaped")).doesNotExist();
+	}
+
+	@Test
+	void rejectsEntriesWrittenThroughASymlink() throws IOException {
+		Path outside = Files.createDirectories(tempDir.resolve("etc"));
+		Files.writeString(outside.resolve("passwd"), "root:x:0:0");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(bytes)) {
+			TarArchiveEntry link = new TarArchiveEntry("x", TarArchiveEntry.LF_SYMLINK);
+			link.setLinkName(outside.toString());
+			tar.putArchiveEntry(link);
+			tar.closeArchiveEntry();
+			TarArchiveEntry file = new TarArchiveEntry("x/passwd");
+			file.setSize(4);
+			tar.putArchiveEntry(file);
+			tar.write("evil".getBytes());
+			tar.closeArchiveEntry();
+		}
+
+		assertThatThrownBy(() -> new ParallelTarExtractor(2, 1000)
+				.extract(new ByteArrayInputStream(bytes.toByteArray()), tempDir.resolve("data")))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("through symlink x");
+		assertThat(Files.readString(outside.resolve("passwd"))).isEqualTo("root:x:0:0");
+	}
+
+	private byte[] tar(Map<String, byte[]> files, String... directories) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(bytes)) {
+			for (String directory : directories) {
+				TarArchiveEntry entry = new TarArchiveEntry(directory);
+				entry.setMode(040700);
+				tar.putArchiveEntry(entry);
+				tar.closeArchiveEntry();
+			}
+			for (Map.Entry<String, byte[]> file : files.entrySet()) {
+				TarArchiveEntry entry = new TarArchiveEntry(file.getKey());
+				entry.setSize(file.getValue().length);
+				entry.setMode(0100600);
+				tar.putArchiveEntry(entry);
+				tar.write(file.getValue());
+				tar.closeArchiveEntry();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private byte[] randomBytes(Random random, int size) {
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+}
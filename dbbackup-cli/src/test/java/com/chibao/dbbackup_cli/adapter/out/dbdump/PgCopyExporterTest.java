@@ -0,0 +1,210 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.DumpOutput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.stubbing.Answer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * PgCopyExporter: parts exported under one snapshot, manifest last;
+ * COPY statements read each part's rows exactly once
+ */
+class PgCopyExporterTest {
+
+	private static final String SNAPSHOT = "00000003-0000001B-1";
+	private static final long BLOCK_SIZE = 8192;
+
+	private final List<String> stored = Collections.synchronizedList(new ArrayList<>());
+	private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+	private final List<String> snapshots = Collections.synchronizedList(new ArrayList<>());
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void exportsEveryPartUnderOneSnapshotAndTheManifestLast() throws Exception {
+		PgCopyExporter exporter = new PgCopyExporter(
+				DatabaseDumpPort.DumpConfig.builder()
+						.host("localhost").port(5432).database("shop")
+						.additionalOptions(Map.of(DatabaseDumpPort.OPTION_JOBS, "3"))
+						.build(),
+				(name, writer) -> {
+					ByteArrayOutputStream content = new ByteArrayOutputStream();
+					writer.writeTo(content);
+					files.put(name, content.toByteArray());
+					stored.add(name);
+				},
+				(snapshot, target) -> {
+					snapshots.add("schema " + snapshot);
+					target.write("schema".getBytes(StandardCharsets.UTF_8));
+				},
+				new RangeSplitter(1_000_000, 1_000_000),
+				this::connect);
+
+		DumpOutput output = exporter.export();
+
+		// Ranged parts get their own files; small tables stay whole
+		assertThat(stored).hasSize(8);
+		assertThat(stored.get(stored.size() - 1)).isEqualTo(PgNativeManifest.FILE_NAME);
+		assertThat(stored).containsExactlyInAnyOrder(PgNativeManifest.SCHEMA_FILE,
+				"t16390.0.copy", "t16390.1.copy", "t16390.2.copy",
+				"t16395.0.copy", "t16395.1.copy",
+				"t16386.copy", PgNativeManifest.FILE_NAME);
+
+		// The schema dump and every worker read the coordinator's snapshot
+		assertThat(snapshots).hasSize(4)
+				.containsOnly("schema " + SNAPSHOT, "SET TRANSACTION SNAPSHOT '" + SNAPSHOT + "'");
+		assertThat(output.getMetadata()).containsEntry("jobs", "3");
+
+		Path manifestFile = Files.write(tempDir.resolve(PgNativeManifest.FILE_NAME),
+				files.get(PgNativeManifest.FILE_NAME));
+		PgNativeManifest manifest = PgNativeManifest.read(manifestFile);
+		assertThat(manifest.getTables()).hasSize(6);
+		for (PgNativeManifest.TableData part : manifest.getTables()) {
+			assertThat(new String(files.get(part.file()), StandardCharsets.UTF_8))
+					.isEqualTo(PgCopyExporter.copySql(part));
+		}
+		assertThat(manifest.getTables()).filteredOn(part -> part.name().equals("public.orders"))
+				.extracting(PgNativeManifest.TableData::range)
+				.hasSize(3)
+				.doesNotHaveDuplicates()
+				.allMatch(range -> range.contains("\"id\""));
+		assertThat(manifest.getTables()).filteredOn(part -> part.name().equals("public.audit_log"))
+				.extracting(PgNativeManifest.TableData::range)
+				.containsExactlyInAnyOrder("ctid < '(100,0)'::tid", "ctid >= '(100,0)'::tid");
+		assertThat(manifest.getSequences()).containsExactly(
+				new PgNativeManifest.SequenceValue("\"public\".\"orders_id_seq\"", 2999, true));
+		assertThat(output.getTableSizes()).containsEntry("public.orders", 3_000_000L)
+				.containsEntry("public.audit_log", 1_600_000L)
+				.containsEntry("public.customers", 80_000L);
+	}
+
+	@Test
+	void copiesWholeTablesAndRangesWithoutInheritanceChildren() {
+		PgNativeManifest.TableData whole = new PgNativeManifest.TableData("t16390.copy", "public.orders",
+				"public.orders", "id, total", 8_192_000);
+		PgNativeManifest.TableData range = new PgNativeManifest.TableData("t16390.1.copy", "public.orders",
+				"public.orders", "id, total", 4_096_000, "id >= 1000 AND id < 2000");
+
+		assertThat(PgCopyExporter.copySql(whole))
+				.isEqualTo("COPY public.orders (id, total) TO STDOUT (FORMAT binary)");
+		assertThat(PgCopyExporter.copySql(range)).isEqualTo(
+				"COPY (SELECT id, total FROM ONLY public.orders WHERE id >= 1000 AND id < 2000) TO STDOUT (FORMAT binary)");
+	}
+
+	@Test
+	void ctidRangesEndOpen() {
+		assertThat(PgCopyExporter.ctidRanges(10, 3)).containsExactly(
+				"ctid < '(4,0)'::tid",
+				"ctid >= '(4,0)'::tid AND ctid < '(8,0)'::tid",
+				"ctid >= '(8,0)'::tid");
+		assertThat(PgCopyExporter.ctidRanges(1, 4)).isEmpty();
+	}
+
+	/**
+	 * Stub connection for a PostgreSQL 16 database with three tables:
+	 * orders (integer key, 3 ranges), audit_log (no key, 2 ctid ranges), customers (whole).
+	 * COPY writes its own statement as the part's content.
+	 */
+	private Connection connect() throws SQLException {
+		Connection connection = mock(Connection.class);
+		Statement statement = mock(Statement.class);
+		when(statement.executeQuery(anyString())).thenAnswer(call -> {
+			String sql = call.getArgument(0);
+			if (sql.equals("SELECT pg_export_snapshot()")) {
+				return rows(new Object[] {SNAPSHOT});
+			} else if (sql.contains("current_setting('block_size')")) {
+				return rows(new Object[] {BLOCK_SIZE});
+			} else if (sql.contains("FROM pg_class")) {
+				return rows(
+						new Object[] {16390L, "public", "orders", "\"public\".\"orders\"", "id, total",
+								3_000_000L, 366L, "id"},
+						new Object[] {16395L, "public", "audit_log", "\"public\".\"audit_log\"", "at, entry",
+								1_600_000L, 200L, null},
+						new Object[] {16386L, "public", "customers", "\"public\".\"customers\"", "id, name",
+								80_000L, 10L, "id"});
+			} else if (sql.contains("FROM pg_sequences")) {
+				return rows(new Object[] {"\"public\".\"orders_id_seq\"", 2999L, true});
+			}
+			throw new SQLException("unexpected query: " + sql);
+		});
+		when(statement.execute(anyString())).thenAnswer(call -> snapshots.add(call.getArgument(0)));
+		when(connection.createStatement()).thenReturn(statement);
+
+		Array histogram = mock(Array.class);
+		when(histogram.getArray()).thenReturn(LongStream.rangeClosed(0, 30).map(i -> i * 100).boxed()
+				.toArray(Long[]::new));
+		when(connection.prepareStatement(anyString())).thenAnswer(call -> {
+			String sql = call.getArgument(0);
+			PreparedStatement prepared = mock(PreparedStatement.class);
+			ResultSet result = sql.contains("quote_ident")
+					? rows(new Object[] {"\"id\""})
+					: rows(new Object[] {histogram});
+			when(prepared.executeQuery()).thenReturn(result);
+			return prepared;
+		});
+
+		DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+		when(metaData.getDatabaseMajorVersion()).thenReturn(16);
+		when(connection.getMetaData()).thenReturn(metaData);
+
+		CopyManager copyManager = mock(CopyManager.class);
+		try {
+			when(copyManager.copyOut(anyString(), any(OutputStream.class))).thenAnswer(call -> {
+				byte[] content = call.<String>getArgument(0).getBytes(StandardCharsets.UTF_8);
+				call.<OutputStream>getArgument(1).write(content);
+				return (long) content.length;
+			});
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		PGConnection pgConnection = mock(PGConnection.class);
+		when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		return connection;
+	}
+
+	private static ResultSet rows(Object[]... rows) throws SQLException {
+		ResultSet result = mock(ResultSet.class);
+		AtomicInteger row = new AtomicInteger(-1);
+		when(result.next()).thenAnswer(call -> row.incrementAndGet() < rows.length);
+		Answer<Object> column = call -> rows[row.get()][call.<Integer>getArgument(0) - 1];
+		when(result.getString(anyInt())).thenAnswer(column);
+		when(result.getLong(anyInt())).thenAnswer(column);
+		when(result.getBoolean(anyInt())).thenAnswer(column);
+		when(result.getObject(anyInt())).thenAnswer(column);
+		when(result.getArray(anyInt())).thenAnswer(column);
+		return result;
+	}
+}
@@ -0,0 +1,184 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.exception.BackupFailedException;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.RestoreInput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.RestoreOutput;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.TableTiming;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * PgCopyLoader: phase order and parallel COPY against stub connections;
+ * only plain memory sizes reach the SET statements
+ */
+class PgCopyLoaderTest {
+
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void restoresInPhasesAndLoadsEveryRange() throws Exception {
+		PgNativeManifest manifest = new PgNativeManifest();
+		manifest.addTable(new PgNativeManifest.TableData("t16390.0.copy", "public.orders", "\"public\".\"orders\"",
+				"id, total", 4_000, "id < 1000"));
+		manifest.addTable(new PgNativeManifest.TableData("t16390.1.copy", "public.orders", "\"public\".\"orders\"",
+				"id, total", 4_000, "id >= 1000"));
+		manifest.addTable(new PgNativeManifest.TableData("t16386.copy", "public.customers",
+				"\"public\".\"customers\"", "id, name", 1_000));
+		manifest.addSequence(new PgNativeManifest.SequenceValue("\"public\".\"orders_id_seq\"", 1999, true));
+		writeExport(manifest);
+
+		RestoreOutput output = loader(new PgCopyLoader.Tuning(null, false), null).restore();
+
+		assertThat(events).hasSize(8);
+		assertThat(events.get(0)).isEqualTo("pre-data");
+		assertThat(events.subList(1, 4)).containsExactlyInAnyOrder("data:t16390.0.copy", "data:t16390.1.copy",
+				"data:t16386.copy");
+		assertThat(events.subList(4, 6)).containsExactly("setval \"public\".\"orders_id_seq\"", "post-data");
+		assertThat(events.subList(6, 8)).containsExactlyInAnyOrder(
+				"ANALYZE \"public\".\"orders\"", "ANALYZE \"public\".\"customers\"");
+
+		// The two ranges add up to one table timing
+		assertThat(output.getTableTimings()).extracting(TableTiming::getTable)
+				.containsExactlyInAnyOrder("public.orders", "public.customers");
+		assertThat(output.getTableTimings()).filteredOn(t -> t.getTable().equals("public.orders"))
+				.extracting(TableTiming::getSizeBytes).containsExactly(8_000L);
+		assertThat(output.getPhaseTimings()).containsOnlyKeys("pre-data", "data", "sequences", "post-data", "analyze");
+	}
+
+	@Test
+	void setsUnloggedTablesBackToLoggedBeforeIndexing() throws Exception {
+		PgNativeManifest manifest = new PgNativeManifest();
+		manifest.addTable(new PgNativeManifest.TableData("t16386.copy", "public.customers",
+				"\"public\".\"customers\"", "id, name", 1_000));
+		writeExport(manifest);
+
+		RestoreOutput output = loader(new PgCopyLoader.Tuning("1GB", true), List.of("customers")).restore();
+
+		assertThat(events).containsExactly(
+				"pre-data",
+				"ALTER TABLE \"public\".\"customers\" SET UNLOGGED",
+				"data:t16386.copy",
+				"ALTER TABLE \"public\".\"customers\" SET LOGGED",
+				"post-data",
+				"ANALYZE \"public\".\"customers\"");
+		// A table subset leaves sequences alone
+		assertThat(output.getPhaseTimings()).containsOnlyKeys("pre-data", "data", "set-logged", "post-data", "analyze");
+	}
+
+	@Test
+	void failedPartAbortsTheRestore() throws Exception {
+		PgNativeManifest manifest = new PgNativeManifest();
+		manifest.addTable(new PgNativeManifest.TableData("t16390.0.copy", "public.orders", "\"public\".\"orders\"",
+				"id, total", 4_000, "id < 1000"));
+		manifest.addTable(new PgNativeManifest.TableData("bad.copy", "public.orders", "\"public\".\"orders\"",
+				"id, total", 4_000, "id >= 1000"));
+		writeExport(manifest);
+
+		assertThatThrownBy(() -> loader(new PgCopyLoader.Tuning(null, false), null).restore())
+				.isInstanceOf(BackupFailedException.class)
+				.hasMessageContaining("duplicate key value");
+		assertThat(events).doesNotContain("post-data").noneMatch(event -> event.startsWith("ANALYZE"));
+	}
+
+	@Test
+	void acceptsMemorySizes() {
+		assertThat(new PgCopyLoader.Tuning("1GB", true).maintenanceWorkMem()).isEqualTo("1GB");
+		assertThat(new PgCopyLoader.Tuning("65536", false).maintenanceWorkMem()).isEqualTo("65536");
+		assertThat(new PgCopyLoader.Tuning(null, false).maintenanceWorkMem()).isNull();
+	}
+
+	@Test
+	void rejectsAnythingElse() {
+		assertThatThrownBy(() -> new PgCopyLoader.Tuning("1GB'; DROP TABLE orders; --", false))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("maintenance_work_mem");
+	}
+
+	private void writeExport(PgNativeManifest manifest) throws Exception {
+		Files.write(directory.resolve(PgNativeManifest.FILE_NAME), manifest.toBytes());
+		for (PgNativeManifest.TableData table : manifest.getTables()) {
+			Files.writeString(directory.resolve(table.file()), table.file());
+		}
+	}
+
+	private PgCopyLoader loader(PgCopyLoader.Tuning tuning, List<String> tables) {
+		RestoreInput input = RestoreInput.builder()
+				.dumpFilePath(directory)
+				.targetHost("localhost").targetPort(5432).targetDatabase("shop")
+				.jobs(2)
+				.tables(tables)
+				.build();
+		return new PgCopyLoader(input, tuning, (archive, section, jobs) -> {
+			assertThat(archive).isEqualTo(directory.resolve(PgNativeManifest.SCHEMA_FILE));
+			events.add(section);
+		}, this::connect);
+	}
+
+	/**
+	 * Stub connection: records statements, COPY reads the file and fails on "bad.copy"
+	 */
+	private Connection connect() throws SQLException {
+		Connection connection = mock(Connection.class);
+		Statement statement = mock(Statement.class);
+		when(statement.execute(anyString())).thenAnswer(call -> {
+			String sql = call.getArgument(0);
+			if (!sql.startsWith("SET ")) {
+				events.add(sql);
+			}
+			return true;
+		});
+		when(connection.createStatement()).thenReturn(statement);
+
+		PreparedStatement setval = mock(PreparedStatement.class);
+		List<String> sequence = new ArrayList<>();
+		doAnswer(call -> sequence.add(call.getArgument(1))).when(setval).setString(anyInt(), anyString());
+		when(setval.execute()).thenAnswer(call -> events.add("setval " + sequence.get(sequence.size() - 1)));
+		when(connection.prepareStatement(anyString())).thenReturn(setval);
+
+		CopyManager copyManager = mock(CopyManager.class);
+		try {
+			when(copyManager.copyIn(anyString(), any(InputStream.class))).thenAnswer(call -> {
+				String file = new String(call.<InputStream>getArgument(1).readAllBytes(), StandardCharsets.UTF_8);
+				assertThat(call.<String>getArgument(0)).endsWith(" FROM STDIN (FORMAT binary)");
+				if (file.equals("bad.copy")) {
+					throw new SQLException("duplicate key value violates unique constraint");
+				}
+				events.add("data:" + file);
+				return 1L;
+			});
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		PGConnection pgConnection = mock(PGConnection.class);
+		when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		return connection;
+	}
+}
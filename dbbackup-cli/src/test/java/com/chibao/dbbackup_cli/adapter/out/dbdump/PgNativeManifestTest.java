@@ -0,0 +1,46 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * PgNativeManifest: what the exporter writes is what the loader reads back
+ */
+class PgNativeManifestTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void roundTripsTablesAndSequences() throws IOException {
+		PgNativeManifest manifest = new PgNativeManifest();
+		manifest.addTable(new PgNativeManifest.TableData("t16390.copy", "public.orders", "public.orders",
+				"id, customer_id, \"Total Amount\"", 8_192_000));
+		manifest.addTable(new PgNativeManifest.TableData("t16401.copy", "audit.empty", "audit.empty", "", 0));
+		manifest.addSequence(new PgNativeManifest.SequenceValue("public.orders_id_seq", 1042, true));
+		manifest.addSequence(new PgNativeManifest.SequenceValue("public.unused_seq", 1, false));
+
+		Files.write(tempDir.resolve(PgNativeManifest.FILE_NAME), manifest.toBytes());
+		PgNativeManifest read = PgNativeManifest.read(tempDir.resolve(PgNativeManifest.FILE_NAME));
+
+		assertThat(PgNativeManifest.isNativeExport(tempDir)).isTrue();
+		assertThat(read.getTables()).containsExactlyElementsOf(manifest.getTables());
+		assertThat(read.getSequences()).containsExactlyElementsOf(manifest.getSequences());
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path toc = Files.writeString(tempDir.resolve("toc.dat"), "PGDMP");
+
+		assertThatThrownBy(() -> PgNativeManifest.read(toc))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Not a native export manifest");
+	}
+}
@@ -0,0 +1,88 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort.TableTiming;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PgRestorePlan: largest-first TOC ordering and per-table timings from pg_restore --verbose
+ */
+class PgRestorePlanTest {
+
+	private static final long MS = 1_000_000;
+
+	private static final List<String> TOC = List.of(
+			";",
+			"; Archive created at 2026-10-17 08:00:00 UTC",
+			"215; 1259 16386 TABLE public customers postgres",
+			"216; 1259 16390 TABLE public orders postgres",
+			"3001; 0 16386 TABLE DATA public customers postgres",
+			"3002; 0 16390 TABLE DATA public orders postgres",
+			"3003; 0 16395 TABLE DATA public audit_log postgres",
+			"3004; 0 16399 TABLE DATA public settings postgres",
+			"2870; 2606 16401 CONSTRAINT public orders orders_pkey postgres",
+			"2871; 1259 16402 INDEX public orders_customer_idx postgres");
+
+	@Test
+	void reordersTableDataBySizeLargestFirst() {
+		PgRestorePlan plan = new PgRestorePlan(Map.of("public.customers", 100L, "public.orders", 5_000L), true);
+
+		// audit_log has no recorded size but its data file does; settings has neither
+		List<String> reordered = plan.reorderLargestFirst(TOC, Map.of("3003", 800L));
+
+		assertThat(reordered).containsExactly(
+				";",
+				"; Archive created at 2026-10-17 08:00:00 UTC",
+				"215; 1259 16386 TABLE public customers postgres",
+				"216; 1259 16390 TABLE public orders postgres",
+				"3002; 0 16390 TABLE DATA public orders postgres",
+				"3003; 0 16395 TABLE DATA public audit_log postgres",
+				"3001; 0 16386 TABLE DATA public customers postgres",
+				"3004; 0 16399 TABLE DATA public settings postgres",
+				"2870; 2606 16401 CONSTRAINT public orders orders_pkey postgres",
+				"2871; 1259 16402 INDEX public orders_customer_idx postgres");
+	}
+
+	@Test
+	void tablesWithoutSizesKeepTheirOrder() {
+		PgRestorePlan plan = new PgRestorePlan(null, true);
+
+		assertThat(plan.reorderLargestFirst(TOC, Map.of())).isEqualTo(TOC);
+	}
+
+	@Test
+	void parallelProgressTimesEachItemWithItsSchema() {
+		PgRestorePlan plan = new PgRestorePlan(Map.of("public.orders", 5_000L), true);
+		plan.reorderLargestFirst(TOC, Map.of());
+
+		plan.onLine("pg_restore: launching item 3002 TABLE DATA orders", 0);
+		plan.onLine("pg_restore: launching item 3001 TABLE DATA customers", 10 * MS);
+		plan.onLine("pg_restore: finished item 3001 TABLE DATA customers", 30 * MS);
+		plan.onLine("pg_restore: finished item 3002 TABLE DATA orders", 250 * MS);
+		plan.onLine("pg_restore: finished item 2870 CONSTRAINT orders_pkey", 300 * MS);
+
+		List<TableTiming> timings = plan.finish();
+		assertThat(timings).extracting(TableTiming::getTable).containsExactly("public.orders", "public.customers");
+		assertThat(timings).extracting(TableTiming::getDurationMs).containsExactly(250L, 20L);
+		assertThat(timings).extracting(TableTiming::getSizeBytes).containsExactly(5_000L, -1L);
+	}
+
+	@Test
+	void sequentialProgressEndsATableAtTheNextLine() {
+		PgRestorePlan plan = new PgRestorePlan(Map.of(), false);
+
+		plan.onLine("pg_restore: processing data for table \"public.customers\"", 0);
+		plan.onLine("pg_restore: processing data for table \"public.orders\"", 40 * MS);
+		plan.onLine("pg_restore: creating CONSTRAINT \"public.orders orders_pkey\"", 100 * MS);
+		// Parallel-only messages are ignored
+		plan.onLine("pg_restore: finished item 3001 TABLE DATA customers", 110 * MS);
+
+		List<TableTiming> timings = plan.finish();
+		assertThat(timings).extracting(TableTiming::getTable).containsExactly("public.orders", "public.customers");
+		assertThat(timings).extracting(TableTiming::getDurationMs).containsExactly(60L, 40L);
+	}
+}
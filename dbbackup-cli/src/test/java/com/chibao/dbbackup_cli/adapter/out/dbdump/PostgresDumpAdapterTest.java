@@ -0,0 +1,64 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PostgresDumpAdapter directory dump against a scripted pg_dump
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class PostgresDumpAdapterTest {
+
+	// Writes two table files (one announced by a progress line), a large-object file and the TOC
+	private static final String FAKE_PG_DUMP = """
+			#!/bin/sh
+			if [ "$1" = "--version" ]; then echo "pg_dump (PostgreSQL) 16.4"; exit 0; fi
+			while [ $# -gt 0 ]; do [ "$1" = "-f" ] && dir="$2"; shift; done
+			mkdir "$dir"
+			head -c 1000 /dev/zero > "$dir/4001.dat.gz"
+			echo "pg_dump: finished item 4001 TABLE DATA orders" >&2
+			head -c 300 /dev/zero > "$dir/4002.dat.gz"
+			head -c 20 /dev/zero > "$dir/blob_5000.dat"
+			head -c 7 /dev/zero > "$dir/toc.dat"
+			""";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void directoryDumpSucceedsWhenTheSinkRemovesStoredFiles() throws Exception {
+		Path pgDump = tempDir.resolve("pg_dump");
+		Files.writeString(pgDump, FAKE_PG_DUMP.strip() + "\n");
+		Files.setPosixFilePermissions(pgDump, PosixFilePermissions.fromString("rwx------"));
+		PostgresDumpAdapter adapter = new PostgresDumpAdapter();
+		ReflectionTestUtils.setField(adapter, "pgDumpPath", pgDump.toString());
+
+		List<String> received = new ArrayList<>();
+		DatabaseDumpPort.DumpOutput output = adapter.performDump(DatabaseDumpPort.DumpConfig.builder()
+				.host("127.0.0.1").port(1).database("shop").username("backup").password("secret")
+				.workingDirectory(tempDir)
+				.additionalOptions(Map.of(DatabaseDumpPort.OPTION_FORMAT, "directory",
+						DatabaseDumpPort.OPTION_JOBS, "2"))
+				.build(), (directory, file) -> {
+					received.add(file.getFileName().toString());
+					Files.delete(file); // as BackupService does once the file is uploaded
+				});
+
+		assertThat(received).containsExactly("4001.dat.gz", "4002.dat.gz", "blob_5000.dat", "toc.dat");
+		assertThat(output.getSizeBytes()).isEqualTo(1000 + 300 + 20 + 7);
+		assertThat(output.getMetadata()).containsEntry("files", "4");
+	}
+}
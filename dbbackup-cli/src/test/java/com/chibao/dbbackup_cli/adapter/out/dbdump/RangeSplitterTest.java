@@ -0,0 +1,36 @@
+package com.chibao.dbbackup_cli.adapter.out.dbdump;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RangeSplitter: ranges cover the whole table, with no gaps or overlaps
+ */
+class RangeSplitterTest {
+
+	@Test
+	void splitsOnlyTablesAboveThreshold() {
+		RangeSplitter splitter = new RangeSplitter(1_000, 300);
+
+		assertThat(splitter.rangeCount(999)).isEqualTo(1);
+		assertThat(splitter.rangeCount(1_000)).isEqualTo(4);
+		assertThat(new RangeSplitter(1_000, 10_000).rangeCount(5_000)).isEqualTo(2);
+	}
+
+	@Test
+	void keyRangesAreOpenEndedAndContiguous() {
+		List<Long> cuts = RangeSplitter.histogramCuts(new long[]{1, 10, 20, 30, 40, 50, 60, 70, 80}, 4);
+
+		assertThat(cuts).containsExactly(20L, 40L, 60L);
+		assertThat(RangeSplitter.keyRanges("\"id\"", cuts)).containsExactly(
+				"\"id\" < 20",
+				"\"id\" >= 20 AND \"id\" < 40",
+				"\"id\" >= 40 AND \"id\" < 60",
+				"\"id\" >= 60");
+		assertThat(RangeSplitter.histogramCuts(new long[]{5, 5, 5}, 4)).isEmpty();
+		assertThat(RangeSplitter.linearCuts(0, 100, 4)).containsExactly(25L, 50L, 75L);
+	}
+}
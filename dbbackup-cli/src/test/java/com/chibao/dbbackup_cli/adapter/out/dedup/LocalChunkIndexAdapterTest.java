@@ -0,0 +1,71 @@
+package com.chibao.dbbackup_cli.adapter.out.dedup;
+
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * LocalChunkIndexAdapter: persistent across restarts, rebuilt when the storage target changes
+ */
+class LocalChunkIndexAdapterTest {
+
+	private static final String BUCKET_A = "s3://backups-a/backups/";
+	private static final String BUCKET_B = "s3://backups-b/backups/";
+
+	private final byte[] hash = randomHash(1);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void keepsFlushedChunksAcrossRestarts() {
+		LocalChunkIndexAdapter index = open(BUCKET_A);
+		index.add(hash);
+		index.flush();
+
+		LocalChunkIndexAdapter reopened = open(BUCKET_A);
+		assertThat(reopened.contains(hash)).isTrue();
+		assertThat(reopened.contains(randomHash(2))).isFalse();
+		assertThat(reopened.size()).isEqualTo(1);
+	}
+
+	@Test
+	void forgetsChunksWhenTheStorageTargetChanges() {
+		LocalChunkIndexAdapter index = open(BUCKET_A);
+		index.add(hash);
+		index.flush();
+
+		LocalChunkIndexAdapter switched = open(BUCKET_B);
+		assertThat(switched.contains(hash)).isFalse();
+		assertThat(switched.size()).isZero();
+
+		// Switching back does not revive chunks the other target's backups may not have
+		assertThat(open(BUCKET_A).contains(hash)).isFalse();
+	}
+
+	private LocalChunkIndexAdapter open(String target) {
+		StoragePort storagePort = mock(StoragePort.class);
+		when(storagePort.getTargetId()).thenReturn(target);
+		LocalChunkIndexAdapter index = new LocalChunkIndexAdapter(storagePort);
+		ReflectionTestUtils.setField(index, "indexDir", tempDir.resolve("chunk-index").toString());
+		ReflectionTestUtils.setField(index, "expectedChunks", 1_000L);
+		ReflectionTestUtils.setField(index, "falsePositiveRate", 0.01);
+		ReflectionTestUtils.setField(index, "maxSegments", 8);
+		index.open();
+		return index;
+	}
+
+	private static byte[] randomHash(int seed) {
+		byte[] bytes = new byte[32];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+}
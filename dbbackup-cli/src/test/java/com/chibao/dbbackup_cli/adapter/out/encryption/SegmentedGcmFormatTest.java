@@ -0,0 +1,157 @@
+package com.chibao.dbbackup_cli.adapter.out.encryption;
+
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Segmented AES-GCM envelope: round trip, and tampering caught by segment authentication
+ */
+class SegmentedGcmFormatTest {
+
+	private static final int SEGMENT = SegmentedGcmFormat.MIN_SEGMENT_SIZE;
+	private static final int ENCRYPTED_SEGMENT = SEGMENT + SegmentedGcmFormat.TAG_LENGTH;
+
+	private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+	private final ExecutorService workers = Executors.newFixedThreadPool(3);
+	private final BufferPool pool = new BufferPool(ENCRYPTED_SEGMENT, 8, true);
+
+	@AfterEach
+	void tearDown() {
+		workers.shutdownNow();
+	}
+
+	@Test
+	void roundTripsAnySize() throws IOException {
+		for (int size : new int[] {0, 1, SEGMENT, 3 * SEGMENT + 100}) {
+			byte[] plaintext = randomBytes(size);
+			byte[] encrypted = encrypt(plaintext);
+
+			assertThat(SegmentedGcmFormat.isSegmented(encrypted)).isTrue();
+			assertThat(decrypt(encrypted)).as("size %d", size).isEqualTo(plaintext);
+		}
+	}
+
+	@Test
+	void rejectsTamperedSegment() throws IOException {
+		byte[] encrypted = encrypt(randomBytes(3 * SEGMENT));
+		encrypted[SegmentedGcmFormat.HEADER_LENGTH + ENCRYPTED_SEGMENT + 10] ^= 1;
+
+		assertThatThrownBy(() -> decrypt(encrypted)).isInstanceOf(IOException.class)
+				.hasMessageContaining("authentication failed");
+	}
+
+	@Test
+	void rejectsTruncatedFinalSegment() throws IOException {
+		byte[] encrypted = encrypt(randomBytes(3 * SEGMENT + 100));
+
+		// Part of the final segment missing
+		byte[] shortened = Arrays.copyOf(encrypted, encrypted.length - 5);
+		assertThatThrownBy(() -> decrypt(shortened)).isInstanceOf(IOException.class);
+
+		// Final segment missing: the previous one was not sealed as last
+		byte[] cut = Arrays.copyOf(encrypted, SegmentedGcmFormat.HEADER_LENGTH + 3 * ENCRYPTED_SEGMENT);
+		assertThatThrownBy(() -> decrypt(cut)).isInstanceOf(IOException.class)
+				.hasMessageContaining("authentication failed");
+	}
+
+	@Test
+	void rejectsReorderedSegments() throws IOException {
+		byte[] encrypted = encrypt(randomBytes(3 * SEGMENT + 100));
+		byte[] reordered = encrypted.clone();
+		int first = SegmentedGcmFormat.HEADER_LENGTH;
+		int second = first + ENCRYPTED_SEGMENT;
+		System.arraycopy(encrypted, first, reordered, second, ENCRYPTED_SEGMENT);
+		System.arraycopy(encrypted, second, reordered, first, ENCRYPTED_SEGMENT);
+
+		assertThatThrownBy(() -> decrypt(reordered)).isInstanceOf(IOException.class)
+				.hasMessageContaining("authentication failed");
+	}
+
+	@Test
+	void rejectsForeignHeader() throws IOException {
+		byte[] encrypted = encrypt(randomBytes(100));
+		byte[] header = Arrays.copyOf(encrypted, SegmentedGcmFormat.HEADER_LENGTH);
+		header[SegmentedGcmFormat.MAGIC.length] = 2;
+
+		assertThatThrownBy(() -> SegmentedGcmFormat.open(key, header)).isInstanceOf(IOException.class)
+				.hasMessageContaining("version");
+	}
+
+	@Test
+	void concurrentStreamsShareOnePoolAndReturnEveryBuffer() throws IOException {
+		// Three streams interleaved on one thread: the pool cannot cover them all at once
+		List<ByteArrayOutputStream> targets = new ArrayList<>();
+		List<OutputStream> streams = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			targets.add(new ByteArrayOutputStream());
+			streams.add(new SegmentedGcmOutputStream(targets.get(i), SegmentedGcmFormat.create(key, SEGMENT),
+					workers, 2, pool));
+		}
+		byte[] plaintext = randomBytes(5 * SEGMENT + 7);
+		for (int off = 0; off < plaintext.length; off += 1000) {
+			for (OutputStream stream : streams) {
+				stream.write(plaintext, off, Math.min(1000, plaintext.length - off));
+			}
+			assertThat(pool.inUse()).isLessThanOrEqualTo(pool.getCapacity());
+		}
+		for (OutputStream stream : streams) {
+			stream.close();
+		}
+		assertThat(pool.inUse()).isZero();
+
+		for (ByteArrayOutputStream target : targets) {
+			assertThat(decrypt(target.toByteArray())).isEqualTo(plaintext);
+		}
+		assertThat(pool.inUse()).isZero();
+	}
+
+	@Test
+	void rejectsPoolOfAnotherSegmentSize() {
+		BufferPool other = new BufferPool(2 * ENCRYPTED_SEGMENT, 4, true);
+
+		assertThatThrownBy(() -> new SegmentedGcmOutputStream(new ByteArrayOutputStream(),
+				SegmentedGcmFormat.create(key, SEGMENT), workers, 2, other))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private byte[] encrypt(byte[] plaintext) throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		try (OutputStream out = new SegmentedGcmOutputStream(target, SegmentedGcmFormat.create(key, SEGMENT),
+				workers, 2, pool)) {
+			out.write(plaintext);
+		}
+		return target.toByteArray();
+	}
+
+	private byte[] decrypt(byte[] encrypted) throws IOException {
+		InputStream source = new ByteArrayInputStream(encrypted);
+		SegmentedGcmFormat format = SegmentedGcmFormat.open(key, source.readNBytes(SegmentedGcmFormat.HEADER_LENGTH));
+		try (InputStream in = new SegmentedGcmInputStream(source, format, workers, 2, pool)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,82 @@
+package com.chibao.dbbackup_cli.adapter.out.kms;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DataKeyCache: handed-out keys survive eviction; loads are serialized per key only
+ */
+class DataKeyCacheTest {
+
+	private final DataKeyCache<byte[]> cache = new DataKeyCache<>(1, Duration.ofMinutes(5), 2, byte[]::clone,
+			key -> Arrays.fill(key, (byte) 0));
+
+	@Test
+	void evictionDoesNotWipeKeysAlreadyHandedOut() {
+		byte[] first = cache.get("a", () -> filled(7));
+		byte[] hit = cache.get("a", () -> filled(9));
+		cache.get("a", () -> filled(8));   // max uses reached: reloaded, old entry wiped
+		cache.get("b", () -> filled(5));   // LRU overflow: "a" wiped
+
+		assertThat(first).containsOnly(7);
+		assertThat(hit).containsOnly(7);
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(3);
+	}
+
+	@Test
+	void slowLoadDoesNotBlockOtherKeys() throws Exception {
+		DataKeyCache<byte[]> shared = new DataKeyCache<>(10, Duration.ofMinutes(5), 100, byte[]::clone, key -> { });
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<byte[]> slow = executor.submit(() -> shared.get("slow", () -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				await(release);
+				return filled(1);
+			}));
+			loading.await();
+			Future<byte[]> sameKey = executor.submit(() -> shared.get("slow", () -> {
+				loads.incrementAndGet();
+				return filled(2);
+			}));
+			// A different key loads while "slow" is still in its KMS call
+			assertThat(executor.submit(() -> shared.get("other", () -> filled(3))).get(5, TimeUnit.SECONDS))
+					.containsOnly(3);
+
+			release.countDown();
+			assertThat(slow.get(5, TimeUnit.SECONDS)).containsOnly(1);
+			assertThat(sameKey.get(5, TimeUnit.SECONDS)).containsOnly(1);
+			assertThat(loads).hasValue(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static byte[] filled(int value) {
+		byte[] key = new byte[32];
+		Arrays.fill(key, (byte) value);
+		return key;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.chibao.dbbackup_cli.adapter.out.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AimdConcurrencyLimit: slots come back after failed transfers; throttling halves the limit, success grows it
+ */
+class AimdConcurrencyLimitTest {
+
+	private final AimdConcurrencyLimit limit = new AimdConcurrencyLimit("test", 4, 1, 8, 100.0,
+			failure -> failure.getMessage().contains("SlowDown"));
+
+	@Test
+	void failedTransferReturnsItsSlot() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			limit.acquire();
+		}
+		CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+			try {
+				limit.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Thread.sleep(100);
+		assertThat(waiter).isNotDone();
+
+		// Same sequence as a part worker whose upload failed: record, then release in finally
+		limit.record(System.nanoTime(), 1024, new IllegalStateException("Connection reset"));
+		limit.release();
+		waiter.get(5, TimeUnit.SECONDS);
+
+		for (int i = 0; i < 4; i++) {
+			limit.release();
+		}
+		assertThat(limit.getInFlight()).isZero();
+	}
+
+	@Test
+	void throttlingHalvesAndSuccessGrowsTheLimit() {
+		limit.record(System.nanoTime(), 1024, new IllegalStateException("503 SlowDown"));
+		assertThat(limit.getLimit()).isEqualTo(2);
+		assertThat(limit.getThrottleCount()).isEqualTo(1);
+
+		for (int i = 0; i < 10; i++) {
+			limit.record(System.nanoTime() - 1_000_000, 1024 * 1024, null);
+		}
+		assertThat(limit.getLimit()).isGreaterThan(2);
+		assertThat(limit.getErrorRate()).isZero();
+	}
+}
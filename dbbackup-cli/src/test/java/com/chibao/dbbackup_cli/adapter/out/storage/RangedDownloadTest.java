@@ -0,0 +1,155 @@
+package com.chibao.dbbackup_cli.adapter.out.storage;
+
+import com.chibao.dbbackup_cli.config.RetryConfig;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+
+/**
+ * RangedDownload: ranges fetched out of order come back in order; failed ranges are retried, slow ones hedged
+ */
+class RangedDownloadTest {
+
+	private static final int RANGE_SIZE = 1000;
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final byte[] object = randomBytes(10 * RANGE_SIZE + 337);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@TempDir
+	Path tempDir;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void streamsRangesInOrderWhateverOrderTheyFinish() throws Exception {
+		Random delays = new Random(1);
+		RangedDownload download = download((first, last) -> {
+			sleep(delays.nextInt(20));
+			return slice(first, last);
+		}, Duration.ofSeconds(5));
+
+		byte[] read = assertTimeoutPreemptively(TIMEOUT, () -> {
+			try (InputStream in = download.openStream()) {
+				return in.readAllBytes();
+			}
+		});
+		assertThat(read).isEqualTo(object);
+	}
+
+	@Test
+	void writesRangesAtTheirOffsets() throws Exception {
+		Path file = tempDir.resolve("object");
+		Files.write(file, new byte[3 * object.length]); // longer than the object: must be truncated
+
+		assertTimeoutPreemptively(TIMEOUT, () -> download(this::slice, Duration.ofSeconds(5)).writeTo(file));
+		assertThat(Files.readAllBytes(file)).isEqualTo(object);
+	}
+
+	@Test
+	void retriesFailedRangeAndHedgesStuckOne() throws Exception {
+		Map<Long, AtomicInteger> attempts = new ConcurrentHashMap<>();
+		RangedDownload download = download((first, last) -> {
+			int attempt = attempts.computeIfAbsent(first, offset -> new AtomicInteger()).incrementAndGet();
+			if (first == 3L * RANGE_SIZE && attempt == 1) {
+				throw new IOException("Connection reset");
+			}
+			if (first == 0 && attempt == 1) {
+				awaitRelease(); // the first copy of the head range never answers in time
+			}
+			return slice(first, last);
+		}, Duration.ofMillis(50));
+
+		byte[] read = assertTimeoutPreemptively(TIMEOUT, () -> {
+			try (InputStream in = download.openStream()) {
+				return in.readAllBytes();
+			}
+		});
+		assertThat(read).isEqualTo(object);
+		assertThat(attempts.get(0L)).hasValue(2);
+		assertThat(attempts.get(3L * RANGE_SIZE)).hasValue(2);
+	}
+
+	@Test
+	void failsWhenARangeCannotBeFetched() {
+		RangedDownload download = download((first, last) -> {
+			if (first == 2L * RANGE_SIZE) {
+				throw new FileNotFoundException("Object deleted");
+			}
+			return slice(first, last);
+		}, Duration.ofSeconds(5));
+
+		assertTimeoutPreemptively(TIMEOUT, () -> {
+			try (InputStream in = download.openStream()) {
+				assertThatThrownBy(in::readAllBytes).isInstanceOf(IOException.class)
+						.hasMessageContaining("Range 2 failed");
+			}
+		});
+	}
+
+	private RangedDownload download(RangedDownload.RangeFetcher fetcher, Duration hedgeAfter) {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("retry.policies.ranged-get.initial-backoff", "1ms");
+		environment.setConversionService(new ApplicationConversionService());
+		return new RangedDownload(fetcher, object.length, RANGE_SIZE, 4, hedgeAfter,
+				new RetryConfig().retryExecutor(mock(MetricsPort.class), environment), executor,
+				new AimdConcurrencyLimit("test", 4, 1, 8, 100.0, failure -> false));
+	}
+
+	private InputStream slice(long first, long last) {
+		return new ByteArrayInputStream(Arrays.copyOfRange(object, (int) first, (int) last + 1));
+	}
+
+	private void awaitRelease() throws IOException {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	private static void sleep(long millis) throws IOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,394 @@
+package com.chibao.dbbackup_cli.adapter.out.storage;
+
+import com.chibao.dbbackup_cli.config.RetryConfig;
+import com.chibao.dbbackup_cli.domain.exception.StorageException;
+import com.chibao.dbbackup_cli.domain.pipeline.BufferPool;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.paginators.ListPartsIterable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+
+/**
+ * S3StorageAdapter against an in-memory S3 stand-in that injects faults
+ * (5xx, throttling, connection resets, 403) into part uploads and ranged GETs
+ */
+class S3StorageAdapterFaultTest {
+
+	private static final int MB = 1024 * 1024;
+
+	private final FaultyS3 s3 = new FaultyS3();
+	private final MetricsPort metricsPort = mock(MetricsPort.class);
+	private S3StorageAdapter adapter;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		S3Client client = (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(),
+				new Class<?>[] {S3Client.class}, (proxy, method, args) -> s3.handle((S3Client) proxy, method.getName(), args));
+		adapter = new S3StorageAdapter(client, metricsPort,
+				new RetryConfig().retryExecutor(metricsPort, new MockEnvironment()));
+		ReflectionTestUtils.setField(adapter, "bucketName", "bucket");
+		ReflectionTestUtils.setField(adapter, "prefix", "backups/");
+		ReflectionTestUtils.setField(adapter, "multipartThreshold", (long) MB);
+		ReflectionTestUtils.setField(adapter, "partSize", 5L * MB);
+		ReflectionTestUtils.setField(adapter, "maxInFlightParts", 4);
+		ReflectionTestUtils.setField(adapter, "partBufferCount", 4);
+		ReflectionTestUtils.setField(adapter, "rangedDownloadEnabled", true);
+		ReflectionTestUtils.setField(adapter, "rangeSize", MB);
+		ReflectionTestUtils.setField(adapter, "rangeConcurrency", 4);
+		ReflectionTestUtils.setField(adapter, "rangeHedgeAfter", Duration.ofSeconds(2));
+		ReflectionTestUtils.setField(adapter, "initialConcurrency", 4);
+		ReflectionTestUtils.setField(adapter, "minConcurrency", 1);
+		ReflectionTestUtils.setField(adapter, "latencyTolerance", 2.0);
+		adapter.initPartUploads();
+	}
+
+	@AfterEach
+	void tearDown() {
+		adapter.shutdownPartUploads();
+	}
+
+	@Test
+	void multipartUploadSurvivesTransientPartFailures() throws Exception {
+		byte[] data = randomBytes(12 * MB);
+		Path source = Files.write(tempDir.resolve("backup.dump"), data);
+		s3.failPart(2, serverError(500, "InternalError"), serverError(503, "SlowDown"));
+		s3.failPart(3, SdkClientException.create("Connection reset"));
+
+		String key = adapter.upload(StoragePort.UploadRequest.builder()
+				.sourceFile(source)
+				.filename("backup.dump")
+				.sizeBytes(data.length)
+				.enableMultipart(true)
+				.metadata(Map.of())
+				.build());
+
+		assertThat(key).isEqualTo("backups/backup.dump");
+		assertThat(s3.objects.get(key)).isEqualTo(data);
+		assertThat(s3.partAttempts.get(2)).hasValue(3);
+		assertThat(s3.partAttempts.get(3)).hasValue(2);
+		assertThat(s3.aborted).hasValue(0);
+	}
+
+	@Test
+	void nonTransientPartFailureAbortsWithoutRetrying() throws Exception {
+		Path source = Files.write(tempDir.resolve("backup.dump"), randomBytes(12 * MB));
+		s3.failPart(2, serverError(403, "AccessDenied"));
+
+		assertThatThrownBy(() -> adapter.upload(StoragePort.UploadRequest.builder()
+				.sourceFile(source)
+				.filename("backup.dump")
+				.sizeBytes(12 * MB)
+				.enableMultipart(true)
+				.metadata(Map.of())
+				.build())).isInstanceOf(StorageException.class);
+
+		assertThat(s3.partAttempts.get(2)).hasValue(1);
+		assertThat(s3.aborted).hasValue(1);
+	}
+
+	@Test
+	void failingStreamReturnsPartBuffersAndSlots() throws Exception {
+		// More failed uploads than there are pooled buffers or transfer slots
+		for (int i = 0; i < 6; i++) {
+			InputStream failing = new SequenceInputStream(new ByteArrayInputStream(randomBytes(7 * MB)),
+					new InputStream() {
+						@Override
+						public int read() throws IOException {
+							throw new IOException("producer failed");
+						}
+					});
+			// Before the fix the leaked slots made later uploads block forever
+			assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThatThrownBy(() -> adapter.upload(
+					StoragePort.UploadRequest.builder()
+							.data(failing)
+							.filename("failed.dump")
+							.sizeBytes(-1)
+							.metadata(Map.of())
+							.build())).isInstanceOf(StorageException.class));
+		}
+		assertThat(s3.aborted).hasValue(6);
+		BufferPool partBuffers = (BufferPool) ReflectionTestUtils.getField(adapter, "partBuffers");
+		AimdConcurrencyLimit uploadLimit = (AimdConcurrencyLimit) ReflectionTestUtils.getField(adapter, "uploadLimit");
+		assertThat(partBuffers.inUse()).isZero();
+		assertThat(uploadLimit.getInFlight()).isZero();
+
+		byte[] data = randomBytes(12 * MB);
+		String key = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> adapter.upload(
+				StoragePort.UploadRequest.builder()
+						.data(new ByteArrayInputStream(data))
+						.filename("backup.dump")
+						.sizeBytes(-1)
+						.metadata(Map.of())
+						.build()));
+		assertThat(s3.objects.get(key)).isEqualTo(data);
+	}
+
+	@Test
+	void rangedDownloadRetriesFailedRanges() throws Exception {
+		byte[] data = randomBytes(6 * MB + 123);
+		s3.objects.put("backups/backup.dump", data);
+		s3.failRange(2 * MB, serverError(500, "InternalError"));
+		s3.failRange(4 * MB, SdkClientException.create("Connection reset"));
+
+		Path target = tempDir.resolve("restored.dump");
+		adapter.downloadTo("backups/backup.dump", target);
+		assertThat(Files.readAllBytes(target)).isEqualTo(data);
+
+		s3.failRange(MB, serverError(503, "SlowDown"));
+		try (InputStream in = adapter.download("backups/backup.dump")) {
+			assertThat(in.readAllBytes()).isEqualTo(data);
+		}
+		// once by the first download, twice by the second
+		assertThat(s3.rangeAttempts.get((long) MB)).hasValue(3);
+	}
+
+	@Test
+	void deltaUploadCopiesUnchangedPartsFromPreviousObject() throws Exception {
+		byte[] previous = randomBytes(12 * MB);
+		AtomicReference<StoragePort.PartDigests> previousDigests = new AtomicReference<>();
+		adapter.upload(fileRequest("previous.dump", previous).partDigestListener(previousDigests::set).build());
+		assertThat(previousDigests.get().getDigests()).hasSize(3);
+
+		byte[] current = previous.clone();
+		current[6 * MB] ^= 1; // part 2 changed
+		s3.partAttempts.clear();
+		AtomicReference<StoragePort.PartDigests> currentDigests = new AtomicReference<>();
+		String key = adapter.upload(fileRequest("current.dump", current)
+				.deltaBase(previousDigests.get())
+				.partDigestListener(currentDigests::set)
+				.build());
+
+		assertThat(s3.objects.get(key)).isEqualTo(current);
+		assertThat(s3.copiedParts).containsExactlyInAnyOrder(1, 3);
+		assertThat(s3.partAttempts).containsOnlyKeys(2);
+		assertThat(currentDigests.get().getDigests()).element(1)
+				.isNotEqualTo(previousDigests.get().getDigests().get(1));
+	}
+
+	@Test
+	void deltaUploadFallsBackToUploadWhenBaseChanged() throws Exception {
+		byte[] previous = randomBytes(12 * MB);
+		AtomicReference<StoragePort.PartDigests> previousDigests = new AtomicReference<>();
+		adapter.upload(fileRequest("previous.dump", previous).partDigestListener(previousDigests::set).build());
+		s3.partAttempts.clear();
+
+		String key = adapter.upload(fileRequest("current.dump", previous)
+				.deltaBase(previousDigests.get().toBuilder().eTag("\"replaced\"").build())
+				.build());
+
+		assertThat(s3.objects.get(key)).isEqualTo(previous);
+		assertThat(s3.copiedParts).isEmpty();
+		assertThat(s3.partAttempts).containsOnlyKeys(1, 2, 3);
+	}
+
+	@Test
+	void resumedUploadSendsOnlyThePartsS3DoesNotHave() throws Exception {
+		byte[] data = randomBytes(12 * MB);
+		s3.parts.put(1, Arrays.copyOfRange(data, 0, 5 * MB));
+		s3.parts.put(2, Arrays.copyOfRange(data, 5 * MB, 10 * MB));
+		StoragePort.UploadCheckpoint checkpoint = StoragePort.UploadCheckpoint.builder()
+				.uploadId("upload-1")
+				.objectKey("backups/backup.dump")
+				.partSize(5L * MB)
+				.initiatedAt(Instant.now())
+				.completedParts(new TreeMap<>(Map.of(1, "etag-1"))) // part 2 finished after the last checkpoint
+				.build();
+
+		String key = adapter.upload(fileRequest("backup.dump", data).resumeFrom(checkpoint).build());
+
+		assertThat(key).isEqualTo("backups/backup.dump");
+		assertThat(s3.objects.get(key)).isEqualTo(data);
+		assertThat(s3.partAttempts).containsOnlyKeys(3);
+	}
+
+	private StoragePort.UploadRequest.UploadRequestBuilder fileRequest(String filename, byte[] data)
+			throws Exception {
+		Path source = Files.write(tempDir.resolve(filename), data);
+		return StoragePort.UploadRequest.builder()
+				.sourceFile(source)
+				.filename(filename)
+				.sizeBytes(data.length)
+				.enableMultipart(true)
+				.metadata(Map.of());
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(42).nextBytes(data);
+		return data;
+	}
+
+	private static S3Exception serverError(int status, String code) {
+		return (S3Exception) S3Exception.builder()
+				.statusCode(status)
+				.awsErrorDetails(AwsErrorDetails.builder().errorCode(code).errorMessage(code).build())
+				.message(code)
+				.build();
+	}
+
+	/**
+	 * Just enough of S3 for the adapter: multipart uploads, part listing, HEAD and ranged GET
+	 * Failures queued for a part number or range offset are thrown, in order,
+	 * by the next attempts at it.
+	 */
+	private static final class FaultyS3 {
+
+		final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+		final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+		final Map<Integer, AtomicInteger> partAttempts = new ConcurrentHashMap<>();
+		final Map<Long, AtomicInteger> rangeAttempts = new ConcurrentHashMap<>();
+		final AtomicInteger aborted = new AtomicInteger();
+		final Set<Integer> copiedParts = ConcurrentHashMap.newKeySet();
+		private final Map<Object, Deque<RuntimeException>> faults = new ConcurrentHashMap<>();
+
+		void failPart(int partNumber, RuntimeException... failures) {
+			faults.computeIfAbsent(partNumber, k -> new ConcurrentLinkedDeque<>())
+					.addAll(List.of(failures));
+		}
+
+		void failRange(long offset, RuntimeException... failures) {
+			faults.computeIfAbsent(offset, k -> new ConcurrentLinkedDeque<>())
+					.addAll(List.of(failures));
+		}
+
+		private void injectFault(Object target) {
+			Deque<RuntimeException> queued = faults.get(target);
+			RuntimeException failure = queued == null ? null : queued.poll();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		Object handle(S3Client client, String method, Object[] args) throws Exception {
+			return switch (method) {
+				case "createMultipartUpload" -> CreateMultipartUploadResponse.builder().uploadId("upload-1").build();
+				case "uploadPart" -> uploadPart((UploadPartRequest) args[0], (RequestBody) args[1]);
+				case "uploadPartCopy" -> uploadPartCopy((UploadPartCopyRequest) args[0]);
+				case "listPartsPaginator" -> new ListPartsIterable(client, (ListPartsRequest) args[0]);
+				case "listParts" -> listParts();
+				case "completeMultipartUpload" -> complete((CompleteMultipartUploadRequest) args[0]);
+				case "abortMultipartUpload" -> {
+					aborted.incrementAndGet();
+					yield AbortMultipartUploadResponse.builder().build();
+				}
+				case "headObject" -> head((HeadObjectRequest) args[0]);
+				case "getObject" -> get((GetObjectRequest) args[0]);
+				case "serviceName" -> "s3";
+				case "close" -> null;
+				default -> throw new UnsupportedOperationException(method);
+			};
+		}
+
+		private UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) throws Exception {
+			partAttempts.computeIfAbsent(request.partNumber(), k -> new AtomicInteger()).incrementAndGet();
+			byte[] bytes;
+			try (InputStream in = body.contentStreamProvider().newStream()) {
+				bytes = in.readAllBytes();
+			}
+			injectFault(request.partNumber());
+			assertThat((long) bytes.length).isEqualTo(request.contentLength());
+			parts.put(request.partNumber(), bytes);
+			return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+		}
+
+		private ListPartsResponse listParts() {
+			return ListPartsResponse.builder()
+					.parts(new TreeMap<>(parts).keySet().stream()
+							.map(n -> Part.builder().partNumber(n).eTag("etag-" + n).build())
+							.toList())
+					.isTruncated(false)
+					.build();
+		}
+
+		private UploadPartCopyResponse uploadPartCopy(UploadPartCopyRequest request) {
+			byte[] source = objects.get(request.sourceKey());
+			if (source == null || !"\"v1\"".equals(request.copySourceIfMatch())) {
+				throw (S3Exception) S3Exception.builder().statusCode(412).message("PreconditionFailed").build();
+			}
+			String[] bounds = request.copySourceRange().substring("bytes=".length()).split("-");
+			int first = Integer.parseInt(bounds[0]);
+			int last = Integer.parseInt(bounds[1]);
+			parts.put(request.partNumber(), Arrays.copyOfRange(source, first, last + 1));
+			copiedParts.add(request.partNumber());
+			return UploadPartCopyResponse.builder()
+					.copyPartResult(CopyPartResult.builder().eTag("etag-" + request.partNumber()).build())
+					.build();
+		}
+
+		private CompleteMultipartUploadResponse complete(CompleteMultipartUploadRequest request) throws Exception {
+			ByteArrayOutputStream object = new ByteArrayOutputStream();
+			for (CompletedPart part : request.multipartUpload().parts()) {
+				assertThat(part.eTag()).isEqualTo("etag-" + part.partNumber());
+				object.write(parts.get(part.partNumber()));
+			}
+			objects.put(request.key(), object.toByteArray());
+			return CompleteMultipartUploadResponse.builder().key(request.key()).eTag("\"v1\"").build();
+		}
+
+		private HeadObjectResponse head(HeadObjectRequest request) {
+			byte[] object = objects.get(request.key());
+			if (object == null) {
+				throw NoSuchKeyException.builder().statusCode(404).message("Not Found").build();
+			}
+			return HeadObjectResponse.builder().contentLength((long) object.length).eTag("\"v1\"").build();
+		}
+
+		private ResponseInputStream<GetObjectResponse> get(GetObjectRequest request) {
+			byte[] object = objects.get(request.key());
+			int first = 0;
+			int last = object.length - 1;
+			if (request.range() != null) {
+				String[] bounds = request.range().substring("bytes=".length()).split("-");
+				first = Integer.parseInt(bounds[0]);
+				last = Integer.parseInt(bounds[1]);
+				assertThat(request.ifMatch()).isEqualTo("\"v1\"");
+				rangeAttempts.computeIfAbsent((long) first, k -> new AtomicInteger()).incrementAndGet();
+				injectFault((long) first);
+			}
+			return new ResponseInputStream<>(GetObjectResponse.builder().contentLength((long) (last - first + 1)).build(),
+					AbortableInputStream.create(new ByteArrayInputStream(object, first, last - first + 1)));
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.chibao.dbbackup_cli.domain.dedup;
+
+import com.chibao.dbbackup_cli.config.RetryConfig;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.out.ChunkIndexPort;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * ChunkStore against in-memory storage and index (chunks stored uncompressed)
+ */
+class ChunkStoreTest {
+
+	private static final int KB = 1024;
+
+	private final MemoryStorage storage = new MemoryStorage();
+	private final MemoryIndex index = new MemoryIndex();
+	private ChunkStore chunkStore;
+
+	@BeforeEach
+	void setUp() {
+		MetricsPort metricsPort = mock(MetricsPort.class);
+		chunkStore = new ChunkStore(storage, mock(CompressionPort.class), index,
+				new RetryConfig().retryExecutor(metricsPort, new MockEnvironment()));
+		ReflectionTestUtils.setField(chunkStore, "minChunkSize", 4 * KB);
+		ReflectionTestUtils.setField(chunkStore, "avgChunkSize", 16 * KB);
+		ReflectionTestUtils.setField(chunkStore, "maxChunkSize", 64 * KB);
+		ReflectionTestUtils.setField(chunkStore, "uploadConcurrency", 4);
+		ReflectionTestUtils.setField(chunkStore, "downloadConcurrency", 4);
+	}
+
+	@AfterEach
+	void tearDown() {
+		chunkStore.shutdownChunkExecutor();
+	}
+
+	@Test
+	void roundTripsThroughManifest() throws IOException {
+		byte[] dump = randomBytes(1, 2 * 1024 * KB);
+
+		ChunkManifest manifest = write(dump).getManifest();
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		manifest.writeTo(serialized);
+		ChunkManifest reread = ChunkManifest.readFrom(new ByteArrayInputStream(serialized.toByteArray()));
+
+		assertThat(reread.totalLength()).isEqualTo(dump.length);
+		assertThat(read(reread)).isEqualTo(dump);
+	}
+
+	@Test
+	void insertOnlyChangesNearbyChunks() throws IOException {
+		byte[] original = randomBytes(2, 2 * 1024 * KB);
+		byte[] edited = new byte[original.length + 100];
+		int insertAt = original.length / 2;
+		System.arraycopy(original, 0, edited, 0, insertAt);
+		System.arraycopy(randomBytes(3, 100), 0, edited, insertAt, 100);
+		System.arraycopy(original, insertAt, edited, insertAt + 100, original.length - insertAt);
+
+		write(original);
+		ChunkStore.ChunkWriter second = write(edited);
+
+		// Boundaries resynchronise after the insert, so almost everything is reused
+		assertThat(second.getNewChunks()).isLessThanOrEqualTo(3);
+		assertThat(second.getReusedChunks()).isGreaterThan(second.getChunkCount() - 4L);
+		assertThat(read(second.getManifest())).isEqualTo(edited);
+	}
+
+	@Test
+	void rejectsCorruptedChunk() throws IOException {
+		ChunkManifest manifest = write(randomBytes(4, 256 * KB)).getManifest();
+		String victim = storage.objects.keySet().iterator().next();
+		byte[] stored = storage.objects.get(victim);
+		stored[stored.length - 1] ^= 1;
+
+		assertThatThrownBy(() -> read(manifest)).isInstanceOf(IOException.class);
+	}
+
+	private ChunkStore.ChunkWriter write(byte[] dump) throws IOException {
+		ChunkStore.ChunkWriter writer = chunkStore.newWriter(CompressionType.NONE, null);
+		try (writer) {
+			writer.write(dump);
+		}
+		return writer;
+	}
+
+	private byte[] read(ChunkManifest manifest) throws IOException {
+		try (InputStream in = chunkStore.openReader(manifest)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static byte[] randomBytes(long seed, int length) {
+		byte[] bytes = new byte[length];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static class MemoryStorage implements StoragePort {
+		final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+		@Override
+		public String upload(UploadRequest request) {
+			try (InputStream in = request.openStream()) {
+				objects.put(request.getFilename(), in.readAllBytes());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return request.getFilename();
+		}
+
+		@Override
+		public InputStream download(String identifier) {
+			return new ByteArrayInputStream(objects.get(identifier));
+		}
+
+		@Override
+		public void delete(String identifier) {
+			objects.remove(identifier);
+		}
+
+		@Override
+		public boolean exists(String identifier) {
+			return objects.containsKey(identifier);
+		}
+
+		@Override
+		public String getProviderType() {
+			return "memory";
+		}
+
+		@Override
+		public String locate(String filename) {
+			return filename;
+		}
+	}
+
+	private static class MemoryIndex implements ChunkIndexPort {
+		private final Set<ByteBuffer> hashes = new HashSet<>();
+
+		@Override
+		public synchronized boolean contains(byte[] hash) {
+			return hashes.contains(ByteBuffer.wrap(hash));
+		}
+
+		@Override
+		public synchronized void add(byte[] hash) {
+			hashes.add(ByteBuffer.wrap(Arrays.copyOf(hash, hash.length)));
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public synchronized long size() {
+			return hashes.size();
+		}
+	}
+}
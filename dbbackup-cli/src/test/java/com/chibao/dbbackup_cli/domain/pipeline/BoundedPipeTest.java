@@ -0,0 +1,95 @@
+package com.chibao.dbbackup_cli.domain.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * BoundedPipe: bytes cross threads unchanged, failures reach the other side, buffers go back to the pool
+ */
+class BoundedPipeTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final BufferPool pool = new BufferPool(1024, 4, false);
+	private final BoundedPipe pipe = new BoundedPipe(pool);
+	private final ExecutorService producer = Executors.newSingleThreadExecutor();
+
+	@AfterEach
+	void tearDown() {
+		producer.shutdownNow();
+	}
+
+	@Test
+	void transfersEveryByteInOrderThroughFewBuffers() throws Exception {
+		byte[] data = new byte[100_000]; // ~100 buffers through a pool of 4
+		new Random(7).nextBytes(data);
+
+		Future<?> writing = producer.submit(() -> {
+			try (OutputStream sink = pipe.sink()) {
+				for (int off = 0; off < data.length; off += 777) {
+					sink.write(data, off, Math.min(777, data.length - off));
+				}
+			}
+			return null;
+		});
+		byte[] read = assertTimeoutPreemptively(TIMEOUT, () -> {
+			try (InputStream source = pipe.source()) {
+				return source.readAllBytes();
+			}
+		});
+
+		writing.get();
+		assertThat(read).isEqualTo(data);
+		assertThat(pool.inUse()).isZero();
+	}
+
+	@Test
+	void producerFailureReachesReaderAndReturnsBuffers() throws Exception {
+		OutputStream sink = pipe.sink();
+		sink.write(new byte[3 * 1024 + 10]); // three queued buffers, one partly filled
+		pipe.fail(new IOException("pg_dump exited with code 1"));
+
+		InputStream source = pipe.source();
+		assertTimeoutPreemptively(TIMEOUT, () -> {
+			assertThatThrownBy(source::read).isInstanceOf(IOException.class)
+					.hasMessageContaining("pg_dump exited with code 1");
+			assertThatThrownBy(source::read).isInstanceOf(IOException.class);
+		});
+		assertThatThrownBy(sink::close).isInstanceOf(IOException.class);
+		source.close();
+
+		assertThat(pool.inUse()).isZero();
+	}
+
+	@Test
+	void readerClosingEarlyStopsBlockedWriterAndReturnsBuffers() throws Exception {
+		Future<?> writing = producer.submit(() -> {
+			try (OutputStream sink = pipe.sink()) {
+				while (true) {
+					sink.write(new byte[512]);
+				}
+			}
+		});
+		InputStream source = pipe.source();
+		assertThat(source.read(new byte[100])).isEqualTo(100);
+		source.close();
+
+		assertTimeoutPreemptively(TIMEOUT, () -> assertThatThrownBy(writing::get)
+				.hasCauseInstanceOf(IOException.class)
+				.hasMessageContaining("closed before end of stream"));
+		assertThat(pool.inUse()).isZero();
+	}
+}
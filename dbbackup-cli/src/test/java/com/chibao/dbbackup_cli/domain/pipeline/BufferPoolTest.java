@@ -0,0 +1,59 @@
+package com.chibao.dbbackup_cli.domain.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BufferPool: bounded, lazily allocated, recycled buffers
+ */
+class BufferPoolTest {
+
+	@Test
+	void handsOutAtMostCapacityAndRecyclesClearedBuffers() throws InterruptedException {
+		BufferPool pool = new BufferPool(64, 2, false);
+
+		ByteBuffer first = pool.acquire();
+		ByteBuffer second = pool.acquire(10, TimeUnit.MILLISECONDS);
+		assertThat(second).isNotNull().isNotSameAs(first);
+		assertThat(pool.acquire(10, TimeUnit.MILLISECONDS)).isNull();
+		assertThat(pool.inUse()).isEqualTo(2);
+
+		first.put(new byte[10]);
+		pool.release(first);
+		ByteBuffer recycled = pool.acquire(10, TimeUnit.MILLISECONDS);
+		assertThat(recycled).isSameAs(first);
+		assertThat(recycled.position()).isZero();
+		assertThat(recycled.remaining()).isEqualTo(64);
+	}
+
+	@Test
+	void ignoresBuffersItDidNotHandOut() throws InterruptedException {
+		BufferPool pool = new BufferPool(64, 1, false);
+		ByteBuffer own = pool.acquire();
+
+		pool.release(ByteBuffer.allocate(32));
+		pool.release(ByteBuffer.allocateDirect(64));
+		pool.release(null);
+		assertThat(pool.acquire(10, TimeUnit.MILLISECONDS)).isNull();
+
+		pool.release(own);
+		assertThat(pool.inUse()).isZero();
+	}
+
+	@Test
+	void pollNeverWaits() {
+		BufferPool pool = new BufferPool(64, 1, true);
+
+		ByteBuffer only = pool.poll();
+		assertThat(only).isNotNull();
+		assertThat(only.isDirect()).isTrue();
+		assertThat(pool.poll()).isNull();
+
+		pool.release(only);
+		assertThat(pool.poll()).isSameAs(only);
+	}
+}
@@ -0,0 +1,77 @@
+package com.chibao.dbbackup_cli.domain.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * HoldbackInputStream: the tail is released only after the verifier accepts the whole input
+ */
+class HoldbackInputStreamTest {
+
+	private static final int HOLDBACK = 1000;
+
+	@Test
+	void passesEverythingThroughOnceVerified() throws IOException {
+		byte[] data = randomBytes(200_000);
+		AtomicInteger verified = new AtomicInteger();
+
+		try (InputStream in = new HoldbackInputStream(new ByteArrayInputStream(data), HOLDBACK,
+				verified::incrementAndGet)) {
+			assertThat(in.readAllBytes()).isEqualTo(data);
+			assertThat(in.read()).isEqualTo(-1);
+		}
+		assertThat(verified).hasValue(1);
+	}
+
+	@Test
+	void keepsTheTailBackUntilTheSourceEnds() throws IOException {
+		byte[] data = randomBytes(5000);
+		AtomicInteger verified = new AtomicInteger();
+		InputStream in = new HoldbackInputStream(new ByteArrayInputStream(data), HOLDBACK,
+				verified::incrementAndGet);
+
+		byte[] head = in.readNBytes(data.length - HOLDBACK);
+		assertThat(head).isEqualTo(Arrays.copyOf(data, data.length - HOLDBACK));
+		assertThat(verified).hasValue(0);
+
+		assertThat(in.read()).isEqualTo(data[data.length - HOLDBACK] & 0xFF);
+		assertThat(verified).hasValue(1);
+	}
+
+	@Test
+	void failedVerificationNeverReleasesTheTail() throws IOException {
+		byte[] data = randomBytes(5000);
+		InputStream in = new HoldbackInputStream(new ByteArrayInputStream(data), HOLDBACK, () -> {
+			throw new IOException("Checksum mismatch");
+		});
+
+		assertThat(in.readNBytes(data.length - HOLDBACK)).hasSize(data.length - HOLDBACK);
+		assertThatThrownBy(in::read).isInstanceOf(IOException.class).hasMessage("Checksum mismatch");
+	}
+
+	@Test
+	void inputShorterThanTheHoldbackIsReleasedOnlyAtEnd() throws IOException {
+		byte[] data = randomBytes(HOLDBACK / 2);
+
+		assertThatThrownBy(() -> new HoldbackInputStream(new ByteArrayInputStream(data), HOLDBACK, () -> {
+			throw new IOException("Truncated");
+		}).read()).isInstanceOf(IOException.class);
+		assertThat(new HoldbackInputStream(new ByteArrayInputStream(data), HOLDBACK, () -> { })
+				.readAllBytes()).isEqualTo(data);
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,136 @@
+package com.chibao.dbbackup_cli.domain.retry;
+
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RetryExecutorTest {
+
+	private final MetricsPort metricsPort = mock(MetricsPort.class);
+	private final List<Duration> sleeps = new ArrayList<>();
+
+	private RetryExecutor executor(RetryPolicy policy) {
+		return new RetryExecutor(Map.of(RetryOperation.PART_UPLOAD, policy), metricsPort, sleeps::add, () -> 0.5);
+	}
+
+	@Test
+	void backoffIsJitteredBelowTheExponentialCeiling() {
+		RetryPolicy policy = RetryPolicy.builder()
+				.initialBackoff(Duration.ofMillis(100))
+				.maxBackoff(Duration.ofSeconds(1))
+				.build();
+
+		assertThat(policy.backoff(1, 0.5)).isEqualTo(Duration.ofMillis(50));
+		assertThat(policy.backoff(3, 0.5)).isEqualTo(Duration.ofMillis(200));
+		assertThat(policy.backoff(10, 0.999)).isLessThan(Duration.ofSeconds(1));
+		assertThat(policy.backoff(10, 0.0)).isEqualTo(Duration.ZERO);
+	}
+
+	@Test
+	void retriesTransientFailuresUntilSuccess() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = executor(RetryPolicy.builder().maxAttempts(4).build())
+				.execute(RetryOperation.PART_UPLOAD, () -> {
+					if (calls.incrementAndGet() < 3) {
+						throw new IOException("connection reset");
+					}
+					return "etag";
+				});
+
+		assertThat(result).isEqualTo("etag");
+		assertThat(calls).hasValue(3);
+		assertThat(sleeps).containsExactly(Duration.ofMillis(50), Duration.ofMillis(100));
+		verify(metricsPort, times(2)).recordAttempt(eq("part-upload"), eq("retry"), anyLong());
+		verify(metricsPort).recordAttempt(eq("part-upload"), eq("success"), anyLong());
+		verify(metricsPort).recordRetryCount("part-upload", 2);
+	}
+
+	@Test
+	void nonRetryableFailureFailsFast() {
+		AtomicInteger calls = new AtomicInteger();
+		RetryPolicy policy = RetryPolicy.builder()
+				.retryable(failure -> !(failure instanceof IllegalArgumentException))
+				.build();
+
+		assertThatThrownBy(() -> executor(policy).execute(RetryOperation.PART_UPLOAD, () -> {
+			calls.incrementAndGet();
+			throw new IllegalArgumentException("access denied");
+		})).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(calls).hasValue(1);
+		assertThat(sleeps).isEmpty();
+	}
+
+	@Test
+	void giveUpAfterMaxAttempts() {
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThatThrownBy(() -> executor(RetryPolicy.builder().maxAttempts(3).build())
+				.execute(RetryOperation.PART_UPLOAD, () -> {
+					calls.incrementAndGet();
+					throw new IOException("503");
+				})).isInstanceOf(IOException.class);
+
+		assertThat(calls).hasValue(3);
+		verify(metricsPort).recordAttempt(eq("part-upload"), eq("exhausted"), anyLong());
+	}
+
+	@Test
+	void exhaustedBudgetStopsRetrying() {
+		RetryExecutor executor = executor(RetryPolicy.builder().maxAttempts(10).budgetCapacity(3).build());
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThatThrownBy(() -> executor.execute(RetryOperation.PART_UPLOAD, () -> {
+			calls.incrementAndGet();
+			throw new IOException("store down");
+		})).isInstanceOf(IOException.class);
+		// The budget is shared by later calls: the next failure is not retried at all
+		assertThatThrownBy(() -> executor.execute(RetryOperation.PART_UPLOAD, () -> {
+			calls.incrementAndGet();
+			throw new IOException("store down");
+		})).isInstanceOf(IOException.class);
+
+		assertThat(calls).hasValue(5);
+		verify(metricsPort, times(2)).recordAttempt(eq("part-upload"), eq("budget_exhausted"), anyLong());
+	}
+
+	@Test
+	void slowRequestIsHedgedAndFasterCopyWins() throws Exception {
+		RetryExecutor executor = new RetryExecutor(
+				Map.of(RetryOperation.STORAGE_READ, RetryPolicy.builder().hedgeAfter(Duration.ofMillis(50)).build()),
+				metricsPort, sleeps::add, () -> 0.5);
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch stalled = new CountDownLatch(1);
+
+		long started = System.nanoTime();
+		String result = executor.executeHedged(RetryOperation.STORAGE_READ, () -> {
+			if (calls.incrementAndGet() == 1) {
+				stalled.await(10, TimeUnit.SECONDS);
+				return "slow";
+			}
+			return "fast";
+		});
+
+		assertThat(result).isEqualTo("fast");
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+		verify(metricsPort).recordAttempt(eq("storage-read"), eq("hedged"), anyLong());
+		stalled.countDown();
+	}
+}
@@ -0,0 +1,150 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.adapter.out.checksum.Sha256ChecksumAdapter;
+import com.chibao.dbbackup_cli.config.DatabaseDumpFactory;
+import com.chibao.dbbackup_cli.config.RetryConfig;
+import com.chibao.dbbackup_cli.domain.dedup.ChunkStore;
+import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.in.BackupUseCase;
+import com.chibao.dbbackup_cli.domain.port.out.BackupRecordPort;
+import com.chibao.dbbackup_cli.domain.port.out.BaseBackupPort;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.DatabaseDumpPort;
+import com.chibao.dbbackup_cli.domain.port.out.EncryptionPort;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort;
+import com.chibao.dbbackup_cli.domain.port.out.MetadataPort;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * BackupService with mocked ports
+ */
+class BackupServiceTest {
+
+	private final DatabaseDumpFactory databaseDumpFactory = mock(DatabaseDumpFactory.class);
+	private final StoragePort storagePort = mock(StoragePort.class);
+	private final BackupRecordPort backupRecordPort = mock(BackupRecordPort.class);
+	private final Sha256ChecksumAdapter checksumPort = new Sha256ChecksumAdapter();
+	private BackupService service;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		service = new BackupService(databaseDumpFactory, storagePort, checksumPort,
+				mock(EncryptionPort.class), mock(MetadataPort.class), mock(MetricsPort.class), backupRecordPort,
+				mock(CompressionPort.class), mock(KeyManagementPort.class),
+				new RetryConfig().retryExecutor(mock(MetricsPort.class), new MockEnvironment()),
+				mock(ChunkStore.class), mock(BaseBackupPort.class));
+		ReflectionTestUtils.setField(service, "maxResumeAttempts", 3);
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdownPipelineExecutor();
+	}
+
+	@Test
+	void rejectsSingleFileFormatsForNativeOnlyEngines() {
+		DatabaseDumpPort mysql = mock(DatabaseDumpPort.class);
+		when(mysql.getSupportedDatabaseType()).thenReturn("mysql");
+		when(mysql.getDefaultFormat()).thenReturn("native");
+		when(mysql.supportsSingleFileDump()).thenReturn(false);
+		when(databaseDumpFactory.getAdapter("mysql")).thenReturn(mysql);
+
+		BackupUseCase.BackupResult result = service.execute(BackupUseCase.BackupCommand.builder()
+				.databaseType("mysql").host("localhost").port(3306).database("shop")
+				.storageProvider("local")
+				.additionalOptions(Map.of(DatabaseDumpPort.OPTION_FORMAT, "directory"))
+				.build());
+
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getMessage()).contains("Format 'directory' is not available for mysql")
+				.contains("--format native");
+		verify(mysql, never()).performDump(any(DatabaseDumpPort.DumpConfig.class));
+		verify(mysql, never()).performDump(any(DatabaseDumpPort.DumpConfig.class),
+				any(DatabaseDumpPort.DumpFileSink.class));
+		ArgumentCaptor<Backup> saved = ArgumentCaptor.forClass(Backup.class);
+		verify(backupRecordPort, atLeastOnce()).save(saved.capture());
+		assertThat(saved.getValue().getStatus()).isEqualTo(BackupStatus.FAILED);
+	}
+
+	@Test
+	void resumeContinuesTheCheckpointedUploadAndRemovesTheStagedFile() throws Exception {
+		Path staged = Files.write(tempDir.resolve("b1.tar.gz"), new byte[] {1, 2, 3});
+		StoragePort.UploadCheckpoint checkpoint = StoragePort.UploadCheckpoint.builder()
+				.uploadId("upload-1")
+				.objectKey("backups/b1.tar.gz")
+				.partSize(5 * 1024 * 1024)
+				.initiatedAt(Instant.parse("2026-10-17T08:00:00Z"))
+				.completedParts(new TreeMap<>(Map.of(1, "etag-1", 2, "etag-2")))
+				.build();
+		when(storagePort.upload(any(StoragePort.UploadRequest.class))).thenReturn("backups/b1.tar.gz");
+
+		BackupUseCase.BackupResult result = service.resumeUpload(stagedBackup(staged,
+				checksumPort.calculate(staged), checkpoint));
+
+		assertThat(result.isSuccess()).isTrue();
+		ArgumentCaptor<StoragePort.UploadRequest> request = ArgumentCaptor.forClass(StoragePort.UploadRequest.class);
+		verify(storagePort, atLeastOnce()).upload(request.capture());
+		StoragePort.UploadRequest resumed = request.getAllValues().get(0); // then the metadata sidecar
+		assertThat(resumed.getResumeFrom()).isEqualTo(checkpoint);
+		assertThat(resumed.getSourceFile()).isEqualTo(staged);
+		assertThat(staged).doesNotExist();
+	}
+
+	@Test
+	void resumeRefusesAChangedStagedFileAndKeepsIt() throws Exception {
+		Path staged = Files.write(tempDir.resolve("b1.tar.gz"), new byte[] {1, 2, 3});
+		String recorded = checksumPort.calculate(staged);
+		Files.write(staged, new byte[] {1, 2, 4});
+
+		BackupUseCase.BackupResult result = service.resumeUpload(stagedBackup(staged, recorded, null));
+
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getMessage()).contains("checksum mismatch");
+		verify(storagePort, never()).upload(any(StoragePort.UploadRequest.class));
+		ArgumentCaptor<Backup> saved = ArgumentCaptor.forClass(Backup.class);
+		verify(backupRecordPort, atLeastOnce()).save(saved.capture());
+		assertThat(saved.getValue().getStatus()).isEqualTo(BackupStatus.FAILED);
+		assertThat(staged).exists();
+	}
+
+	private Backup stagedBackup(Path staged, String checksum, StoragePort.UploadCheckpoint checkpoint) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put(BackupService.STAGED_FILE, staged.toString());
+		metadata.put(BackupService.STAGED_FILENAME, "b1.tar.gz");
+		metadata.put(BackupService.STAGED_SHA256, checksum);
+		if (checkpoint != null) {
+			metadata.putAll(checkpoint.toMetadata());
+		}
+		return Backup.builder().id("b1").databaseType("postgres").databaseName("shop").host("localhost")
+				.port(5432).status(BackupStatus.IN_PROGRESS).createdAt(Instant.now())
+				.compression(CompressionType.GZIP).metadata(metadata).build();
+	}
+}
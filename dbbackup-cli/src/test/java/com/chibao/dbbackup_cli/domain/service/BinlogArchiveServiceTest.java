@@ -0,0 +1,224 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.config.RetryConfig;
+import com.chibao.dbbackup_cli.domain.exception.RestoreFailedException;
+import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.in.RestoreUseCase;
+import com.chibao.dbbackup_cli.domain.port.out.BackupRecordPort;
+import com.chibao.dbbackup_cli.domain.port.out.BinlogStreamPort;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.EncryptionPort;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import com.chibao.dbbackup_cli.domain.wal.BinlogFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * BinlogArchiveService against in-memory storage: spool -> encrypted archive -> replay
+ */
+class BinlogArchiveServiceTest {
+
+	private static final String UUID = "3e11fa47-71ca-11e1-9e33-c80aa9429562";
+
+	private final MemoryStorage storage = new MemoryStorage();
+	private final BinlogStreamPort binlogStreamPort = mock(BinlogStreamPort.class);
+	private final CompressionPort compressionPort = mock(CompressionPort.class);
+	private BinlogArchiveService service;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		when(compressionPort.compress(any(OutputStream.class), any(CompressionType.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		when(compressionPort.decompress(any(InputStream.class), any(CompressionType.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		EncryptionPort encryptionPort = mock(EncryptionPort.class);
+		when(encryptionPort.encrypt(any(OutputStream.class), any(EncryptionPort.EncryptionConfig.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		when(encryptionPort.decrypt(any(InputStream.class), any(EncryptionPort.EncryptionConfig.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		KeyManagementPort keyManagementPort = mock(KeyManagementPort.class);
+		when(keyManagementPort.generateDataKey(anyString())).thenReturn(KeyManagementPort.DataKey.builder()
+				.keyId("kek").plaintextKey(new byte[32]).wrappedKey(new byte[] {7, 7}).build());
+		when(keyManagementPort.unwrapDataKey(eq("kek"), any())).thenReturn(new byte[32]);
+
+		service = new BinlogArchiveService(binlogStreamPort, storage, compressionPort, encryptionPort,
+				keyManagementPort, mock(BackupRecordPort.class),
+				new RetryConfig().retryExecutor(mock(MetricsPort.class), new MockEnvironment()));
+		ReflectionTestUtils.setField(service, "cluster", "main");
+		ReflectionTestUtils.setField(service, "spoolDir", tempDir.resolve("spool").toString());
+		ReflectionTestUtils.setField(service, "compression", CompressionType.NONE);
+		ReflectionTestUtils.setField(service, "encrypt", true);
+		ReflectionTestUtils.setField(service, "encryptionKeyId", "kek");
+		ReflectionTestUtils.setField(service, "rotateInterval", Duration.ZERO);
+		ReflectionTestUtils.setField(service, "downloadConcurrency", 2);
+	}
+
+	@Test
+	void binlogNamesFollowSequenceNumbers() {
+		assertThat(BinlogFiles.next("binlog.000009")).isEqualTo("binlog.000010");
+		assertThat(BinlogFiles.next("mysql-bin.999999")).isEqualTo("mysql-bin.1000000");
+		assertThat(BinlogFiles.ORDER.compare("mysql-bin.999999", "mysql-bin.1000000")).isNegative();
+		assertThat(BinlogFiles.isBinlog("binlog.index")).isFalse();
+		assertThat(BinlogFiles.upTo(UUID + ":42")).isEqualTo(UUID + ":1-42");
+		assertThat(BinlogFiles.upTo(UUID + ":1-42")).isEqualTo(UUID + ":1-42");
+	}
+
+	@Test
+	void archivesRotatedFilesAndKeepsNewestInSpool() throws IOException {
+		Path spool = Files.createDirectories(tempDir.resolve("spool"));
+		Files.write(spool.resolve("binlog.000001"), new byte[] {1});
+		Files.write(spool.resolve("binlog.000002"), new byte[] {2});
+		Files.write(spool.resolve("binlog.000003"), new byte[] {3});
+
+		assertThat(service.archiveCompletedFiles()).isEqualTo(2);
+		assertThat(storage.objects).containsOnlyKeys("binlog/main/binlog.000001", "binlog/main/binlog.000002");
+		assertThat(new String(storage.objects.get("binlog/main/binlog.000001"), StandardCharsets.UTF_8))
+				.startsWith("dbbackup-binlog v1\tNONE\tkek\tBwc=\n");
+		assertThat(spool.resolve("binlog.000002")).doesNotExist();
+		assertThat(spool.resolve("binlog.000003")).exists();
+		try (var left = Files.list(spool)) {
+			assertThat(left.count()).isEqualTo(1);
+		}
+
+		assertThat(service.archiveCompletedFiles()).isZero();
+	}
+
+	@Test
+	void replaysArchiveFromBackupPositionUpToGtid() throws IOException {
+		Path spool = Files.createDirectories(tempDir.resolve("spool"));
+		for (int i = 4; i <= 8; i++) {
+			Files.write(spool.resolve(String.format("binlog.%06d", i)), new byte[] {(byte) i});
+		}
+		service.archiveCompletedFiles();
+		List<byte[]> replayed = new ArrayList<>();
+		doAnswer(invocation -> {
+			for (Path file : invocation.<BinlogStreamPort.BinlogReplayConfig>getArgument(0).getFiles()) {
+				replayed.add(Files.readAllBytes(file));
+			}
+			return null;
+		}).when(binlogStreamPort).replay(any());
+
+		Backup backup = Backup.builder().id("b1").databaseName("shop")
+				.metadata(Map.of("binlog.file", "binlog.000005", "binlog.position", "157")).build();
+		BinlogArchiveService.BinlogReplay replay = service.replay(backup, RestoreUseCase.RestoreCommand.builder()
+				.targetDatabase("shop_copy").recoveryTargetGtid(UUID + ":42").build());
+
+		assertThat(replay.getFileCount()).isEqualTo(3);
+		assertThat(replay.getFirstFile()).isEqualTo("binlog.000005");
+		assertThat(replay.getLastFile()).isEqualTo("binlog.000007");
+		assertThat(replayed).containsExactly(new byte[] {5}, new byte[] {6}, new byte[] {7});
+		ArgumentCaptor<BinlogStreamPort.BinlogReplayConfig> config =
+				ArgumentCaptor.forClass(BinlogStreamPort.BinlogReplayConfig.class);
+		verify(binlogStreamPort).replay(config.capture());
+		assertThat(config.getValue().getStartPosition()).isEqualTo(157);
+		assertThat(config.getValue().getIncludeGtids()).isEqualTo(UUID + ":1-42");
+		assertThat(config.getValue().getSourceDatabase()).isEqualTo("shop");
+	}
+
+	@Test
+	void decodesWithTheArchivedCodecAfterCompressionChanges() throws IOException {
+		ReflectionTestUtils.setField(service, "compression", CompressionType.GZIP);
+		Path spool = Files.createDirectories(tempDir.resolve("spool"));
+		Files.write(spool.resolve("binlog.000005"), new byte[] {5});
+		Files.write(spool.resolve("binlog.000006"), new byte[] {6});
+		service.archiveCompletedFiles();
+		ReflectionTestUtils.setField(service, "compression", CompressionType.ZSTD);
+		Files.write(spool.resolve("binlog.000007"), new byte[] {7});
+		service.archiveCompletedFiles();
+		assertThat(storage.objects).containsOnlyKeys("binlog/main/binlog.000005", "binlog/main/binlog.000006");
+
+		Backup backup = Backup.builder().id("b1").databaseName("shop")
+				.metadata(Map.of("binlog.file", "binlog.000005", "binlog.position", "4")).build();
+		BinlogArchiveService.BinlogReplay replay = service.replay(backup, RestoreUseCase.RestoreCommand.builder()
+				.targetDatabase("shop").recoveryTargetGtid(UUID + ":42").build());
+
+		assertThat(replay.getFileCount()).isEqualTo(2);
+		verify(compressionPort).decompress(any(InputStream.class), eq(CompressionType.GZIP));
+		verify(compressionPort).decompress(any(InputStream.class), eq(CompressionType.ZSTD));
+	}
+
+	@Test
+	void rejectsReplayOfATableSubset() {
+		Backup backup = Backup.builder().id("b1").databaseName("shop")
+				.metadata(Map.of("binlog.file", "binlog.000005", "binlog.position", "4")).build();
+
+		assertThatThrownBy(() -> service.replay(backup, RestoreUseCase.RestoreCommand.builder()
+				.targetDatabase("shop").tables(List.of("orders")).recoveryTargetGtid(UUID + ":42").build()))
+				.isInstanceOf(RestoreFailedException.class)
+				.hasMessageContaining("table subset");
+		verifyNoInteractions(binlogStreamPort);
+	}
+
+	private static class MemoryStorage implements StoragePort {
+		final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+		@Override
+		public String upload(UploadRequest request) {
+			try (InputStream in = request.openStream()) {
+				objects.put(request.getFilename(), in.readAllBytes());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return request.getFilename();
+		}
+
+		@Override
+		public InputStream download(String identifier) {
+			return new ByteArrayInputStream(objects.get(identifier));
+		}
+
+		@Override
+		public void delete(String identifier) {
+			objects.remove(identifier);
+		}
+
+		@Override
+		public boolean exists(String identifier) {
+			return objects.containsKey(identifier);
+		}
+
+		@Override
+		public String getProviderType() {
+			return "memory";
+		}
+
+		@Override
+		public String locate(String filename) {
+			return filename;
+		}
+	}
+}
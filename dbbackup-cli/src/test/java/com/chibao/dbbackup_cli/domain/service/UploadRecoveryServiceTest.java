@@ -0,0 +1,70 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.domain.model.Backup;
+import com.chibao.dbbackup_cli.domain.model.BackupStatus;
+import com.chibao.dbbackup_cli.domain.port.out.BackupRecordPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UploadRecoveryService sweep of abandoned multipart uploads
+ */
+class UploadRecoveryServiceTest {
+
+	private final BackupRecordPort backupRecordPort = mock(BackupRecordPort.class);
+	private final StoragePort storagePort = mock(StoragePort.class);
+	private final UploadRecoveryService service = new UploadRecoveryService(backupRecordPort, storagePort,
+			mock(BackupService.class));
+
+	@Test
+	void sweepSkipsUploadsALiveCheckpointStillReferences() {
+		Instant old = Instant.now().minus(Duration.ofDays(2));
+		StoragePort.UploadCheckpoint referenced = upload("upload-referenced", old);
+		StoragePort.UploadCheckpoint abandoned = upload("upload-abandoned", old);
+		StoragePort.UploadCheckpoint recent = upload("upload-recent", Instant.now());
+		when(backupRecordPort.findByStatus(BackupStatus.IN_PROGRESS)).thenReturn(List.of(
+				Backup.builder().id("b1").status(BackupStatus.IN_PROGRESS).metadata(referenced.toMetadata()).build(),
+				Backup.builder().id("b2").status(BackupStatus.IN_PROGRESS).metadata(Map.of()).build()));
+		when(storagePort.supportsResumableUpload()).thenReturn(true);
+		when(storagePort.listIncompleteUploads()).thenReturn(List.of(referenced, abandoned, recent));
+
+		int aborted = service.abortAbandonedUploads(Duration.ofDays(1));
+
+		assertThat(aborted).isEqualTo(1);
+		verify(storagePort).abortUpload(abandoned);
+		verify(storagePort, never()).abortUpload(referenced);
+		verify(storagePort, never()).abortUpload(recent);
+	}
+
+	@Test
+	void sweepIsANoOpWithoutResumableUploads() {
+		when(storagePort.supportsResumableUpload()).thenReturn(false);
+
+		assertThat(service.abortAbandonedUploads(Duration.ofDays(1))).isZero();
+		verify(storagePort, never()).listIncompleteUploads();
+		verify(storagePort, never()).abortUpload(any());
+	}
+
+	private static StoragePort.UploadCheckpoint upload(String uploadId, Instant initiatedAt) {
+		return StoragePort.UploadCheckpoint.builder()
+				.uploadId(uploadId)
+				.objectKey("backups/" + uploadId + ".tar.gz")
+				.partSize(5 * 1024 * 1024)
+				.initiatedAt(initiatedAt)
+				.completedParts(new TreeMap<>())
+				.build();
+	}
+}
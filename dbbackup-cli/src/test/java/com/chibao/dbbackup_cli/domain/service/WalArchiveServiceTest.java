@@ -0,0 +1,210 @@
+package com.chibao.dbbackup_cli.domain.service;
+
+import com.chibao.dbbackup_cli.config.RetryConfig;
+import com.chibao.dbbackup_cli.domain.model.CompressionType;
+import com.chibao.dbbackup_cli.domain.port.out.CompressionPort;
+import com.chibao.dbbackup_cli.domain.port.out.EncryptionPort;
+import com.chibao.dbbackup_cli.domain.port.out.KeyManagementPort;
+import com.chibao.dbbackup_cli.domain.port.out.MetricsPort;
+import com.chibao.dbbackup_cli.domain.port.out.StoragePort;
+import com.chibao.dbbackup_cli.domain.port.out.WalStreamPort;
+import com.chibao.dbbackup_cli.domain.wal.WalFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * WalArchiveService against in-memory storage: spool -> encoded archive -> recovery setup
+ */
+class WalArchiveServiceTest {
+
+	private static final long SEGMENT_SIZE = 1024;
+
+	private final MemoryStorage storage = new MemoryStorage();
+	private final CompressionPort compressionPort = mock(CompressionPort.class);
+	private final EncryptionPort encryptionPort = mock(EncryptionPort.class);
+	private final KeyManagementPort keyManagementPort = mock(KeyManagementPort.class);
+	private WalArchiveService service;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		when(compressionPort.compress(any(OutputStream.class), any(CompressionType.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		when(compressionPort.decompress(any(InputStream.class), any(CompressionType.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		when(encryptionPort.encrypt(any(OutputStream.class), any(EncryptionPort.EncryptionConfig.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		when(encryptionPort.decrypt(any(InputStream.class), any(EncryptionPort.EncryptionConfig.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		when(keyManagementPort.generateDataKey(anyString())).thenReturn(KeyManagementPort.DataKey.builder()
+				.keyId("kek").plaintextKey(new byte[32]).wrappedKey(new byte[] {7, 7}).build());
+		when(keyManagementPort.unwrapDataKey(eq("kek"), any())).thenReturn(new byte[32]);
+
+		service = new WalArchiveService(mock(WalStreamPort.class), storage, compressionPort, encryptionPort,
+				keyManagementPort, new RetryConfig().retryExecutor(mock(MetricsPort.class), new MockEnvironment()));
+		ReflectionTestUtils.setField(service, "cluster", "main");
+		ReflectionTestUtils.setField(service, "spoolDir", tempDir.resolve("spool").toString());
+		ReflectionTestUtils.setField(service, "compression", CompressionType.NONE);
+		ReflectionTestUtils.setField(service, "segmentSize", SEGMENT_SIZE);
+		ReflectionTestUtils.setField(service, "encryptionKeyId", "kek");
+		ReflectionTestUtils.setField(service, "downloadConcurrency", 2);
+	}
+
+	@Test
+	void segmentNamesFollowLsn() {
+		assertThat(WalFiles.segmentFor(1, "0/2000028", 16L * 1024 * 1024)).isEqualTo("000000010000000000000002");
+		assertThat(WalFiles.segmentFor(3, "1/FF000000", 16L * 1024 * 1024)).isEqualTo("0000000300000001000000FF");
+		assertThat(WalFiles.next("0000000100000001000000FF", 16L * 1024 * 1024)).isEqualTo("000000010000000200000000");
+	}
+
+	@Test
+	void archivesCompletedSegmentsAndKeepsNewestInSpool() throws IOException {
+		Path spool = Files.createDirectories(tempDir.resolve("spool"));
+		String first = WalFiles.segmentFor(2, "0/0", SEGMENT_SIZE);
+		String second = WalFiles.next(first, SEGMENT_SIZE);
+		String partial = WalFiles.next(second, SEGMENT_SIZE);
+		Files.write(spool.resolve(first), new byte[] {1});
+		Files.write(spool.resolve(second), new byte[] {2});
+		Files.write(spool.resolve(partial + ".partial"), new byte[] {3});
+		Files.writeString(spool.resolve("00000002.history"), "1\t0/100\tno recovery target specified\n");
+
+		assertThat(service.archiveCompletedSegments()).isEqualTo(3);
+		assertThat(storage.objects).containsOnlyKeys(
+				"wal/main/" + first, "wal/main/" + second, "wal/main/00000002.history");
+		assertThat(new String(storage.objects.get("wal/main/" + first), StandardCharsets.UTF_8))
+				.isEqualTo("dbbackup-wal v1\tNONE\t-\t-\n\u0001");
+		verifyNoInteractions(encryptionPort);
+		assertThat(spool.resolve(first)).doesNotExist();
+		assertThat(spool.resolve(second)).exists();
+		assertThat(spool.resolve(partial + ".partial")).exists();
+
+		assertThat(service.archiveCompletedSegments()).isZero();
+	}
+
+	@Test
+	void preparesRecoveryFromBaseBackupStartSegment() throws IOException {
+		String first = WalFiles.segmentFor(1, "0/400", SEGMENT_SIZE);
+		String segment = first;
+		for (int i = 0; i < 5; i++) {
+			storage.objects.put("wal/main/" + segment,
+					("dbbackup-wal v1\tNONE\t-\t-\n" + (char) i).getBytes(StandardCharsets.UTF_8));
+			segment = WalFiles.next(segment, SEGMENT_SIZE);
+		}
+		Path dataDirectory = Files.createDirectories(tempDir.resolve("data"));
+		Files.writeString(dataDirectory.resolve("backup_label"),
+				"START WAL LOCATION: 0/400 (file " + first + ")\nSTART TIMELINE: 1\n");
+
+		WalArchiveService.RecoveryPreparation recovery = service.prepareRecovery(dataDirectory,
+				Instant.parse("2026-10-17T08:30:00Z"), null);
+
+		assertThat(recovery.getSegmentCount()).isEqualTo(5);
+		assertThat(recovery.getFirstSegment()).isEqualTo(first);
+		try (var fetched = Files.list(recovery.getWalDirectory())) {
+			assertThat(fetched.count()).isEqualTo(5);
+		}
+		assertThat(dataDirectory.resolve("recovery.signal")).exists();
+		assertThat(Files.readString(dataDirectory.resolve("postgresql.auto.conf")))
+				.contains("recovery_target_time = '2026-10-17 08:30:00.000000+00'")
+				.contains("restore_command = 'cp \"" + recovery.getWalDirectory().toAbsolutePath() + "/%f\" \"%p\"'");
+	}
+
+	@Test
+	void encryptsSegmentsAndDecodesWithTheArchivedCodec() throws IOException {
+		ReflectionTestUtils.setField(service, "encrypt", true);
+		ReflectionTestUtils.setField(service, "compression", CompressionType.GZIP);
+		Path spool = Files.createDirectories(tempDir.resolve("spool"));
+		String first = WalFiles.segmentFor(1, "0/400", SEGMENT_SIZE);
+		String second = WalFiles.next(first, SEGMENT_SIZE);
+		Files.write(spool.resolve(first), new byte[] {1});
+		Files.write(spool.resolve(second), new byte[] {2});
+		service.archiveCompletedSegments();
+		// The codec changes after the base backup: earlier segments must still be readable
+		ReflectionTestUtils.setField(service, "compression", CompressionType.ZSTD);
+		String third = WalFiles.next(second, SEGMENT_SIZE);
+		Files.write(spool.resolve(third), new byte[] {3});
+		service.archiveCompletedSegments();
+
+		assertThat(new String(storage.objects.get("wal/main/" + first), StandardCharsets.UTF_8))
+				.startsWith("dbbackup-wal v1\tGZIP\tkek\tBwc=\n");
+		assertThat(new String(storage.objects.get("wal/main/" + third), StandardCharsets.UTF_8))
+				.startsWith("dbbackup-wal v1\tZSTD\tkek\tBwc=\n");
+		verify(encryptionPort, times(3))
+				.encrypt(any(OutputStream.class), any(EncryptionPort.EncryptionConfig.class));
+
+		Path dataDirectory = Files.createDirectories(tempDir.resolve("data"));
+		Files.writeString(dataDirectory.resolve("backup_label"),
+				"START WAL LOCATION: 0/400 (file " + first + ")\nSTART TIMELINE: 1\n");
+		WalArchiveService.RecoveryPreparation recovery = service.prepareRecovery(dataDirectory, null, "0/900");
+
+		assertThat(recovery.getSegmentCount()).isEqualTo(3);
+		assertThat(recovery.getWalDirectory().resolve(third)).hasBinaryContent(new byte[] {3});
+		verify(compressionPort, times(2)).decompress(any(InputStream.class), eq(CompressionType.GZIP));
+		verify(compressionPort).decompress(any(InputStream.class), eq(CompressionType.ZSTD));
+		verify(keyManagementPort, times(3)).unwrapDataKey(eq("kek"), any());
+	}
+
+	private static class MemoryStorage implements StoragePort {
+		final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+		@Override
+		public String upload(UploadRequest request) {
+			try (InputStream in = request.openStream()) {
+				objects.put(request.getFilename(), in.readAllBytes());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return request.getFilename();
+		}
+
+		@Override
+		public InputStream download(String identifier) {
+			return new ByteArrayInputStream(objects.get(identifier));
+		}
+
+		@Override
+		public void delete(String identifier) {
+			objects.remove(identifier);
+		}
+
+		@Override
+		public boolean exists(String identifier) {
+			return objects.containsKey(identifier);
+		}
+
+		@Override
+		public String getProviderType() {
+			return "memory";
+		}
+
+		@Override
+		public String locate(String filename) {
+			return filename;
+		}
+	}
+}